@@ -0,0 +1,54 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes;
+
+import jenes.chromosome.Chromosome;
+import jenes.population.Individual;
+
+/**
+ * A listener of the genetic algorithm evaluation event. Such a listener is notified
+ * of each individual evaluated by the fitness, whatever the evaluation path: inline,
+ * by a {@link jenes.utils.multitasking.Runner}, in a batch or deferred in lazy mode.
+ * Individuals sharing the score of a duplicate and individuals whose score has been
+ * predicted are not notified.
+ * <p>
+ * A <code>EvaluationEventListener</code> is registered to the algorithm by the method {@link GeneticAlgorithm#addEvaluationEventListener(EvaluationEventListener)}.
+ * The listener is removed by invoking the method {@link GeneticAlgorithm#removeEvaluationEventListener(EvaluationEventListener)}.
+ * </p>
+ * <p>
+ * Listeners are invoked in the algorithm thread, once the evaluation round is over.
+ * </p>
+ *
+ * @param <T> extends Chromosome
+ *
+ * @version 2.1
+ * @since 2.1
+ *
+ * @see GeneticAlgorithm
+ */
+public interface EvaluationEventListener<T extends Chromosome> {
+
+    /**
+     * Invoked when an individual has been evaluated by the fitness
+     *
+     * @param ga the genetic algorithm generating the event
+     * @param individual the evaluated individual
+     */
+    public void onEvaluation(GeneticAlgorithm<T> ga, Individual<T> individual);
+}
@@ -20,22 +20,40 @@ package jenes;
 
 import jenes.population.Fitness;
 import jenes.utils.Random;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.concurrent.Task;
 
 import jenes.chromosome.Chromosome;
+import jenes.population.GenomeSet;
 import jenes.population.Individual;
+import jenes.population.LazyEvaluator;
 import jenes.population.Pool;
 import jenes.population.Population;
+import jenes.population.ScoreBound;
 import jenes.stage.AbstractStage;
 import jenes.stage.Sequence;
 import jenes.stage.StageException;
+import jenes.statistics.Instrumentation;
 import jenes.statistics.Statistics;
+import jenes.statistics.Statistics.TerminationReason;
+import jenes.statistics.Tracer;
+import jenes.utils.checkpoint.Checkpoint;
+import jenes.utils.checkpoint.ChromosomeCodec;
 import jenes.utils.multitasking.MultiThreadEvaluator;
-import jenes.utils.multitasking.MultiThreadRunner;
 import jenes.utils.multitasking.Runner;
 
 /**
@@ -217,10 +235,18 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
      */
     private Runner runner;
 
+    /**
+     * Evolves the algorithm when it is run as a task, in the {@link Runner} set
+     * by {@link #setRunner(jenes.utils.multitasking.Runner)} if any, otherwise
+     * in a single thread {@link MultiThreadEvaluator}.
+     * 
+     * @return the algorithm statistics
+     * @throws Exception if the evolution fails
+     */
     @Override
     protected Object call() throws Exception {
         log.fine("Genetic Algorithm Started: "+ this.getTitle());
-        MultiThreadRunner r = new MultiThreadEvaluator(1);
+        Runner r = this.runner != null ? this.runner : new MultiThreadEvaluator(1);
         r.execute(this, true);
         //evolve(true);
         return statistics;
@@ -260,6 +286,8 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
     protected List<AlgorithmEventListener<T>> algorithmListeners;
     /** The generation listeners */
     protected List<GenerationEventListener<T>> generationListeners;
+    /** The evaluation listeners */
+    protected List<EvaluationEventListener<T>> evaluationListeners;
 
     /** The resize strategy enumeration. It is used in @link jenes.stage.Sequence */
     public static enum ResizeStrategy {
@@ -277,6 +305,51 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
     protected boolean fullEvaluationForced = false;
     /** The random instance */
     protected Random random = Random.getInstance();
+    /** The number of individuals evaluated at once */
+    protected int evaluationBatchSize = 1;
+    /** The flag controlling the lazy evaluation. If true, individuals are evaluated on first access to their scores. */
+    protected boolean lazyEvaluation = false;
+    /** The flag controlling if pending evaluations are performed at the end of each generation. */
+    protected boolean pendingEvaluationForced = false;
+    /** The flag controlling racing evaluations. If true, the elitism provides a cutoff to the fitness. */
+    protected boolean racing = false;
+    /** The instrumentation timing generations, evaluations and stages, null if not instrumented */
+    private Instrumentation instrumentation = null;
+    /** The tracer receiving the events of the algorithm, null if not traced */
+    private Tracer tracer = Tracer.getDefault();
+    /** The termination policy, null if the evolution goes on until the generation limit */
+    private Termination<T> termination = null;
+    /** True while the fitness evaluations of a generation can be interrupted */
+    private boolean interruptible = false;
+    /** True if the fitness evaluations of the current generation have been interrupted */
+    private boolean evaluationInterrupted = false;
+    /** The checkpoint to resume from at the next start */
+    private Checkpoint resumed = null;
+    /** The random state to restore at the end of start, when resuming */
+    private byte[] resumedRandomState = null;
+    /** True while the runner is evaluating a population */
+    private boolean evaluating = false;
+    /** The evaluator attached to individuals in lazy evaluation mode */
+    private final LazyEvaluator<T> lazyEvaluator = new LazyEvaluator<T>() {
+
+        @Override
+        public void evaluate(Individual<T> individual) {
+            GeneticAlgorithm.this.evaluateDeferred(individual);
+        }
+    };
+
+    /*
+     * Batch evaluation buffers, reused along generations
+     */
+    private final List<Individual<T>> pendingBatch = new ArrayList<Individual<T>>();
+    private final List<Individual<T>> batch = new ArrayList<Individual<T>>();
+    private final List<Individual<T>> duplicates = new ArrayList<Individual<T>>();
+    private final List<Individual<T>> twins = new ArrayList<Individual<T>>();
+    private final GenomeSet<T> genomes = new GenomeSet<T>();
+    /** The individuals evaluated in the current round, to be notified to evaluation listeners */
+    private final List<Individual<T>> evaluated = new ArrayList<Individual<T>>();
+    /** True if a subclass overrides {@link #evaluateIndividual(jenes.population.Individual)} */
+    private final boolean evaluateIndividualOverridden = this.isEvaluateIndividualOverridden();
 
     /**
      * Constructs a new genetic algorithm with no initial population and the
@@ -374,6 +447,7 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
 
         this.algorithmListeners = new ArrayList<AlgorithmEventListener<T>>();
         this.generationListeners = new ArrayList<GenerationEventListener<T>>();
+        this.evaluationListeners = new ArrayList<EvaluationEventListener<T>>();
 
         //XXX fixes some issue in TimSorter for ArrayList in jdk 7.0
         System.setProperty("java.util.Arrays.useLegacyMergeSort", "true");
@@ -572,18 +646,24 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
         log.fine("Genetic Algorithm has initialized");
         this.start(restart);
 
+        final int first = this.generation;
         final int limit = this.generationLimit;
-        for (generation = 0; generation < limit && !end(); generation++) {
+        for (generation = first; generation < limit && statistics.getTerminationReason() == null && !end(); generation++) {
             //Stop execution if the algorithm is canceled.
             if (this.isCancelled()) break;
             
-            log.fine("Genetic Algorithm evloving generation"+generation);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Genetic Algorithm evloving generation"+generation);
+            }
+            final long begin = this.instrumentation != null || this.tracer != null ? System.nanoTime() : 0;
             statistics.setGenerations(generation+1);
             try {
                 currentPopulation = history[0];
                 nextPopulation = history[this.historySize - 1];
                 nextPopulation.setAs(currentPopulation);
 
+                // evaluations performed by stages are subject to budgets too
+                this.interruptible = true;
                 // Because Sequence uses a temporary population, it can be used
                 // nextPopulation
                 // for both input and output parameters, in this way
@@ -591,15 +671,35 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
                 // population.
                 // (see Sequence.process)
                 this.body.process(nextPopulation, nextPopulation);
-                log.fine("Genetic Algorithm processed generation: "+generation);
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Genetic Algorithm processed generation: "+generation);
+                }
+                final boolean cutoff = this.racing && this.elitism > 0 && this.getFitness() != null;
+                if (cutoff) {
+                    this.getFitness().getScoreBound().set(this.elitismCutoff());
+                }
                 this.evaluatePopulation(nextPopulation, fullEvaluationForced);
-                log.fine("Genetic Algorithm evaluated generation: "+generation);
+                this.interruptible = false;
+                if (cutoff) {
+                    this.getFitness().getScoreBound().set(Double.NaN);
+                }
+                if (this.evaluationInterrupted && !this.keepEvaluated(nextPopulation)) {
+                    //nothing has been evaluated, the last population is kept
+                    log.fine("Genetic Algorithm interrupted generation: "+generation);
+                    statistics.setGenerations(generation);
+                    nextPopulation = history[0];
+                    break;
+                }
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Genetic Algorithm evaluated generation: "+generation);
+                }
                 for (int i = this.historySize - 1; i > 0; i--) {
                     history[i] = history[i - 1];
                 }
                 history[0] = nextPopulation;
             } catch (StageException e) {
                 statistics.setExceptionTerminated(true);
+                statistics.setTerminationReason(TerminationReason.EXCEPTION);
                 log.fine("Genetic Algorithm had error evoling generation: "+generation);
                 throw new AlgorithmException(
                         "An error occured during the ga evolution", e);
@@ -607,18 +707,43 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
             if (elitism > 0) {
                 this.applyElitism();
             }
+            if (!this.evaluationInterrupted) {
+                this.verifyPredictions(history[0]);
+            }
+            if (this.lazyEvaluation) {
+                this.checkPendingEvaluations();
+            }
             final long now = System.currentTimeMillis();
             statistics.setGenerationEndTimes(generation, now);
             this.onGeneration(now);
             for (GenerationEventListener gel : generationListeners) {
                 gel.onGeneration(this, now);
             }
+            if (this.termination != null && statistics.getTerminationReason() == null) {
+                statistics.setTerminationReason(this.termination.check(this));
+            }
+            if (this.instrumentation != null || this.tracer != null) {
+                final long elapsed = System.nanoTime() - begin;
+                if (this.instrumentation != null) {
+                    this.instrumentation.getGenerationHistogram().record(elapsed);
+                }
+                if (this.tracer != null) {
+                    this.tracer.onGeneration(this, generation, history[0].size(), elapsed);
+                }
+            }
 
             Pool<T> p = history[0].getPool();
             if (p != null) {
                 p.resize();
             }
         }//End of generation loop
+        if (statistics.getTerminationReason() == null) {
+            if (this.isCancelled()) {
+                statistics.setTerminationReason(TerminationReason.CANCELLED);
+            } else {
+                statistics.setTerminationReason(generation >= limit ? TerminationReason.GENERATION_LIMIT : TerminationReason.CONDITION);
+            }
+        }
         this.stop();
     }
 
@@ -656,19 +781,34 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
         }
 
         this.statistics = new Statistics(this.generationLimit);
+        if (this.instrumentation != null) {
+            this.instrumentation.start(this.statistics);
+        }
 
         this.generation = 0;
+        this.interruptible = false;
+        this.evaluationInterrupted = false;
+        this.evaluating = false;
 
         long now = System.currentTimeMillis();
         statistics.setStartTime(now);
 
+        final boolean resuming = this.resumed != null;
+        if (resuming) {
+            this.restore(this.resumed);
+            this.resumed = null;
+        }
+
+        if (this.termination != null) {
+            this.termination.reset(this);
+        }
 
         this.onStart(now);
         for (AlgorithmEventListener<T> ael : algorithmListeners) {
             ael.onAlgorithmStart(this, now);
         }
 
-        if (reset || this.currentPopulation == null) {
+        if (!resuming && (reset || this.currentPopulation == null)) {
 
             for (int i = 0; i < this.historySize; ++i) {
                 this.history[i].setPool(this.initialPopulation.getPool());
@@ -696,6 +836,15 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
             this.runner.onInit();
         }
 
+        if (this.resumedRandomState != null) {
+            try {
+                this.random.readState(new DataInputStream(new ByteArrayInputStream(this.resumedRandomState)));
+            } catch (IOException ex) {
+                throw new AlgorithmException("[Jenes]: unable to restore the random state", ex);
+            }
+            this.resumedRandomState = null;
+        }
+
         statistics.setRandomSeed(this.random.getSeed());
 
         this.onInit(now);
@@ -704,6 +853,174 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
         }
     }
 
+    /**
+     * Captures a checkpoint of this genetic algorithm, that is the history 
+     * populations, the generation counter, the random state, the pool availability
+     * and the statistics. It should be invoked between two generations, typically
+     * by a {@link GenerationEventListener}; the algorithm resumes from the following 
+     * generation. The checkpoint is a frozen copy, so that it can be written to file
+     * by another thread while the algorithm evolves.
+     * <p>
+     * The state of stages and fitness is not captured. Individuals whose lazy
+     * evaluation is pending are captured as not evaluated.
+     *
+     * @param reuse a checkpoint whose buffer can be reused, or null
+     * @return the checkpoint
+     * @since 2.1
+     */
+    @SuppressWarnings("unchecked")
+    public final Checkpoint checkpoint(final Checkpoint reuse) {
+        if (this.statistics == null || this.initialPopulation == null || this.initialPopulation.size() == 0) {
+            throw new IllegalStateException("[Jenes]: checkpoints can be taken only after the algorithm has started");
+        }
+
+        final ChromosomeCodec<T> codec = Checkpoint.getCodec((Class<T>) this.initialPopulation.getIndividual(0).getChromosome().getClass());
+
+        byte[] rng;
+        byte[] stats;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            this.random.writeState(new DataOutputStream(bytes));
+            rng = bytes.toByteArray();
+
+            bytes.reset();
+            this.statistics.writeTo(new DataOutputStream(bytes));
+            stats = bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new AlgorithmException("[Jenes]: unable to capture the checkpoint", ex);
+        }
+
+        int size = Checkpoint.HEADER_SIZE + 4 + 4 + rng.length + 4 + stats.length + 4;
+        for (int i = 0; i < this.historySize; ++i) {
+            size += 4;
+            for (Individual<T> individual : this.history[i]) {
+                size += Checkpoint.sizeOf(individual, codec);
+            }
+        }
+
+        final Checkpoint cp = reuse != null ? reuse : new Checkpoint();
+        final ByteBuffer buffer = cp.begin(size, this.statistics.getGenerations());
+        buffer.putInt(this.historySize);
+        buffer.putInt(rng.length);
+        buffer.put(rng);
+        buffer.putInt(stats.length);
+        buffer.put(stats);
+        final Pool<T> p = this.history[0].getPool();
+        buffer.putInt(p != null ? p.availability() : -1);
+        for (int i = 0; i < this.historySize; ++i) {
+            buffer.putInt(this.history[i].size());
+            for (Individual<T> individual : this.history[i]) {
+                Checkpoint.encode(individual, codec, buffer);
+            }
+        }
+        return cp;
+    }
+
+    /**
+     * Captures a checkpoint of this genetic algorithm.
+     *
+     * @return the checkpoint
+     * @see #checkpoint(jenes.utils.checkpoint.Checkpoint)
+     * @since 2.1
+     */
+    public final Checkpoint checkpoint() {
+        return this.checkpoint(null);
+    }
+
+    /**
+     * Resumes the evolution from a checkpoint file.
+     *
+     * @param path the checkpoint file
+     * @throws AlgorithmException if the checkpoint cannot be read
+     * @see #resume(jenes.utils.checkpoint.Checkpoint)
+     * @since 2.1
+     */
+    public final void resume(final Path path) throws AlgorithmException {
+        Checkpoint cp;
+        try {
+            cp = Checkpoint.read(path);
+        } catch (IOException ex) {
+            throw new AlgorithmException("[Jenes]: unable to read the checkpoint " + path, ex);
+        }
+        this.resume(cp);
+    }
+
+    /**
+     * Resumes the evolution from a checkpoint. The algorithm has to be configured 
+     * as the one the checkpoint was taken from, i.e. same body, fitness and a
+     * population of the same chromosome type. Populations, generation counter, 
+     * random state and statistics are restored, so that the evolution continues
+     * exactly as if it was never interrupted. The generation limit can be raised 
+     * to extend the run.
+     *
+     * @param checkpoint the checkpoint to resume from
+     * @throws AlgorithmException if the generation limit has already been reached
+     * @since 2.1
+     */
+    public final void resume(final Checkpoint checkpoint) throws AlgorithmException {
+        if (checkpoint.getGeneration() >= this.generationLimit) {
+            throw new AlgorithmException("[Jenes]: the checkpoint is at generation " + checkpoint.getGeneration() + ", beyond the generation limit");
+        }
+        this.resumed = checkpoint;
+        this.evolve(false);
+    }
+
+    /**
+     * Restores the state captured by a checkpoint. The random state is kept
+     * apart, as it is restored at the end of start.
+     */
+    @SuppressWarnings("unchecked")
+    private void restore(final Checkpoint cp) {
+        final Individual<T> sample = this.initialPopulation.getIndividual(0);
+        final ChromosomeCodec<T> codec = Checkpoint.getCodec((Class<T>) sample.getChromosome().getClass());
+        final ByteBuffer buffer = cp.getBuffer();
+
+        this.setHistorySize(buffer.getInt());
+
+        this.resumedRandomState = new byte[buffer.getInt()];
+        buffer.get(this.resumedRandomState);
+
+        byte[] stats = new byte[buffer.getInt()];
+        buffer.get(stats);
+        try {
+            this.statistics.readFrom(new DataInputStream(new ByteArrayInputStream(stats)));
+        } catch (IOException ex) {
+            throw new AlgorithmException("[Jenes]: unable to restore the statistics", ex);
+        }
+        this.generation = cp.getGeneration();
+
+        final int availability = buffer.getInt();
+        for (int i = 0; i < this.historySize; ++i) {
+            final Population<T> pop = this.history[i];
+            pop.setPool(this.initialPopulation.getPool());
+
+            final int n = buffer.getInt();
+            Individual<T> work = null;
+            for (int k = 0; k < n; ++k) {
+                if (k < pop.size()) {
+                    Checkpoint.decode(pop.getIndividual(k), codec, buffer);
+                } else {
+                    if (work == null) {
+                        work = sample.clone();
+                    }
+                    Checkpoint.decode(work, codec, buffer);
+                    pop.add(work);
+                    if (work.getPopulation() == pop) {
+                        work = null; //taken by the population
+                    }
+                }
+            }
+            pop.resize(n);
+        }
+
+        final Pool<T> p = this.history[0].getPool();
+        if (p != null && availability >= 0) {
+            p.setAvailability(availability);
+        }
+
+        this.currentPopulation = this.history[0];
+    }
+
     /**
      * Terminates the genetic algorithm, notifying the stop event to listeners.
      * It is automatically invoked by the method {@link #evolve()}, thus it
@@ -725,6 +1042,10 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
         if (this.runner != null) {
             this.runner.stop();
         }
+
+        if (this.instrumentation != null) {
+            this.instrumentation.stop();
+        }
     }
 
     /**
@@ -828,6 +1149,7 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
 
         if (this.runner != null) {
             this.runner.onEvaluationBegin(population, forced);
+            this.evaluating = true;
         }
 
         // notify to the population that
@@ -845,25 +1167,88 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
 
         long now = System.currentTimeMillis();
         statistics.setFitnessEvalStageBegin(this.generation,now);
+        final long begin = this.instrumentation != null ? System.nanoTime() : 0;
 
+        final int batchSize = this.evaluationBatchSize;
         for (Individual individual : population) {
-            log.finer("looping through the individuals in the population. This individual is"+individual.toString());
+            if (log.isLoggable(Level.FINER)) {
+                log.finer("looping through the individuals in the population. This individual is"+individual.toString());
+            }
             if (!individual.isEvaluated() || forced || this.isFitnessChanged()) {
+                if (this.interruptible && this.interruptEvaluation()) {
+                    break;
+                }
+                if (this.lazyEvaluation) {
+                    // copies of a deferred individual share its evaluation, 
+                    // so survivors are deferred and counted once
+                    if (!individual.isEvaluationPending() || forced || this.isFitnessChanged()) {
+                        individual.setLazyEvaluator(this.lazyEvaluator);
+                        statistics.incrementDeferredEvaluations();
+                    }
+                    continue;
+                }
+                if (batchSize > 1) {
+                    this.pendingBatch.add(individual);
+                    if (this.pendingBatch.size() >= batchSize) {
+                        this.evaluateBatch();
+                    }
+                    continue;
+                }
                 log.fine("This individual needs to be updated");
+                if (!this.evaluationListeners.isEmpty()) {
+                    this.evaluated.add(individual);
+                }
                 if (this.runner != null) {
                     log.finest("Evaluating in a thread");
                     this.runner.evaluateIndividual(individual);
                 } else {
                     log.finest("Evaluating inline");
-                    this.evaluateIndividual(individual);
+                    this.evaluateInline(individual);
                 }
 
                 statistics.incrementFitnessEvaluationNumbers();
             }
         }
 
+        if (this.evaluationInterrupted) {
+            this.pendingBatch.clear();
+        } else if (!this.pendingBatch.isEmpty()) {
+            this.evaluateBatch();
+        }
+
         if (this.runner != null) {
             this.runner.onEvaluationEnd();
+            this.evaluating = false;
+            // a cancellation can make the runner drop its pending evaluations
+            if (this.interruptible && this.isCancelled()) {
+                this.interruptEvaluation();
+            }
+        }
+
+        // duplicates share the score of their twin, available only now that
+        // the runner has completed its work
+        final int dups = this.duplicates.size();
+        for (int i = 0; i < dups; ++i) {
+            Individual<T> twin = this.twins.get(i);
+            if (twin.isEvaluated()) {
+                Individual<T> dup = this.duplicates.get(i);
+                dup.setScore(twin.getAllScores());
+                dup.setLegal(twin.isLegal());
+            }
+        }
+        this.duplicates.clear();
+        this.twins.clear();
+
+        this.notifyEvaluations();
+
+        if (this.getFitness() != null) {
+            ScoreBound bound = this.getFitness().getScoreBound();
+            statistics.addAbortedEvaluations(bound.getAborted(), bound.getSaved());
+            bound.reset();
+        }
+
+        if (this.instrumentation != null) {
+            this.instrumentation.getHistogram(Instrumentation.EVALUATION_STAGE).record(System.nanoTime() - begin);
         }
 
         now = System.currentTimeMillis();
@@ -872,6 +1257,484 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
 
     }
 
+    /**
+     * Completes a generation whose evaluation has been interrupted by a budget.
+     * The individuals evaluated so far, or whose evaluation is deferred, are kept;
+     * the others are replaced by their counterpart of the last population. A
+     * generation interrupted by cancellation, or without any evaluated individual,
+     * is not completed.
+     *
+     * @return true if the generation has been completed
+     */
+    private boolean keepEvaluated(final Population<T> population) {
+        if (statistics.getTerminationReason() == TerminationReason.CANCELLED) {
+            return false;
+        }
+        final Population<T> last = this.history[0];
+        final int n = population.size();
+        int kept = 0;
+        for (int i = 0; i < n; ++i) {
+            Individual<T> individual = population.getIndividual(i);
+            if (individual.isEvaluated() || individual.isEvaluationPending()) {
+                kept++;
+            }
+        }
+        if (kept == 0) {
+            return false;
+        }
+        for (int i = 0; i < n; ++i) {
+            Individual<T> individual = population.getIndividual(i);
+            if (!individual.isEvaluated() && !individual.isEvaluationPending()) {
+                individual.setAs(last.getIndividual(i % last.size()));
+            }
+        }
+        log.fine("Genetic Algorithm kept " + kept + " evaluated individuals of interrupted generation: " + generation);
+        return true;
+    }
+
+    /**
+     * Checks if the fitness evaluations of the current generation have to be 
+     * interrupted, because the algorithm has been cancelled or a budget of the
+     * termination policy has been spent.
+     * 
+     * @return true if evaluations have to be interrupted
+     */
+    private boolean interruptEvaluation() {
+        if (!this.evaluationInterrupted) {
+            TerminationReason reason = null;
+            if (this.isCancelled()) {
+                reason = TerminationReason.CANCELLED;
+            } else if (this.termination != null) {
+                reason = this.termination.checkEvaluation(this);
+            }
+            if (reason != null) {
+                statistics.setTerminationReason(reason);
+                this.evaluationInterrupted = true;
+            }
+        }
+        return this.evaluationInterrupted;
+    }
+
+    /**
+     * Evaluates an individual in the algorithm thread by {@link #evaluateIndividual(jenes.population.Individual)},
+     * reporting it to the instrumentation and to the tracer.
+     */
+    private void evaluateInline(final Individual<T> individual) {
+        if (this.instrumentation != null || this.tracer != null) {
+            final long start = System.nanoTime();
+            this.evaluateIndividual(individual);
+            final long elapsed = System.nanoTime() - start;
+            if (this.instrumentation != null) {
+                this.instrumentation.getEvaluationHistogram().record(elapsed);
+            }
+            if (this.tracer != null) {
+                this.tracer.onEvaluation(this, individual, elapsed);
+            }
+        } else {
+            this.evaluateIndividual(individual);
+        }
+    }
+
+    /**
+     * Says if the class of this algorithm overrides {@link #evaluateIndividual(jenes.population.Individual)}
+     */
+    private boolean isEvaluateIndividualOverridden() {
+        try {
+            return this.getClass().getMethod("evaluateIndividual", Individual.class).getDeclaringClass() != GeneticAlgorithm.class;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Evaluates the pending batch. Individuals whose genome is already in the
+     * batch are not evaluated, they will receive the score of their twin at the
+     * end of the evaluation. Twins are found by hashing genomes in a {@link GenomeSet}.
+     * Deduplication requires {@link Individual#isSameChromosomeSameFitness()}.
+     * <p>
+     * Inline, the batch is handed to {@link Fitness#evaluateBatch(java.util.List)}
+     * unless a subclass overrides {@link #evaluateIndividual(jenes.population.Individual)},
+     * in which case individuals are evaluated one by one. Individuals of a fitness
+     * batch are reported to the instrumentation and to the tracer with the batch 
+     * time amortized over the batch size.
+     */
+    @SuppressWarnings("unchecked")
+    private void evaluateBatch() {
+        final boolean dedupe = Individual.isSameChromosomeSameFitness();
+
+        this.batch.clear();
+        this.genomes.clear();
+        for (Individual<T> individual : this.pendingBatch) {
+            Individual<T> twin = dedupe ? this.genomes.add(individual) : null;
+            if (twin != null) {
+                this.duplicates.add(individual);
+                this.twins.add(twin);
+            } else {
+                this.batch.add(individual);
+            }
+        }
+        statistics.addDuplicateEvaluationsSkipped(this.pendingBatch.size() - this.batch.size());
+        this.pendingBatch.clear();
+        if (!this.evaluationListeners.isEmpty()) {
+            this.evaluated.addAll(this.batch);
+        }
+
+        if (this.runner != null) {
+            log.finest("Evaluating a batch in the runner");
+            this.runner.evaluateBatch((List) this.batch);
+        } else {
+            log.finest("Evaluating a batch inline");
+            final long begin = System.nanoTime();
+            final Fitness fit = this.getFitness();
+            final boolean whole = fit != null && !this.evaluateIndividualOverridden;
+            if (whole) {
+                fit.evaluateBatch(this.batch);
+            } else {
+                for (Individual<T> individual : this.batch) {
+                    this.evaluateInline(individual);
+                }
+            }
+            final long elapsed = System.nanoTime() - begin;
+            statistics.addBatchEvaluation(this.batch.size(), elapsed);
+            if (this.instrumentation != null) {
+                this.instrumentation.getHistogram(Instrumentation.BATCH).record(elapsed);
+            }
+            if (whole && (this.instrumentation != null || this.tracer != null) && !this.batch.isEmpty()) {
+                final long share = elapsed / this.batch.size();
+                for (Individual<T> individual : this.batch) {
+                    if (this.instrumentation != null) {
+                        this.instrumentation.getEvaluationHistogram().record(share);
+                    }
+                    if (this.tracer != null) {
+                        this.tracer.onEvaluation(this, individual, share);
+                    }
+                }
+            }
+        }
+
+        statistics.addFitnessEvaluationNumbers(this.batch.size());
+    }
+
+    /**
+     * Performs a deferred evaluation, as the scores of the individual have been
+     * accessed. Like the other evaluations, it is subject to cancellation and to
+     * the budgets of the termination policy: when they interrupt the evaluations,
+     * the individual is left not evaluated. If a runner is set, the evaluation is
+     * performed in an evaluation round of its own, or inline if the scores are 
+     * accessed while the runner is evaluating a population.
+     */
+    private void evaluateDeferred(final Individual<T> individual) {
+        if (this.interruptEvaluation()) {
+            return;
+        }
+        if (this.runner != null && !this.evaluating) {
+            this.runner.onEvaluationBegin(this.history[0], false);
+            this.evaluating = true;
+            try {
+                this.runner.evaluateIndividual(individual);
+            } finally {
+                this.runner.onEvaluationEnd();
+                this.evaluating = false;
+            }
+        } else {
+            this.evaluateInline(individual);
+        }
+        statistics.incrementFitnessEvaluationNumbers();
+        statistics.incrementLazyEvaluations();
+        if (individual.isEvaluated()) {
+            for (EvaluationEventListener<T> eel : evaluationListeners) {
+                eel.onEvaluation(this, individual);
+            }
+        }
+    }
+
+    /**
+     * Notifies evaluation listeners of the individuals evaluated in the last round.
+     * Individuals left not evaluated by an interruption are not notified.
+     */
+    private void notifyEvaluations() {
+        for (Individual<T> individual : this.evaluated) {
+            if (individual.isEvaluated()) {
+                for (EvaluationEventListener<T> eel : evaluationListeners) {
+                    eel.onEvaluation(this, individual);
+                }
+            }
+        }
+        this.evaluated.clear();
+    }
+
+    /**
+     * Checks individuals of the current population whose evaluation is still
+     * deferred. If <code>pendingEvaluationForced</code> is set, the pending
+     * ones are evaluated, so that end-of-generation statistics consider the whole
+     * population; otherwise they are only counted.
+     */
+    private void checkPendingEvaluations() {
+        int pending = 0;
+        for (Individual<T> individual : this.history[0]) {
+            if (individual.isEvaluationPending()) {
+                if (this.pendingEvaluationForced) {
+                    individual.getScore();
+                } else {
+                    pending++;
+                }
+            }
+        }
+        statistics.setPendingEvaluations(pending);
+    }
+
+    /**
+     * Evaluates by the fitness the individuals whose score has been predicted, 
+     * as by a {@link jenes.stage.SurrogateScreener}, if they rank among the best 
+     * <code>elitism</code> ones (at least one), so that the best individual does
+     * not rely on an estimate. Ranking is based on the first objective, legal
+     * individuals first; it is repeated until the top ones are all verified.
+     * The elite copied by {@link #applyElitism()} is verified as well.
+     *
+     * @param population the evaluated population
+     */
+    private void verifyPredictions(final Population<T> population) {
+        List<Individual<T>> ranking = null;
+        final int top = Math.max(1, this.elitism);
+        final boolean bib = this.getFitness() != null ? this.getFitness().getBiggerIsBetter()[0] : this.isBiggerBetter();
+        for (;;) {
+            if (ranking == null) {
+                for (Individual<T> individual : population) {
+                    if (individual.isPredicted()) {
+                        ranking = new ArrayList<Individual<T>>(population.size());
+                        break;
+                    }
+                }
+                if (ranking == null) {
+                    return;
+                }
+            }
+            ranking.clear();
+            for (Individual<T> individual : population) {
+                // pending lazy evaluations are not forced
+                if (!individual.isEvaluationPending()) {
+                    ranking.add(individual);
+                }
+            }
+            Collections.sort(ranking, new Comparator<Individual<T>>() {
+
+                @Override
+                public int compare(Individual<T> i1, Individual<T> i2) {
+                    if (i1.isLegal() != i2.isLegal()) {
+                        return i1.isLegal() ? -1 : 1;
+                    }
+                    return bib ? Double.compare(i2.getScore(), i1.getScore()) : Double.compare(i1.getScore(), i2.getScore());
+                }
+            });
+            int requested = 0;
+            final int n = Math.min(top, ranking.size());
+            for (int i = 0; i < n; ++i) {
+                Individual<T> individual = ranking.get(i);
+                if (individual.isPredicted()) {
+                    individual.requestEvaluation();
+                    requested++;
+                }
+            }
+            if (requested == 0) {
+                return;
+            }
+            // predictions turned into actual evaluations
+            statistics.addScreening(requested, -requested);
+            this.evaluatePopulation(population, false);
+        }
+    }
+
+    /**
+     * Returns the racing cutoff provided by elitism, that is the first objective
+     * score of the worst elite individual of the current population. Offspring
+     * worse than it cannot improve the elite.
+     *
+     * @return the cutoff, or NaN if not available
+     */
+    private double elitismCutoff() {
+        final boolean bib = this.getFitness().getBiggerIsBetter()[0];
+        double[] scores = new double[currentPopulation.size()];
+        int n = 0;
+        for (Individual<T> individual : currentPopulation) {
+            if (individual.isLegal() && individual.isEvaluated()) {
+                scores[n++] = individual.getScore();
+            }
+        }
+        if (n < this.elitism) {
+            return Double.NaN;
+        }
+        Arrays.sort(scores, 0, n);
+        return bib ? scores[n - this.elitism] : scores[this.elitism - 1];
+    }
+
+    /**
+     * Returns the instrumentation of this algorithm.
+     * 
+     * @return the instrumentation, or null if not instrumented
+     * @since 2.1
+     */
+    public Instrumentation getInstrumentation() {
+        return this.instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation, timing generations, evaluations and stages with 
+     * nanosecond resolution. It has to be set before the algorithm starts, as stages
+     * register themselves when initialized.
+     * 
+     * @param instrumentation the instrumentation, or null to disable timing
+     * @since 2.1
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Returns the tracer of this algorithm.
+     * 
+     * @return the tracer, or null if not traced
+     * @since 2.1
+     */
+    public Tracer getTracer() {
+        return this.tracer;
+    }
+
+    /**
+     * Sets the tracer receiving the events of generations, stages and evaluations.
+     * It has to be set before the algorithm starts, as stages look it up when initialized.
+     * By default, it is {@link Tracer#getDefault()}.
+     * 
+     * @param tracer the tracer, or null to disable tracing
+     * @since 2.1
+     */
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Returns the termination policy.
+     * 
+     * @return the termination policy, or null if the evolution goes on until the generation limit
+     * @since 2.1
+     */
+    public Termination<T> getTermination() {
+        return this.termination;
+    }
+
+    /**
+     * Sets the termination policy, stopping the evolution before the generation 
+     * limit. The policy is checked at the end of each generation, after the generation
+     * listeners. Budget policies are also checked before each fitness evaluation, 
+     * and when they are exhausted the current generation is discarded. Cancellation 
+     * is checked before each fitness evaluation as well. The termination reason is 
+     * recorded in {@link Statistics#getTerminationReason()}.
+     * 
+     * @param termination the termination policy, or null
+     * @since 2.1
+     */
+    public void setTermination(Termination<T> termination) {
+        this.termination = termination;
+    }
+
+    /**
+     * Says if racing evaluations are active. By default it is false.
+     * 
+     * @return true, if elitism provides a cutoff to the fitness
+     */
+    public boolean isRacing() {
+        return this.racing;
+    }
+
+    /**
+     * Sets the racing evaluation mode. When elitism is used, before evaluating the
+     * offspring the genetic algorithm sets the {@link ScoreBound} of the fitness to 
+     * the score of the worst elite individual. Fitness functions can query it by 
+     * {@link Fitness#exceedsCutoff(double)} and abort evaluations that cannot improve 
+     * the elite; aborted individuals get the worst possible score. Aborted evaluations 
+     * and saved work are reported in {@link Statistics}.
+     * <p>
+     * Other stages, such as {@link jenes.stage.operator.common.SteadyState}, provide
+     * their own cutoff independently of this flag.
+     *
+     * @param flag true to enable racing evaluations
+     */
+    public void setRacing(boolean flag) {
+        this.racing = flag;
+    }
+
+    /**
+     * Says if the lazy evaluation mode is active. By default it is false.
+     * 
+     * @return true, if individuals are evaluated on first access to their scores.
+     */
+    public boolean isLazyEvaluation() {
+        return this.lazyEvaluation;
+    }
+
+    /**
+     * Sets the lazy evaluation mode. In lazy mode {@link #evaluatePopulation(jenes.population.Population, boolean)}
+     * does not evaluate individuals, but attaches them a {@link LazyEvaluator}. 
+     * Individuals are then evaluated by {@link #evaluateIndividual(jenes.population.Individual)} 
+     * the first time their scores are accessed, typically by a selector or a 
+     * replacement stage. In this way offspring overwritten before competing are
+     * never evaluated.
+     * <p>
+     * Copies of an individual share its deferred evaluation, so that a genome 
+     * surviving along generations is evaluated at most once. Lazy evaluations are 
+     * handed to the {@link Runner}, if any, one at a time, and are subject to the 
+     * budgets of the termination policy. Elitism and population statistics access 
+     * the scores of the whole population, so they reduce the savings.
+     *
+     * @param flag true to evaluate individuals on demand
+     */
+    public void setLazyEvaluation(boolean flag) {
+        this.lazyEvaluation = flag;
+    }
+
+    /**
+     * Says if pending evaluations are performed at the end of each generation.
+     * By default it is false.
+     * 
+     * @return true, if pending evaluations are performed at the generation end.
+     */
+    public boolean isPendingEvaluationForced() {
+        return this.pendingEvaluationForced;
+    }
+
+    /**
+     * Sets if individuals still waiting for their lazy evaluation at the end of 
+     * a generation have to be evaluated before notifying the generation event.
+     * This makes statistics consistent, at the price of evaluating the whole 
+     * population. Otherwise pending individuals are only counted in {@link Statistics}.
+     *
+     * @param flag true to perform pending evaluations at the generation end
+     */
+    public void setPendingEvaluationForced(boolean flag) {
+        this.pendingEvaluationForced = flag;
+    }
+
+    /**
+     * Returns the number of individuals evaluated at once. By default it is 1,
+     * that is individuals are evaluated one by one.
+     *
+     * @return the evaluation batch size
+     */
+    public int getEvaluationBatchSize() {
+        return this.evaluationBatchSize;
+    }
+
+    /**
+     * Sets the number of individuals evaluated at once. When greater than 1,
+     * individuals requiring evaluation are collected in batches and handed to
+     * {@link Fitness#evaluateBatch(java.util.List)}, or to {@link Runner#evaluateBatch(java.util.List)}
+     * if a runner is set. Values lower than 1 are trimmed to 1.
+     *
+     * @param size the evaluation batch size
+     */
+    public void setEvaluationBatchSize(final int size) {
+        this.evaluationBatchSize = size < 1 ? 1 : size;
+    }
+
     /**
      * Evaluates a single individual. This evaluation of individuals is
      * specifically related to the problem to solve. If the genetic algorithm's body
@@ -1029,6 +1892,19 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
         return this.body.isBiggerBetter();
     }
 
+    /**
+     * Says if bigger scores are better on the first objective, according to the
+     * fitness or, if no fitness is set, to the body objective.
+     * <p>
+     *
+     * @return true if the first objective is to be maximized, false otherwise
+     * @since 2.1
+     */
+    public final boolean isFirstObjectiveBiggerBetter() {
+        final Fitness<T> fit = this.getFitness();
+        return fit != null ? fit.getBiggerIsBetter()[0] : this.body.isBiggerBetter();
+    }
+
     /**
      * Sets the algorithm's body objective to maximize (true) or minimize
      * (false) the individual fitness. All stages belonging to the body sequence
@@ -1077,11 +1953,7 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
 
         Fitness fit = this.getFitness();
 
-        if (fit != null) {
-            fit.sort(currentPopulation);
-        } else {
-            Fitness.sort(currentPopulation, this.isBiggerBetter());
-        }
+        this.sortElite(len);
 
         if (this.elitismStrategy == ElitismStrategy.WORST) {
             if (fit != null) {
@@ -1103,6 +1975,37 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
         }
     }
 
+    /**
+     * Sorts the current population for elitism. Elite individuals whose score 
+     * has been predicted are evaluated by the fitness and the population is sorted
+     * again, until the elite is made of actual evaluations only.
+     *
+     * @param len the elite size
+     */
+    private void sortElite(final int len) {
+        final Fitness fit = this.getFitness();
+        for (;;) {
+            if (fit != null) {
+                fit.sort(currentPopulation);
+            } else {
+                Fitness.sort(currentPopulation, this.isBiggerBetter());
+            }
+            int requested = 0;
+            for (int i = 0; i < len; ++i) {
+                Individual<T> individual = currentPopulation.getIndividual(i);
+                if (individual.isPredicted()) {
+                    individual.requestEvaluation();
+                    requested++;
+                }
+            }
+            if (requested == 0) {
+                return;
+            }
+            statistics.addScreening(requested, -requested);
+            this.evaluatePopulation(currentPopulation, false);
+        }
+    }
+
     /**
      * Returns the number of individuals considered for elitism by the genetic
      * algorithm.
@@ -1240,6 +2143,30 @@ public class GeneticAlgorithm<T extends Chromosome> extends Task{
         this.generationListeners.remove(gel);
     }
 
+    /**
+     * Adds a new evaluation event listener
+     * <p>
+     *
+     * @param eel
+     *            the evaluation listener to add
+     */
+    public final void addEvaluationEventListener(
+            final EvaluationEventListener<T> eel) {
+        this.evaluationListeners.add(eel);
+    }
+
+    /**
+     * Removes the evaluation event listener
+     * <p>
+     *
+     * @param eel
+     *            the listener to remove
+     */
+    public final void removeEvaluationEventListener(
+            final EvaluationEventListener eel) {
+        this.evaluationListeners.remove(eel);
+    }
+
     /**
      * Returns Algorithm statistics at the moment of invocation.
      * <p>
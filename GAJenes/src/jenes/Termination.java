@@ -0,0 +1,355 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes;
+
+import java.util.Arrays;
+import jenes.chromosome.Chromosome;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.statistics.Statistics.TerminationReason;
+
+/**
+ * A <code>Termination</code> is a policy stopping the evolution of a {@link GeneticAlgorithm}
+ * before the generation limit, e.g. when it stagnates. The policy is set by 
+ * {@link GeneticAlgorithm#setTermination(jenes.Termination)}, and the reason why
+ * the evolution stopped is recorded in {@link jenes.statistics.Statistics#getTerminationReason()}.
+ * <p>
+ * Policies are checked at the end of each generation by {@link #check(jenes.GeneticAlgorithm)}.
+ * Budget policies are also checked before each fitness evaluation by 
+ * {@link #checkEvaluation(jenes.GeneticAlgorithm)}, including evaluations requested
+ * by stages and deferred evaluations in lazy mode. When they are exhausted, the
+ * individuals of the current generation evaluated so far are kept, the others are
+ * replaced by their counterpart of the last population, and the algorithm stops.
+ * If no individual has been evaluated, the generation is discarded.
+ * <p>
+ * Built-in policies are created by static methods and can be composed by 
+ * {@link #any(jenes.Termination[])}, e.g.
+ * <pre>
+ * ga.setTermination(Termination.any(Termination.plateau(50, 1e-6), Termination.time(60000)));
+ * </pre>
+ * 
+ * @param <T> The class of chromosomes to work with.
+ * 
+ * @version 2.1
+ * @since 2.1
+ */
+public abstract class Termination<T extends Chromosome> {
+
+    /**
+     * Invoked when the algorithm starts. By default nothing is done.
+     * 
+     * @param ga the algorithm
+     */
+    public void reset(GeneticAlgorithm<T> ga) {
+        //do nothing; override it for a specific behavior
+    }
+
+    /**
+     * Checks the policy at the end of a generation.
+     * 
+     * @param ga the algorithm
+     * @return the termination reason, or null if the evolution has to go on
+     */
+    public abstract TerminationReason check(GeneticAlgorithm<T> ga);
+
+    /**
+     * Checks the policy before a fitness evaluation. It should be cheap, as it is
+     * invoked for each individual. By default it returns null.
+     * 
+     * @param ga the algorithm
+     * @return the termination reason, or null if the evaluation has to go on
+     */
+    public TerminationReason checkEvaluation(GeneticAlgorithm<T> ga) {
+        return null;
+    }
+
+    /**
+     * Creates a policy stopping the evolution when the best score does not improve
+     * more than the tolerance over a window of generations. Only the first objective
+     * is considered.
+     * 
+     * @param window the number of generations
+     * @param tolerance the minimum improvement
+     * @return the policy
+     */
+    public static <T extends Chromosome> Termination<T> plateau(int window, double tolerance) {
+        return new Plateau<T>(window, tolerance);
+    }
+
+    /**
+     * Creates a policy stopping the evolution when the ratio of distinct genotypes
+     * in the population falls below a threshold. Genotypes are compared by their
+     * cached 64 bit {@link Individual#getFingerprint()}, so any chromosome type is supported.
+     * 
+     * @param ratio the minimum ratio of distinct genotypes, between 0 and 1
+     * @return the policy
+     */
+    public static <T extends Chromosome> Termination<T> diversity(double ratio) {
+        return new DiversityCollapse<T>(ratio);
+    }
+
+    /**
+     * Creates a policy stopping the evolution when a legal individual reaches the
+     * target score on the first objective.
+     * 
+     * @param score the target score
+     * @return the policy
+     */
+    public static <T extends Chromosome> Termination<T> target(double score) {
+        return new Target<T>(score);
+    }
+
+    /**
+     * Creates a policy stopping the evolution when the wall-clock budget is spent.
+     * 
+     * @param millis the budget in milliseconds
+     * @return the policy
+     */
+    public static <T extends Chromosome> Termination<T> time(long millis) {
+        return new TimeBudget<T>(millis);
+    }
+
+    /**
+     * Creates a policy stopping the evolution when the fitness evaluation budget 
+     * is spent.
+     * 
+     * @param evaluations the number of fitness evaluations
+     * @return the policy
+     */
+    public static <T extends Chromosome> Termination<T> evaluations(int evaluations) {
+        return new EvaluationBudget<T>(evaluations);
+    }
+
+    /**
+     * Creates a policy stopping the evolution as soon as one of the given policies does.
+     * 
+     * @param policies the policies to compose
+     * @return the policy
+     */
+    @SafeVarargs
+    public static <T extends Chromosome> Termination<T> any(Termination<T>... policies) {
+        return new Any<T>(policies);
+    }
+
+    /**
+     * Returns the best legal score of the population on the first objective
+     */
+    private static double best(Population<?> population, boolean bib) {
+        double best = Double.NaN;
+        for (Individual<?> individual : population) {
+            if (individual.isLegal() && individual.isEvaluated()) {
+                double score = individual.getScore();
+                if (Double.isNaN(best) || (bib ? score > best : score < best)) {
+                    best = score;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Stops the evolution when the best score stagnates
+     */
+    private static final class Plateau<T extends Chromosome> extends Termination<T> {
+
+        private final int window;
+        private final double tolerance;
+        private final double[] bests;
+        private int count;
+
+        private Plateau(int window, double tolerance) {
+            if (window < 1) {
+                throw new IllegalArgumentException("[Jenes]: the plateau window must be positive");
+            }
+            this.window = window;
+            this.tolerance = tolerance;
+            this.bests = new double[window + 1];
+        }
+
+        @Override
+        public void reset(GeneticAlgorithm<T> ga) {
+            this.count = 0;
+        }
+
+        @Override
+        public TerminationReason check(GeneticAlgorithm<T> ga) {
+            final boolean bib = ga.isFirstObjectiveBiggerBetter();
+            final double best = best(ga.getNextPopulation(), bib);
+            this.bests[this.count % this.bests.length] = best;
+            this.count++;
+            if (this.count <= this.window) {
+                return null;
+            }
+            final double old = this.bests[this.count % this.bests.length];
+            final double improvement = bib ? best - old : old - best;
+            return improvement <= this.tolerance ? TerminationReason.PLATEAU : null;
+        }
+    }
+
+    /**
+     * Stops the evolution when genotypes collapse
+     */
+    private static final class DiversityCollapse<T extends Chromosome> extends Termination<T> {
+
+        private final double ratio;
+        private long[] hashes = new long[0];
+
+        private DiversityCollapse(double ratio) {
+            this.ratio = ratio;
+        }
+
+        @Override
+        public TerminationReason check(GeneticAlgorithm<T> ga) {
+            final Population<T> population = ga.getNextPopulation();
+            final int n = population.size();
+            if (n == 0) {
+                return null;
+            }
+            if (this.hashes.length < n) {
+                this.hashes = new long[n];
+            }
+            for (int i = 0; i < n; ++i) {
+                this.hashes[i] = population.getIndividual(i).getFingerprint();
+            }
+            Arrays.sort(this.hashes, 0, n);
+            int distinct = 1;
+            for (int i = 1; i < n; ++i) {
+                if (this.hashes[i] != this.hashes[i - 1]) {
+                    distinct++;
+                }
+            }
+            return distinct < this.ratio * n ? TerminationReason.DIVERSITY_COLLAPSE : null;
+        }
+    }
+
+    /**
+     * Stops the evolution when the target score is reached
+     */
+    private static final class Target<T extends Chromosome> extends Termination<T> {
+
+        private final double score;
+
+        private Target(double score) {
+            this.score = score;
+        }
+
+        @Override
+        public TerminationReason check(GeneticAlgorithm<T> ga) {
+            final boolean bib = ga.isFirstObjectiveBiggerBetter();
+            final double best = best(ga.getNextPopulation(), bib);
+            if (Double.isNaN(best)) {
+                return null;
+            }
+            return (bib ? best >= this.score : best <= this.score) ? TerminationReason.TARGET_REACHED : null;
+        }
+    }
+
+    /**
+     * Stops the evolution when the wall-clock budget is spent
+     */
+    private static final class TimeBudget<T extends Chromosome> extends Termination<T> {
+
+        private final long budget;
+        private long start;
+
+        private TimeBudget(long millis) {
+            this.budget = millis * 1000000L;
+        }
+
+        @Override
+        public void reset(GeneticAlgorithm<T> ga) {
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public TerminationReason check(GeneticAlgorithm<T> ga) {
+            return System.nanoTime() - this.start >= this.budget ? TerminationReason.TIME_BUDGET : null;
+        }
+
+        @Override
+        public TerminationReason checkEvaluation(GeneticAlgorithm<T> ga) {
+            return this.check(ga);
+        }
+    }
+
+    /**
+     * Stops the evolution when the evaluation budget is spent
+     */
+    private static final class EvaluationBudget<T extends Chromosome> extends Termination<T> {
+
+        private final int budget;
+
+        private EvaluationBudget(int evaluations) {
+            this.budget = evaluations;
+        }
+
+        @Override
+        public TerminationReason check(GeneticAlgorithm<T> ga) {
+            return ga.getStatistics().getFitnessEvaluationNumbers() >= this.budget ? TerminationReason.EVALUATION_BUDGET : null;
+        }
+
+        @Override
+        public TerminationReason checkEvaluation(GeneticAlgorithm<T> ga) {
+            return this.check(ga);
+        }
+    }
+
+    /**
+     * Stops the evolution when any policy does
+     */
+    private static final class Any<T extends Chromosome> extends Termination<T> {
+
+        private final Termination<T>[] policies;
+
+        private Any(Termination<T>[] policies) {
+            this.policies = policies.clone();
+        }
+
+        @Override
+        public void reset(GeneticAlgorithm<T> ga) {
+            for (Termination<T> policy : this.policies) {
+                policy.reset(ga);
+            }
+        }
+
+        @Override
+        public TerminationReason check(GeneticAlgorithm<T> ga) {
+            //all policies are checked, as some of them track the evolution
+            TerminationReason reason = null;
+            for (Termination<T> policy : this.policies) {
+                TerminationReason r = policy.check(ga);
+                if (reason == null) {
+                    reason = r;
+                }
+            }
+            return reason;
+        }
+
+        @Override
+        public TerminationReason checkEvaluation(GeneticAlgorithm<T> ga) {
+            for (Termination<T> policy : this.policies) {
+                TerminationReason reason = policy.checkEvaluation(ga);
+                if (reason != null) {
+                    return reason;
+                }
+            }
+            return null;
+        }
+    }
+}
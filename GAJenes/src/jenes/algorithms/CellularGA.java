@@ -0,0 +1,118 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.algorithms;
+
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.Chromosome;
+import jenes.population.Fitness;
+import jenes.population.Population;
+import jenes.stage.operator.Crossover;
+import jenes.stage.operator.Mutator;
+import jenes.stage.operator.Selector;
+import jenes.stage.operator.common.Cellular;
+
+/**
+ * A cellular (diffusion) genetic algorithm. Individuals sit on a two dimensional
+ * torus and each of them breeds only with its neighbourhood, using the usual
+ * {@link Selector}, {@link Crossover} and {@link Mutator} operators. Local mating 
+ * slows down the takeover of good solutions, preserving diversity also at very large
+ * population sizes, and the grid can be split into tiles evolving in parallel.
+ * <p>
+ * The population size has to be a multiple of the number of grid columns. The 
+ * breeding is performed by a {@link Cellular} stage, which controls neighbourhood,
+ * sweep policy and tiles. Offsprings are evaluated as they are bred, and the 
+ * replacement is locally elitist, so no global elitism is applied.
+ * <p>
+ * A typical usage is
+ * <p><blockquote><pre>
+ * CellularGA&lt;BitwiseChromosome&gt; ga = new CellularGA&lt;BitwiseChromosome&gt;(fitness, pop, 1000, 100, 
+ *     new Cellular.Breeder&lt;BitwiseChromosome&gt;() {
+ *         public Selector&lt;BitwiseChromosome&gt; createSelector() { return new TournamentSelector&lt;BitwiseChromosome&gt;(2); }
+ *         public Crossover&lt;BitwiseChromosome&gt; createCrossover() { return new OnePointCrossover&lt;BitwiseChromosome&gt;(0.9); }
+ *         public Mutator&lt;BitwiseChromosome&gt; createMutator() { return new SimpleMutator&lt;BitwiseChromosome&gt;(0.01); }
+ *     });
+ * ga.getCellular().setTiles(2, 2);
+ * </pre></blockquote>
+ *
+ * @param <T> The class of chromosomes to work with.
+ *
+ * @version 2.1
+ * @since 2.1
+ */
+public class CellularGA<T extends Chromosome> extends GeneticAlgorithm<T> {
+
+    /** The default generation limit */
+    public static final int DEFAULT_GENERATION_LIMIT = 100;
+    /** The cellular stage */
+    protected Cellular<T> cellular;
+
+    /**
+     * Builds a new CellularGA on a single tile
+     * 
+     * @param fitness the fitness to use
+     * @param pop the initial population
+     * @param genlimit the generation limit
+     * @param columns the number of grid columns
+     * @param selector the selector choosing parents among neighbours
+     * @param crossover the crossover
+     * @param mutator the mutator
+     */
+    public CellularGA(final Fitness fitness, final Population<T> pop, final int genlimit, final int columns,
+            final Selector<T> selector, final Crossover<T> crossover, final Mutator<T> mutator) {
+        this(fitness, pop, genlimit, new Cellular<T>(columns, selector, crossover, mutator));
+    }
+
+    /**
+     * Builds a new CellularGA whose operators are created by a breeder, 
+     * so that the grid can be split into tiles
+     * 
+     * @param fitness the fitness to use
+     * @param pop the initial population
+     * @param genlimit the generation limit
+     * @param columns the number of grid columns
+     * @param breeder the breeder creating the operators of each tile
+     */
+    public CellularGA(final Fitness fitness, final Population<T> pop, final int genlimit, final int columns, final Cellular.Breeder<T> breeder) {
+        this(fitness, pop, genlimit, new Cellular<T>(columns, breeder));
+    }
+
+    /**
+     * Builds a new CellularGA
+     * 
+     * @param fitness the fitness to use
+     * @param pop the initial population
+     * @param genlimit the generation limit
+     * @param cellular the cellular stage
+     */
+    public CellularGA(final Fitness fitness, final Population<T> pop, final int genlimit, final Cellular<T> cellular) {
+        super(fitness, pop, genlimit);
+        this.cellular = cellular;
+        this.body.appendStage(cellular);
+        this.elitism = 0;
+    }
+
+    /**
+     * Returns the cellular stage
+     * 
+     * @return the cellular stage
+     */
+    public Cellular<T> getCellular() {
+        return this.cellular;
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.algorithms;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.DoubleChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.AbstractStage;
+import jenes.stage.StageException;
+import jenes.utils.Random;
+
+/**
+ * Differential Evolution for continuous problems encoded by {@link DoubleChromosome}s.
+ * <p>
+ * At each generation a trial vector is built for each individual (the target) by
+ * adding scaled differences of other individuals to a base vector, chosen 
+ * according to the {@link Strategy}, and by a binomial crossover with the target.
+ * Trials are evaluated as any population, thus in parallel when a 
+ * {@link jenes.utils.multitasking.Runner} is set, and each of them replaces its target
+ * unless worse. Genes exceeding the chromosome bounds are set midway between the 
+ * target gene and the bound.
+ * <p>
+ * When adaptive, the scale factor F and the crossover rate CR are sampled per 
+ * individual from a memory of successful values, updated at each generation as
+ * in SHADE (a memory of size one gives JADE); the 
+ * {@link Strategy#CURRENT_TO_PBEST_1} strategy also draws from an archive of
+ * replaced targets. Otherwise the fixed F and CR are used.
+ * <p>
+ * Differential Evolution supports a single objective. The body is made of the 
+ * variation stage only, and no elitism is applied, as the one-to-one replacement 
+ * is already elitist.
+ *
+ * @version 2.1
+ * @since 2.1
+ */
+public class DifferentialEvolution extends GeneticAlgorithm<DoubleChromosome> {
+
+    /** The strategies building mutant vectors */
+    public static enum Strategy {
+
+        /** v = x[r1] + F (x[r2] - x[r3]) */
+        RAND_1,
+        /** v = x[best] + F (x[r1] - x[r2]) */
+        BEST_1,
+        /** v = x[i] + F (x[pbest] - x[i]) + F (x[r1] - x[r2]), with x[r2] possibly from the archive */
+        CURRENT_TO_PBEST_1
+    }
+    /** The default generation limit */
+    public static final int DEFAULT_GENERATION_LIMIT = 1000;
+    /** The default strategy */
+    public static final Strategy DEFAULT_STRATEGY = Strategy.CURRENT_TO_PBEST_1;
+    /** The default scale factor */
+    public static final double DEFAULT_F = 0.5;
+    /** The default crossover rate */
+    public static final double DEFAULT_CR = 0.9;
+    /** The default fraction of best individuals for current-to-pbest */
+    public static final double DEFAULT_P = 0.11;
+    /** The default size of the memory of successful parameters */
+    public static final int DEFAULT_MEMORY_SIZE = 5;
+    private Strategy strategy;
+    private boolean adaptive = true;
+    private double f = DEFAULT_F;
+    private double cr = DEFAULT_CR;
+    private double p = DEFAULT_P;
+    private int memorySize = DEFAULT_MEMORY_SIZE;
+    private boolean archived = true;
+    /* Run state, allocated according to population size and chromosome length */
+    private int size;
+    private int length;
+    private double[][] targets;
+    private double[] trial;
+    private double[] scores;
+    private Integer[] ranking;
+    private double[] fs;
+    private double[] crs;
+    private double[] memoryF;
+    private double[] memoryCR;
+    private int memoryIndex;
+    private double[] successF;
+    private double[] successCR;
+    private double[] successWeight;
+    private double[][] archive;
+    private int archiveSize;
+    private boolean bigger;
+
+    /**
+     * Builds a new DifferentialEvolution with the default strategy and generation limit
+     * 
+     * @param fitness the fitness to use
+     * @param pop the initial population
+     */
+    public DifferentialEvolution(final Fitness<DoubleChromosome> fitness, final Population<DoubleChromosome> pop) {
+        this(fitness, pop, DEFAULT_GENERATION_LIMIT, DEFAULT_STRATEGY);
+    }
+
+    /**
+     * Builds a new DifferentialEvolution
+     * 
+     * @param fitness the fitness to use
+     * @param pop the initial population
+     * @param genlimit the generation limit
+     * @param strategy the strategy
+     */
+    public DifferentialEvolution(final Fitness<DoubleChromosome> fitness, final Population<DoubleChromosome> pop, final int genlimit, final Strategy strategy) {
+        super(fitness, pop, genlimit);
+        this.strategy = strategy;
+        this.body.appendStage(new Variation());
+        this.elitism = 0;
+    }
+
+    /**
+     * Returns the strategy
+     * 
+     * @return the strategy
+     */
+    public final Strategy getStrategy() {
+        return this.strategy;
+    }
+
+    /**
+     * Sets the strategy
+     * 
+     * @param strategy the strategy
+     */
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Says if F and CR are adapted
+     * 
+     * @return true if parameters are adapted
+     */
+    public final boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    /**
+     * Sets if F and CR are adapted, or kept fixed
+     * 
+     * @param adaptive true to adapt parameters
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Returns the scale factor. When adaptive, it is the initial value of the memory.
+     * 
+     * @return the scale factor
+     */
+    public final double getF() {
+        return this.f;
+    }
+
+    /**
+     * Sets the scale factor
+     * 
+     * @param f the scale factor, in (0,2]
+     */
+    public void setF(double f) {
+        if (f <= 0 || f > 2) {
+            throw new IllegalArgumentException("[Jenes]: the scale factor must be in (0,2]");
+        }
+        this.f = f;
+    }
+
+    /**
+     * Returns the crossover rate. When adaptive, it is the initial value of the memory.
+     * 
+     * @return the crossover rate
+     */
+    public final double getCR() {
+        return this.cr;
+    }
+
+    /**
+     * Sets the crossover rate
+     * 
+     * @param cr the crossover rate, in [0,1]
+     */
+    public void setCR(double cr) {
+        if (cr < 0 || cr > 1) {
+            throw new IllegalArgumentException("[Jenes]: the crossover rate must be in [0,1]");
+        }
+        this.cr = cr;
+    }
+
+    /**
+     * Returns the fraction of best individuals the pbest is chosen from
+     * 
+     * @return the fraction
+     */
+    public final double getP() {
+        return this.p;
+    }
+
+    /**
+     * Sets the fraction of best individuals the pbest is chosen from
+     * 
+     * @param p the fraction, in (0,1]
+     */
+    public void setP(double p) {
+        if (p <= 0 || p > 1) {
+            throw new IllegalArgumentException("[Jenes]: the pbest fraction must be in (0,1]");
+        }
+        this.p = p;
+    }
+
+    /**
+     * Returns the size of the memory of successful parameters
+     * 
+     * @return the memory size
+     */
+    public final int getMemorySize() {
+        return this.memorySize;
+    }
+
+    /**
+     * Sets the size of the memory of successful parameters
+     * 
+     * @param size the memory size
+     */
+    public void setMemorySize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("[Jenes]: the memory size must be positive");
+        }
+        this.memorySize = size;
+    }
+
+    /**
+     * Says if replaced targets are archived for current-to-pbest
+     * 
+     * @return true if the archive is used
+     */
+    public final boolean isArchived() {
+        return this.archived;
+    }
+
+    /**
+     * Sets if replaced targets are archived for current-to-pbest
+     * 
+     * @param archived true to use the archive
+     */
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+
+    /**
+     * Returns the memory of successful scale factors, filled with the initial
+     * scale factor when the algorithm is initialized.
+     * 
+     * @return a copy of the memory, null before the algorithm is initialized
+     */
+    public final double[] getMemoryF() {
+        return this.memoryF != null ? this.memoryF.clone() : null;
+    }
+
+    /**
+     * Returns the memory of successful crossover rates, filled with the initial
+     * crossover rate when the algorithm is initialized.
+     * 
+     * @return a copy of the memory, null before the algorithm is initialized
+     */
+    public final double[] getMemoryCR() {
+        return this.memoryCR != null ? this.memoryCR.clone() : null;
+    }
+
+    @Override
+    protected void onInit(long time) {
+        super.onInit(time);
+        Fitness<DoubleChromosome> fit = this.getFitness();
+        if (fit == null || fit.getNumOfObjectives() != 1) {
+            throw new IllegalStateException("[Jenes]: differential evolution requires a single objective fitness");
+        }
+        this.bigger = fit.getBiggerIsBetter()[0];
+        this.size = 0;
+        this.memoryF = new double[this.memorySize];
+        this.memoryCR = new double[this.memorySize];
+        Arrays.fill(this.memoryF, this.f);
+        Arrays.fill(this.memoryCR, this.cr);
+        this.memoryIndex = 0;
+        this.archiveSize = 0;
+    }
+
+    /**
+     * Replaces the targets by the evaluated trials, unless worse, and adapts parameters.
+     */
+    @Override
+    protected void onGeneration(long time) {
+        final Population<DoubleChromosome> trials = this.getNextPopulation();
+        final Population<DoubleChromosome> previous = this.getHistoryAt(-1);
+        final Random random = Random.getInstance();
+        int successes = 0;
+        double weights = 0;
+        for (int i = 0; i < this.size; ++i) {
+            Individual<DoubleChromosome> u = trials.getIndividual(i);
+            Individual<DoubleChromosome> x = previous.getIndividual(i);
+            int cmp = this.compare(u, x);
+            if (cmp < 0) {
+                u.setAs(x);
+            } else if (cmp > 0) {
+                if (this.archived && this.strategy == Strategy.CURRENT_TO_PBEST_1) {
+                    int slot = this.archiveSize < this.size ? this.archiveSize++ : random.nextInt(this.size);
+                    System.arraycopy(this.targets[i], 0, this.archive[slot], 0, this.length);
+                }
+                this.successF[successes] = this.fs[i];
+                this.successCR[successes] = this.crs[i];
+                this.successWeight[successes] = Math.abs(u.getScore() - x.getScore());
+                weights += this.successWeight[successes];
+                ++successes;
+            }
+        }
+
+        if (this.adaptive && successes > 0) {
+            double sf = 0, sf2 = 0, scr = 0;
+            for (int k = 0; k < successes; ++k) {
+                double w = weights > 0 ? this.successWeight[k] / weights : 1.0 / successes;
+                sf += w * this.successF[k];
+                sf2 += w * this.successF[k] * this.successF[k];
+                scr += w * this.successCR[k];
+            }
+            this.memoryF[this.memoryIndex] = sf > 0 ? sf2 / sf : this.memoryF[this.memoryIndex];
+            this.memoryCR[this.memoryIndex] = scr;
+            this.memoryIndex = (this.memoryIndex + 1) % this.memorySize;
+        }
+        super.onGeneration(time);
+    }
+
+    /**
+     * Compares two individuals: legal individuals are better than illegal ones,
+     * then scores are compared.
+     * 
+     * @return a positive value if i1 is better, negative if worse, zero if equivalent
+     */
+    private int compare(final Individual<DoubleChromosome> i1, final Individual<DoubleChromosome> i2) {
+        if (i1.isLegal() != i2.isLegal()) {
+            return i1.isLegal() ? 1 : -1;
+        }
+        int c = Double.compare(i1.getScore(), i2.getScore());
+        return this.bigger ? c : -c;
+    }
+
+    /**
+     * Allocates the run state, when population size or chromosome length change
+     */
+    private void allocate(int size, int length) {
+        if (size < 4) {
+            throw new IllegalStateException("[Jenes]: differential evolution requires at least 4 individuals");
+        }
+        this.size = size;
+        this.length = length;
+        this.targets = new double[size][length];
+        this.trial = new double[length];
+        this.scores = new double[size];
+        this.ranking = new Integer[size];
+        this.fs = new double[size];
+        this.crs = new double[size];
+        this.successF = new double[size];
+        this.successCR = new double[size];
+        this.successWeight = new double[size];
+        this.archive = new double[size][length];
+        this.archiveSize = 0;
+    }
+
+    /**
+     * The stage building the trial vectors
+     */
+    private final class Variation extends AbstractStage<DoubleChromosome> {
+
+        private final Comparator<Integer> byScore = new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                int c = Double.compare(scores[i1], scores[i2]);
+                return bigger ? -c : c;
+            }
+        };
+
+        @Override
+        public void process(Population<DoubleChromosome> in, Population<DoubleChromosome> out) throws StageException {
+            final int n = in.size();
+            final int d = in.getIndividual(0).getChromosome().length();
+            if (n != size || d != length) {
+                allocate(n, d);
+            }
+            out.setAs(in);
+
+            for (int i = 0; i < n; ++i) {
+                Individual<DoubleChromosome> ind = in.getIndividual(i);
+                ind.getChromosome().getValues(targets[i]);
+                scores[i] = ind.isLegal() ? ind.getScore() : (bigger ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+                ranking[i] = i;
+            }
+            final boolean ranked = strategy != Strategy.RAND_1;
+            if (ranked) {
+                Arrays.sort(ranking, this.byScore);
+            }
+            final int top = Math.max(2, (int) Math.round(p * n));
+
+            final Random random = Random.getInstance();
+            for (int i = 0; i < n; ++i) {
+                final double fi;
+                final double cri;
+                if (adaptive) {
+                    int r = random.nextInt(memorySize);
+                    double crr = memoryCR[r] + 0.1 * random.nextGaussian();
+                    cri = crr < 0 ? 0 : crr > 1 ? 1 : crr;
+                    double fr;
+                    do {
+                        fr = memoryF[r] + 0.1 * Math.tan(Math.PI * (random.nextDouble() - 0.5));
+                    } while (fr <= 0);
+                    fi = fr > 1 ? 1 : fr;
+                } else {
+                    fi = f;
+                    cri = cr;
+                }
+                fs[i] = fi;
+                crs[i] = cri;
+
+                final double[] x = targets[i];
+                int r1 = pick(random, n, i, -1, -1);
+                int r2 = pick(random, n, i, r1, -1);
+                final DoubleChromosome chrom = out.getIndividual(i).getChromosome();
+                final double lb = chrom.getLowerBound();
+                final double ub = chrom.getUpperBound();
+                final int jrand = random.nextInt(d);
+                switch (strategy) {
+                    case RAND_1: {
+                        int r3 = pick(random, n, i, r1, r2);
+                        double[] a = targets[r1], b = targets[r2], c = targets[r3];
+                        for (int j = 0; j < d; ++j) {
+                            trial[j] = j == jrand || random.nextDouble() < cri ? a[j] + fi * (b[j] - c[j]) : x[j];
+                        }
+                        break;
+                    }
+                    case BEST_1: {
+                        double[] a = targets[ranking[0]], b = targets[r1], c = targets[r2];
+                        for (int j = 0; j < d; ++j) {
+                            trial[j] = j == jrand || random.nextDouble() < cri ? a[j] + fi * (b[j] - c[j]) : x[j];
+                        }
+                        break;
+                    }
+                    case CURRENT_TO_PBEST_1:
+                    default: {
+                        double[] best = targets[ranking[random.nextInt(top)]];
+                        double[] b = targets[r1];
+                        int k = archived ? random.nextInt(n + archiveSize) : r2;
+                        while (k < n && (k == i || k == r1)) {
+                            k = random.nextInt(n + (archived ? archiveSize : 0));
+                        }
+                        double[] c = k < n ? targets[k] : archive[k - n];
+                        for (int j = 0; j < d; ++j) {
+                            trial[j] = j == jrand || random.nextDouble() < cri ? x[j] + fi * (best[j] - x[j]) + fi * (b[j] - c[j]) : x[j];
+                        }
+                        break;
+                    }
+                }
+                for (int j = 0; j < d; ++j) {
+                    double v = trial[j];
+                    if (v < lb) {
+                        v = (x[j] + lb) / 2;
+                    } else if (v > ub) {
+                        v = (x[j] + ub) / 2;
+                    }
+                    chrom.setValue(j, v);
+                }
+                out.getIndividual(i).setNotEvaluated();
+            }
+        }
+
+        /**
+         * Picks a random index different from the given ones
+         */
+        private int pick(Random random, int n, int a, int b, int c) {
+            int r;
+            do {
+                r = random.nextInt(n);
+            } while (r == a || r == b || r == c);
+            return r;
+        }
+
+        @Override
+        public void processProperties(String props) {
+            log.info(this.getClass().toString() + "recieve properties\n" + props);
+        }
+    }
+}
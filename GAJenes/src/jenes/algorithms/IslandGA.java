@@ -28,6 +28,7 @@ import jenes.population.Population;
 import jenes.stage.AlgorithmStage;
 import jenes.stage.ExclusiveDispenser;
 import jenes.stage.Parallel;
+import jenes.statistics.Tracer;
 import jenes.utils.Random;
 
 /**
@@ -377,6 +378,7 @@ public class IslandGA<T extends Chromosome> extends GeneticAlgorithm<T> {
         }
 
         // STEP2: IMMIGRATION
+        final Tracer tracer = this.getTracer();
         for (int sourceIsland = 0; sourceIsland < branches.length; ++sourceIsland) {
 
             boolean[] map = this.geography.map[sourceIsland];
@@ -407,6 +409,9 @@ public class IslandGA<T extends Chromosome> extends GeneticAlgorithm<T> {
                             }
                             break;
                     }
+                    if (tracer != null) {
+                        tracer.onMigration(this, sourceIsland, targetIsland, migration);
+                    }
                 }
 
             } //close for
@@ -506,6 +511,16 @@ public class IslandGA<T extends Chromosome> extends GeneticAlgorithm<T> {
             this.map = new boolean[n][n];
         }
 
+        /**
+         * Returns the number of nodes
+         * 
+         * @return the number of nodes
+         * @since 2.1
+         */
+        public int getSize() {
+            return this.map.length;
+        }
+
         /**
          * Sets a link between two nodes
          * 
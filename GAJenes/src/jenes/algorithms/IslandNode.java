@@ -0,0 +1,632 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.algorithms;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenes.AlgorithmEventListener;
+import jenes.GenerationEventListener;
+import jenes.GeneticAlgorithm;
+import jenes.algorithms.IslandGA.Graph;
+import jenes.algorithms.IslandGA.ReplacementStrategy;
+import jenes.chromosome.Chromosome;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.utils.Random;
+import jenes.utils.checkpoint.Checkpoint;
+import jenes.utils.checkpoint.ChromosomeCodec;
+
+/**
+ * An <code>IslandNode</code> turns a {@link GeneticAlgorithm} into an island of an 
+ * archipelago whose islands run in separate processes, possibly on separate machines.
+ * It has to be registered both as {@link GenerationEventListener} and {@link AlgorithmEventListener}
+ * of the island algorithm.
+ * <p>
+ * Islands are connected according to an {@link IslandGA.Graph}, and the island 
+ * <code>i</code> listens on the <code>i</code>-th address. Every <code>period</code> 
+ * generations, the best individuals of the island are sent to the linked islands, 
+ * and the migrants received meanwhile replace local individuals according to the
+ * {@link IslandGA.ReplacementStrategy}, as in {@link IslandGA}. Migrants keep their scores,
+ * so they are not evaluated again.
+ * <p>
+ * Migration is asynchronous: islands never wait for their neighbours. Migrants are
+ * sent by a background thread per link and received by a background thread per
+ * connection. Outgoing and incoming queues hold at most <code>depth</code> batches 
+ * of migrants: when a neighbour is slow or not yet running, the oldest batches are
+ * dropped. Links are reconnected as soon as the neighbour is available.
+ * 
+ * @param <T> The class of chromosomes to work with.
+ * 
+ * @version 2.1
+ * @since 2.1
+ * 
+ * @see IslandGA
+ */
+public class IslandNode<T extends Chromosome> implements GenerationEventListener<T>, AlgorithmEventListener<T>, Closeable {
+
+    private static final Logger log = Logger.getLogger(IslandNode.class.getName());
+    /** The protocol magic number, "JNIM" */
+    private static final int MAGIC = 0x4A4E494D;
+    /** The delay between connection attempts in milliseconds */
+    private static final long RECONNECT_DELAY = 200;
+    /** The maximum size of a batch of migrants */
+    private static final int MAX_BATCH = 1 << 28;
+    /** The island index */
+    private final int id;
+    /** The topology connecting islands */
+    private final Graph geography;
+    /** The island addresses */
+    private final InetSocketAddress[] addresses;
+    /** How many individuals migrate at each migration */
+    private int migration = IslandGA.DEFAULT_MIGRATION;
+    /** The number of generations between migrations */
+    private int period = 1;
+    /** The replacement strategy */
+    private ReplacementStrategy replacement = IslandGA.DEFAULT_REPLACEMENT;
+    /** The maximum number of batches queued per link */
+    private int depth = 4;
+    /** The incoming batches */
+    private BlockingQueue<Batch> inbound;
+    /** The outgoing links */
+    private final List<Link> links = new ArrayList<Link>();
+    /** The incoming connections */
+    private final List<Connection> connections = new ArrayList<Connection>();
+    /** The server socket receiving migrants */
+    private ServerSocket server;
+    /** The chromosome codec */
+    private ChromosomeCodec<T> codec;
+    private volatile boolean closed = true;
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private int immigrants = 0;
+
+    /**
+     * Creates an island node.
+     * 
+     * @param id the island index
+     * @param geography the topology connecting islands
+     * @param addresses the island addresses, indexed as the geography nodes
+     */
+    public IslandNode(int id, Graph geography, InetSocketAddress... addresses) {
+        if (addresses.length != geography.getSize()) {
+            throw new IllegalArgumentException("[Jenes]: " + addresses.length + " addresses given for " + geography.getSize() + " islands");
+        }
+        if (id < 0 || id >= addresses.length) {
+            throw new IllegalArgumentException("[Jenes]: island index " + id + " out of range");
+        }
+        this.id = id;
+        this.geography = geography;
+        this.addresses = addresses.clone();
+    }
+
+    /**
+     * Builds the addresses of islands running on the local machine, listening
+     * on consecutive ports of the loopback interface.
+     * 
+     * @param n the number of islands
+     * @param port the port of the first island
+     * @return the island addresses
+     */
+    public static InetSocketAddress[] loopback(int n, int port) {
+        InetSocketAddress[] addresses = new InetSocketAddress[n];
+        for (int i = 0; i < n; ++i) {
+            addresses[i] = new InetSocketAddress(InetAddress.getLoopbackAddress(), port + i);
+        }
+        return addresses;
+    }
+
+    /**
+     * Returns the island index
+     * 
+     * @return the island index
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns the migration rate
+     * 
+     * @return the number of individuals migrating at each migration
+     */
+    public int getMigration() {
+        return this.migration;
+    }
+
+    /**
+     * Sets the migration rate
+     * 
+     * @param migration the number of individuals migrating at each migration
+     */
+    public void setMigration(int migration) {
+        this.migration = migration;
+    }
+
+    /**
+     * Returns the number of generations between migrations
+     * 
+     * @return the migration period
+     */
+    public int getPeriod() {
+        return this.period;
+    }
+
+    /**
+     * Sets the number of generations between migrations
+     * 
+     * @param period the migration period
+     */
+    public void setPeriod(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("[Jenes]: the migration period must be positive");
+        }
+        this.period = period;
+    }
+
+    /**
+     * Returns the replacement strategy
+     * 
+     * @return the replacement strategy
+     */
+    public ReplacementStrategy getReplacement() {
+        return this.replacement;
+    }
+
+    /**
+     * Sets the replacement strategy
+     * 
+     * @param replacement the replacement strategy
+     */
+    public void setReplacement(ReplacementStrategy replacement) {
+        this.replacement = replacement;
+    }
+
+    /**
+     * Returns the maximum number of batches queued per link
+     * 
+     * @return the queue depth
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Sets the maximum number of batches queued per link. It takes effect when
+     * the node is started.
+     * 
+     * @param depth the queue depth
+     */
+    public void setDepth(int depth) {
+        this.depth = Math.max(1, depth);
+    }
+
+    /**
+     * Returns the number of batches of migrants sent
+     * 
+     * @return the number of batches sent
+     */
+    public int getSent() {
+        return this.sent.get();
+    }
+
+    /**
+     * Returns the number of batches of migrants received
+     * 
+     * @return the number of batches received
+     */
+    public int getReceived() {
+        return this.received.get();
+    }
+
+    /**
+     * Returns the number of batches of migrants dropped because of full queues
+     * 
+     * @return the number of batches dropped
+     */
+    public int getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Returns the number of immigrants placed in the island population
+     * 
+     * @return the number of immigrants
+     */
+    public int getImmigrants() {
+        return this.immigrants;
+    }
+
+    /**
+     * Starts listening for migrants and connecting to the linked islands. It is
+     * invoked when the algorithm starts, if not done before.
+     * 
+     * @throws IOException if the node cannot listen on its address
+     */
+    public synchronized void start() throws IOException {
+        if (!this.closed) {
+            return;
+        }
+        this.closed = false;
+        this.inbound = new ArrayBlockingQueue<Batch>(this.depth * Math.max(1, this.addresses.length - 1));
+        this.server = new ServerSocket();
+        this.server.setReuseAddress(true);
+        this.server.bind(this.addresses[this.id]);
+        this.daemon(new Runnable() {
+
+            public void run() {
+                accept();
+            }
+        }, "jenes-island-" + this.id + "-acceptor");
+
+        for (int j = 0; j < this.addresses.length; ++j) {
+            if (j != this.id && this.geography.getLink(this.id, j)) {
+                final Link link = new Link(j);
+                this.links.add(link);
+                link.thread = this.daemon(new Runnable() {
+
+                    public void run() {
+                        link.run();
+                    }
+                }, "jenes-island-" + this.id + "-link-" + j);
+            }
+        }
+    }
+
+    /**
+     * Stops migration, closing all connections, both outgoing and incoming. 
+     * Queued migrants are discarded.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.server.close();
+        } catch (IOException ex) {
+            log.log(Level.FINE, "Unable to close the server socket", ex);
+        }
+        for (Link link : this.links) {
+            link.close();
+        }
+        this.links.clear();
+        for (Connection connection : this.connections) {
+            connection.close();
+        }
+        this.connections.clear();
+    }
+
+    public void onAlgorithmStart(GeneticAlgorithm<T> ga, long time) {
+        try {
+            this.start();
+        } catch (IOException ex) {
+            throw new IllegalStateException("[Jenes]: island " + this.id + " cannot listen on " + this.addresses[this.id], ex);
+        }
+    }
+
+    public void onAlgorithmInit(GeneticAlgorithm<T> ga, long time) {
+    }
+
+    public void onGeneration(GeneticAlgorithm<T> ga, long time) {
+        if ((ga.getGeneration() + 1) % this.period == 0) {
+            this.migrate(ga.getNextPopulation(), ga.getGeneration());
+        }
+    }
+
+    public void onAlgorithmStop(GeneticAlgorithm<T> ga, long time) {
+        this.close();
+    }
+
+    /**
+     * Sends the best individuals to the linked islands, and places the received
+     * migrants in the population.
+     * 
+     * @param population the island population
+     * @param generation the current generation
+     */
+    @SuppressWarnings("unchecked")
+    protected void migrate(Population<T> population, int generation) {
+        final int n = Math.min(this.migration, population.size());
+        if (n <= 0 || this.closed) {
+            return;
+        }
+        if (this.codec == null) {
+            this.codec = Checkpoint.getCodec((Class<T>) population.getIndividual(0).getChromosome().getClass());
+        }
+
+        // STEP1: EMIGRATION
+        population.sort();
+        if (!this.links.isEmpty()) {
+            int size = 0;
+            for (int j = 0; j < n; ++j) {
+                size += Checkpoint.sizeOf(population.getIndividual(j), this.codec);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            for (int j = 0; j < n; ++j) {
+                Checkpoint.encode(population.getIndividual(j), this.codec, buffer);
+            }
+            Batch batch = new Batch(this.id, generation, n, buffer.array());
+            for (Link link : this.links) {
+                offer(link.queue, batch);
+            }
+        }
+
+        // STEP2: IMMIGRATION
+        int offset = 0;
+        Batch batch;
+        while ((batch = this.inbound.poll()) != null) {
+            log.finest("Immigrating " + batch.count + " individuals from island " + batch.source + " at generation " + batch.generation);
+            ByteBuffer buffer = ByteBuffer.wrap(batch.data).order(ByteOrder.LITTLE_ENDIAN);
+            for (int j = 0; j < batch.count; ++j) {
+                final int size = population.size();
+                int k;
+                if (this.replacement == ReplacementStrategy.RANDOM) {
+                    k = Random.getInstance().nextInt(size);
+                } else {
+                    //Due to population order (according to fitness) worst individuals are in the tail
+                    k = size - 1 - (offset++ % size);
+                }
+                Individual<T> individual = population.getIndividual(k);
+                int spec = individual.getSpeciem();
+                Checkpoint.decode(individual, this.codec, buffer);
+                individual.setSpeciem(spec);
+                this.immigrants++;
+            }
+        }
+    }
+
+    /**
+     * Queues a batch, dropping the oldest one if the queue is full
+     */
+    private void offer(BlockingQueue<Batch> queue, Batch batch) {
+        synchronized (queue) {
+            while (!queue.offer(batch)) {
+                if (queue.poll() != null) {
+                    this.dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Accepts connections from islands, until the node is closed
+     */
+    private void accept() {
+        final ServerSocket socket = this.server;
+        while (!socket.isClosed()) {
+            try {
+                final Connection connection = new Connection(socket.accept());
+                synchronized (this) {
+                    //the node may have been closed meanwhile
+                    if (socket.isClosed()) {
+                        connection.close();
+                        break;
+                    }
+                    this.connections.add(connection);
+                    connection.thread = this.daemon(new Runnable() {
+
+                        public void run() {
+                            receive(connection);
+                        }
+                    }, "jenes-island-" + this.id + "-receiver");
+                }
+            } catch (IOException ex) {
+                if (!socket.isClosed()) {
+                    log.log(Level.FINE, "Island connection failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives batches of migrants from a connection, until it is closed
+     */
+    private void receive(Connection connection) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.socket.getInputStream()));
+            if (in.readInt() != MAGIC) {
+                log.warning("Rejected connection from " + connection.socket.getRemoteSocketAddress());
+                return;
+            }
+            final int source = in.readInt();
+            while (!this.closed) {
+                final int generation = in.readInt();
+                final int count = in.readInt();
+                final int length = in.readInt();
+                if (length < 0 || length > MAX_BATCH) {
+                    throw new IOException("[Jenes]: invalid batch length " + length);
+                }
+                byte[] data = new byte[length];
+                in.readFully(data);
+                this.received.incrementAndGet();
+                this.offer(this.inbound, new Batch(source, generation, count, data));
+            }
+        } catch (IOException ex) {
+            log.log(Level.FINE, "Island connection closed", ex);
+        } finally {
+            connection.close();
+            synchronized (this) {
+                this.connections.remove(connection);
+            }
+        }
+    }
+
+    /**
+     * A batch of encoded migrants
+     */
+    private static class Batch {
+
+        private final int source;
+        private final int generation;
+        private final int count;
+        private final byte[] data;
+
+        private Batch(int source, int generation, int count, byte[] data) {
+            this.source = source;
+            this.generation = generation;
+            this.count = count;
+            this.data = data;
+        }
+    }
+
+    /**
+     * An incoming connection from an island
+     */
+    private static class Connection {
+
+        private final Socket socket;
+        private volatile Thread thread;
+
+        private Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        private void close() {
+            if (this.thread != null) {
+                this.thread.interrupt();
+            }
+            try {
+                //unblocks a pending read
+                this.socket.close();
+            } catch (IOException ex) {
+                //nothing to do
+            }
+        }
+    }
+
+    /**
+     * An outgoing link to an island
+     */
+    private class Link {
+
+        private final int target;
+        private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(depth);
+        private Thread thread;
+        private volatile Socket socket;
+        private DataOutputStream out;
+
+        private Link(int target) {
+            this.target = target;
+        }
+
+        private void run() {
+            Batch batch = null;
+            while (!closed) {
+                try {
+                    if (batch == null) {
+                        batch = this.queue.take();
+                    }
+                    if (this.socket == null) {
+                        this.connect();
+                    }
+                    this.out.writeInt(batch.generation);
+                    this.out.writeInt(batch.count);
+                    this.out.writeInt(batch.data.length);
+                    this.out.write(batch.data);
+                    this.out.flush();
+                    sent.incrementAndGet();
+                    batch = null;
+                } catch (InterruptedException ex) {
+                    break;
+                } catch (IOException ex) {
+                    this.disconnect();
+                    //a newer batch is preferred to the failed one, if available
+                    Batch newer = this.queue.poll();
+                    if (newer != null) {
+                        batch = newer;
+                        dropped.incrementAndGet();
+                    }
+                    try {
+                        Thread.sleep(RECONNECT_DELAY);
+                    } catch (InterruptedException ie) {
+                        break;
+                    }
+                }
+            }
+            this.disconnect();
+        }
+
+        private void connect() throws IOException {
+            Socket s = new Socket();
+            try {
+                s.setTcpNoDelay(true);
+                s.connect(addresses[this.target]);
+                this.out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                this.out.writeInt(MAGIC);
+                this.out.writeInt(id);
+                this.socket = s;
+            } catch (IOException ex) {
+                s.close();
+                throw ex;
+            }
+        }
+
+        private void disconnect() {
+            Socket s = this.socket;
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException ex) {
+                    //nothing to do
+                }
+                this.socket = null;
+                this.out = null;
+            }
+        }
+
+        private void close() {
+            this.thread.interrupt();
+            Socket s = this.socket;
+            if (s != null) {
+                try {
+                    //unblocks a pending write
+                    s.close();
+                } catch (IOException ex) {
+                    //nothing to do
+                }
+            }
+        }
+    }
+}
@@ -283,6 +283,30 @@ public final class BooleanChromosome implements Chromosome<BooleanChromosome> {
         return true;
     }
 
+    /**
+     * Returns a 64-bit fingerprint of the genes, packed by 64 at a time. Equal
+     * chromosomes have the same fingerprint, while different ones collide with
+     * negligible probability.
+     *
+     * @return the fingerprint
+     * @since 2.1
+     */
+    public final long fingerprint() {
+        long h = Util.seed(this.genes.length);
+        long word = 0;
+        for (int i = 0; i < this.genes.length; ++i) {
+            word = (word << 1) | (this.genes[i] ? 1 : 0);
+            if ((i & 63) == 63) {
+                h = Util.mix(h, word);
+                word = 0;
+            }
+        }
+        if ((this.genes.length & 63) != 0) {
+            h = Util.mix(h, word);
+        }
+        return Util.finish(h);
+    }
+
     @Override
     public void difference(BooleanChromosome chromosome, double[] diff) {
         int len = this.genes.length;
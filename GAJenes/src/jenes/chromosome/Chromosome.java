@@ -184,5 +184,68 @@ public interface Chromosome<T extends Chromosome> extends Cloneable {
 
             return dist;
         }
+
+        /**
+         * Provides a 64-bit fingerprint of the genome, so that chromosomes can be
+         * hashed without comparing them gene by gene. Built-in chromosomes compute
+         * it over their internal arrays; other chromosomes over the hash codes of
+         * the genes returned by {@link Chromosome#toArray()}.
+         * Equal chromosomes have the same fingerprint, while different ones are
+         * expected to collide with negligible probability.
+         *
+         * @param c - the chromosome
+         * @return the fingerprint
+         * @since 2.1
+         */
+        public static final long fingerprint(Chromosome c) {
+            if (c instanceof BitwiseChromosome) {
+                return ((BitwiseChromosome) c).fingerprint();
+            } else if (c instanceof BooleanChromosome) {
+                return ((BooleanChromosome) c).fingerprint();
+            } else if (c instanceof IntegerChromosome) {
+                return ((IntegerChromosome) c).fingerprint();
+            } else if (c instanceof DoubleChromosome) {
+                return ((DoubleChromosome) c).fingerprint();
+            } else if (c instanceof PermutationChromosome) {
+                return ((PermutationChromosome) c).fingerprint();
+            } else if (c instanceof ObjectChromosome) {
+                return ((ObjectChromosome) c).fingerprint();
+            }
+
+            Object[] genes = c.toArray();
+            long h = seed(genes.length);
+            for (Object gene : genes) {
+                h = mix(h, gene != null ? gene.hashCode() : 0);
+            }
+            return finish(h);
+        }
+
+        /**
+         * Starts a fingerprint from the genome length
+         */
+        static long seed(int length) {
+            return 0x9E3779B97F4A7C15L ^ length;
+        }
+
+        /**
+         * Mixes a value into the fingerprint
+         */
+        static long mix(long h, long value) {
+            h ^= value * 0xC2B2AE3D27D4EB4FL;
+            return Long.rotateLeft(h, 31) * 0x9E3779B97F4A7C15L;
+        }
+
+        /**
+         * Completes the fingerprint by the MurmurHash3 finalizer, spreading every
+         * input bit over the whole output
+         */
+        static long finish(long h) {
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
     }
 }
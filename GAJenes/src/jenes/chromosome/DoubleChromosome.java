@@ -400,6 +400,23 @@ public final class DoubleChromosome implements Chromosome<DoubleChromosome> {
         return true;
     }
 
+    /**
+     * Returns a 64-bit fingerprint of the genes. Equal chromosomes have the same
+     * fingerprint, while different ones collide with negligible probability.
+     * As for {@link #equals(jenes.chromosome.DoubleChromosome)}, positive and negative
+     * zero are not distinguished.
+     *
+     * @return the fingerprint
+     * @since 2.1
+     */
+    public final long fingerprint() {
+        long h = Util.seed(this.genes.length);
+        for (int i = 0; i < this.genes.length; ++i) {
+            h = Util.mix(h, Double.doubleToLongBits(this.genes[i] + 0.0));
+        }
+        return Util.finish(h);
+    }
+
     @Override
     public void difference(final DoubleChromosome chromosome, final double[] diff) {
 
@@ -322,6 +322,21 @@ public final class IntegerChromosome implements Chromosome<IntegerChromosome> {
         return true;
     }
 
+    /**
+     * Returns a 64-bit fingerprint of the genes. Equal chromosomes have the same
+     * fingerprint, while different ones collide with negligible probability.
+     *
+     * @return the fingerprint
+     * @since 2.1
+     */
+    public final long fingerprint() {
+        long h = Util.seed(this.genes.length);
+        for (int i = 0; i < this.genes.length; ++i) {
+            h = Util.mix(h, this.genes[i]);
+        }
+        return Util.finish(h);
+    }
+
     @Override
     public void difference(final IntegerChromosome chromosome, final double[] diff) {
 
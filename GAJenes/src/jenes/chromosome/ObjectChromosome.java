@@ -432,6 +432,23 @@ public final class ObjectChromosome implements Chromosome<ObjectChromosome> {
         return true;
     }
 
+    /**
+     * Returns a 64-bit fingerprint of the gene values, based on their hash codes.
+     * Equal chromosomes have the same fingerprint; the collision rate of different
+     * ones depends on the quality of the values hash codes.
+     *
+     * @return the fingerprint
+     * @since 2.1
+     */
+    public final long fingerprint() {
+        long h = Util.seed(this.genes.length);
+        for (int i = 0; i < this.genes.length; ++i) {
+            Object value = this.genes[i].getValue();
+            h = Util.mix(h, value != null ? value.hashCode() : 0);
+        }
+        return Util.finish(h);
+    }
+
     @Override
     public void difference(ObjectChromosome chromosome, double[] diff) {
         int len = this.genes.length;
@@ -258,6 +258,21 @@ public final class PermutationChromosome implements Chromosome<PermutationChromo
         return true;
     }
 
+    /**
+     * Returns a 64-bit fingerprint of the permutation. Equal chromosomes have the same
+     * fingerprint, while different ones collide with negligible probability.
+     *
+     * @return the fingerprint
+     * @since 2.1
+     */
+    public final long fingerprint() {
+        long h = Util.seed(this.permutation.length);
+        for (int i = 0; i < this.permutation.length; ++i) {
+            h = Util.mix(h, this.permutation[i]);
+        }
+        return Util.finish(h);
+    }
+
     @Override
     public final PermutationChromosome clone() {
         return new PermutationChromosome(this);
@@ -51,7 +51,30 @@ public class BooleanCoding extends BitCoding<Boolean> {
      */
     @Override
     public Boolean decode(int bits) {
-        return bits == 1;
+        return (bits & 1) == 1;
+    }
+
+    /**
+     * Returns 1 if the coded bit is set, 0 otherwise
+     *
+     * @param bits coding the value
+     * @return the value
+     */
+    @Override
+    public int decodeInt(int bits) {
+        return bits & 1;
+    }
+
+    @Override
+    public double decodeDouble(int bits) {
+        return bits & 1;
+    }
+
+    @Override
+    public void decodeAll(int[] words, int from, int to, int[] out, int offset) {
+        for (int i = from, j = offset; i < to; ++i, ++j) {
+            out[j] = (words[i >> 5] >>> (31 - (i & 31))) & 1;
+        }
     }
 
     /**
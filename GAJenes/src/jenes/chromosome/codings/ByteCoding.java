@@ -45,14 +45,31 @@ public class ByteCoding extends BitCoding<Integer> {
     }
 
     /**
-     * Returns the value of coded bits
+     * Returns the value of coded bits, between 0 and 255
      *
      * @param bits coding the value
      * @return the value
      */
     @Override
     public final Integer decode(final int bits) {
-        return bits;
+        return this.decodeInt(bits);
+    }
+
+    @Override
+    public final int decodeInt(final int bits) {
+        return bits & 0xFF;
+    }
+
+    @Override
+    public final double decodeDouble(final int bits) {
+        return bits & 0xFF;
+    }
+
+    @Override
+    public final void decodeAll(final int[] words, final int from, final int to, final int[] out, final int offset) {
+        for (int i = from, j = offset; i < to; ++i, ++j) {
+            out[j] = (words[i >> 2] >>> ((3 - (i & 3)) << 3)) & 0xFF;
+        }
     }
 
     /**
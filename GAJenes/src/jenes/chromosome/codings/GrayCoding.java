@@ -52,22 +52,41 @@ public class GrayCoding extends BitCoding<Integer> {
      */
     @Override
     public final Integer decode(final int bits) {
-        /*
-        Let G[n:0] be the input array of bits in Gray code
-        Let B[n:0] be the output array of bits in the usual binary representation
-        B[n] = G[n]
-        for i = n-1 downto 0
-        B[i] = B[i+1] XOR G[i]
-         */
+        return gray2binary(bits);
+    }
 
-        int val = bits;// it is useful to make equal the MSBs
+    @Override
+    public final int decodeInt(final int bits) {
+        return gray2binary(bits);
+    }
 
-        for (int k = this.SIZE.BITS - 2; k >= 0; --k) {
-            int gk = (bits >> k) & 1;
-            int bk1 = (val >> (k + 1)) & 1;
-            val &= ~(1 << k);
-            val |= (gk ^ bk1) << k;
+    @Override
+    public final double decodeDouble(final int bits) {
+        return gray2binary(bits);
+    }
+
+    @Override
+    public final void decodeAll(final int[] words, final int from, final int to, final int[] out, final int offset) {
+        for (int i = from, j = offset; i < to; ++i, ++j) {
+            out[j] = gray2binary(words[i]);
         }
+    }
+
+    /**
+     * Converts Gray bits to binary.
+     * <p>
+     * Let G[n:0] be the input array of bits in Gray code and B[n:0] the output array of
+     * bits in the usual binary representation: B[n] = G[n] and B[i] = B[i+1] XOR G[i],
+     * that is B[i] is the XOR of all the bits of G from n down to i. The prefix XOR is
+     * computed by doubling the shift, in five steps instead of a loop over the bits.
+     */
+    private static int gray2binary(final int bits) {
+        int val = bits;
+        val ^= val >>> 1;
+        val ^= val >>> 2;
+        val ^= val >>> 4;
+        val ^= val >>> 8;
+        val ^= val >>> 16;
         return val;
     }
 
@@ -88,13 +107,6 @@ public class GrayCoding extends BitCoding<Integer> {
          */
 
         int val = value;
-        int gray = value; // it is useful to make equal the MSBs
-        for (int k = this.SIZE.BITS - 2; k >= 0; --k) {
-            int bk = (val >> k) & 1;
-            int bk1 = (val >> (k + 1)) & 1;
-            gray &= ~(1 << k);
-            gray |= (bk ^ bk1) << k;
-        }
-        return gray;
+        return val ^ (val >>> 1);
     }
 }
@@ -55,6 +55,21 @@ public class IntCoding extends BitCoding<Integer> {
         return bits;
     }
 
+    @Override
+    public final int decodeInt(final int bits) {
+        return bits;
+    }
+
+    @Override
+    public final double decodeDouble(final int bits) {
+        return bits;
+    }
+
+    @Override
+    public final void decodeAll(final int[] words, final int from, final int to, final int[] out, final int offset) {
+        System.arraycopy(words, from, out, offset, to - from);
+    }
+
     /**
      * Returns the bits coding the value
      *
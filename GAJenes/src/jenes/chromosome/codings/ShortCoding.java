@@ -79,24 +79,52 @@ public class ShortCoding extends BitCoding<Integer> {
      */
     @Override
     public final Integer decode(final int bits) {
-        int value = 0;
-        switch (mode) {
-            case TWOS_COMPLEMENT: {
-                int mask = 0x8000;
-                int sign = (bits & mask) >> BitSize.BIT16.BITS - 1;
-                value = sign == 1 ? -0x8000 : 0;
-                value += bits & ~mask;
-                break;
+        return this.decodeInt(bits);
+    }
+
+    /**
+     * Returns the value of coded bits. Only the 16 lowest bits are considered,
+     * so that they can be passed either sign extended or not.
+     *
+     * @param bits coding the value
+     * @return the value
+     */
+    @Override
+    public final int decodeInt(final int bits) {
+        if (mode == Mode.TWOS_COMPLEMENT) {
+            return (short) bits;
+        }
+        int module = bits & 0x7FFF;
+        return (bits & 0x8000) != 0 ? -module : module;
+    }
+
+    @Override
+    public final double decodeDouble(final int bits) {
+        return this.decodeInt(bits);
+    }
+
+    @Override
+    public final int getMinValue() {
+        return mode == Mode.TWOS_COMPLEMENT ? -32768 : -32767;
+    }
+
+    @Override
+    public final int getMaxValue() {
+        return 32767;
+    }
+
+    @Override
+    public final void decodeAll(final int[] words, final int from, final int to, final int[] out, final int offset) {
+        if (mode == Mode.TWOS_COMPLEMENT) {
+            for (int i = from, j = offset; i < to; ++i, ++j) {
+                out[j] = (words[i >> 1] << ((i & 1) << 4)) >> 16;
             }
-            case MODULE_AND_SIGN: {
-                int mask = 0x8000;
-                int sign = (bits & mask) >> BitSize.BIT16.BITS - 1;
-                int module = bits & ~mask;
-                value = sign == 1 ? -module : module;
-                break;
+        } else {
+            for (int i = from, j = offset; i < to; ++i, ++j) {
+                int v = (words[i >> 1] << ((i & 1) << 4)) >> 16;
+                out[j] = v < 0 ? -(v & 0x7FFF) : v;
             }
         }
-        return value;
     }
 
     /**
@@ -120,7 +148,7 @@ public class ShortCoding extends BitCoding<Integer> {
                     val += 2 << this.SIZE.BITS;
                     break;
                 case MODULE_AND_SIGN:
-                    val = (2 << this.SIZE.BITS) - val;
+                    val = 0x8000 | -val;
                     break;
             }
         }
@@ -52,9 +52,26 @@ public class WordCoding extends BitCoding<Integer> {
      */
     @Override
     public final Integer decode(final int bits) {
+        return this.decodeInt(bits);
+    }
+
+    @Override
+    public final int decodeInt(final int bits) {
         return 0x0000FFFF & bits;
     }
 
+    @Override
+    public final double decodeDouble(final int bits) {
+        return 0x0000FFFF & bits;
+    }
+
+    @Override
+    public final void decodeAll(final int[] words, final int from, final int to, final int[] out, final int offset) {
+        for (int i = from, j = offset; i < to; ++i, ++j) {
+            out[j] = (words[i >> 1] >>> ((1 - (i & 1)) << 4)) & 0xFFFF;
+        }
+    }
+
     /**
      * Returns the bits coding the value
      *
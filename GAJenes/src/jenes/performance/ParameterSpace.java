@@ -0,0 +1,322 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jenes.performance;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import jenes.utils.MersenneTwisterFast;
+
+/**
+ * The space of algorithm parameters explored by a {@link RaceTuner}. Each parameter
+ * is declared with its domain, typically mirroring the argument of a stage constructor
+ * or of an algorithm setter:
+ * <pre>
+ * ParameterSpace space = new ParameterSpace()
+ *         .addInteger("attempts", 2, 8)           // TournamentSelector
+ *         .addReal("crossover", 0.5, 1.0)         // OnePointCrossover
+ *         .addLogReal("mutation", 0.001, 0.1)     // SimpleMutator
+ *         .addInteger("elitism", 0, 5)
+ *         .addCategorical("population", 50, 100, 200);
+ * </pre>
+ * Configurations are sampled uniformly from the space, or around a parent configuration
+ * with a spread shrinking as the tuning progresses.
+ *
+ * @version 2.1
+ * @since 2.1
+ *
+ * @see RaceTuner
+ */
+public final class ParameterSpace {
+
+    /**
+     * A point of the space: a value for each parameter
+     */
+    public static final class Configuration {
+
+        private final int id;
+        private final Map<String, Object> values;
+
+        private Configuration(int id, Map<String, Object> values) {
+            this.id = id;
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        /**
+         * Returns the configuration identifier, unique within a tuning
+         *
+         * @return the identifier
+         */
+        public int getId() {
+            return this.id;
+        }
+
+        /**
+         * Returns the value of a parameter
+         *
+         * @param name the parameter name
+         * @return the value
+         */
+        public Object get(String name) {
+            Object value = this.values.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException("[Jenes]: unknown parameter " + name);
+            }
+            return value;
+        }
+
+        /**
+         * Returns the value of a numeric parameter as an integer
+         *
+         * @param name the parameter name
+         * @return the value
+         */
+        public int getInt(String name) {
+            return ((Number) this.get(name)).intValue();
+        }
+
+        /**
+         * Returns the value of a numeric parameter as a double
+         *
+         * @param name the parameter name
+         * @return the value
+         */
+        public double getDouble(String name) {
+            return ((Number) this.get(name)).doubleValue();
+        }
+
+        /**
+         * Returns all the values
+         *
+         * @return the values by parameter name, in declaration order
+         */
+        public Map<String, Object> getValues() {
+            return this.values;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + this.id + " " + this.values;
+        }
+    }
+
+    /**
+     * The domain of a parameter
+     */
+    private static abstract class Parameter {
+
+        abstract Object sample(MersenneTwisterFast random);
+
+        abstract Object perturb(Object value, double spread, MersenneTwisterFast random);
+    }
+
+    private static final class IntegerParameter extends Parameter {
+
+        private final int min;
+        private final int max;
+
+        private IntegerParameter(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        Object sample(MersenneTwisterFast random) {
+            return this.min + random.nextInt(this.max - this.min + 1);
+        }
+
+        @Override
+        Object perturb(Object value, double spread, MersenneTwisterFast random) {
+            double x = ((Integer) value) + random.nextGaussian() * spread * (this.max - this.min + 1);
+            return (int) Math.max(this.min, Math.min(this.max, Math.round(x)));
+        }
+    }
+
+    private static final class RealParameter extends Parameter {
+
+        private final double min;
+        private final double max;
+        private final boolean log;
+
+        private RealParameter(double min, double max, boolean log) {
+            this.min = log ? Math.log(min) : min;
+            this.max = log ? Math.log(max) : max;
+            this.log = log;
+        }
+
+        @Override
+        Object sample(MersenneTwisterFast random) {
+            return this.value(this.min + random.nextDouble() * (this.max - this.min));
+        }
+
+        @Override
+        Object perturb(Object value, double spread, MersenneTwisterFast random) {
+            double v = (Double) value;
+            double x = (this.log ? Math.log(v) : v) + random.nextGaussian() * spread * (this.max - this.min);
+            return this.value(Math.max(this.min, Math.min(this.max, x)));
+        }
+
+        private double value(double x) {
+            return this.log ? Math.exp(x) : x;
+        }
+    }
+
+    private static final class CategoricalParameter extends Parameter {
+
+        private final Object[] values;
+
+        private CategoricalParameter(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        Object sample(MersenneTwisterFast random) {
+            return this.values[random.nextInt(this.values.length)];
+        }
+
+        @Override
+        Object perturb(Object value, double spread, MersenneTwisterFast random) {
+            return random.nextDouble() < spread ? this.sample(random) : value;
+        }
+    }
+
+    private final LinkedHashMap<String, Parameter> parameters = new LinkedHashMap<String, Parameter>();
+
+    /**
+     * Declares an integer parameter
+     *
+     * @param name the parameter name
+     * @param min the minimum value, included
+     * @param max the maximum value, included
+     * @return this space
+     */
+    public ParameterSpace addInteger(String name, int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("[Jenes]: empty range for " + name);
+        }
+        return this.add(name, new IntegerParameter(min, max));
+    }
+
+    /**
+     * Declares a real parameter sampled uniformly
+     *
+     * @param name the parameter name
+     * @param min the minimum value
+     * @param max the maximum value
+     * @return this space
+     */
+    public ParameterSpace addReal(String name, double min, double max) {
+        if (!(min <= max)) {
+            throw new IllegalArgumentException("[Jenes]: empty range for " + name);
+        }
+        return this.add(name, new RealParameter(min, max, false));
+    }
+
+    /**
+     * Declares a positive real parameter sampled uniformly on a logarithmic
+     * scale, as rates spanning several orders of magnitude should be
+     *
+     * @param name the parameter name
+     * @param min the minimum value, positive
+     * @param max the maximum value
+     * @return this space
+     */
+    public ParameterSpace addLogReal(String name, double min, double max) {
+        if (!(min > 0 && min <= max)) {
+            throw new IllegalArgumentException("[Jenes]: invalid logarithmic range for " + name);
+        }
+        return this.add(name, new RealParameter(min, max, true));
+    }
+
+    /**
+     * Declares a parameter taking one of the given values
+     *
+     * @param name the parameter name
+     * @param values the values, not null
+     * @return this space
+     */
+    public ParameterSpace addCategorical(String name, Object... values) {
+        if (values.length == 0 || Arrays.asList(values).contains(null)) {
+            throw new IllegalArgumentException("[Jenes]: invalid values for " + name);
+        }
+        return this.add(name, new CategoricalParameter(values.clone()));
+    }
+
+    private ParameterSpace add(String name, Parameter parameter) {
+        if (this.parameters.containsKey(name)) {
+            throw new IllegalArgumentException("[Jenes]: the parameter " + name + " is already declared");
+        }
+        this.parameters.put(name, parameter);
+        return this;
+    }
+
+    /**
+     * Returns the parameter names
+     *
+     * @return the names, in declaration order
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(this.parameters.keySet());
+    }
+
+    /**
+     * Returns the number of parameters
+     *
+     * @return the number of parameters
+     */
+    public int size() {
+        return this.parameters.size();
+    }
+
+    /**
+     * Samples a configuration uniformly
+     *
+     * @param id the configuration identifier
+     * @param random the random generator
+     * @return the configuration
+     */
+    public Configuration sample(int id, MersenneTwisterFast random) {
+        LinkedHashMap<String, Object> values = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Parameter> p : this.parameters.entrySet()) {
+            values.put(p.getKey(), p.getValue().sample(random));
+        }
+        return new Configuration(id, values);
+    }
+
+    /**
+     * Samples a configuration around a parent. Numeric values are perturbed by a
+     * normal noise whose deviation is the spread times the parameter range, while
+     * categorical values are resampled with a probability equal to the spread.
+     *
+     * @param id the configuration identifier
+     * @param parent the parent configuration
+     * @param spread the relative spread, between 0 and 1
+     * @param random the random generator
+     * @return the configuration
+     */
+    public Configuration sample(int id, Configuration parent, double spread, MersenneTwisterFast random) {
+        LinkedHashMap<String, Object> values = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Parameter> p : this.parameters.entrySet()) {
+            values.put(p.getKey(), p.getValue().perturb(parent.get(p.getKey()), spread, random));
+        }
+        return new Configuration(id, values);
+    }
+}
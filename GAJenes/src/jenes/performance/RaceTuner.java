@@ -0,0 +1,778 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jenes.performance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.Chromosome;
+import jenes.performance.ParameterSpace.Configuration;
+import jenes.population.Individual;
+import jenes.statistics.Statistics.TerminationReason;
+import jenes.statistics.StreamingSummary;
+import jenes.utils.MersenneTwisterFast;
+import jenes.utils.Random;
+
+/**
+ * Tunes the parameters of a genetic algorithm by iterated racing, in the spirit
+ * of F-Race and irace.
+ * <p>
+ * Each iteration samples configurations from a {@link ParameterSpace}, uniformly at
+ * first and then around the elite configurations of the previous iterations, with
+ * a spread shrinking at each iteration. The configurations are raced on a sequence
+ * of blocks, each block being a problem instance and a seed shared by all the
+ * configurations. After the first blocks, configurations statistically worse
+ * than the best one, by the Friedman test and its post-hoc comparisons or by
+ * paired t-tests, are discarded, so that the survivors receive the remaining
+ * budget. Elites keep the costs of the blocks already run, and are not run on them again.
+ * <pre>
+ * RaceTuner&lt;BitwiseChromosome&gt; tuner = new RaceTuner&lt;&gt;(space, factory, instances, 2000);
+ * tuner.setMeasure(RaceTuner.evaluationsToTarget(10));
+ * RaceTuner.Result result = tuner.run();
+ * Configuration best = result.getBest().getConfiguration();
+ * </pre>
+ * The runs of a block are evolved in parallel, on all the available processors by
+ * default. As in {@link ReplicateRunner}, the {@link Random} instance of the thread
+ * evolving a run is seeded with the block seed before the factory is invoked.
+ * Costs measuring time are affected by the concurrent runs: measuring evaluations
+ * is preferable when the fitness dominates the cost of the evolution.
+ *
+ * @param <T> The class of chromosomes to work with
+ *
+ * @version 2.1
+ * @since 2.1
+ *
+ * @see ParameterSpace
+ */
+public class RaceTuner<T extends Chromosome> {
+
+    private static final Logger log = Logger.getLogger(RaceTuner.class.getName());
+
+    /**
+     * Builds the algorithm of a run
+     *
+     * @param <T> The class of chromosomes to work with
+     */
+    public static interface Factory<T extends Chromosome> {
+
+        /**
+         * Builds a new algorithm for a configuration and a problem instance.
+         * It is invoked on the thread evolving the run, after its random generator has been seeded.
+         *
+         * @param configuration the parameter values
+         * @param instance the problem instance, from 0
+         * @return the algorithm, not shared with other runs
+         */
+        public GeneticAlgorithm<T> create(Configuration configuration, int instance);
+    }
+
+    /**
+     * The cost of a run, to be minimized
+     */
+    public static interface Measure {
+
+        /**
+         * Returns the cost of a completed run
+         *
+         * @param ga the evolved algorithm
+         * @param nanos the wall-clock time of the evolution, in nanoseconds
+         * @return the cost, lower is better
+         */
+        public double cost(GeneticAlgorithm<?> ga, long nanos);
+    }
+
+    /**
+     * The statistical test discarding configurations
+     */
+    public static enum Test {
+
+        /** The Friedman test on ranks, followed by its post-hoc comparisons with the best configuration */
+        FRIEDMAN,
+        /** Paired t-tests between each configuration and the best one */
+        T_TEST
+    }
+
+    /**
+     * A raced configuration and its costs
+     */
+    public static final class Candidate {
+
+        private final Configuration configuration;
+        private double[] costs = new double[8];
+        private int blocks;
+
+        Candidate(Configuration configuration) {
+            this.configuration = configuration;
+        }
+
+        /**
+         * Returns the configuration
+         *
+         * @return the configuration
+         */
+        public Configuration getConfiguration() {
+            return this.configuration;
+        }
+
+        /**
+         * Returns the number of blocks run
+         *
+         * @return the number of blocks
+         */
+        public int getBlocks() {
+            return this.blocks;
+        }
+
+        /**
+         * Returns the cost of a block
+         *
+         * @param block the block, less than {@link #getBlocks()}
+         * @return the cost
+         */
+        public double getCost(int block) {
+            if (block >= this.blocks) {
+                throw new IndexOutOfBoundsException("[Jenes]: block " + block + " not run");
+            }
+            return this.costs[block];
+        }
+
+        /**
+         * Returns the mean cost over the blocks run
+         *
+         * @return the mean cost, NaN if no block has been run
+         */
+        public double getMeanCost() {
+            return this.getMeanCost(this.blocks);
+        }
+
+        private double getMeanCost(int blocks) {
+            double sum = 0;
+            for (int b = 0; b < blocks; ++b) {
+                sum += this.costs[b];
+            }
+            return blocks > 0 ? sum / blocks : Double.NaN;
+        }
+
+        void setCost(int block, double cost) {
+            if (block >= this.costs.length) {
+                this.costs = Arrays.copyOf(this.costs, Math.max(block + 1, 2 * this.costs.length));
+            }
+            this.costs[block] = cost;
+            this.blocks = Math.max(this.blocks, block + 1);
+        }
+
+        @Override
+        public String toString() {
+            return this.configuration + " cost=" + this.getMeanCost() + " over " + this.blocks + " blocks";
+        }
+    }
+
+    /**
+     * The outcome of a tuning
+     */
+    public static final class Result {
+
+        private final List<Candidate> elites;
+        private final int runs;
+        private final int configurations;
+        private final int iterations;
+        private final long wallClockTime;
+
+        private Result(List<Candidate> elites, int runs, int configurations, int iterations, long wallClockTime) {
+            this.elites = Collections.unmodifiableList(elites);
+            this.runs = runs;
+            this.configurations = configurations;
+            this.iterations = iterations;
+            this.wallClockTime = wallClockTime;
+        }
+
+        /**
+         * Returns the best configuration found
+         *
+         * @return the best candidate
+         */
+        public Candidate getBest() {
+            return this.elites.get(0);
+        }
+
+        /**
+         * Returns the surviving configurations of the last race
+         *
+         * @return the elite candidates, best first
+         */
+        public List<Candidate> getElites() {
+            return this.elites;
+        }
+
+        /**
+         * Returns the number of runs evolved
+         *
+         * @return the runs
+         */
+        public int getRuns() {
+            return this.runs;
+        }
+
+        /**
+         * Returns the number of configurations raced
+         *
+         * @return the configurations
+         */
+        public int getConfigurations() {
+            return this.configurations;
+        }
+
+        /**
+         * Returns the number of iterations performed
+         *
+         * @return the iterations
+         */
+        public int getIterations() {
+            return this.iterations;
+        }
+
+        /**
+         * Returns the wall-clock time of the tuning
+         *
+         * @return the time in milliseconds
+         */
+        public long getWallClockTime() {
+            return this.wallClockTime;
+        }
+
+        @Override
+        public String toString() {
+            return "best " + this.getBest() + " (" + this.configurations + " configurations, " + this.runs
+                    + " runs, " + this.iterations + " iterations, " + this.wallClockTime + " ms)";
+        }
+    }
+
+    private final ParameterSpace space;
+    private final Factory<T> factory;
+    private final int instances;
+    private final int budget;
+    private Measure measure = bestScore();
+    private Test test = Test.FRIEDMAN;
+    private double alpha = 0.05;
+    private int firstTest = 5;
+    private int configurations;
+    private int eliteCount;
+    private int iterations;
+    private long seed = Random.STANDARD_SEED;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int runs;
+    private int nextId;
+
+    /**
+     * Builds a tuner
+     *
+     * @param space the parameter space
+     * @param factory the factory of the runs
+     * @param instances the number of problem instances, cycled by the blocks
+     * @param budget the maximum number of runs
+     */
+    public RaceTuner(final ParameterSpace space, final Factory<T> factory, final int instances, final int budget) {
+        if (space.size() == 0) {
+            throw new IllegalArgumentException("[Jenes]: the parameter space is empty");
+        }
+        if (instances < 1 || budget < 1) {
+            throw new IllegalArgumentException("[Jenes]: instances and budget must be positive");
+        }
+        this.space = space;
+        this.factory = factory;
+        this.instances = instances;
+        this.budget = budget;
+        final int log2 = 31 - Integer.numberOfLeadingZeros(space.size());
+        this.iterations = 2 + log2;
+        this.eliteCount = 2 + log2;
+        this.configurations = Math.max(2 * this.eliteCount, 4 * space.size());
+    }
+
+    /**
+     * Sets the cost of a run. By default it is {@link #bestScore()}.
+     *
+     * @param measure the measure
+     */
+    public void setMeasure(final Measure measure) {
+        this.measure = measure;
+    }
+
+    /**
+     * Sets the statistical test and its significance level
+     *
+     * @param test the test
+     * @param alpha the significance level, such as 0.05
+     */
+    public void setTest(final Test test, final double alpha) {
+        if (!(alpha > 0 && alpha < 1)) {
+            throw new IllegalArgumentException("[Jenes]: the significance level must be between 0 and 1");
+        }
+        this.test = test;
+        this.alpha = alpha;
+    }
+
+    /**
+     * Sets the number of blocks run before the first test
+     *
+     * @param blocks the number of blocks, at least 2
+     */
+    public void setFirstTest(final int blocks) {
+        if (blocks < 2) {
+            throw new IllegalArgumentException("[Jenes]: at least two blocks are needed by a test");
+        }
+        this.firstTest = blocks;
+    }
+
+    /**
+     * Sets the number of configurations raced at each iteration, elites included
+     *
+     * @param configurations the number of configurations, at least 2
+     */
+    public void setConfigurations(final int configurations) {
+        if (configurations < 2) {
+            throw new IllegalArgumentException("[Jenes]: at least two configurations must be raced");
+        }
+        this.configurations = configurations;
+    }
+
+    /**
+     * Sets the number of elites kept by an iteration for the next one. A race also
+     * stops when no more configurations than elites survive.
+     *
+     * @param eliteCount the number of elites, positive
+     */
+    public void setEliteCount(final int eliteCount) {
+        if (eliteCount < 1) {
+            throw new IllegalArgumentException("[Jenes]: the number of elites must be positive");
+        }
+        this.eliteCount = eliteCount;
+    }
+
+    /**
+     * Sets the number of iterations the budget is split into
+     *
+     * @param iterations the number of iterations, positive
+     */
+    public void setIterations(final int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("[Jenes]: the number of iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Sets the seed of the sampling and of the blocks: block <i>b</i> is seeded
+     * with <code>seed + b</code>
+     *
+     * @param seed the seed
+     */
+    public void setSeed(final long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of runs evolved concurrently
+     *
+     * @param threads the number of threads
+     */
+    public void setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("[Jenes]: the number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Tunes the parameters within the budget
+     *
+     * @return the result
+     * @throws InterruptedException if interrupted while waiting for the runs; the
+     * runs still going on are interrupted
+     */
+    public Result run() throws InterruptedException {
+        final long begin = System.currentTimeMillis();
+        this.runs = 0;
+        this.nextId = 0;
+        final MersenneTwisterFast random = new MersenneTwisterFast(this.seed);
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Jenes-race-" + count.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        List<Candidate> elites = new ArrayList<Candidate>();
+        int iteration = 0;
+        try {
+            while (iteration < this.iterations) {
+                final int iterationBudget = (this.budget - this.runs) / (this.iterations - iteration);
+                final int size = Math.min(this.configurations, iterationBudget / this.firstTest);
+                if (size <= elites.size() || size < 2) {
+                    break;
+                }
+                iteration++;
+                final double spread = 0.5 * (this.iterations - iteration + 1) / (this.iterations + 1);
+                List<Candidate> alive = new ArrayList<Candidate>(elites);
+                while (alive.size() < size) {
+                    Configuration c = elites.isEmpty()
+                            ? this.space.sample(this.nextId++, random)
+                            : this.space.sample(this.nextId++, pickParent(elites, random).configuration, spread, random);
+                    alive.add(new Candidate(c));
+                }
+                alive = this.race(alive, iterationBudget, executor);
+                elites = new ArrayList<Candidate>(alive.subList(0, Math.min(this.eliteCount, alive.size())));
+                log.log(Level.FINE, "Iteration {0}: {1} of {2} configurations survived, best {3}",
+                        new Object[]{iteration, alive.size(), size, elites.get(0)});
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (elites.isEmpty()) {
+            throw new IllegalStateException("[Jenes]: the budget is too small to race two configurations");
+        }
+        return new Result(elites, this.runs, this.nextId, iteration, System.currentTimeMillis() - begin);
+    }
+
+    /**
+     * Picks an elite, with a probability decreasing with its rank
+     */
+    private static Candidate pickParent(List<Candidate> elites, MersenneTwisterFast random) {
+        final int n = elites.size();
+        int ticket = random.nextInt(n * (n + 1) / 2);
+        for (int i = 0; i < n; ++i) {
+            ticket -= n - i;
+            if (ticket < 0) {
+                return elites.get(i);
+            }
+        }
+        return elites.get(0);
+    }
+
+    /**
+     * Races the candidates within the budget
+     *
+     * @return the survivors, best first
+     */
+    private List<Candidate> race(List<Candidate> alive, int raceBudget, ExecutorService executor) throws InterruptedException {
+        int spent = 0;
+        int blocks = 0;
+        while (alive.size() > 1 && (blocks < this.firstTest || alive.size() > this.eliteCount)) {
+            // runs several blocks at once while the survivors are fewer than the threads
+            final int batch = blocks < this.firstTest ? this.firstTest - blocks : Math.max(1, this.threads / alive.size());
+            int cost = 0;
+            int count = 0;
+            while (count < batch) {
+                final int missing = this.missing(alive, blocks + count);
+                if (spent + cost + missing > raceBudget) {
+                    break;
+                }
+                cost += missing;
+                count++;
+            }
+            if (count == 0) {
+                break;
+            }
+            this.runBlocks(alive, blocks, blocks + count, executor);
+            spent += cost;
+            for (int i = 0; i < count; ++i) {
+                blocks++;
+                if (blocks >= this.firstTest && alive.size() > 1) {
+                    alive = this.discard(alive, blocks);
+                }
+            }
+        }
+        final int compared = blocks;
+        Collections.sort(alive, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate a, Candidate b) {
+                return Double.compare(a.getMeanCost(compared), b.getMeanCost(compared));
+            }
+        });
+        return alive;
+    }
+
+    private int missing(List<Candidate> alive, int block) {
+        int missing = 0;
+        for (Candidate c : alive) {
+            if (c.blocks <= block) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Runs the blocks from first, included, to last, excluded, for the candidates lacking them
+     */
+    private void runBlocks(List<Candidate> alive, int first, int last, ExecutorService executor) throws InterruptedException {
+        ArrayList<Future<Double>> futures = new ArrayList<Future<Double>>();
+        ArrayList<Candidate> candidates = new ArrayList<Candidate>();
+        ArrayList<Integer> blocks = new ArrayList<Integer>();
+        for (int b = first; b < last; ++b) {
+            for (final Candidate c : alive) {
+                if (c.blocks > b) {
+                    continue;
+                }
+                final int block = b;
+                futures.add(executor.submit(new Callable<Double>() {
+                    @Override
+                    public Double call() {
+                        return evolve(c.configuration, block);
+                    }
+                }));
+                candidates.add(c);
+                blocks.add(b);
+            }
+        }
+        for (int i = 0; i < futures.size(); ++i) {
+            double cost;
+            try {
+                cost = futures.get(i).get();
+            } catch (ExecutionException ex) {
+                log.log(Level.WARNING, "Run of " + candidates.get(i).configuration + " on block " + blocks.get(i) + " failed", ex.getCause());
+                cost = Double.POSITIVE_INFINITY;
+            }
+            candidates.get(i).setCost(blocks.get(i), Double.isNaN(cost) ? Double.POSITIVE_INFINITY : cost);
+        }
+        this.runs += futures.size();
+    }
+
+    private double evolve(Configuration configuration, int block) {
+        Random.getInstance(this.seed + block);
+        GeneticAlgorithm<T> ga = this.factory.create(configuration, block % this.instances);
+        final long begin = System.nanoTime();
+        ga.evolve();
+        return this.measure.cost(ga, System.nanoTime() - begin);
+    }
+
+    /**
+     * Discards the candidates significantly worse than the best one on the first blocks
+     */
+    private List<Candidate> discard(List<Candidate> alive, int blocks) {
+        final boolean[] worse = this.test == Test.FRIEDMAN && alive.size() > 2
+                ? friedman(alive, blocks, this.alpha)
+                : tTest(alive, blocks, this.alpha);
+        ArrayList<Candidate> survivors = new ArrayList<Candidate>();
+        for (int j = 0; j < alive.size(); ++j) {
+            if (!worse[j]) {
+                survivors.add(alive.get(j));
+            }
+        }
+        return survivors;
+    }
+
+    /**
+     * The Friedman test with the post-hoc comparisons of Conover, as used by F-Race
+     *
+     * @return the candidates worse than the best ranked one
+     */
+    static boolean[] friedman(List<Candidate> alive, int blocks, double alpha) {
+        final int k = alive.size();
+        final double[] rankSums = new double[k];
+        final double[] costs = new double[k];
+        final Integer[] order = new Integer[k];
+        double squares = 0;
+        for (int b = 0; b < blocks; ++b) {
+            for (int j = 0; j < k; ++j) {
+                costs[j] = alive.get(j).costs[b];
+                order[j] = j;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer x, Integer y) {
+                    return Double.compare(costs[x], costs[y]);
+                }
+            });
+            for (int i = 0; i < k;) {
+                int end = i + 1;
+                while (end < k && costs[order[end]] == costs[order[i]]) {
+                    end++;
+                }
+                final double rank = (i + end + 1) / 2.0;
+                for (int t = i; t < end; ++t) {
+                    rankSums[order[t]] += rank;
+                    squares += rank * rank;
+                }
+                i = end;
+            }
+        }
+        final boolean[] worse = new boolean[k];
+        final double expected = blocks * (k + 1) / 2.0;
+        final double c = blocks * k * (k + 1) * (k + 1) / 4.0;
+        double deviation = 0;
+        double sumSquares = 0;
+        int best = 0;
+        for (int j = 0; j < k; ++j) {
+            deviation += (rankSums[j] - expected) * (rankSums[j] - expected);
+            sumSquares += rankSums[j] * rankSums[j];
+            if (rankSums[j] < rankSums[best]) {
+                best = j;
+            }
+        }
+        if (squares - c <= 0) {
+            return worse;
+        }
+        final double statistic = (k - 1) * deviation / (squares - c);
+        if (statistic <= chiSquareQuantile(1 - alpha, k - 1)) {
+            return worse;
+        }
+        final long dof = (long) (blocks - 1) * (k - 1);
+        final double threshold = StreamingSummary.studentQuantile(1 - alpha / 2, dof)
+                * Math.sqrt(2 * (blocks * squares - sumSquares) / dof);
+        for (int j = 0; j < k; ++j) {
+            worse[j] = rankSums[j] - rankSums[best] > threshold;
+        }
+        return worse;
+    }
+
+    /**
+     * One-sided paired t-tests against the candidate with the lowest mean cost
+     *
+     * @return the candidates worse than the best one
+     */
+    static boolean[] tTest(List<Candidate> alive, int blocks, double alpha) {
+        final int k = alive.size();
+        int best = 0;
+        for (int j = 1; j < k; ++j) {
+            if (alive.get(j).getMeanCost(blocks) < alive.get(best).getMeanCost(blocks)) {
+                best = j;
+            }
+        }
+        final boolean[] worse = new boolean[k];
+        final double critical = StreamingSummary.studentQuantile(1 - alpha, blocks - 1);
+        final double[] reference = alive.get(best).costs;
+        for (int j = 0; j < k; ++j) {
+            if (j == best) {
+                continue;
+            }
+            StreamingSummary differences = new StreamingSummary(0.5);
+            boolean infinite = false;
+            for (int b = 0; b < blocks; ++b) {
+                final double d = alive.get(j).costs[b] - reference[b];
+                if (Double.isInfinite(d) && d > 0) {
+                    infinite = true;
+                }
+                differences.add(d);
+            }
+            if (infinite) {
+                worse[j] = true;
+            } else if (differences.getCount() > 1) {
+                final double error = differences.getStandardError();
+                worse[j] = error > 0 ? differences.getMean() / error > critical : differences.getMean() > 0;
+            }
+        }
+        return worse;
+    }
+
+    /**
+     * Returns a quantile of the chi-square distribution, by the Wilson-Hilferty approximation
+     */
+    private static double chiSquareQuantile(double p, int dof) {
+        final double h = 2.0 / (9 * dof);
+        final double x = 1 - h + StreamingSummary.normalQuantile(p) * Math.sqrt(h);
+        return dof * x * x * x;
+    }
+
+    /**
+     * Measures the best legal score on the first objective, negated when bigger is better
+     *
+     * @return the measure
+     */
+    public static Measure bestScore() {
+        return new Measure() {
+            @Override
+            public double cost(GeneticAlgorithm<?> ga, long nanos) {
+                final boolean bib = ga.isFirstObjectiveBiggerBetter();
+                double best = Double.NaN;
+                for (Individual<?> individual : ga.getNextPopulation()) {
+                    if (individual.isLegal() && individual.isEvaluated()) {
+                        final double score = individual.getScore();
+                        if (Double.isNaN(best) || (bib ? score > best : score < best)) {
+                            best = score;
+                        }
+                    }
+                }
+                return bib ? -best : best;
+            }
+        };
+    }
+
+    /**
+     * Measures the fitness evaluations of a run
+     *
+     * @return the measure
+     */
+    public static Measure evaluations() {
+        return new Measure() {
+            @Override
+            public double cost(GeneticAlgorithm<?> ga, long nanos) {
+                return ga.getStatistics().getFitnessEvaluationNumbers();
+            }
+        };
+    }
+
+    /**
+     * Measures the wall-clock time of a run, in milliseconds
+     *
+     * @return the measure
+     */
+    public static Measure elapsedTime() {
+        return new Measure() {
+            @Override
+            public double cost(GeneticAlgorithm<?> ga, long nanos) {
+                return nanos / 1e6;
+            }
+        };
+    }
+
+    /**
+     * Measures the fitness evaluations needed to reach a target, set by the factory
+     * with {@link jenes.Termination#target(double)}. Runs stopping before the target
+     * cost their evaluations times the penalty, as in the PAR10 score.
+     *
+     * @param penalty the penalty factor of runs missing the target, such as 10
+     * @return the measure
+     */
+    public static Measure evaluationsToTarget(final double penalty) {
+        return new Measure() {
+            @Override
+            public double cost(GeneticAlgorithm<?> ga, long nanos) {
+                final double evaluations = ga.getStatistics().getFitnessEvaluationNumbers();
+                return ga.getStatistics().getTerminationReason() == TerminationReason.TARGET_REACHED
+                        ? evaluations : penalty * evaluations;
+            }
+        };
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jenes.performance;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenes.GenerationEventListener;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.Chromosome;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.statistics.StreamingSummary;
+import jenes.utils.Random;
+
+/**
+ * Runs independent replicates of a genetic algorithm in parallel and aggregates
+ * their progress per generation. It replaces running a benchmark once per JVM,
+ * as {@link JENESTest} does, when configurations are compared over tens of seeds:
+ * <pre>
+ * ReplicateRunner&lt;BitwiseChromosome&gt; runner = new ReplicateRunner&lt;&gt;(factory, 30);
+ * runner.setSeed(1234);
+ * ReplicateRunner.Report report = runner.run();
+ * report.write(new FileWriter("curves.csv"));
+ * </pre>
+ * Each replicate is built by the factory and evolved on the same worker thread.
+ * Before the factory is invoked the {@link Random} instance of that thread is seeded
+ * with <code>seed + replicate</code>, so the initial population and the evolution of
+ * a replicate are reproducible whatever the thread executing it, as long as the
+ * algorithm evaluates on its own thread.
+ * <p>
+ * At each generation the best and the mean score of the legal individuals, on the
+ * first objective, and the diversity of the population are added to the {@link StreamingSummary}
+ * of that generation: the memory used is proportional to the number of generations,
+ * not to the number of replicates, and the curves can be compared with confidence
+ * bands as soon as the replicates complete. The diversity is the ratio of distinct
+ * genotypes in the population, compared by their {@link Individual#getFingerprint()}
+ * as by {@link jenes.Termination#diversity(double)}.
+ * <p>
+ * Replicates failing with an exception are logged and counted, the others are not affected.
+ *
+ * @param <T> The class of chromosomes to work with
+ *
+ * @version 2.1
+ * @since 2.1
+ */
+public class ReplicateRunner<T extends Chromosome> {
+
+    private static final Logger log = Logger.getLogger(ReplicateRunner.class.getName());
+
+    /**
+     * Builds the algorithm of a replicate. It is invoked on the thread evolving
+     * the replicate, after its random generator has been seeded.
+     *
+     * @param <T> The class of chromosomes to work with
+     */
+    public static interface Factory<T extends Chromosome> {
+
+        /**
+         * Builds a new algorithm
+         *
+         * @param replicate the replicate number, from 0
+         * @return the algorithm, not shared with other replicates
+         */
+        public GeneticAlgorithm<T> create(int replicate);
+    }
+
+    /**
+     * The summaries of a generation over the replicates reaching it
+     */
+    public static final class Generation {
+
+        private final int generation;
+        private final StreamingSummary best = new StreamingSummary();
+        private final StreamingSummary mean = new StreamingSummary();
+        private final StreamingSummary diversity = new StreamingSummary();
+
+        private Generation(int generation) {
+            this.generation = generation;
+        }
+
+        /**
+         * Returns the generation number
+         *
+         * @return the generation, from 0
+         */
+        public int getGeneration() {
+            return this.generation;
+        }
+
+        /**
+         * Returns the summary of the best scores
+         *
+         * @return the best score summary
+         */
+        public StreamingSummary getBest() {
+            return this.best;
+        }
+
+        /**
+         * Returns the summary of the mean scores
+         *
+         * @return the mean score summary
+         */
+        public StreamingSummary getMean() {
+            return this.mean;
+        }
+
+        /**
+         * Returns the summary of the ratios of distinct genotypes
+         *
+         * @return the diversity summary
+         */
+        public StreamingSummary getDiversity() {
+            return this.diversity;
+        }
+    }
+
+    /**
+     * The outcome of a run of the replicates
+     */
+    public static final class Report {
+
+        private final List<Generation> curves;
+        private final StreamingSummary finalBest;
+        private final int replicates;
+        private final int failures;
+        private final long generations;
+        private final long evaluations;
+        private final long wallClockTime;
+        private final int threads;
+        private final double level;
+
+        private Report(List<Generation> curves, StreamingSummary finalBest, int replicates, int failures,
+                long generations, long evaluations, long wallClockTime, int threads, double level) {
+            this.curves = Collections.unmodifiableList(curves);
+            this.finalBest = finalBest;
+            this.replicates = replicates;
+            this.failures = failures;
+            this.generations = generations;
+            this.evaluations = evaluations;
+            this.wallClockTime = wallClockTime;
+            this.threads = threads;
+            this.level = level;
+        }
+
+        /**
+         * Returns the aggregate curves, a summary per generation
+         *
+         * @return the generations in order
+         */
+        public List<Generation> getCurves() {
+            return this.curves;
+        }
+
+        /**
+         * Returns the summary of the best score at the end of each replicate
+         *
+         * @return the final best score summary
+         */
+        public StreamingSummary getFinalBest() {
+            return this.finalBest;
+        }
+
+        /**
+         * Returns the number of completed replicates
+         *
+         * @return the completed replicates
+         */
+        public int getReplicates() {
+            return this.replicates;
+        }
+
+        /**
+         * Returns the number of failed replicates
+         *
+         * @return the failed replicates
+         */
+        public int getFailures() {
+            return this.failures;
+        }
+
+        /**
+         * Returns the number of generations evolved by the completed replicates
+         *
+         * @return the generations
+         */
+        public long getGenerations() {
+            return this.generations;
+        }
+
+        /**
+         * Returns the number of fitness evaluations of the completed replicates
+         *
+         * @return the evaluations
+         */
+        public long getEvaluations() {
+            return this.evaluations;
+        }
+
+        /**
+         * Returns the wall-clock time of the run
+         *
+         * @return the time in milliseconds
+         */
+        public long getWallClockTime() {
+            return this.wallClockTime;
+        }
+
+        /**
+         * Returns the number of threads evolving the replicates
+         *
+         * @return the threads
+         */
+        public int getThreads() {
+            return this.threads;
+        }
+
+        /**
+         * Returns the confidence level of the bands written by {@link #write(Writer)}
+         *
+         * @return the confidence level
+         */
+        public double getConfidenceLevel() {
+            return this.level;
+        }
+
+        /**
+         * Returns the completed replicates per wall-clock second
+         *
+         * @return the replicate throughput
+         */
+        public double getReplicateThroughput() {
+            return perSecond(this.replicates);
+        }
+
+        /**
+         * Returns the generations per wall-clock second
+         *
+         * @return the generation throughput
+         */
+        public double getGenerationThroughput() {
+            return perSecond(this.generations);
+        }
+
+        /**
+         * Returns the fitness evaluations per wall-clock second
+         *
+         * @return the evaluation throughput
+         */
+        public double getEvaluationThroughput() {
+            return perSecond(this.evaluations);
+        }
+
+        private double perSecond(long amount) {
+            return this.wallClockTime > 0 ? amount * 1000.0 / this.wallClockTime : Double.NaN;
+        }
+
+        /**
+         * Writes the curves as comma separated values, a row per generation. For
+         * each of best, mean and diversity the columns report the mean over the
+         * replicates, the bounds of its confidence interval, the standard deviation
+         * and the tracked quantiles.
+         *
+         * @param out the writer, neither flushed nor closed
+         * @throws IOException if the writer fails
+         */
+        public void write(Writer out) throws IOException {
+            final String[] measures = {"best", "mean", "diversity"};
+            final double[] probabilities = StreamingSummary.DEFAULT_PROBABILITIES;
+            StringBuilder line = new StringBuilder("generation,replicates");
+            for (String m : measures) {
+                line.append(',').append(m).append(".mean,").append(m).append(".lower,")
+                        .append(m).append(".upper,").append(m).append(".sd");
+                for (double p : probabilities) {
+                    line.append(',').append(m).append(".p").append(Math.round(p * 100));
+                }
+            }
+            out.write(line.append('\n').toString());
+            for (Generation g : this.curves) {
+                line.setLength(0);
+                line.append(g.generation).append(',').append(g.best.getCount());
+                for (StreamingSummary s : new StreamingSummary[]{g.best, g.mean, g.diversity}) {
+                    line.append(',').append(s.getMean()).append(',').append(s.getLowerBound(this.level))
+                            .append(',').append(s.getUpperBound(this.level)).append(',').append(s.getStandardDeviation());
+                    for (double p : probabilities) {
+                        line.append(',').append(s.getQuantile(p));
+                    }
+                }
+                out.write(line.append('\n').toString());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.replicates + " replicates (" + this.failures + " failed) in " + this.wallClockTime
+                    + " ms on " + this.threads + " threads: " + String.format("%.2f", this.getReplicateThroughput())
+                    + " replicates/s, " + String.format("%.1f", this.getGenerationThroughput()) + " generations/s, "
+                    + String.format("%.1f", this.getEvaluationThroughput()) + " evaluations/s; final best mean "
+                    + this.finalBest.getMean() + " +/- " + this.finalBest.getConfidenceHalfWidth(this.level)
+                    + " (" + Math.round(this.level * 100) + "%)";
+        }
+    }
+
+    private final Factory<T> factory;
+    private final int replicates;
+    private long seed = Random.STANDARD_SEED;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double level = 0.95;
+
+    private final ArrayList<Generation> curves = new ArrayList<Generation>();
+    private final StreamingSummary finalBest = new StreamingSummary();
+    private final AtomicInteger failures = new AtomicInteger();
+    private long generations;
+    private long evaluations;
+
+    /**
+     * Builds a runner evolving the given number of replicates on all the available processors
+     *
+     * @param factory the factory of the replicates
+     * @param replicates the number of replicates
+     */
+    public ReplicateRunner(final Factory<T> factory, final int replicates) {
+        if (replicates < 1) {
+            throw new IllegalArgumentException("[Jenes]: the number of replicates must be positive");
+        }
+        this.factory = factory;
+        this.replicates = replicates;
+    }
+
+    /**
+     * Sets the base seed: replicate <i>i</i> is seeded with <code>seed + i</code>
+     *
+     * @param seed the base seed
+     */
+    public void setSeed(final long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of replicates evolved concurrently. When the algorithms
+     * evaluate with several threads each, it should be lowered accordingly.
+     *
+     * @param threads the number of threads
+     */
+    public void setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("[Jenes]: the number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the confidence level of the bands reported
+     *
+     * @param level the confidence level, between 0 and 1
+     */
+    public void setConfidenceLevel(final double level) {
+        if (!(level > 0 && level < 1)) {
+            throw new IllegalArgumentException("[Jenes]: the confidence level must be between 0 and 1");
+        }
+        this.level = level;
+    }
+
+    /**
+     * Evolves all the replicates and waits for them to complete. A runner can be run once.
+     *
+     * @return the report
+     * @throws InterruptedException if interrupted while waiting; the replicates still
+     * running are interrupted
+     */
+    public Report run() throws InterruptedException {
+        synchronized (this) {
+            if (!this.curves.isEmpty() || this.finalBest.getCount() > 0) {
+                throw new IllegalStateException("[Jenes]: the replicates have already been run");
+            }
+        }
+        final int nthreads = Math.min(this.threads, this.replicates);
+        final long begin = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Jenes-replicate-" + count.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        for (int i = 0; i < this.replicates; ++i) {
+            final int replicate = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runReplicate(replicate);
+                    } catch (RuntimeException ex) {
+                        failures.incrementAndGet();
+                        log.log(Level.WARNING, "Replicate " + replicate + " failed", ex);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.log(Level.FINE, "{0} of {1} replicates completed", new Object[]{this.finalBest.getCount(), this.replicates});
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            throw ex;
+        }
+        final long elapsed = System.currentTimeMillis() - begin;
+        synchronized (this) {
+            return new Report(new ArrayList<Generation>(this.curves), this.finalBest, this.replicates - this.failures.get(),
+                    this.failures.get(), this.generations, this.evaluations, elapsed, nthreads, this.level);
+        }
+    }
+
+    private void runReplicate(final int replicate) {
+        Random.getInstance(this.seed + replicate);
+        final GeneticAlgorithm<T> ga = this.factory.create(replicate);
+        final boolean bib = ga.isFirstObjectiveBiggerBetter();
+        final double[] last = {Double.NaN};
+        final GenerationEventListener<T> listener = new GenerationEventListener<T>() {
+            @Override
+            public void onGeneration(GeneticAlgorithm<T> ga, long time) {
+                last[0] = record(ga.getGeneration(), ga.getNextPopulation(), bib);
+            }
+        };
+        ga.addGenerationEventListener(listener);
+        try {
+            ga.evolve();
+        } finally {
+            ga.removeGenerationEventListener(listener);
+        }
+        synchronized (this) {
+            this.finalBest.add(last[0]);
+            this.generations += ga.getStatistics().getGenerations();
+            this.evaluations += ga.getStatistics().getFitnessEvaluationNumbers();
+        }
+    }
+
+    /**
+     * Adds the scores and the diversity of a population to the summaries of its
+     * generation
+     *
+     * @return the best score
+     */
+    private double record(final int generation, final Population<T> population, final boolean bib) {
+        double best = Double.NaN;
+        double sum = 0;
+        int n = 0;
+        for (Individual<T> individual : population) {
+            if (individual.isLegal() && individual.isEvaluated()) {
+                final double score = individual.getScore();
+                if (n == 0 || (bib ? score > best : score < best)) {
+                    best = score;
+                }
+                sum += score;
+                n++;
+            }
+        }
+        final double mean = n > 0 ? sum / n : Double.NaN;
+
+        final int size = population.size();
+        final long[] hashes = new long[size];
+        for (int i = 0; i < size; ++i) {
+            hashes[i] = population.getIndividual(i).getFingerprint();
+        }
+        Arrays.sort(hashes);
+        int distinct = size > 0 ? 1 : 0;
+        for (int i = 1; i < size; ++i) {
+            if (hashes[i] != hashes[i - 1]) {
+                distinct++;
+            }
+        }
+        final double diversity = size > 0 ? (double) distinct / size : Double.NaN;
+        synchronized (this) {
+            while (this.curves.size() <= generation) {
+                this.curves.add(new Generation(this.curves.size()));
+            }
+            final Generation g = this.curves.get(generation);
+            g.best.add(best);
+            g.mean.add(mean);
+            g.diversity.add(diversity);
+        }
+        return best;
+    }
+}
@@ -62,6 +62,8 @@ public abstract class Fitness<C extends Chromosome> extends Plugin implements Cl
     private boolean[] biggerIsBetter;
     /** Sorter */
     private Sorter sorter = new Sorter();
+    /** Racing bound, shared among clones */
+    private ScoreBound scoreBound = new ScoreBound();
 
     /**
      * Creates a new fitness with the defined number of objectives imposing all 
@@ -114,6 +116,8 @@ public abstract class Fitness<C extends Chromosome> extends Plugin implements Cl
             copy.sorter = new Sorter();
             copy.sorter.mode = this.sorter.mode;
 
+            copy.scoreBound = this.scoreBound;
+
             return copy;
 
         } catch (Exception ex) {
@@ -140,6 +144,98 @@ public abstract class Fitness<C extends Chromosome> extends Plugin implements Cl
      */
     public abstract void evaluate(Individual<C> individual);
 
+    /**
+     * Says if the current evaluation has been interrupted, e.g. because it exceeded
+     * the timeout of {@link jenes.utils.multitasking.MultiThreadEvaluator}. Long 
+     * evaluations should check it periodically and return as soon as possible,
+     * as their result is going to be discarded.
+     * 
+     * @return true if the evaluating thread has been interrupted
+     * @since 2.1
+     */
+    public static boolean isEvaluationInterrupted() {
+        return Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Evaluates a batch of {@link Individual}s. By default each individual is
+     * evaluated in turn by {@link #evaluate(jenes.population.Individual)}.
+     * <p>
+     * Fitness functions amortizing their setup over many individuals (e.g. a
+     * vectorized model inference or a single external simulator launch) can
+     * override this method. The batch never contains two individuals with the
+     * same genome when {@link Individual#isSameChromosomeSameFitness()} holds.
+     * <p>
+     *
+     * @param batch
+     *            the individuals to be evaluated
+     * @since 2.1
+     */
+    public void evaluateBatch(List<Individual<C>> batch) {
+        for (Individual<C> individual : batch) {
+            this.evaluate(individual);
+        }
+    }
+
+    /**
+     * Returns the racing bound shared by this fitness and its clones.
+     * 
+     * @return the score bound
+     * @since 2.1
+     */
+    public final ScoreBound getScoreBound() {
+        return this.scoreBound;
+    }
+
+    /**
+     * Returns the current cutoff on the first objective, that is the score an
+     * individual must beat to have a chance to survive.
+     * 
+     * @return the cutoff, or NaN if no cutoff is available
+     * @since 2.1
+     */
+    public final double getCutoff() {
+        return this.scoreBound.get();
+    }
+
+    /**
+     * Says if a partial score on the first objective is already worse than the cutoff.
+     * Fitness functions whose partial scores can only get worse as the evaluation 
+     * proceeds can invoke this method periodically and stop evaluating by 
+     * {@link #abortEvaluation(jenes.population.Individual, double)}.
+     * 
+     * @param partial the partial score
+     * @return true if the cutoff is set and the partial score is worse than it
+     * @since 2.1
+     */
+    public final boolean exceedsCutoff(double partial) {
+        final double bound = this.scoreBound.get();
+        if (Double.isNaN(bound)) {
+            return false;
+        }
+        return this.biggerIsBetter[0] ? partial < bound : partial > bound;
+    }
+
+    /**
+     * Terminates an evaluation exceeding the cutoff. The individual is given the worst
+     * possible score on every objective, that is negative infinity where bigger is better
+     * and positive infinity otherwise. A partial score would not be a safe bound: aborted
+     * individuals are not always discarded by the engine, and their partial score would
+     * rank them above fully evaluated individuals whose actual score is better.
+     * 
+     * @param individual the individual under evaluation
+     * @param progress the fraction of evaluation work done, within [0,1]
+     * @since 2.1
+     */
+    public final void abortEvaluation(Individual<C> individual, double progress) {
+        final double[] worst = new double[this.biggerIsBetter.length];
+        for (int i = 0; i < worst.length; ++i) {
+            worst[i] = this.biggerIsBetter[i] ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        individual.setScore(worst);
+        this.scoreBound.abort(progress);
+    }
+
     /**
      * Initializes the {@link Individual} given as parameter by resetting its scores.
      * <p>
@@ -0,0 +1,182 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.population;
+
+import java.util.Arrays;
+import jenes.chromosome.Chromosome;
+
+/**
+ * A set of individuals hashed by genome, used to detect individuals sharing the
+ * same chromosome in constant expected time. Individuals are hashed by their cached
+ * {@link Individual#getFingerprint()}, and compared by chromosome only when fingerprints
+ * match, so that different genomes colliding on the fingerprint are still told apart.
+ * <p>
+ * The set is an open-addressing table with linear probing, sized as a power of two
+ * and kept at most half full. It is meant to be refilled at each generation: entries
+ * are stamped by an epoch, so that {@link #clear()} takes constant time and the
+ * table is reused without allocation.
+ * <p>
+ * The set holds references to the individuals, thus chromosomes must not be changed
+ * while individuals are in the set. A set is not thread safe.
+ *
+ * @param <T> The type of chromosome.
+ *
+ * @version 2.1
+ * @since 2.1
+ */
+public final class GenomeSet<T extends Chromosome> {
+
+    /** The default initial capacity */
+    public static final int DEFAULT_CAPACITY = 64;
+    /** The fingerprints of the entries */
+    private long[] keys;
+    /** The individuals of the entries */
+    private Object[] values;
+    /** The epoch each slot has been filled in, a slot is empty if older than the current epoch */
+    private int[] stamps;
+    /** The current epoch */
+    private int epoch = 1;
+    /** The number of entries */
+    private int size;
+
+    /**
+     * Builds a set with the default capacity
+     */
+    public GenomeSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Builds a set with the given expected number of individuals
+     *
+     * @param capacity the expected number of individuals
+     */
+    public GenomeSet(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1;
+        this.keys = new long[n];
+        this.values = new Object[n];
+        this.stamps = new int[n];
+    }
+
+    /**
+     * Returns the number of individuals in the set
+     *
+     * @return the size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all the individuals from the set
+     */
+    public void clear() {
+        if (this.epoch == Integer.MAX_VALUE) {
+            Arrays.fill(this.stamps, 0);
+            this.epoch = 0;
+        }
+        this.epoch++;
+        this.size = 0;
+    }
+
+    /**
+     * Returns an individual of the set having the same chromosome of the given one
+     *
+     * @param individual the individual to match
+     * @return the twin, or null if not found
+     */
+    public Individual<T> get(Individual<T> individual) {
+        final long key = individual.getFingerprint();
+        final int mask = this.keys.length - 1;
+        for (int i = (int) key & mask; this.stamps[i] == this.epoch; i = (i + 1) & mask) {
+            Individual<T> twin = this.twin(i, key, individual);
+            if (twin != null) {
+                return twin;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds an individual to the set, unless an individual with the same chromosome
+     * is already there
+     *
+     * @param individual the individual to add
+     * @return the individual already in the set with the same chromosome, or null if the individual has been added
+     */
+    public Individual<T> add(Individual<T> individual) {
+        if ((this.size + 1) * 2 > this.keys.length) {
+            this.grow();
+        }
+        final long key = individual.getFingerprint();
+        final int mask = this.keys.length - 1;
+        int i = (int) key & mask;
+        for (; this.stamps[i] == this.epoch; i = (i + 1) & mask) {
+            Individual<T> twin = this.twin(i, key, individual);
+            if (twin != null) {
+                return twin;
+            }
+        }
+        this.keys[i] = key;
+        this.values[i] = individual;
+        this.stamps[i] = this.epoch;
+        this.size++;
+        return null;
+    }
+
+    /**
+     * Returns the individual of a slot if it has the same chromosome of the given one
+     */
+    @SuppressWarnings("unchecked")
+    private Individual<T> twin(int slot, long key, Individual<T> individual) {
+        if (this.keys[slot] != key) {
+            return null;
+        }
+        Individual<T> other = (Individual<T>) this.values[slot];
+        if (other == individual || other.getChromosome().equals(individual.getChromosome())) {
+            return other;
+        }
+        return null;
+    }
+
+    /**
+     * Doubles the table, rehashing the current entries
+     */
+    private void grow() {
+        final long[] oldKeys = this.keys;
+        final Object[] oldValues = this.values;
+        final int[] oldStamps = this.stamps;
+        final int n = oldKeys.length * 2;
+        final int mask = n - 1;
+        this.keys = new long[n];
+        this.values = new Object[n];
+        this.stamps = new int[n];
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldStamps[j] == this.epoch) {
+                int i = (int) oldKeys[j] & mask;
+                while (this.stamps[i] == this.epoch) {
+                    i = (i + 1) & mask;
+                }
+                this.keys[i] = oldKeys[j];
+                this.values[i] = oldValues[j];
+                this.stamps[i] = this.epoch;
+            }
+        }
+    }
+}
@@ -46,6 +46,11 @@ import jenes.statistics.StatisticsLogger.LoggableStatistics;
  * <p>
  * In complex search spaces, not every solution is feasible. The solution feasability is controlled
  * by the <code>legal</code> property.
+ * <p>
+ * An individual can also cache the phenotype decoded from its chromosome by a
+ * {@link PhenotypeDecoder}, so that fitness functions and statistics decode each genome once.
+ * Likewise, the 64-bit genome fingerprint used to hash individuals by chromosome is
+ * computed once per change of the chromosome.
  *
  * @param <T> The type of chromosome.
  *
@@ -70,6 +75,8 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
     private boolean evaluated;
     /** it says if the individual is legal or not */
     private boolean legal = true;
+    /** it says if the score has been predicted rather than computed by the fitness */
+    private boolean predicted = false;
     /** the population it belongs to */
     private Population<T> population;
     /** the subpopulation the individual belongs to */
@@ -78,6 +85,18 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
     private int rank = UNRANKED;
     /** the statistics of individual */
     private Statistics<T> statistics = null;
+    /** the deferred evaluation, shared with copies, null if evaluation is not deferred */
+    private transient Deferred<T> deferred = null;
+    /** the phenotype decoded from the chromosome, possibly stale */
+    private transient Object phenotype = null;
+    /** it says if the phenotype has been decoded from the current chromosome */
+    private transient boolean phenotypeValid = false;
+    /** it says if the phenotype is shared with other individuals, thus not reusable */
+    private transient boolean phenotypeShared = false;
+    /** the fingerprint of the chromosome */
+    private transient long fingerprint;
+    /** it says if the fingerprint has been computed from the current chromosome */
+    private transient boolean fingerprintValid = false;
 
     /**
      * Creates an <code>Individual</code> with no genome.
@@ -123,6 +142,11 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
         this.legal = ind.legal;
         this.speciem = ind.speciem;
         this.population = null;
+        this.deferred = ind.deferred;
+        this.predicted = ind.predicted;
+        this.sharePhenotype(ind);
+        this.fingerprint = ind.fingerprint;
+        this.fingerprintValid = ind.fingerprintValid;
     }
 
     /**
@@ -162,6 +186,83 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
         this.setNotEvaluated();
     }
 
+    /**
+     * Returns the phenotype of this <code>Individual</code>. The phenotype is decoded
+     * the first time it is requested after a change of the chromosome, then it is
+     * returned from cache. Decoders are expected to be deterministic, and to be used
+     * consistently with the same individuals.
+     * <p>
+     * @param <P> the type of phenotype
+     * @param decoder the decoder building the phenotype from the chromosome
+     * @return the phenotype
+     * @see PhenotypeDecoder
+     * @since 2.1
+     */
+    @SuppressWarnings("unchecked")
+    public final <P> P getPhenotype(final PhenotypeDecoder<T, P> decoder) {
+        if (!this.phenotypeValid) {
+            final P stale = this.phenotypeShared ? null : (P) this.phenotype;
+            this.phenotype = decoder.decode(this.chromosome, stale);
+            this.phenotypeShared = false;
+            this.phenotypeValid = true;
+        }
+        return (P) this.phenotype;
+    }
+
+    /**
+     * Returns the cached phenotype of this <code>Individual</code>, without decoding it.
+     * <p>
+     * @return the phenotype, or null if not decoded from the current chromosome
+     * @since 2.1
+     */
+    public final Object getCachedPhenotype() {
+        return this.phenotypeValid ? this.phenotype : null;
+    }
+
+    /**
+     * Marks the phenotype and the fingerprint as stale. It is invoked by {@link #setNotEvaluated()},
+     * and should be invoked explicitly only when the chromosome is modified without
+     * resetting the evaluation.
+     * 
+     * @since 2.1
+     */
+    public final void invalidatePhenotype() {
+        this.phenotypeValid = false;
+        this.fingerprintValid = false;
+    }
+
+    /**
+     * Returns the fingerprint of the chromosome, as provided by
+     * {@link Chromosome.Util#fingerprint(jenes.chromosome.Chromosome)}. It is computed
+     * the first time it is requested after a change of the chromosome, then it is
+     * returned from cache.
+     * <p>
+     * @return the fingerprint
+     * @since 2.1
+     */
+    public final long getFingerprint() {
+        if (!this.fingerprintValid) {
+            this.fingerprint = Chromosome.Util.fingerprint(this.chromosome);
+            this.fingerprintValid = true;
+        }
+        return this.fingerprint;
+    }
+
+    /**
+     * Takes the valid phenotype of another individual, sharing it. Otherwise the
+     * own phenotype is kept, as stale, for reuse.
+     */
+    private void sharePhenotype(final Individual<T> individual) {
+        if (individual.phenotypeValid) {
+            this.phenotype = individual.phenotype;
+            this.phenotypeValid = true;
+            this.phenotypeShared = true;
+            individual.phenotypeShared = true;
+        } else {
+            this.phenotypeValid = false;
+        }
+    }
+
     /**
      * Returns the number of objectivies for which this <code>Individual</code> is evaluated
      * <p>
@@ -179,6 +280,9 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
      * @return	the <code>Individual</code>'s fitness value
      */
     public final double getScore() {
+        if (this.deferred != null) {
+            this.evaluateNow();
+        }
         return this.score == null ? Double.NaN : this.score[0];
     }
 
@@ -189,6 +293,9 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
      * @return score
      */
     public final double getScore(int i) {
+        if (this.deferred != null) {
+            this.evaluateNow();
+        }
         return this.score[i];
     }
 
@@ -198,9 +305,62 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
      * @return the array of scores
      */
     public final double[] getAllScores() {
+        if (this.deferred != null) {
+            this.evaluateNow();
+        }
         return this.score;
     }
 
+    /**
+     * Defers the evaluation of this <code>Individual</code>. The evaluator will
+     * be invoked the first time scores are accessed by {@link #getScore()}, 
+     * {@link #getScore(int)} or {@link #getAllScores()}. Setting a score or 
+     * changing the chromosome detaches the evaluator.
+     * <p>
+     * The deferred evaluation is shared with the copies made by the copy constructor 
+     * and by {@link #setAs(jenes.population.Individual)}: the evaluator is invoked once
+     * for the first copy whose scores are accessed, and the other ones take its result.
+     * <p>
+     * @param evaluator the evaluator to use, or null to cancel the deferred evaluation
+     */
+    public final void setLazyEvaluator(final LazyEvaluator<T> evaluator) {
+        this.deferred = evaluator != null ? new Deferred<T>(evaluator) : null;
+    }
+
+    /**
+     * Says if the evaluation of this <code>Individual</code> has been deferred and 
+     * not yet performed.
+     * 
+     * @return <code>true</code> if evaluation is pending; <code>false</code> otherwise
+     */
+    public final boolean isEvaluationPending() {
+        return this.deferred != null;
+    }
+
+    /**
+     * Performs the deferred evaluation, or takes its result if it has been
+     * already performed for a copy. The evaluation is detached before the 
+     * evaluator is invoked, so that the fitness can freely access scores.
+     * If the evaluator leaves the individual not evaluated, e.g. because the
+     * evaluation budget is spent, no result is shared.
+     */
+    private void evaluateNow() {
+        final Deferred<T> d = this.deferred;
+        this.deferred = null;
+        synchronized (d) {
+            if (d.score == null) {
+                d.evaluator.evaluate(this);
+                if (this.evaluated) {
+                    d.score = this.score.clone();
+                    d.legal = this.legal;
+                }
+            } else {
+                this.setScore(d.score);
+                this.legal = d.legal;
+            }
+        }
+    }
+
     /**
      * Reset the array of scores by setting each value to <code>Double.NaN</code>. 
      * If the value given as argument is different from the actual length 
@@ -218,6 +378,9 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
         }
 
         this.evaluated = false;
+        this.deferred = null;
+        this.phenotypeValid = false;
+        this.fingerprintValid = false;
     }
 
     /**
@@ -243,6 +406,8 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
         } else {
             this.resetScores(1);
         }
+        this.deferred = null;
+        this.predicted = false;
     }
 
     /**
@@ -254,6 +419,29 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
     public final void setScore(final double score, final int i) {
         this.score[i] = score;
         this.evaluated = checkEvaluated();
+        this.deferred = null;
+        this.predicted = false;
+    }
+
+    /**
+     * Sets a fitness value estimated by a model rather than computed by the
+     * fitness function. The <code>Individual</code> is considered evaluated, but
+     * {@link #isPredicted()} returns true until a score is set by {@link #setScore(double[])}.
+     * 
+     * @param score	the <code>Individual</code>'s estimated fitness value
+     */
+    public final void setPredictedScore(final double... score) {
+        this.setScore(score);
+        this.predicted = true;
+    }
+
+    /**
+     * Says if the score of this <code>Individual</code> has been predicted.
+     * 
+     * @return <code>true</code> if the score is an estimate; <code>false</code> otherwise
+     */
+    public final boolean isPredicted() {
+        return this.predicted;
     }
 
     /**
@@ -273,10 +461,31 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
     }
 
     /**
-     * Sets this individual as not evaluated.
+     * Sets this individual as not evaluated. As the chromosome is assumed to be
+     * changed, the phenotype and the fingerprint are invalidated too, and a
+     * deferred evaluation is detached.
      */
     public final void setNotEvaluated() {
         this.evaluated = false;
+        this.predicted = false;
+        this.deferred = null;
+        this.phenotypeValid = false;
+        this.fingerprintValid = false;
+        for (int i = 0; i < this.score.length; ++i) {
+            this.score[i] = Double.NaN;
+        }
+    }
+
+    /**
+     * Requests an actual evaluation of this individual, whose chromosome is
+     * unchanged. Unlike {@link #setNotEvaluated()}, the phenotype and the
+     * fingerprint are kept, so that they are not computed again. It is meant for
+     * individuals whose score has been predicted.
+     */
+    public final void requestEvaluation() {
+        this.evaluated = false;
+        this.predicted = false;
+        this.deferred = null;
         for (int i = 0; i < this.score.length; ++i) {
             this.score[i] = Double.NaN;
         }
@@ -372,6 +581,13 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
         this.evaluated = individual.evaluated;
         this.legal = individual.legal;
         this.speciem = individual.speciem;
+        this.deferred = individual.deferred;
+        this.predicted = individual.predicted;
+        if (individual != this) {
+            this.sharePhenotype(individual);
+            this.fingerprint = individual.fingerprint;
+            this.fingerprintValid = individual.fingerprintValid;
+        }
 
         this.rank = individual.getRank();
         if (full) {
@@ -450,7 +666,10 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
 
     /**
      * Indicates whether the other individual is "equal to" this one.
-     * i.e if they have the same fitness and the same chromosome
+     * i.e if they have the same fitness and the same chromosome.
+     * Deferred evaluations are not performed: an individual whose evaluation is 
+     * pending is equal to another one with the same chromosome only if 
+     * <code>sameChromosomeSameFitness</code> holds, or if they share the evaluation.
      *
      * @param ind the reference individual with which to compare.
      * @return <code>true</code> if the individual has the same chromosome and score as the other; <code>false</code> otherwise.
@@ -464,6 +683,9 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
         }
 
         if (ind.chromosome != null && this.chromosome != null && ind.chromosome.equals(this.chromosome)) {
+            if (this.deferred != null || ind.deferred != null) {
+                return sameChromosomeSameFitness || this.deferred == ind.deferred;
+            }
             if (this.isScoreEqual(ind.score)) {
                 return true;
             } else {
@@ -537,6 +759,21 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
         return this.statistics;
     }
 
+    /**
+     * A deferred evaluation, shared by an individual and its copies
+     */
+    private static final class Deferred<T extends Chromosome> {
+
+        private final LazyEvaluator<T> evaluator;
+        /** the scores computed by the evaluator, null until performed */
+        private double[] score;
+        private boolean legal;
+
+        private Deferred(LazyEvaluator<T> evaluator) {
+            this.evaluator = evaluator;
+        }
+    }
+
     /**
      * This class provides some basic statistics regarding an <code> Individual </code>.
      * 
@@ -586,6 +823,17 @@ public final class Individual<T extends Chromosome> implements Cloneable, Serial
             return this.individual.isEvaluated();
         }
 
+        /**
+         * Says if the individual score is predicted
+         * 
+         * @return <code> true </code> if this individual score is an estimate. 
+         * <code> false </code> otherwise
+         */
+        @Loggable(label = "I.Predicted")
+        public final boolean isPredicted() {
+            return this.individual.isPredicted();
+        }
+
         /**
          * Returns the subpopulation the <code> Individual </code> belongs to
          * 
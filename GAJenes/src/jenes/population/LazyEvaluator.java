@@ -0,0 +1,46 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.population;
+
+import jenes.chromosome.Chromosome;
+
+/**
+ * A <code>LazyEvaluator</code> is attached to an {@link Individual} whose evaluation
+ * has been deferred. The evaluator is invoked the first time the individual scores 
+ * are accessed, and then detached. 
+ * <p>
+ * Genetic algorithms running in lazy evaluation mode make use of this interface in
+ * order to spend fitness evaluations only on individuals actually competing.
+ *
+ * @param <T> The type of chromosome.
+ *
+ * @version 2.1
+ * @since 2.1
+ *
+ * @see Individual#setLazyEvaluator(jenes.population.LazyEvaluator)
+ */
+public interface LazyEvaluator<T extends Chromosome> {
+
+    /**
+     * Evaluates the individual whose scores have been just accessed.
+     * <p>
+     * @param individual the individual to be evaluated
+     */
+    public void evaluate(Individual<T> individual);
+}
@@ -0,0 +1,509 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.population;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import jenes.chromosome.Chromosome;
+import jenes.utils.checkpoint.Checkpoint;
+import jenes.utils.checkpoint.ChromosomeCodec;
+
+/**
+ * A <code>MappedPopulation</code> stores very large populations out of the Java heap,
+ * in a memory-mapped file. Each individual is a fixed-stride record, made of flags, 
+ * scores and genome encoded by the {@link ChromosomeCodec} of its chromosome type, 
+ * as in {@link Checkpoint}. Thus chromosomes must have a fixed length, as it happens
+ * for {@link jenes.chromosome.BitwiseChromosome} or {@link jenes.chromosome.IntegerChromosome}.
+ * <p>
+ * Records are accessed through flyweight views: {@link #get(long, jenes.population.Individual)}
+ * decodes a record into an {@link Individual} provided by the caller, which is reused 
+ * across accesses, and {@link #set(long, jenes.population.Individual)} writes it back. 
+ * In this way operators and fitness work on ordinary individuals, while the heap usage 
+ * only depends on the number of views. Scores and flags can be read and written without
+ * decoding the genome, e.g. for selection.
+ * <p>
+ * The file is split in segments of at most 2GB, mapped on demand. Cold pages are
+ * written back to disk and evicted by the operating system, so populations can 
+ * exceed the physical memory. If no file is given, a temporary file is used, 
+ * deleted on {@link #close()}.
+ * <p>
+ * A <code>MappedPopulation</code> is a storage backend, not a {@link Population}: 
+ * it is not evolved by {@link jenes.GeneticAlgorithm} and its stages. Stages can be
+ * applied to windows of records, by loading them into an ordinary population with
+ * {@link #load(long, jenes.population.Population)} and storing them back with 
+ * {@link #store(long, jenes.population.Population)}.
+ * <p>
+ * This class is not thread-safe, except for disjoint record ranges, as used by
+ * {@link #evaluate(jenes.population.Fitness, int)}. Mapped segments are looked up
+ * without locking; only their first mapping is synchronized. Each thread accesses
+ * records through its own buffers over the segments, created once, so that record
+ * accesses do not allocate.
+ * 
+ * @param <T> The class of chromosomes to work with.
+ * 
+ * @version 2.1
+ * @since 2.1
+ */
+public final class MappedPopulation<T extends Chromosome> implements Closeable {
+
+    /** The maximum size of a segment */
+    private static final long SEGMENT_SIZE = Integer.MAX_VALUE;
+    /** The sample individual */
+    private final Individual<T> sample;
+    /** The chromosome codec */
+    private final ChromosomeCodec<T> codec;
+    /** The number of individuals */
+    private final long size;
+    /** The record size in bytes */
+    private final int stride;
+    /** The number of objectives */
+    private final int objectives;
+    /** The number of records per segment */
+    private final long recordsPerSegment;
+    /** The file backing the population */
+    private final Path path;
+    /** If true, the file is deleted on close */
+    private final boolean temporary;
+    /** The file channel */
+    private FileChannel channel;
+    /** The mapped segments */
+    private final AtomicReferenceArray<MappedByteBuffer> segments;
+    /** The buffers of each thread over the segments, two sets to copy records */
+    private final ThreadLocal<ByteBuffer[]> views = new ThreadLocal<ByteBuffer[]>() {
+
+        @Override
+        protected ByteBuffer[] initialValue() {
+            return new ByteBuffer[2 * segments.length()];
+        }
+    };
+
+    /**
+     * Creates a population backed by a temporary file. Individuals are initialized
+     * as copies of the sample.
+     * 
+     * @param sample the sample individual
+     * @param size the number of individuals
+     * @throws IOException if the file cannot be created
+     */
+    public MappedPopulation(Individual<T> sample, long size) throws IOException {
+        this(sample, size, Files.createTempFile("jenes", ".pop"), true, true);
+    }
+
+    /**
+     * Creates a population backed by a file. If <code>initialize</code> is false, 
+     * the file is expected to hold a population of the same size and sample, e.g. 
+     * created by a previous run; otherwise individuals are initialized as copies of 
+     * the sample.
+     * 
+     * @param sample the sample individual
+     * @param size the number of individuals
+     * @param path the file backing the population
+     * @param initialize if true, individuals are initialized as copies of the sample
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedPopulation(Individual<T> sample, long size, Path path, boolean initialize) throws IOException {
+        this(sample, size, path, initialize, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private MappedPopulation(Individual<T> sample, long size, Path path, boolean initialize, boolean temporary) throws IOException {
+        if (size < 0) {
+            throw new IllegalArgumentException("[Jenes]: population size must be not negative");
+        }
+        this.sample = sample.clone();
+        this.codec = Checkpoint.getCodec((Class<T>) sample.getChromosome().getClass());
+        this.size = size;
+        this.stride = Checkpoint.sizeOf(sample, codec);
+        this.objectives = sample.getNumOfObjectives();
+        this.recordsPerSegment = SEGMENT_SIZE / this.stride;
+        this.path = path;
+        this.temporary = temporary;
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final int n = (int) ((size + this.recordsPerSegment - 1) / this.recordsPerSegment);
+        this.segments = new AtomicReferenceArray<MappedByteBuffer>(n);
+
+        if (initialize) {
+            ByteBuffer record = ByteBuffer.allocate(this.stride).order(ByteOrder.LITTLE_ENDIAN);
+            Checkpoint.encode(this.sample, this.codec, record);
+            byte[] bytes = record.array();
+            for (int s = 0; s < n; ++s) {
+                ByteBuffer b = this.segment(s).duplicate();
+                b.clear();
+                while (b.remaining() >= this.stride) {
+                    b.put(bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of individuals.
+     * 
+     * @return the population size
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the size of an individual record.
+     * 
+     * @return the record size in bytes
+     */
+    public int getStride() {
+        return this.stride;
+    }
+
+    /**
+     * Returns the number of objectives.
+     * 
+     * @return the number of objectives
+     */
+    public int getNumOfObjectives() {
+        return this.objectives;
+    }
+
+    /**
+     * Returns the file backing the population.
+     * 
+     * @return the file path
+     */
+    public Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Creates a new view, that is an individual to be used with {@link #get(long, jenes.population.Individual)}.
+     * 
+     * @return a copy of the sample individual
+     */
+    public Individual<T> newView() {
+        return this.sample.clone();
+    }
+
+    /**
+     * Decodes an individual record into a view.
+     * 
+     * @param index the individual index
+     * @param view the individual to set
+     * @return the view
+     */
+    public Individual<T> get(long index, Individual<T> view) {
+        Checkpoint.decode(view, this.codec, this.record(index));
+        return view;
+    }
+
+    /**
+     * Encodes an individual into a record.
+     * 
+     * @param index the individual index
+     * @param individual the individual to store
+     */
+    public void set(long index, Individual<T> individual) {
+        Checkpoint.encode(individual, this.codec, this.record(index));
+    }
+
+    /**
+     * Decodes a window of consecutive records into a population, one record for
+     * each individual the population holds.
+     * 
+     * @param from the index of the first record
+     * @param window the population to set
+     * @return the window
+     */
+    public Population<T> load(long from, Population<T> window) {
+        final int n = window.size();
+        for (int i = 0; i < n; ++i) {
+            this.get(from + i, window.getIndividual(i));
+        }
+        return window;
+    }
+
+    /**
+     * Encodes the individuals of a population into a window of consecutive records.
+     * 
+     * @param from the index of the first record
+     * @param window the population to store
+     */
+    public void store(long from, Population<T> window) {
+        final int n = window.size();
+        for (int i = 0; i < n; ++i) {
+            this.set(from + i, window.getIndividual(i));
+        }
+    }
+
+    /**
+     * Copies a record over another one, without decoding it.
+     * 
+     * @param from the source index
+     * @param to the target index
+     */
+    public void copy(long from, long to) {
+        ByteBuffer src = this.record(from, 1);
+        src.limit(src.position() + this.stride);
+        this.record(to).put(src);
+    }
+
+    /**
+     * Returns a score of an individual without decoding its genome.
+     * 
+     * @param index the individual index
+     * @param objective the objective index
+     * @return the score
+     */
+    public double getScore(long index, int objective) {
+        ByteBuffer b = this.segment(index);
+        return b.getDouble(this.offset(index) + Checkpoint.SCORES_OFFSET + 8 * objective);
+    }
+
+    /**
+     * Sets the scores of an individual without decoding its genome. The individual
+     * becomes evaluated.
+     * 
+     * @param index the individual index
+     * @param score the scores
+     */
+    public void setScore(long index, double... score) {
+        ByteBuffer b = this.segment(index);
+        int off = this.offset(index);
+        for (int i = 0; i < this.objectives; ++i) {
+            b.putDouble(off + Checkpoint.SCORES_OFFSET + 8 * i, score[i]);
+        }
+        b.put(off, (byte) ((b.get(off) | Checkpoint.EVALUATED) & ~Checkpoint.PREDICTED));
+    }
+
+    /**
+     * Says if an individual is evaluated.
+     * 
+     * @param index the individual index
+     * @return true if evaluated
+     */
+    public boolean isEvaluated(long index) {
+        return (this.segment(index).get(this.offset(index)) & Checkpoint.EVALUATED) != 0;
+    }
+
+    /**
+     * Says if an individual is legal.
+     * 
+     * @param index the individual index
+     * @return true if legal
+     */
+    public boolean isLegal(long index) {
+        return (this.segment(index).get(this.offset(index)) & Checkpoint.LEGAL) != 0;
+    }
+
+    /**
+     * Randomizes the individuals within a range.
+     * 
+     * @param from the first index, included
+     * @param to the last index, excluded
+     */
+    public void randomize(long from, long to) {
+        Individual<T> view = this.newView();
+        for (long i = from; i < to; ++i) {
+            view.randomize();
+            this.set(i, view);
+        }
+    }
+
+    /**
+     * Evaluates the individuals not yet evaluated within a range.
+     * 
+     * @param fitness the fitness function
+     * @param from the first index, included
+     * @param to the last index, excluded
+     * @return the number of evaluations performed
+     */
+    public long evaluate(Fitness<T> fitness, long from, long to) {
+        Individual<T> view = this.newView();
+        long count = 0;
+        for (long i = from; i < to; ++i) {
+            if (!this.isEvaluated(i)) {
+                this.get(i, view);
+                fitness.evaluate(view);
+                this.set(i, view);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Evaluates the individuals not yet evaluated, splitting the population among
+     * threads. Each thread uses a clone of the fitness. If an evaluation fails, the
+     * failure is rethrown once all the threads are done.
+     * 
+     * @param fitness the fitness function
+     * @param nthreads the number of threads
+     * @return the number of evaluations performed
+     * @throws InterruptedException if interrupted while waiting for threads
+     */
+    public long evaluate(final Fitness<T> fitness, int nthreads) throws InterruptedException {
+        if (nthreads <= 1) {
+            return this.evaluate(fitness, 0, this.size);
+        }
+        final long chunk = (this.size + nthreads - 1) / nthreads;
+        final long[] counts = new long[nthreads];
+        final Throwable[] failures = new Throwable[nthreads];
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < nthreads; ++t) {
+            final int k = t;
+            final long from = Math.min(this.size, t * chunk);
+            final long to = Math.min(this.size, from + chunk);
+            final Fitness<T> fit = fitness.clone();
+            Thread thread = new Thread(new Runnable() {
+
+                public void run() {
+                    try {
+                        counts[k] = MappedPopulation.this.evaluate(fit, from, to);
+                    } catch (Throwable t) {
+                        failures[k] = t;
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long count = 0;
+        for (int t = 0; t < nthreads; ++t) {
+            threads.get(t).join();
+            count += counts[t];
+        }
+        for (Throwable failure : failures) {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new IllegalStateException("[Jenes]: evaluation failed", failure);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Forces changes to be written to the file.
+     */
+    public void flush() {
+        for (int i = 0; i < this.segments.length(); ++i) {
+            MappedByteBuffer segment = this.segments.get(i);
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Closes the population. Mapped memory is released when segments are garbage
+     * collected; a temporary file is deleted.
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.channel == null) {
+            return;
+        }
+        this.channel.close();
+        this.channel = null;
+        for (int i = 0; i < this.segments.length(); ++i) {
+            this.segments.set(i, null);
+        }
+        if (this.temporary) {
+            Files.deleteIfExists(this.path);
+        }
+    }
+
+    /**
+     * Returns the segment holding a record, mapping it if needed
+     */
+    private MappedByteBuffer segment(long index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("[Jenes]: individual " + index + " out of population size " + this.size);
+        }
+        return this.segment((int) (index / this.recordsPerSegment));
+    }
+
+    private MappedByteBuffer segment(int s) {
+        MappedByteBuffer segment = this.segments.get(s);
+        return segment != null ? segment : this.map(s);
+    }
+
+    /**
+     * Maps a segment, unless another thread already did
+     */
+    private synchronized MappedByteBuffer map(int s) {
+        MappedByteBuffer segment = this.segments.get(s);
+        if (segment == null) {
+            if (this.channel == null) {
+                throw new IllegalStateException("[Jenes]: the population has been closed");
+            }
+            long begin = s * this.recordsPerSegment;
+            long records = Math.min(this.recordsPerSegment, this.size - begin);
+            try {
+                segment = this.channel.map(FileChannel.MapMode.READ_WRITE, begin * this.stride, records * this.stride);
+            } catch (IOException ex) {
+                throw new IllegalStateException("[Jenes]: unable to map the population file", ex);
+            }
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            this.segments.set(s, segment);
+        }
+        return segment;
+    }
+
+    private int offset(long index) {
+        return (int) (index % this.recordsPerSegment) * this.stride;
+    }
+
+    /**
+     * Returns a buffer positioned at the beginning of a record
+     */
+    private ByteBuffer record(long index) {
+        return this.record(index, 0);
+    }
+
+    /**
+     * Returns a buffer of the calling thread positioned at the beginning of a record.
+     * The buffers of a set are reused by the following accesses.
+     */
+    private ByteBuffer record(long index, int set) {
+        final MappedByteBuffer segment = this.segment(index);
+        final int s = (int) (index / this.recordsPerSegment);
+        final ByteBuffer[] buffers = this.views.get();
+        ByteBuffer b = buffers[set * this.segments.length() + s];
+        if (b == null) {
+            b = segment.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            buffers[set * this.segments.length() + s] = b;
+        }
+        b.limit(b.capacity());
+        b.position(this.offset(index));
+        return b;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.population;
+
+import jenes.chromosome.Chromosome;
+
+/**
+ * A <code>PhenotypeDecoder</code> builds the phenotype of an {@link Individual},
+ * that is the solution its chromosome represents, such as a schedule or a vector
+ * of real values. Fitness functions decoding chromosomes before scoring them
+ * can obtain the phenotype by {@link Individual#getPhenotype(PhenotypeDecoder)},
+ * so that it is decoded once per genome and then cached by the individual.
+ * <p>
+ * The cached phenotype is invalidated when the chromosome changes, as signalled by
+ * {@link Individual#setNotEvaluated()}, and shared with the copies made by
+ * {@link Individual#setAs(Individual)}. Phenotypes must not be modified once decoded.
+ *
+ * @param <T> The type of chromosome.
+ * @param <P> The type of phenotype.
+ *
+ * @version 2.1
+ * @since 2.1
+ *
+ * @see Individual#getPhenotype(PhenotypeDecoder)
+ */
+public interface PhenotypeDecoder<T extends Chromosome, P> {
+
+    /**
+     * Decodes a chromosome into its phenotype.
+     * <p>
+     * The stale phenotype of the individual, decoded from its previous chromosome,
+     * is passed for reuse: the decoder can update it in place, for instance when only
+     * a few genes changed, and return it. It is null if the individual has no phenotype
+     * or if its phenotype is shared with other individuals.
+     *
+     * @param chromosome the chromosome to decode
+     * @param stale the phenotype that can be reused, or null
+     * @return the phenotype
+     */
+    public P decode(T chromosome, P stale);
+}
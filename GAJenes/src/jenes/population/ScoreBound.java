@@ -0,0 +1,110 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.population;
+
+/**
+ * A <code>ScoreBound</code> holds the cutoff used by racing evaluations. The bound
+ * is the score an individual must beat, on the first objective, to have a chance to 
+ * survive; it is supplied by the engine (e.g. by elitism or steady-state replacement)
+ * and queried by the {@link Fitness} while evaluating. An evaluation whose partial 
+ * score is already worse than the bound can be aborted, provided that partial scores 
+ * can only get worse as the evaluation proceeds (e.g. a sum of non-negative costs to 
+ * minimize). Aborted individuals get the worst possible score, so they never rank
+ * above an individual evaluated in full.
+ * <p>
+ * The bound is shared among all the clones of a fitness, so that it is visible by 
+ * every evaluation thread. It also collects the number of aborted evaluations and 
+ * the amount of work saved, later reported to {@link jenes.statistics.Statistics}.
+ * 
+ * @version 2.1
+ * @since 2.1
+ */
+public final class ScoreBound {
+
+    /** The current bound, NaN if not available */
+    private volatile double value = Double.NaN;
+    /** The number of aborted evaluations */
+    private int aborted = 0;
+    /** The fraction of evaluation work saved by aborts */
+    private double saved = 0;
+
+    /**
+     * Returns the current bound.
+     * 
+     * @return the bound, or NaN if no bound is available
+     */
+    public double get() {
+        return this.value;
+    }
+
+    /**
+     * Sets the current bound. NaN disables the cutoff.
+     * 
+     * @param bound the new bound
+     */
+    public void set(double bound) {
+        this.value = bound;
+    }
+
+    /**
+     * Says if a bound is available.
+     * 
+     * @return true if the bound is set
+     */
+    public boolean isSet() {
+        return !Double.isNaN(this.value);
+    }
+
+    /**
+     * Records an aborted evaluation.
+     * 
+     * @param progress the fraction of evaluation work done when aborted, within [0,1]
+     */
+    public synchronized void abort(double progress) {
+        this.aborted++;
+        this.saved += progress < 0 ? 1 : progress > 1 ? 0 : 1 - progress;
+    }
+
+    /**
+     * Returns the number of evaluations aborted since the last {@link #reset()}.
+     * 
+     * @return the number of aborted evaluations
+     */
+    public synchronized int getAborted() {
+        return this.aborted;
+    }
+
+    /**
+     * Returns the work saved since the last {@link #reset()}, expressed in number 
+     * of full evaluations.
+     * 
+     * @return the saved work
+     */
+    public synchronized double getSaved() {
+        return this.saved;
+    }
+
+    /**
+     * Resets the counters.
+     */
+    public synchronized void reset() {
+        this.aborted = 0;
+        this.saved = 0;
+    }
+}
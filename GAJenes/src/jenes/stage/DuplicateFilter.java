@@ -0,0 +1,247 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.stage;
+
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.Chromosome;
+import jenes.population.GenomeSet;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.operator.Selector;
+import jenes.utils.Random;
+
+/**
+ * This stage rejects offspring whose genome is already in the population, so that
+ * every fitness evaluation goes to a novel genome. Clones typically arise from the
+ * crossover of identical parents and from mutations leaving the chromosome unchanged.
+ * It is intended to be the last stage of the genetic algorithm body, just before
+ * the population evaluation.
+ * <p>
+ * At each generation, the genomes of the evaluated individuals are collected in a
+ * {@link GenomeSet}, together with those of the current population if parents are
+ * checked. Then each individual requiring an evaluation is looked up in the set:
+ * if novel it is added, otherwise it is handled according to the {@link Policy}.
+ * <ul>
+ * <li>{@link Policy#REMUTATE}: a random gene of the duplicate is randomized, until
+ * the genome is novel or the number of attempts is exhausted. Duplicates still
+ * unresolved are left in the population.</li>
+ * <li>{@link Policy#DROP}: the duplicate is removed from the population, that shrinks
+ * for the generation. A {@link Selector} with an explicit selection rate restores the
+ * population size at the next generation.</li>
+ * </ul>
+ * Evaluated individuals are never changed, as they do not cost any evaluation.
+ *
+ * @param <T> The class chromosomes flowing across the stage.
+ *
+ * @version 2.1
+ * @since 2.1
+ */
+public class DuplicateFilter<T extends Chromosome> extends AbstractStage<T> {
+
+    /**
+     * The way duplicates are handled
+     */
+    public static enum Policy {
+
+        /** Duplicates are mutated until novel */
+        REMUTATE,
+        /** Duplicates are removed from the population */
+        DROP
+    }
+    /** The default number of mutations tried on a duplicate */
+    public static final int DEFAULT_ATTEMPTS = 10;
+    /** The policy applied to duplicates */
+    private Policy policy;
+    /** The number of mutations tried on a duplicate */
+    private int attempts;
+    /** It says if genomes are checked against the current population too */
+    private boolean parentsChecked = true;
+    /** The genomes of the generation */
+    private final GenomeSet<T> genomes = new GenomeSet<T>();
+    /** The number of duplicates found */
+    private int duplicates;
+    /** The number of duplicates left unresolved */
+    private int unresolved;
+
+    /**
+     * Builds a filter re-mutating duplicates with the default number of attempts
+     */
+    public DuplicateFilter() {
+        this(Policy.REMUTATE);
+    }
+
+    /**
+     * Builds a filter with the given policy and the default number of attempts
+     *
+     * @param policy the policy applied to duplicates
+     */
+    public DuplicateFilter(Policy policy) {
+        this(policy, DEFAULT_ATTEMPTS);
+    }
+
+    /**
+     * Builds a filter with the given policy and number of attempts
+     *
+     * @param policy the policy applied to duplicates
+     * @param attempts the number of mutations tried on a duplicate, used by {@link Policy#REMUTATE}
+     */
+    public DuplicateFilter(Policy policy, int attempts) {
+        this.setPolicy(policy);
+        this.setAttempts(attempts);
+    }
+
+    /**
+     * Returns the policy applied to duplicates
+     *
+     * @return the policy
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Sets the policy applied to duplicates
+     *
+     * @param policy the policy
+     */
+    public final void setPolicy(Policy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("[Jenes]: the duplicate policy cannot be null");
+        }
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the number of mutations tried on a duplicate
+     *
+     * @return the number of attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Sets the number of mutations tried on a duplicate
+     *
+     * @param attempts the number of attempts, positive
+     */
+    public final void setAttempts(int attempts) {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("[Jenes]: the number of attempts must be positive");
+        }
+        this.attempts = attempts;
+    }
+
+    /**
+     * Says if genomes are checked against the current population too, as well as
+     * against the input population
+     *
+     * @return true if parents are checked
+     */
+    public boolean isParentsChecked() {
+        return parentsChecked;
+    }
+
+    /**
+     * Sets if genomes are checked against the current population too, as well as
+     * against the input population
+     *
+     * @param flag true to check parents
+     */
+    public void setParentsChecked(boolean flag) {
+        this.parentsChecked = flag;
+    }
+
+    /**
+     * Returns the number of duplicates found since the initialization
+     *
+     * @return the number of duplicates
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Returns the number of duplicates re-mutated without success since the initialization.
+     * They are evaluated anyway.
+     *
+     * @return the number of unresolved duplicates
+     */
+    public int getUnresolved() {
+        return unresolved;
+    }
+
+    @Override
+    public void init(GeneticAlgorithm<T> ga) throws StageException {
+        super.init(ga);
+        this.duplicates = 0;
+        this.unresolved = 0;
+    }
+
+    @Override
+    public void process(Population<T> in, Population<T> out) throws StageException {
+        this.genomes.clear();
+
+        final Population<T> parents = this.parentsChecked && this.ga != null ? this.ga.getCurrentPopulation() : null;
+        if (parents != null && parents != in) {
+            for (Individual<T> ind : parents) {
+                if (ind.isEvaluated()) {
+                    this.genomes.add(ind);
+                }
+            }
+        }
+        for (Individual<T> ind : in) {
+            if (ind.isEvaluated()) {
+                this.genomes.add(ind);
+            }
+        }
+
+        final Random random = Random.getInstance();
+        for (int i = in.size() - 1; i >= 0; --i) {
+            Individual<T> ind = in.getIndividual(i);
+            if (ind.isEvaluated() || this.genomes.add(ind) == null) {
+                continue;
+            }
+            this.duplicates++;
+            if (this.policy == Policy.DROP) {
+                in.remove(i);
+                continue;
+            }
+            final T chrom = ind.getChromosome();
+            final int length = chrom.length();
+            boolean novel = false;
+            for (int k = 0; k < this.attempts && length > 0 && !novel; ++k) {
+                chrom.randomize(random.nextInt(length));
+                ind.setNotEvaluated();
+                novel = this.genomes.add(ind) == null;
+            }
+            if (!novel) {
+                this.unresolved++;
+            }
+        }
+        this.genomes.clear();
+
+        in.swap(out);
+    }
+
+    @Override
+    public void processProperties(String props) {
+        log.info("recieve properties\n"+props);
+    }
+}
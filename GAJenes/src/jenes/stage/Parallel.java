@@ -25,6 +25,10 @@ import jenes.population.Fitness;
 import jenes.GeneticAlgorithm;
 import jenes.chromosome.Chromosome;
 import jenes.population.Population;
+import jenes.stage.operator.Operator;
+import jenes.statistics.Histogram;
+import jenes.statistics.Instrumentation;
+import jenes.statistics.Tracer;
 
 /**
  * A parallel is formed by differents branches; each branch receives a subpopolation according to the
@@ -52,6 +56,10 @@ public class Parallel<T extends Chromosome> extends AbstractStage<T> {
     private Population<T>[] branchesIn;
     private Population<T>[] branchesOut;
     private List<AbstractStage<T>> stages;
+    /** The histograms timing the branches, null if not instrumented */
+    private Histogram[] timings = null;
+    /** The tracer of the algorithm, null if not traced */
+    private Tracer tracer = null;
 
     /**
      * Constructs a new parallel stage with the specified dispenser.
@@ -137,6 +145,10 @@ public class Parallel<T extends Chromosome> extends AbstractStage<T> {
             branchesOut[i].setPool(ga.getPool());
         }
 
+        Instrumentation instrumentation = ga.getInstrumentation();
+        this.timings = instrumentation != null ? instrumentation.register(this, this.stages) : null;
+        this.tracer = ga.getTracer();
+
         for (AbstractStage<T> stage : this.stages) {
             stage.init(ga);
         }
@@ -167,7 +179,22 @@ public class Parallel<T extends Chromosome> extends AbstractStage<T> {
             for (int i = 0; i < this.branchesIn.length; ++i) {
                 //set branchesOut population to the right size
                 this.branchesOut[i].resizeAs(branchesIn[i]);
-                this.stages.get(i).process(branchesIn[i], branchesOut[i]);
+                final AbstractStage<T> stage = this.stages.get(i);
+                final Histogram timing = this.timings != null && i < this.timings.length ? this.timings[i] : null;
+                if (timing == null && this.tracer == null) {
+                    stage.process(branchesIn[i], branchesOut[i]);
+                } else {
+                    final long begin = System.nanoTime();
+                    stage.process(branchesIn[i], branchesOut[i]);
+                    final long elapsed = System.nanoTime() - begin;
+                    if (timing != null) {
+                        timing.record(elapsed);
+                    }
+                    if (this.tracer != null) {
+                        this.tracer.onStage(ga, stage, branchesOut[i].size(), elapsed, 
+                                stage instanceof Operator ? ((Operator<T>) stage).getStatistics() : null);
+                    }
+                }
             }
 
             // makes the final population from the branch subpopulations
@@ -20,12 +20,17 @@ package jenes.stage;
 
 import java.util.List;
 import java.util.Vector;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import jenes.population.Fitness;
 import jenes.GeneticAlgorithm;
 import jenes.chromosome.Chromosome;
 import jenes.population.Population;
+import jenes.stage.operator.Operator;
+import jenes.statistics.Histogram;
+import jenes.statistics.Instrumentation;
+import jenes.statistics.Tracer;
 
 /**
  * A sequence is like a "pipe" of other stages.<br>
@@ -44,6 +49,10 @@ public class Sequence<T extends Chromosome> extends AbstractStage<T> {
     static final Logger log = java.util.logging.Logger.getLogger(GeneticAlgorithm.class.getName()) ;
     private List<AbstractStage<T>> stages;
     private Population<T> internal = null;
+    /** The histograms timing the stages, null if not instrumented */
+    private Histogram[] timings = null;
+    /** The tracer of the algorithm, null if not traced */
+    private Tracer tracer = null;
 
     /**
      * Constructs a new sequence stage.
@@ -133,6 +142,10 @@ public class Sequence<T extends Chromosome> extends AbstractStage<T> {
         this.internal = new Population<T>();
         this.internal.setPool(ga.getPool());
 
+        Instrumentation instrumentation = ga.getInstrumentation();
+        this.timings = instrumentation != null ? instrumentation.register(this, this.stages) : null;
+        this.tracer = ga.getTracer();
+
         //sets the ga to inner stages
         for (AbstractStage<T> stage : this.stages) {
             stage.init(ga);
@@ -168,8 +181,10 @@ public class Sequence<T extends Chromosome> extends AbstractStage<T> {
                         internal.clear();
                         break;
                 }
-                stages.get(0).process(in, internal);
-                log.fine("Genetic Algorithm finished resizing generation: "+ga.getGeneration());
+                this.process(0, in, internal);
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Genetic Algorithm finished resizing generation: "+ga.getGeneration());
+                }
                 Population<T> p1 = internal;
                 Population<T> p2 = out;
                 for (int i = 1; i < ns; i++) {
@@ -181,8 +196,10 @@ public class Sequence<T extends Chromosome> extends AbstractStage<T> {
                             p2.clear();
                             break;
                     }
-                    stages.get(i).process(p1, p2);
-                    log.fine("Genetic Algorithm finished processing stage: "+stages.get(i).getClass().getName());
+                    this.process(i, p1, p2);
+                    if (log.isLoggable(Level.FINE)) {
+                        log.fine("Genetic Algorithm finished processing stage: "+stages.get(i).getClass().getName());
+                    }
                     p1.swap(p2);
                 }
                 p1.swap(out);
@@ -192,6 +209,28 @@ public class Sequence<T extends Chromosome> extends AbstractStage<T> {
         }
     }
 
+    /**
+     * Invokes the process method of a stage, timing it if instrumented or traced
+     */
+    private void process(int i, Population<T> in, Population<T> out) throws StageException {
+        final AbstractStage<T> stage = this.stages.get(i);
+        final Histogram timing = this.timings != null && i < this.timings.length ? this.timings[i] : null;
+        if (timing == null && this.tracer == null) {
+            stage.process(in, out);
+        } else {
+            final long begin = System.nanoTime();
+            stage.process(in, out);
+            final long elapsed = System.nanoTime() - begin;
+            if (timing != null) {
+                timing.record(elapsed);
+            }
+            if (this.tracer != null) {
+                this.tracer.onStage(ga, stage, out.size(), elapsed, 
+                        stage instanceof Operator ? ((Operator<T>) stage).getStatistics() : null);
+            }
+        }
+    }
+
     @Deprecated
     @Override
     public void setBiggerIsBetter(boolean flag, boolean recursively) {
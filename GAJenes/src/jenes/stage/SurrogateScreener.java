@@ -0,0 +1,398 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.stage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jenes.EvaluationEventListener;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.Chromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.utils.Random;
+
+/**
+ * This stage pre-screens offspring by a surrogate model of the fitness, so that
+ * only the most promising individuals are evaluated by the actual {@link Fitness}.
+ * It is intended to be the last stage of the genetic algorithm body, just before
+ * the population evaluation.
+ * <p>
+ * The surrogate is a k-nearest neighbours regressor whose distance is computed on
+ * the gene-by-gene difference provided by {@link Chromosome#difference(jenes.chromosome.Chromosome, double[])}.
+ * Scores are predicted as the inverse distance weighted mean of the k nearest
+ * samples. The model learns incrementally from the algorithm evaluations: each individual
+ * evaluated by the fitness, as notified to an {@link EvaluationEventListener}, is added
+ * to a bounded archive, replacing the oldest sample when the archive is full. Samples 
+ * are indexed by their {@link Individual#getFingerprint()}, so that chromosomes already
+ * in archive are skipped without scanning it.
+ * <p>
+ * At each generation, the individuals requiring an evaluation are ranked by their
+ * predicted score. The best <code>evaluationRate</code> fraction is left to the fitness,
+ * as well as a randomly chosen <code>explorationRate</code> fraction of the remaining ones.
+ * The others receive the predicted score, and are flagged by {@link Individual#isPredicted()}.
+ * Predicted individuals surviving to the next generation are screened again with the
+ * updated model, so they can gain an actual evaluation later. Predicted individuals
+ * ranking among the best or the elite are evaluated by the algorithm anyway, so that
+ * the best individual and elitism never rely on an estimate.
+ * <p>
+ * Until the archive holds at least <code>k</code> samples, no prediction is made.
+ * Multi-objective fitnesses are supported, ranking being based on the first objective.
+ * Screening counts are reported to the algorithm {@link jenes.statistics.Statistics}.
+ * 
+ * @param <T> The class chromosomes flowing across the stage.
+ *
+ * @version 2.1
+ * @since 2.1
+ */
+public class SurrogateScreener<T extends Chromosome> extends AbstractStage<T> {
+
+    /** The default number of neighbours */
+    public static final int DEFAULT_NEIGHBOURS = 5;
+    /** The default archive capacity */
+    public static final int DEFAULT_CAPACITY = 1000;
+    /** The default fraction of individuals left to the fitness */
+    public static final double DEFAULT_EVALUATION_RATE = 0.2;
+    /** The default fraction of individuals left to the fitness for exploration */
+    public static final double DEFAULT_EXPLORATION_RATE = 0.05;
+    /** The number of neighbours */
+    private int k;
+    /** The fraction of best predicted individuals to evaluate */
+    private double evaluationRate;
+    /** The fraction of other individuals to evaluate for exploration */
+    private double explorationRate;
+    /** The archive of chromosomes evaluated by the fitness */
+    private T[] samples;
+    /** The archive of scores */
+    private double[][] scores;
+    /** The fingerprints of archived chromosomes */
+    private long[] fingerprints;
+    /** The archive positions by fingerprint */
+    private Map<Long, Integer> index = new HashMap<Long, Integer>();
+    /** The number of samples in archive */
+    private int size = 0;
+    /** The next archive position to write */
+    private int next = 0;
+    /** Buffers for neighbours search */
+    private int[] nearest;
+    private double[] distances;
+    private double[] diff;
+    /** The individuals to screen */
+    private List<Individual<T>> candidates = new ArrayList<Individual<T>>();
+    /** The number of predicted individuals */
+    private int predictions = 0;
+    /** The number of screened individuals left to the fitness */
+    private int evaluations = 0;
+    /** The listener feeding the archive with the algorithm evaluations */
+    private final EvaluationEventListener<T> learner = new EvaluationEventListener<T>() {
+
+        @Override
+        public void onEvaluation(GeneticAlgorithm<T> ga, Individual<T> individual) {
+            learn(individual);
+        }
+    };
+
+    /**
+     * Creates a new screener with default parameters.
+     */
+    public SurrogateScreener() {
+        this(DEFAULT_NEIGHBOURS, DEFAULT_CAPACITY, DEFAULT_EVALUATION_RATE, DEFAULT_EXPLORATION_RATE);
+    }
+
+    /**
+     * Creates a new screener.
+     * 
+     * @param k the number of neighbours used for predictions
+     * @param capacity the maximum number of samples kept by the archive
+     * @param evaluationRate the fraction of best predicted individuals to be evaluated by the fitness
+     * @param explorationRate the fraction of remaining individuals randomly chosen to be evaluated by the fitness
+     */
+    @SuppressWarnings("unchecked")
+    public SurrogateScreener(int k, int capacity, double evaluationRate, double explorationRate) {
+        if (k < 1 || capacity < k) {
+            throw new IllegalArgumentException("[Jenes]: the surrogate archive must hold at least k > 0 samples");
+        }
+        this.k = k;
+        this.samples = (T[]) new Chromosome[capacity];
+        this.scores = new double[capacity][];
+        this.fingerprints = new long[capacity];
+        this.nearest = new int[k];
+        this.distances = new double[k];
+        this.setEvaluationRate(evaluationRate);
+        this.setExplorationRate(explorationRate);
+    }
+
+    /**
+     * Returns the fraction of best predicted individuals evaluated by the fitness.
+     * 
+     * @return the evaluation rate
+     */
+    public double getEvaluationRate() {
+        return evaluationRate;
+    }
+
+    /**
+     * Sets the fraction of best predicted individuals evaluated by the fitness.
+     * The value is trimmed within [0,1].
+     * 
+     * @param rate the evaluation rate
+     */
+    public final void setEvaluationRate(double rate) {
+        this.evaluationRate = rate < 0 ? 0 : rate > 1 ? 1 : rate;
+    }
+
+    /**
+     * Returns the fraction of remaining individuals evaluated by the fitness for exploration.
+     * 
+     * @return the exploration rate
+     */
+    public double getExplorationRate() {
+        return explorationRate;
+    }
+
+    /**
+     * Sets the fraction of remaining individuals evaluated by the fitness for exploration.
+     * The value is trimmed within [0,1].
+     * 
+     * @param rate the exploration rate
+     */
+    public final void setExplorationRate(double rate) {
+        this.explorationRate = rate < 0 ? 0 : rate > 1 ? 1 : rate;
+    }
+
+    /**
+     * Returns the number of samples currently held by the archive.
+     * 
+     * @return the archive size
+     */
+    public int getArchiveSize() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of individuals whose score has been predicted.
+     * 
+     * @return the number of predictions
+     */
+    public int getPredictions() {
+        return predictions;
+    }
+
+    /**
+     * Returns the number of screened individuals left to the fitness.
+     * 
+     * @return the number of actual evaluations requested
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    @Override
+    public void init(GeneticAlgorithm<T> ga) throws StageException {
+        if (this.ga != null) {
+            this.ga.removeEvaluationEventListener(this.learner);
+        }
+        super.init(ga);
+        ga.addEvaluationEventListener(this.learner);
+        this.size = 0;
+        this.next = 0;
+        this.index.clear();
+        this.predictions = 0;
+        this.evaluations = 0;
+    }
+
+    @Override
+    public void dispose() throws StageException {
+        if (this.ga != null) {
+            this.ga.removeEvaluationEventListener(this.learner);
+        }
+        super.dispose();
+    }
+
+    @Override
+    public void process(Population<T> in, Population<T> out) throws StageException {
+
+        this.candidates.clear();
+        for (Individual<T> ind : in) {
+            if (!ind.isEvaluated() || ind.isPredicted()) {
+                this.candidates.add(ind);
+            }
+        }
+
+        final int n = this.candidates.size();
+        if (this.size >= this.k && n > 0) {
+            for (Individual<T> ind : this.candidates) {
+                ind.setPredictedScore(this.predict(ind.getChromosome()));
+            }
+
+            final boolean bib = this.fitness != null ? this.fitness.getBiggerIsBetter()[0] : this.biggerIsBetter;
+            Collections.sort(this.candidates, new Comparator<Individual<T>>() {
+
+                @Override
+                public int compare(Individual<T> i1, Individual<T> i2) {
+                    return bib ? Double.compare(i2.getScore(), i1.getScore()) : Double.compare(i1.getScore(), i2.getScore());
+                }
+            });
+
+            // the most promising ones and an exploration quota go to the fitness
+            final int best = (int) Math.ceil(n * this.evaluationRate);
+            for (int i = 0; i < best; ++i) {
+                this.candidates.get(i).requestEvaluation();
+            }
+
+            final int explore = (int) Math.round((n - best) * this.explorationRate);
+            final Random random = Random.getInstance();
+            for (int i = 0; i < explore; ++i) {
+                int j = random.nextInt(best + i, n);
+                Collections.swap(this.candidates, best + i, j);
+                this.candidates.get(best + i).requestEvaluation();
+            }
+
+            this.evaluations += best + explore;
+            this.predictions += n - best - explore;
+            this.report(best + explore, n - best - explore);
+        } else {
+            for (Individual<T> ind : this.candidates) {
+                if (ind.isPredicted()) {
+                    ind.requestEvaluation();
+                }
+            }
+            this.evaluations += n;
+            this.report(n, 0);
+        }
+
+        in.swap(out);
+    }
+
+    /**
+     * Reports the screening counts to the algorithm statistics.
+     */
+    private void report(int evaluated, int predicted) {
+        if (this.ga != null && this.ga.getStatistics() != null) {
+            this.ga.getStatistics().addScreening(evaluated, predicted);
+        }
+    }
+
+    /**
+     * Adds an evaluated individual to the archive. Chromosomes already in the
+     * archive are skipped.
+     * 
+     * @param ind the individual to learn from
+     */
+    @SuppressWarnings("unchecked")
+    private void learn(Individual<T> ind) {
+        final T chrom = ind.getChromosome();
+        final long fp = ind.getFingerprint();
+        final Integer known = this.index.get(fp);
+        if (known != null && chrom.equals(this.samples[known])) {
+            return;
+        }
+
+        // the oldest sample is evicted
+        if (this.size == this.samples.length) {
+            Integer evicted = this.index.get(this.fingerprints[this.next]);
+            if (evicted != null && evicted == this.next) {
+                this.index.remove(this.fingerprints[this.next]);
+            }
+        }
+
+        if (this.samples[this.next] == null) {
+            this.samples[this.next] = (T) chrom.clone();
+        } else {
+            this.samples[this.next].setAs(chrom);
+        }
+        this.scores[this.next] = ind.getAllScores().clone();
+        this.fingerprints[this.next] = fp;
+        this.index.put(fp, this.next);
+
+        this.next = (this.next + 1) % this.samples.length;
+        if (this.size < this.samples.length) {
+            this.size++;
+        }
+    }
+
+    /**
+     * Predicts the scores of a chromosome as the inverse distance weighted mean
+     * of its nearest samples.
+     * 
+     * @param chrom the chromosome to predict the scores of
+     * @return the predicted scores
+     */
+    private double[] predict(T chrom) {
+        for (int j = 0; j < this.k; ++j) {
+            this.distances[j] = Double.POSITIVE_INFINITY;
+            this.nearest[j] = -1;
+        }
+
+        for (int i = 0; i < this.size; ++i) {
+            double d = this.distance(chrom, this.samples[i]);
+            if (d < this.distances[this.k - 1]) {
+                int j = this.k - 1;
+                for (; j > 0 && this.distances[j - 1] > d; --j) {
+                    this.distances[j] = this.distances[j - 1];
+                    this.nearest[j] = this.nearest[j - 1];
+                }
+                this.distances[j] = d;
+                this.nearest[j] = i;
+            }
+        }
+
+        final int m = this.scores[this.nearest[0]].length;
+        if (this.distances[0] == 0) {
+            return this.scores[this.nearest[0]].clone();
+        }
+
+        double[] predicted = new double[m];
+        double wsum = 0;
+        for (int j = 0; j < this.k; ++j) {
+            double w = 1 / this.distances[j];
+            double[] s = this.scores[this.nearest[j]];
+            for (int h = 0; h < m; ++h) {
+                predicted[h] += w * s[h];
+            }
+            wsum += w;
+        }
+        for (int h = 0; h < m; ++h) {
+            predicted[h] /= wsum;
+        }
+        return predicted;
+    }
+
+    /**
+     * Returns the euclidean distance between two chromosomes. Not comparable genes
+     * count as a unitary difference.
+     */
+    private double distance(T c0, T c1) {
+        this.diff = Chromosome.Util.getDifference(c0, c1, this.diff);
+        double d = 0;
+        for (double x : this.diff) {
+            d += Double.isNaN(x) ? 1 : x * x;
+        }
+        return Math.sqrt(d);
+    }
+
+    @Override
+    public void processProperties(String props) {
+        log.info("recieve properties\n"+props);
+    }
+}
@@ -102,7 +102,7 @@ public abstract class Crossover<T extends Chromosome>  extends Operator<T> {
     }
     
     public final void process(final Population<T> in, final Population<T> out) throws StageException {
-        final long startTime=System.currentTimeMillis();
+        final long startTime=System.nanoTime();
         ((Statistics)this.statistics).crossovers=0;
         out.setAs(in);
         final int size=out.size();
@@ -118,7 +118,8 @@ public abstract class Crossover<T extends Chromosome>  extends Operator<T> {
                 }
             }
         }
-        this.statistics.executionTime=System.currentTimeMillis()-startTime;
+        this.statistics.executionNanoTime = System.nanoTime() - startTime;
+        this.statistics.executionTime = this.statistics.executionNanoTime / 1000000;
     }
     
     /**
@@ -22,6 +22,7 @@ import jenes.population.Fitness;
 import jenes.GeneticAlgorithm;
 import jenes.chromosome.Chromosome;
 import jenes.population.Population;
+import jenes.population.ScoreBound;
 import jenes.stage.Sequence;
 import jenes.stage.StageException;
 
@@ -98,17 +99,45 @@ public abstract class Crowder<T extends Chromosome>  extends Operator<T> {
     @Override
     public  void process(Population<T> in, Population<T> out) throws StageException {
 
-        long startInstant = System.currentTimeMillis();
+        long startInstant = System.nanoTime();
 
         preselect(in, int_in);
 
         body.process(int_in, int_out);
-        if( elitist )
-            this.ga.evaluatePopulation(int_out);
+        if( elitist ) {
+            Fitness<T> fit = this.ga.getFitness();
+            double bound = fit != null ? this.cutoff(in) : Double.NaN;
+            if( Double.isNaN(bound) ) {
+                this.ga.evaluatePopulation(int_out);
+            } else {
+                ScoreBound sb = fit.getScoreBound();
+                double previous = sb.get();
+                sb.set(bound);
+                try {
+                    this.ga.evaluatePopulation(int_out);
+                } finally {
+                    sb.set(previous);
+                }
+            }
+        }
 
         replace(in, int_in, int_out, out);
 
-        this.statistics.executionTime = System.currentTimeMillis() - startInstant;
+        this.statistics.executionNanoTime = System.nanoTime() - startInstant;
+        this.statistics.executionTime = this.statistics.executionNanoTime / 1000000;
+    }
+
+    /**
+     * Provides the racing cutoff used when evaluating the evolved individuals,
+     * that is the score an offspring must beat to be considered by the replacement.
+     * By default it returns NaN, meaning that no cutoff is available.
+     * 
+     * @param initial the initial population
+     * @return the cutoff on the first objective, or NaN
+     * @since 2.1
+     */
+    protected double cutoff(Population<T> initial) {
+        return Double.NaN;
     }
 
     /**
@@ -78,7 +78,7 @@ public abstract class Mutator<T extends Chromosome> extends Operator<T> {
 
     @Override
     public final void process(Population<T> in, Population<T> out) throws StageException {
-        long startInstant = System.currentTimeMillis();
+        long startInstant = System.nanoTime();
         ((Statistics) this.statistics).mutations = 0;
 
         out.swap(in);
@@ -91,7 +91,8 @@ public abstract class Mutator<T extends Chromosome> extends Operator<T> {
                 ++((Statistics) this.statistics).mutations;
             }
         }
-        this.statistics.executionTime = System.currentTimeMillis() - startInstant;
+        this.statistics.executionNanoTime = System.nanoTime() - startInstant;
+        this.statistics.executionTime = this.statistics.executionNanoTime / 1000000;
     }
 
     /**
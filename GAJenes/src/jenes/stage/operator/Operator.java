@@ -61,8 +61,6 @@ public abstract class Operator<T extends Chromosome> extends AbstractStage<T> {
      * @return statistics
      */
     public Statistics getStatistics() {
-        Statistics stats = new Statistics();
-        updateStatistics(stats);
         return statistics;
     }
     
@@ -87,6 +85,9 @@ public abstract class Operator<T extends Chromosome> extends AbstractStage<T> {
         /** the excecution time of the last procssing of the operator */
         protected long executionTime;
         
+        /** the excecution time in nanoseconds of the last procssing of the operator */
+        protected long executionNanoTime;
+        
         /**
          * Constructs a new statistics operator
          *
@@ -103,6 +104,16 @@ public abstract class Operator<T extends Chromosome> extends AbstractStage<T> {
             return executionTime;
         }
         
+        /**
+         * Returns the execution time in nanoseconds of the last processing of the operator
+         *
+         * @return the time in nanoseconds of the last processing of the operator
+         * @since 2.1
+         */
+        public long getExecutionNanoTime() {
+            return executionNanoTime;
+        }
+        
         /**
          * Fills the specified statistics with the data of
          * the operator statistics. At the end, these statistics
@@ -112,6 +123,7 @@ public abstract class Operator<T extends Chromosome> extends AbstractStage<T> {
          */
         protected void fill(Statistics stats) {
             stats.executionTime = this.executionTime;
+            stats.executionNanoTime = this.executionNanoTime;
         }
     }
 }
\ No newline at end of file
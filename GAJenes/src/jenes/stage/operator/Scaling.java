@@ -39,14 +39,15 @@ public abstract class Scaling <T extends Chromosome>  extends Operator<T> {
 
     public final void process(Population<T> in, Population<T> out) throws StageException {
 
-        long startInstant = System.currentTimeMillis();
+        long startInstant = System.nanoTime();
 
         out.setAs(in);
         ga.evaluatePopulation(out, true);
         
         this.scale(out);
 
-        this.statistics.executionTime = System.currentTimeMillis() - startInstant;
+        this.statistics.executionNanoTime = System.nanoTime() - startInstant;
+        this.statistics.executionTime = this.statistics.executionNanoTime / 1000000;
     }
 
     /**
@@ -144,7 +144,7 @@ public abstract class Selector<T extends Chromosome> extends Operator<T> {
      */
     public final void process(Population<T> in, Population<T> out) throws StageException {
 
-        long startInstant = System.currentTimeMillis();
+        long startInstant = System.nanoTime();
         ((Statistics) this.statistics).selections = 0;
 
         this.preSelect(in, Population.ALL);
@@ -178,7 +178,8 @@ public abstract class Selector<T extends Chromosome> extends Operator<T> {
         }
 
         ((Statistics) this.statistics).selections = m;
-        this.statistics.executionTime = System.currentTimeMillis() - startInstant;
+        this.statistics.executionNanoTime = System.nanoTime() - startInstant;
+        this.statistics.executionTime = this.statistics.executionNanoTime / 1000000;
     }
 
     /**
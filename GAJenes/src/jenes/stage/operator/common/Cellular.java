@@ -0,0 +1,722 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.stage.operator.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.Chromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.StageException;
+import jenes.stage.operator.Crossover;
+import jenes.stage.operator.Mutator;
+import jenes.stage.operator.Operator;
+import jenes.stage.operator.Selector;
+import jenes.statistics.Tracer;
+import jenes.utils.Random;
+
+/**
+ * A stage implementing the breeding of a cellular (diffusion) genetic algorithm.
+ * <p>
+ * The population is laid on a two dimensional toroidal grid, row by row, with
+ * the given number of columns. Each cell breeds with its neighbourhood: the 
+ * {@link Selector} chooses the parents among the neighbours (the cell included), the
+ * {@link Crossover} and the {@link Mutator} produce an offspring, which is evaluated 
+ * and replaces the cell unless worse. Mating is local, so good solutions diffuse 
+ * slowly through the grid and diversity is preserved also at very large population sizes.
+ * <p>
+ * Cells are updated according to a {@link Sweep} policy: synchronously, building the
+ * next grid from the current one, or asynchronously, updating the grid in place by a 
+ * fixed line sweep or by a new random permutation at each generation.
+ * <p>
+ * The grid can be partitioned into tiles updated in parallel, each on its own thread
+ * and with its own operators, created by a {@link Breeder}. Synchronous tiles read the
+ * current grid, which is not modified during the generation. Asynchronous tiles update
+ * their cells in place and read the cells bordering the tile from a halo, copied at the 
+ * beginning of each generation.
+ * <p>
+ * Offsprings are evaluated by the tiles as soon as they are bred, on their own thread:
+ * the {@link jenes.utils.multitasking.Runner} and the batch evaluation of the algorithm
+ * are not used, and evaluations are reported to its statistics at the end of the 
+ * generation. Thus the budgets of a {@link jenes.Termination} policy do not interrupt a
+ * cellular generation: they are checked at its end, and can be exceeded by up to one
+ * generation of evaluations. Evaluations are reported to the algorithm {@link Tracer}.
+ *
+ * @param <T> The class of chromosomes to work with.
+ *
+ * @version 2.1
+ * @since 2.1
+ *
+ * @see jenes.algorithms.CellularGA
+ */
+public class Cellular<T extends Chromosome> extends Operator<T> {
+
+    /** The neighbourhoods of a cell */
+    public static enum Neighbourhood {
+
+        /** The cell and its four orthogonal neighbours */
+        VON_NEUMANN(new int[][]{{0, 0}, {-1, 0}, {0, -1}, {0, 1}, {1, 0}}),
+        /** The cell and its eight surrounding neighbours */
+        MOORE(new int[][]{{0, 0}, {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}});
+        
+        private final int[][] offsets;
+
+        private Neighbourhood(int[][] offsets) {
+            this.offsets = offsets;
+        }
+
+        /**
+         * Returns the number of cells in the neighbourhood, the center included.
+         * 
+         * @return the neighbourhood size
+         */
+        public int size() {
+            return this.offsets.length;
+        }
+    }
+
+    /** The update policies of the grid */
+    public static enum Sweep {
+
+        /** All cells are updated at once, reading the current grid */
+        SYNCHRONOUS,
+        /** Cells are updated in place, row by row */
+        LINE,
+        /** Cells are updated in place, in a new random order at each generation */
+        RANDOM
+    }
+
+    /**
+     * A <code>Breeder</code> creates the operators used to breed the cells of a tile.
+     * Each tile uses its own operators, as operators hold an internal state.
+     * 
+     * @param <T> The class of chromosomes to work with.
+     */
+    public static interface Breeder<T extends Chromosome> {
+
+        /**
+         * Creates the selector
+         * 
+         * @return a new selector
+         */
+        public Selector<T> createSelector();
+
+        /**
+         * Creates the crossover
+         * 
+         * @return a new crossover
+         */
+        public Crossover<T> createCrossover();
+
+        /**
+         * Creates the mutator
+         * 
+         * @return a new mutator
+         */
+        public Mutator<T> createMutator();
+    }
+    /** The default neighbourhood */
+    public static final Neighbourhood DEFAULT_NEIGHBOURHOOD = Neighbourhood.VON_NEUMANN;
+    /** The default sweep policy */
+    public static final Sweep DEFAULT_SWEEP = Sweep.LINE;
+    private final int columns;
+    private final Breeder<T> breeder;
+    /** True if the breeder always returns the same operators, thus preventing tiles */
+    private final boolean shared;
+    private Neighbourhood neighbourhood = DEFAULT_NEIGHBOURHOOD;
+    private Sweep sweep = DEFAULT_SWEEP;
+    /** If true, offsprings replace only cells they are not worse than */
+    private boolean elitist = true;
+    private int tileRows = 1;
+    private int tileColumns = 1;
+    /** The grid rows, as of the last layout */
+    private int rows = 0;
+    private List<Tile> tiles = null;
+
+    /**
+     * Creates a cellular stage using the given operators on a single tile.
+     * 
+     * @param columns the number of columns of the grid
+     * @param selector the selector
+     * @param crossover the crossover
+     * @param mutator the mutator
+     */
+    public Cellular(final int columns, final Selector<T> selector, final Crossover<T> crossover, final Mutator<T> mutator) {
+        this(columns, new Breeder<T>() {
+
+            @Override
+            public Selector<T> createSelector() {
+                return selector;
+            }
+
+            @Override
+            public Crossover<T> createCrossover() {
+                return crossover;
+            }
+
+            @Override
+            public Mutator<T> createMutator() {
+                return mutator;
+            }
+        }, true);
+    }
+
+    /**
+     * Creates a cellular stage using the operators created by the breeder, 
+     * allowing the grid to be partitioned in tiles.
+     * 
+     * @param columns the number of columns of the grid
+     * @param breeder the breeder
+     */
+    public Cellular(final int columns, final Breeder<T> breeder) {
+        this(columns, breeder, false);
+    }
+
+    private Cellular(final int columns, final Breeder<T> breeder, final boolean shared) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("[Jenes]: the number of columns must be positive");
+        }
+        this.columns = columns;
+        this.breeder = breeder;
+        this.shared = shared;
+        super.statistics = new Statistics();
+    }
+
+    /**
+     * Returns the number of columns of the grid
+     * 
+     * @return the number of columns
+     */
+    public final int getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Returns the neighbourhood
+     * 
+     * @return the neighbourhood
+     */
+    public final Neighbourhood getNeighbourhood() {
+        return this.neighbourhood;
+    }
+
+    /**
+     * Sets the neighbourhood
+     * 
+     * @param neighbourhood the neighbourhood
+     */
+    public void setNeighbourhood(Neighbourhood neighbourhood) {
+        this.neighbourhood = neighbourhood;
+        this.shutdown();
+    }
+
+    /**
+     * Returns the sweep policy
+     * 
+     * @return the sweep policy
+     */
+    public final Sweep getSweep() {
+        return this.sweep;
+    }
+
+    /**
+     * Sets the sweep policy
+     * 
+     * @param sweep the sweep policy
+     */
+    public void setSweep(Sweep sweep) {
+        this.sweep = sweep;
+    }
+
+    /**
+     * Says if offsprings replace only the cells they are not worse than.
+     * 
+     * @return true if the replacement is elitist
+     */
+    public final boolean isElitist() {
+        return this.elitist;
+    }
+
+    /**
+     * Sets if offsprings replace only the cells they are not worse than, 
+     * or always replace them.
+     * 
+     * @param elitist true for an elitist replacement
+     */
+    public void setElitist(boolean elitist) {
+        this.elitist = elitist;
+    }
+
+    /**
+     * Returns the number of tiles along the grid rows
+     * 
+     * @return the number of tile rows
+     */
+    public final int getTileRows() {
+        return this.tileRows;
+    }
+
+    /**
+     * Returns the number of tiles along the grid columns
+     * 
+     * @return the number of tile columns
+     */
+    public final int getTileColumns() {
+        return this.tileColumns;
+    }
+
+    /**
+     * Partitions the grid in tiles updated in parallel. It requires the stage 
+     * to be created with a {@link Breeder}.
+     * 
+     * @param rows the number of tiles along the grid rows
+     * @param columns the number of tiles along the grid columns
+     */
+    public void setTiles(int rows, int columns) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("[Jenes]: the number of tiles must be positive");
+        }
+        if (this.shared && rows * columns > 1) {
+            throw new IllegalStateException("[Jenes]: tiles require a breeder creating operators for each tile");
+        }
+        if (columns > this.columns) {
+            throw new IllegalArgumentException("[Jenes]: more tiles than grid columns");
+        }
+        this.tileRows = rows;
+        this.tileColumns = columns;
+        this.shutdown();
+    }
+
+    @Override
+    public void init(GeneticAlgorithm<T> ga) {
+        super.init(ga);
+        this.shutdown();
+    }
+
+    @Override
+    public void dispose() {
+        this.shutdown();
+    }
+
+    @Override
+    public void process(Population<T> in, Population<T> out) throws StageException {
+        final long startInstant = System.nanoTime();
+        final int size = in.size();
+        if (size % this.columns != 0) {
+            throw new StageException("[Jenes]: the population size " + size + " does not fill a grid of " + this.columns + " columns");
+        }
+        if (this.tiles == null || this.rows != size / this.columns) {
+            this.layout(size / this.columns, in.getIndividual(0));
+        }
+
+        final boolean sync = this.sweep == Sweep.SYNCHRONOUS;
+        if (sync) {
+            out.resizeAs(in);
+        } else {
+            out.setAs(in);
+        }
+
+        final Tile single = this.tiles.size() == 1 ? this.tiles.get(0) : null;
+        if (single != null) {
+            single.sweep(sync ? in : out, out, false);
+        } else {
+            if (!sync) {
+                for (Tile t : this.tiles) {
+                    t.phase(Phase.HALO, out, out);
+                }
+                this.await();
+            }
+            for (Tile t : this.tiles) {
+                t.phase(Phase.SWEEP, sync ? in : out, out);
+            }
+            this.await();
+        }
+
+        final Statistics stats = (Statistics) this.statistics;
+        stats.evaluations = 0;
+        stats.replacements = 0;
+        for (Tile t : this.tiles) {
+            stats.evaluations += t.evaluations;
+            stats.replacements += t.replacements;
+        }
+        this.ga.getStatistics().addFitnessEvaluationNumbers(stats.evaluations);
+        stats.setElapsed(System.nanoTime() - startInstant);
+    }
+
+    /**
+     * Waits for all tiles to complete their phase
+     */
+    private void await() throws StageException {
+        StageException error = null;
+        for (Tile t : this.tiles) {
+            try {
+                t.future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                error = new StageException("[Jenes]: interrupted while waiting for tiles", ex);
+            } catch (ExecutionException ex) {
+                error = new StageException("[Jenes]: tile failure", ex.getCause());
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Partitions the grid into tiles and creates their operators
+     */
+    private void layout(final int rows, final Individual<T> sample) throws StageException {
+        this.shutdown();
+        if (this.tileRows > rows) {
+            throw new StageException("[Jenes]: more tiles than grid rows");
+        }
+        this.rows = rows;
+        this.tiles = new ArrayList<Tile>();
+        final Random random = Random.getInstance();
+        for (int i = 0; i < this.tileRows; ++i) {
+            for (int j = 0; j < this.tileColumns; ++j) {
+                Tile t = new Tile(rows * i / this.tileRows, rows * (i + 1) / this.tileRows,
+                        this.columns * j / this.tileColumns, this.columns * (j + 1) / this.tileColumns);
+                this.tiles.add(t);
+            }
+        }
+        if (this.tiles.size() == 1) {
+            this.tiles.get(0).setup(sample, this.ga.getFitness(), false);
+        } else {
+            for (Tile t : this.tiles) {
+                t.seed = random.nextLong();
+                t.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread th = new Thread(r, "jenes-cellular-tile");
+                        th.setDaemon(true);
+                        return th;
+                    }
+                });
+                t.sample = sample;
+                t.phase(Phase.SETUP, null, null);
+            }
+            this.await();
+        }
+    }
+
+    /**
+     * Shuts down the threads of the tiles
+     */
+    private void shutdown() {
+        if (this.tiles != null) {
+            for (Tile t : this.tiles) {
+                if (t.executor != null) {
+                    t.executor.shutdownNow();
+                }
+            }
+        }
+        this.tiles = null;
+    }
+
+    /**
+     * Checks if an individual is not worse than another: legal individuals are 
+     * better than illegal ones, then individuals are compared by Pareto dominance.
+     */
+    private static boolean notWorse(final Individual<?> i1, final Individual<?> i2, final boolean[] bis) {
+        if (i1.isLegal() != i2.isLegal()) {
+            return i1.isLegal();
+        }
+        boolean better = false;
+        boolean worse = false;
+        for (int k = 0; k < bis.length; ++k) {
+            double s1 = i1.getScore(k);
+            double s2 = i2.getScore(k);
+            if (s1 != s2) {
+                if ((s1 > s2) == bis[k]) {
+                    better = true;
+                } else {
+                    worse = true;
+                }
+            }
+        }
+        return better || !worse;
+    }
+
+    /** The phases run by tiles on their own thread */
+    private static enum Phase {
+
+        SETUP, HALO, SWEEP
+    }
+
+    /**
+     * A rectangular region of the grid, with its operators and buffers
+     */
+    private final class Tile implements Runnable {
+
+        /* Rows in [r0,r1) and columns in [c0,c1) */
+        private final int r0, r1, c0, c1;
+        /** The width of the frame made of the tile and its border */
+        private final int frame;
+        private Individual<T>[] halo;
+        private Selector<T> selector;
+        private Crossover<T> crossover;
+        private Mutator<T> mutator;
+        private Fitness<T> fit;
+        private boolean[] bis;
+        private Population<T> neighbours;
+        private final Population<T> parents = new Population<T>();
+        private final Population<T> children = new Population<T>();
+        private final Population<T> mutated = new Population<T>();
+        private int[] order;
+        private int evaluations;
+        private int replacements;
+        private long seed;
+        private Individual<T> sample;
+        private ExecutorService executor;
+        private Future<?> future;
+        private Phase phase;
+        private Population<T> grid;
+        private Population<T> next;
+
+        private Tile(int r0, int r1, int c0, int c1) {
+            this.r0 = r0;
+            this.r1 = r1;
+            this.c0 = c0;
+            this.c1 = c1;
+            this.frame = c1 - c0 + 2;
+            this.order = new int[(r1 - r0) * (c1 - c0)];
+            this.parents.setPool(null);
+            this.children.setPool(null);
+            this.mutated.setPool(null);
+        }
+
+        /**
+         * Creates the operators and buffers of this tile
+         */
+        @SuppressWarnings("unchecked")
+        private void setup(Individual<T> sample, Fitness<T> prototype, boolean parallel) {
+            this.selector = breeder.createSelector();
+            this.crossover = breeder.createCrossover();
+            this.mutator = breeder.createMutator();
+            Fitness<T> f = Cellular.this.fitness != null ? Cellular.this.fitness : prototype;
+            for (Operator<T> op : new Operator[]{this.selector, this.crossover, this.mutator}) {
+                if (f != null) {
+                    op.setFitness(f, true);
+                } else {
+                    op.setBiggerIsBetter(Cellular.this.biggerIsBetter);
+                }
+                op.init(ga);
+            }
+            this.selector.setSelectionRate(this.crossover.spread());
+            this.fit = parallel && prototype != null ? prototype.clone() : prototype;
+            this.bis = f != null ? f.getBiggerIsBetter() : new boolean[]{Cellular.this.biggerIsBetter};
+            this.neighbours = new Population<T>(sample, neighbourhood.size());
+            this.neighbours.setPool(null);
+            this.halo = parallel ? new Individual[(r1 - r0 + 2) * this.frame] : null;
+        }
+
+        /**
+         * Runs a phase on the thread of this tile
+         */
+        private void phase(Phase phase, Population<T> grid, Population<T> next) {
+            this.phase = phase;
+            this.grid = grid;
+            this.next = next;
+            this.future = this.executor.submit(this);
+        }
+
+        @Override
+        public void run() {
+            switch (this.phase) {
+                case SETUP:
+                    Random.getInstance().setSeed(this.seed);
+                    this.setup(this.sample, ga.getFitness(), true);
+                    this.sample = null;
+                    break;
+                case HALO:
+                    this.copyHalo(this.grid);
+                    break;
+                case SWEEP:
+                    this.sweep(this.grid, this.next, true);
+                    break;
+            }
+        }
+
+        /**
+         * Copies the cells bordering this tile
+         */
+        private void copyHalo(Population<T> grid) {
+            final int h = r1 - r0;
+            final int w = c1 - c0;
+            for (int lr = -1; lr <= h; ++lr) {
+                for (int lc = -1; lc <= w; ++lc) {
+                    if (lr >= 0 && lr < h && lc >= 0 && lc < w) {
+                        continue;
+                    }
+                    Individual<T> cell = grid.getIndividual(index(r0 + lr, c0 + lc));
+                    int slot = (lr + 1) * this.frame + lc + 1;
+                    if (this.halo[slot] == null) {
+                        this.halo[slot] = new Individual<T>(cell);
+                    } else {
+                        this.halo[slot].setAs(cell);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Breeds all the cells of this tile.
+         * 
+         * @param grid the grid neighbours are read from
+         * @param next the grid offsprings are written to
+         * @param bordered true if neighbours outside the tile have to be read from the halo 
+         */
+        private void sweep(Population<T> grid, Population<T> next, boolean bordered) {
+            this.evaluations = 0;
+            this.replacements = 0;
+            final int w = c1 - c0;
+            final int n = this.order.length;
+            for (int k = 0; k < n; ++k) {
+                this.order[k] = k;
+            }
+            if (sweep == Sweep.RANDOM) {
+                final Random random = Random.getInstance();
+                for (int k = n - 1; k > 0; --k) {
+                    int j = random.nextInt(k + 1);
+                    int tmp = this.order[k];
+                    this.order[k] = this.order[j];
+                    this.order[j] = tmp;
+                }
+            }
+            final boolean sync = grid != next;
+            final int[][] offsets = neighbourhood.offsets;
+            final Tracer tracer = ga.getTracer();
+            try {
+                for (int k = 0; k < n; ++k) {
+                    final int lr = this.order[k] / w;
+                    final int lc = this.order[k] % w;
+                    for (int j = 0; j < offsets.length; ++j) {
+                        int nr = lr + offsets[j][0];
+                        int nc = lc + offsets[j][1];
+                        Individual<T> neighbour;
+                        if (!sync && bordered && (nr < 0 || nr >= r1 - r0 || nc < 0 || nc >= w)) {
+                            neighbour = this.halo[(nr + 1) * this.frame + nc + 1];
+                        } else {
+                            neighbour = grid.getIndividual(index(r0 + nr, c0 + nc));
+                        }
+                        this.neighbours.getIndividual(j).setAs(neighbour);
+                    }
+
+                    this.selector.process(this.neighbours, this.parents);
+                    this.crossover.process(this.parents, this.children);
+                    this.mutator.process(this.children, this.mutated);
+                    final Individual<T> offspring = this.mutated.getIndividual(0);
+                    if (!offspring.isEvaluated() && this.fit != null) {
+                        if (tracer != null) {
+                            final long begin = System.nanoTime();
+                            this.fit.evaluate(offspring);
+                            tracer.onEvaluation(ga, offspring, System.nanoTime() - begin);
+                        } else {
+                            this.fit.evaluate(offspring);
+                        }
+                        ++this.evaluations;
+                    }
+
+                    final int cell = index(r0 + lr, c0 + lc);
+                    final Individual<T> current = grid.getIndividual(cell);
+                    if (!elitist || notWorse(offspring, current, this.bis)) {
+                        next.getIndividual(cell).setAs(offspring);
+                        ++this.replacements;
+                    } else if (sync) {
+                        next.getIndividual(cell).setAs(current);
+                    }
+                }
+            } catch (StageException ex) {
+                throw new IllegalStateException("[Jenes]: breeding failure", ex);
+            }
+        }
+    }
+
+    @Override
+    public void processProperties(String props) {
+        log.info(this.getClass().toString()+"recieve properties\n"+props);
+    }
+
+    /**
+     * Returns the index of a cell, wrapping coordinates on the torus
+     */
+    private int index(int r, int c) {
+        r %= this.rows;
+        c %= this.columns;
+        if (r < 0) {
+            r += this.rows;
+        }
+        if (c < 0) {
+            c += this.columns;
+        }
+        return r * this.columns + c;
+    }
+
+    /**
+     * A statistics object holding the number of offsprings evaluated and of cells 
+     * replaced at the last generation, and the time spent.
+     */
+    public final class Statistics extends Operator<T>.Statistics {
+
+        /** Number of offsprings evaluated */
+        protected int evaluations;
+        /** Number of cells replaced by offsprings */
+        protected int replacements;
+
+        /**
+         * Returns the number of offsprings evaluated.
+         *
+         * @return the number of evaluations
+         */
+        public final int getEvaluations() {
+            return this.evaluations;
+        }
+
+        /**
+         * Returns the number of cells replaced by offsprings.
+         *
+         * @return the number of replacements
+         */
+        public final int getReplacements() {
+            return this.replacements;
+        }
+
+        private void setElapsed(long nanos) {
+            this.executionNanoTime = nanos;
+            this.executionTime = nanos / 1000000;
+        }
+
+        @Override
+        protected final void fill(final Operator<T>.Statistics stats) {
+            super.fill(stats);
+            ((Statistics) stats).evaluations = this.evaluations;
+            ((Statistics) stats).replacements = this.replacements;
+        }
+    }
+}
@@ -171,6 +171,33 @@ public class SteadyState<T extends Chromosome> extends Crowder<T> {
         selector.process(in, out);
     }
 
+    /**
+     * Provides the worst score of the initial population as cutoff. As offspring
+     * replace individuals only if better, those not beating the worst one are discarded.
+     * 
+     * @param initial the initial population
+     * @return the cutoff on the first objective, or NaN
+     */
+    @Override
+    protected double cutoff(Population<T> initial) {
+        Fitness<T> fit = this.ga.getFitness();
+        if (fit.getNumOfObjectives() > 1) {
+            return Double.NaN;
+        }
+        boolean bib = fit.getBiggerIsBetter()[0];
+        double worst = Double.NaN;
+        for (Individual<T> ind : initial) {
+            if (!ind.isLegal() || !ind.isEvaluated()) {
+                return Double.NaN;
+            }
+            double score = ind.getScore();
+            if (Double.isNaN(worst) || (bib ? score < worst : score > worst)) {
+                worst = score;
+            }
+        }
+        return worst;
+    }
+
     @Override
     protected void replace(Population<T> initial, Population<T> preselected, Population<T> evolved, Population<T> out) {
 
@@ -0,0 +1,165 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations expressed in nanoseconds. Values are counted
+ * in log-linear buckets, as in HDR histograms: each power of two is split in 
+ * 16 buckets, so that percentiles are reported with a relative error lower than 
+ * 6.25%, in constant memory. Recording is wait-free apart from the maximum update,
+ * and can be performed concurrently by any number of threads.
+ * 
+ * @version 2.1
+ * @since 2.1
+ * 
+ * @see Instrumentation
+ */
+public final class Histogram {
+
+    /** The number of bits resolving values within a power of two */
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /** The number of buckets covering all the positive long values */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     * 
+     * @param nanos the value in nanoseconds
+     */
+    public void record(long nanos) {
+        final long value = nanos > 0 ? nanos : 0;
+        this.counts.incrementAndGet(index(value));
+        this.count.incrementAndGet();
+        this.total.addAndGet(value);
+        long m = this.max.get();
+        while (value > m && !this.max.compareAndSet(m, value)) {
+            m = this.max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded values
+     * 
+     * @return the count
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the sum of recorded values
+     * 
+     * @return the sum in nanoseconds
+     */
+    public long getTotal() {
+        return this.total.get();
+    }
+
+    /**
+     * Returns the maximum recorded value
+     * 
+     * @return the maximum in nanoseconds, 0 if empty
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns the mean of recorded values
+     * 
+     * @return the mean in nanoseconds, 0 if empty
+     */
+    public double getMean() {
+        final long n = this.count.get();
+        return n > 0 ? (double) this.total.get() / n : 0;
+    }
+
+    /**
+     * Returns a percentile of recorded values. The 100th percentile is the maximum.
+     * 
+     * @param percentile the percentile, between 0 and 100
+     * @return the value in nanoseconds, 0 if empty
+     */
+    public long getPercentile(double percentile) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            n += this.counts.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        if (percentile >= 100) {
+            return this.max.get();
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(value(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Clears the histogram. Values recorded concurrently may be partially lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; ++i) {
+            this.counts.set(i, 0);
+        }
+        this.count.set(0);
+        this.total.set(0);
+        this.max.set(0);
+    }
+
+    /**
+     * Returns the bucket of a value
+     */
+    private static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        final int exp = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Returns the value representing a bucket, that is its midpoint
+     */
+    private static long value(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        final int exp = index / SUB_COUNT + SUB_BITS - 1;
+        final long sub = index % SUB_COUNT;
+        final long width = 1L << (exp - SUB_BITS);
+        return ((SUB_COUNT + sub) << (exp - SUB_BITS)) + width / 2;
+    }
+}
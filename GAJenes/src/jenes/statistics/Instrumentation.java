@@ -0,0 +1,304 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * An <code>Instrumentation</code> records the durations of generations, fitness 
+ * evaluations and stages of a {@link jenes.GeneticAlgorithm} in {@link Histogram}s,
+ * with nanosecond resolution. It is attached to an algorithm by
+ * {@link jenes.GeneticAlgorithm#setInstrumentation(jenes.statistics.Instrumentation)},
+ * and while the algorithm runs it is published as a JMX MBean named 
+ * <code>jenes:type=GeneticAlgorithm,name=&lt;name&gt;</code>.
+ * <p>
+ * Timed sections are
+ * <ul>
+ * <li>{@link #GENERATION}: each generation, from the body processing to the generation listeners</li>
+ * <li>{@link #EVALUATION_STAGE}: each population evaluation</li>
+ * <li>{@link #EVALUATION}: each fitness evaluation performed by the algorithm thread</li>
+ * <li>{@link #BATCH}: each batch evaluation performed by the algorithm thread</li>
+ * <li>each stage within {@link jenes.stage.Sequence}s and {@link jenes.stage.Parallel}s, named
+ * by its path in the stage tree, e.g. <code>Sequence/1:OnePointCrossover</code></li>
+ * </ul>
+ * Evaluations performed by a {@link jenes.utils.multitasking.Runner} are timed 
+ * by the runner itself, if at all. Recording costs two {@link System#nanoTime()} calls
+ * and a few atomic updates per section; when no instrumentation is attached, nothing
+ * is recorded.
+ * 
+ * @version 2.1
+ * @since 2.1
+ */
+public class Instrumentation implements InstrumentationMXBean {
+
+    private static final Logger log = Logger.getLogger(Instrumentation.class.getName());
+    /** The section timing generations */
+    public static final String GENERATION = "generation";
+    /** The section timing population evaluations */
+    public static final String EVALUATION_STAGE = "evaluation-stage";
+    /** The section timing single fitness evaluations */
+    public static final String EVALUATION = "evaluation";
+    /** The section timing batch evaluations */
+    public static final String BATCH = "batch";
+    /** The name the algorithm is published with */
+    private final String name;
+    /** If true, the instrumentation is published over JMX */
+    private final boolean published;
+    /** The histograms by section name */
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+    /** The names of registered stages */
+    private final Map<Object, String> stages = new IdentityHashMap<Object, String>();
+    private final Histogram generation = this.getHistogram(GENERATION);
+    private final Histogram evaluation = this.getHistogram(EVALUATION);
+    /** The statistics of the running algorithm */
+    private volatile Statistics statistics;
+    private volatile long startTime;
+    private ObjectName objectName;
+
+    /**
+     * Creates an instrumentation published over JMX with the given name.
+     * 
+     * @param name the name
+     */
+    public Instrumentation(String name) {
+        this(name, true);
+    }
+
+    /**
+     * Creates an instrumentation.
+     * 
+     * @param name the name
+     * @param published if true, the instrumentation is published over JMX while the algorithm runs
+     */
+    public Instrumentation(String name, boolean published) {
+        this.name = name;
+        this.published = published;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the histogram of a section, creating it if needed.
+     * 
+     * @param section the section name
+     * @return the histogram
+     */
+    public final Histogram getHistogram(String section) {
+        Histogram h = this.histograms.get(section);
+        if (h == null) {
+            synchronized (this.histograms) {
+                h = this.histograms.get(section);
+                if (h == null) {
+                    h = new Histogram();
+                    this.histograms.put(section, h);
+                }
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns the histogram of generations.
+     * 
+     * @return the histogram
+     */
+    public final Histogram getGenerationHistogram() {
+        return this.generation;
+    }
+
+    /**
+     * Returns the histogram of single fitness evaluations.
+     * 
+     * @return the histogram
+     */
+    public final Histogram getEvaluationHistogram() {
+        return this.evaluation;
+    }
+
+    /**
+     * Registers the children of a stage, returning the histograms timing them. 
+     * Children are named after the path of their parent, their position and class.
+     * 
+     * @param parent the parent stage
+     * @param children the child stages
+     * @return the histograms, indexed as children
+     */
+    public Histogram[] register(Object parent, List<?> children) {
+        Histogram[] timings = new Histogram[children.size()];
+        synchronized (this.stages) {
+            String path = this.stages.get(parent);
+            if (path == null) {
+                path = parent.getClass().getSimpleName();
+                this.stages.put(parent, path);
+            }
+            for (int i = 0; i < timings.length; ++i) {
+                Object child = children.get(i);
+                if (child != null) {
+                    String childPath = path + "/" + i + ":" + child.getClass().getSimpleName();
+                    this.stages.put(child, childPath);
+                    timings[i] = this.getHistogram(childPath);
+                }
+            }
+        }
+        return timings;
+    }
+
+    /**
+     * Invoked when the algorithm starts. Histograms are cleared, and the 
+     * instrumentation is published.
+     * 
+     * @param stats the statistics of the algorithm
+     */
+    public void start(Statistics stats) {
+        this.reset();
+        this.statistics = stats;
+        this.startTime = System.nanoTime();
+        if (this.published && this.objectName == null) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName on = new ObjectName("jenes:type=GeneticAlgorithm,name=" + ObjectName.quote(this.name));
+                if (server.isRegistered(on)) {
+                    server.unregisterMBean(on);
+                }
+                server.registerMBean(this, on);
+                this.objectName = on;
+            } catch (JMException ex) {
+                log.log(Level.WARNING, "Unable to publish the instrumentation of " + this.name, ex);
+            }
+        }
+    }
+
+    /**
+     * Invoked when the algorithm stops. The instrumentation is no longer published,
+     * but its histograms are kept.
+     */
+    public void stop() {
+        if (this.objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+            } catch (JMException ex) {
+                log.log(Level.FINE, "Unable to unpublish the instrumentation of " + this.name, ex);
+            }
+            this.objectName = null;
+        }
+    }
+
+    @Override
+    public long getGenerations() {
+        return this.generation.getCount();
+    }
+
+    @Override
+    public long getEvaluations() {
+        Statistics stats = this.statistics;
+        return stats != null ? stats.getFitnessEvaluationNumbers() : 0;
+    }
+
+    @Override
+    public double getThroughput() {
+        final long elapsed = System.nanoTime() - this.startTime;
+        return this.statistics != null && elapsed > 0 ? this.getEvaluations() * 1e9 / elapsed : 0;
+    }
+
+    @Override
+    public long getGenerationP50() {
+        return this.generation.getPercentile(50);
+    }
+
+    @Override
+    public long getGenerationP99() {
+        return this.generation.getPercentile(99);
+    }
+
+    @Override
+    public long getGenerationMax() {
+        return this.generation.getMax();
+    }
+
+    @Override
+    public long getEvaluationP50() {
+        return this.evaluation.getPercentile(50);
+    }
+
+    @Override
+    public long getEvaluationP99() {
+        return this.evaluation.getPercentile(99);
+    }
+
+    @Override
+    public long getEvaluationMax() {
+        return this.evaluation.getMax();
+    }
+
+    @Override
+    public Map<String, Long> getP50() {
+        Map<String, Long> map = new TreeMap<String, Long>();
+        for (Map.Entry<String, Histogram> e : this.histograms.entrySet()) {
+            map.put(e.getKey(), e.getValue().getPercentile(50));
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getP99() {
+        Map<String, Long> map = new TreeMap<String, Long>();
+        for (Map.Entry<String, Histogram> e : this.histograms.entrySet()) {
+            map.put(e.getKey(), e.getValue().getPercentile(99));
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getMax() {
+        Map<String, Long> map = new TreeMap<String, Long>();
+        for (Map.Entry<String, Histogram> e : this.histograms.entrySet()) {
+            map.put(e.getKey(), e.getValue().getMax());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getCount() {
+        Map<String, Long> map = new TreeMap<String, Long>();
+        for (Map.Entry<String, Histogram> e : this.histograms.entrySet()) {
+            map.put(e.getKey(), e.getValue().getCount());
+        }
+        return map;
+    }
+
+    @Override
+    public void reset() {
+        for (Histogram h : this.histograms.values()) {
+            h.reset();
+        }
+    }
+}
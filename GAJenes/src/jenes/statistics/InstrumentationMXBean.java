@@ -0,0 +1,134 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.statistics;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link Instrumentation}, published over JMX for each
+ * running algorithm. Durations are expressed in nanoseconds.
+ * 
+ * @version 2.1
+ * @since 2.1
+ */
+public interface InstrumentationMXBean {
+
+    /**
+     * Returns the name the algorithm is published with
+     * 
+     * @return the name
+     */
+    public String getName();
+
+    /**
+     * Returns the number of completed generations
+     * 
+     * @return the number of generations
+     */
+    public long getGenerations();
+
+    /**
+     * Returns the number of fitness evaluations
+     * 
+     * @return the number of evaluations
+     */
+    public long getEvaluations();
+
+    /**
+     * Returns the number of fitness evaluations per second, since the algorithm started
+     * 
+     * @return the throughput in individuals per second
+     */
+    public double getThroughput();
+
+    /**
+     * Returns the median duration of generations
+     * 
+     * @return the duration in nanoseconds
+     */
+    public long getGenerationP50();
+
+    /**
+     * Returns the 99th percentile of generation durations
+     * 
+     * @return the duration in nanoseconds
+     */
+    public long getGenerationP99();
+
+    /**
+     * Returns the maximum duration of generations
+     * 
+     * @return the duration in nanoseconds
+     */
+    public long getGenerationMax();
+
+    /**
+     * Returns the median duration of single fitness evaluations
+     * 
+     * @return the duration in nanoseconds
+     */
+    public long getEvaluationP50();
+
+    /**
+     * Returns the 99th percentile of single fitness evaluation durations
+     * 
+     * @return the duration in nanoseconds
+     */
+    public long getEvaluationP99();
+
+    /**
+     * Returns the maximum duration of single fitness evaluations
+     * 
+     * @return the duration in nanoseconds
+     */
+    public long getEvaluationMax();
+
+    /**
+     * Returns the median duration of each timed section, i.e. stages, evaluations and generations
+     * 
+     * @return the durations in nanoseconds by section name
+     */
+    public Map<String, Long> getP50();
+
+    /**
+     * Returns the 99th percentile of durations of each timed section
+     * 
+     * @return the durations in nanoseconds by section name
+     */
+    public Map<String, Long> getP99();
+
+    /**
+     * Returns the maximum duration of each timed section
+     * 
+     * @return the durations in nanoseconds by section name
+     */
+    public Map<String, Long> getMax();
+
+    /**
+     * Returns the number of times each section has been timed
+     * 
+     * @return the counts by section name
+     */
+    public Map<String, Long> getCount();
+
+    /**
+     * Clears all histograms
+     */
+    public void reset();
+}
@@ -4,6 +4,9 @@
  */
 package jenes.statistics;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import jenes.statistics.StatisticsLogger.LoggableStatistics;
 
 /**
@@ -16,6 +19,33 @@ import jenes.statistics.StatisticsLogger.LoggableStatistics;
      */
 public class Statistics extends LoggableStatistics {
 
+    /**
+     * The reasons why an evolution can stop.
+     * 
+     * @since 2.1
+     */
+    public static enum TerminationReason {
+
+        /** The generation limit has been reached */
+        GENERATION_LIMIT,
+        /** The algorithm termination condition holds */
+        CONDITION,
+        /** The algorithm has been cancelled */
+        CANCELLED,
+        /** An exception occurred */
+        EXCEPTION,
+        /** The best score did not improve over a window of generations */
+        PLATEAU,
+        /** The population genotypes collapsed to a few ones */
+        DIVERSITY_COLLAPSE,
+        /** The target score has been reached */
+        TARGET_REACHED,
+        /** The wall-clock budget has been spent */
+        TIME_BUDGET,
+        /** The fitness evaluation budget has been spent */
+        EVALUATION_BUDGET
+    }
+
     private long startTime;
     private long stopTime;
     private long initTime;
@@ -24,6 +54,7 @@ public class Statistics extends LoggableStatistics {
     private int generationLimit;
     private long[] generationEndTimes;
     private boolean exceptionTerminated;
+    private TerminationReason terminationReason;
     private int fitnessEvaluationNumbers;
     private long[] fitnessEvalStageBegin;
     private long[] fitnessEvalStageEnd;
@@ -32,6 +63,25 @@ public class Statistics extends LoggableStatistics {
     private double maxValue;
     private double minValue;
     private double averageValue;
+    private int batchEvaluations;
+    private int batchEvaluatedIndividuals;
+    private long timeSpentInBatchEval;
+    private long maxBatchEvalTime;
+    private long lastBatchEvalTime;
+    private int duplicateEvaluationsSkipped;
+    private int deferredEvaluations;
+    private int lazyEvaluations;
+    private int pendingEvaluations;
+    private int abortedEvaluations;
+    private double savedEvaluationWork;
+    private int timedOutEvaluations;
+    private int speculativeEvaluations;
+    private int speculativeWins;
+    private int screenedEvaluations;
+    private int screenedPredictions;
+    private long[] evaluationLatencyMedian;
+    private long[] evaluationLatencyP99;
+    private long[] evaluationLatencyMax;
     
     public double getMaxValue() {
         return maxValue;
@@ -70,6 +120,9 @@ public class Statistics extends LoggableStatistics {
         this.generationEndTimes = new long[generationLimit];
         this.fitnessEvalStageBegin = new long[generationLimit];
         this.fitnessEvalStageEnd = new long[generationLimit];
+        this.evaluationLatencyMedian = new long[generationLimit];
+        this.evaluationLatencyP99 = new long[generationLimit];
+        this.evaluationLatencyMax = new long[generationLimit];
         this.exceptionTerminated = false;
     }
 
@@ -156,6 +209,17 @@ public class Statistics extends LoggableStatistics {
         return this.exceptionTerminated;
     }
 
+    /**
+     * Returns the reason why the evolution stopped.
+     * <p>
+     *
+     * @return the termination reason, or null if the evolution is running
+     * @since 2.1
+     */
+    public final TerminationReason getTerminationReason() {
+        return this.terminationReason;
+    }
+
     /**
      * Returns the fitness evaluation number.
      * <p>
@@ -251,14 +315,154 @@ public class Statistics extends LoggableStatistics {
 
         stats.setTimeSpentInFitnessEval(this.getTimeSpentInFitnessEval());
         stats.setRandomSeed(this.getRandomSeed());
+        stats.setTerminationReason(this.getTerminationReason());
+        stats.batchEvaluations = this.batchEvaluations;
+        stats.batchEvaluatedIndividuals = this.batchEvaluatedIndividuals;
+        stats.timeSpentInBatchEval = this.timeSpentInBatchEval;
+        stats.maxBatchEvalTime = this.maxBatchEvalTime;
+        stats.lastBatchEvalTime = this.lastBatchEvalTime;
+        stats.duplicateEvaluationsSkipped = this.duplicateEvaluationsSkipped;
+        stats.deferredEvaluations = this.deferredEvaluations;
+        stats.lazyEvaluations = this.lazyEvaluations;
+        stats.pendingEvaluations = this.pendingEvaluations;
+        stats.abortedEvaluations = this.abortedEvaluations;
+        stats.savedEvaluationWork = this.savedEvaluationWork;
+        stats.timedOutEvaluations = this.timedOutEvaluations;
+        stats.speculativeEvaluations = this.speculativeEvaluations;
+        stats.speculativeWins = this.speculativeWins;
+        stats.screenedEvaluations = this.screenedEvaluations;
+        stats.screenedPredictions = this.screenedPredictions;
         for (int gen=0;gen<this.generations;gen++){
             stats.setFitnessEvalStageBegin(gen,this.getFitnessEvalStageBegin(gen));
             stats.setFitnessEvalStageEnd(gen,this.getFitnessEvalStageEnd(gen));
             stats.setGenerationEndTimes(gen,this.getGenerationEndTimes(gen));
+            stats.setEvaluationLatencies(gen, this.evaluationLatencyMedian[gen], this.evaluationLatencyP99[gen], this.evaluationLatencyMax[gen]);
         }
 
     }
 
+    /**
+     * Writes the statistics data to a binary output, e.g. for checkpointing the algorithm.
+     * Times are written relative to the starting time, which is written as the time
+     * elapsed until now, so that they can be rebased by the process reading them.
+     * <p>
+     *
+     * @param out the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+        out.writeLong(System.currentTimeMillis() - startTime);
+        out.writeLong(relative(stopTime));
+        out.writeLong(relative(initTime));
+        out.writeLong(executionTime);
+        out.writeLong(timeSpentInFitnessEval);
+        out.writeLong(randomSeed);
+        out.writeLong(timeSpentInBatchEval);
+        out.writeLong(maxBatchEvalTime);
+        out.writeLong(lastBatchEvalTime);
+        out.writeInt(generations);
+        out.writeInt(fitnessEvaluationNumbers);
+        out.writeInt(batchEvaluations);
+        out.writeInt(batchEvaluatedIndividuals);
+        out.writeInt(duplicateEvaluationsSkipped);
+        out.writeInt(deferredEvaluations);
+        out.writeInt(lazyEvaluations);
+        out.writeInt(pendingEvaluations);
+        out.writeInt(abortedEvaluations);
+        out.writeInt(timedOutEvaluations);
+        out.writeInt(speculativeEvaluations);
+        out.writeInt(speculativeWins);
+        out.writeInt(screenedEvaluations);
+        out.writeInt(screenedPredictions);
+        out.writeDouble(maxValue);
+        out.writeDouble(minValue);
+        out.writeDouble(averageValue);
+        out.writeDouble(savedEvaluationWork);
+        out.writeBoolean(exceptionTerminated);
+        final int n = Math.min(generations, generationEndTimes.length);
+        out.writeInt(n);
+        for (int gen = 0; gen < n; gen++) {
+            out.writeLong(relative(generationEndTimes[gen]));
+            out.writeLong(relative(fitnessEvalStageBegin[gen]));
+            out.writeLong(relative(fitnessEvalStageEnd[gen]));
+            out.writeLong(evaluationLatencyMedian[gen]);
+            out.writeLong(evaluationLatencyP99[gen]);
+            out.writeLong(evaluationLatencyMax[gen]);
+        }
+    }
+
+    /**
+     * Reads the statistics data written by {@link #writeTo(java.io.DataOutput)}.
+     * Times are rebased, so that the starting time precedes the current time by
+     * the elapsed time written, and the time spent while not running is not counted.
+     * Per-generation data exceeding the generation limit are ignored.
+     * <p>
+     *
+     * @param in the input to read from
+     * @throws IOException if an I/O error occurs
+     */
+    public void readFrom(final DataInput in) throws IOException {
+        startTime = System.currentTimeMillis() - in.readLong();
+        stopTime = absolute(in.readLong());
+        initTime = absolute(in.readLong());
+        executionTime = in.readLong();
+        timeSpentInFitnessEval = in.readLong();
+        randomSeed = in.readLong();
+        timeSpentInBatchEval = in.readLong();
+        maxBatchEvalTime = in.readLong();
+        lastBatchEvalTime = in.readLong();
+        generations = in.readInt();
+        fitnessEvaluationNumbers = in.readInt();
+        batchEvaluations = in.readInt();
+        batchEvaluatedIndividuals = in.readInt();
+        duplicateEvaluationsSkipped = in.readInt();
+        deferredEvaluations = in.readInt();
+        lazyEvaluations = in.readInt();
+        pendingEvaluations = in.readInt();
+        abortedEvaluations = in.readInt();
+        timedOutEvaluations = in.readInt();
+        speculativeEvaluations = in.readInt();
+        speculativeWins = in.readInt();
+        screenedEvaluations = in.readInt();
+        screenedPredictions = in.readInt();
+        maxValue = in.readDouble();
+        minValue = in.readDouble();
+        averageValue = in.readDouble();
+        savedEvaluationWork = in.readDouble();
+        exceptionTerminated = in.readBoolean();
+        final int n = in.readInt();
+        for (int gen = 0; gen < n; gen++) {
+            long end = in.readLong();
+            long begin = in.readLong();
+            long stop = in.readLong();
+            long median = in.readLong();
+            long p99 = in.readLong();
+            long max = in.readLong();
+            if (gen < generationLimit) {
+                generationEndTimes[gen] = absolute(end);
+                fitnessEvalStageBegin[gen] = absolute(begin);
+                fitnessEvalStageEnd[gen] = absolute(stop);
+                evaluationLatencyMedian[gen] = median;
+                evaluationLatencyP99[gen] = p99;
+                evaluationLatencyMax[gen] = max;
+            }
+        }
+    }
+
+    /**
+     * Returns a time relative to the starting time, or -1 if not set
+     */
+    private long relative(long time) {
+        return time == 0 ? -1 : time - startTime;
+    }
+
+    /**
+     * Returns the time given relative to the starting time, or 0 if not set
+     */
+    private long absolute(long time) {
+        return time < 0 ? 0 : startTime + time;
+    }
+
     public void setGenerations(int i) {
         generations=i;
     }
@@ -267,6 +471,10 @@ public class Statistics extends LoggableStatistics {
         exceptionTerminated = b;
     }
 
+    public void setTerminationReason(TerminationReason reason) {
+        terminationReason = reason;
+    }
+
     public void setGenerationEndTimes(int generation, long now) {
         getGenerationEndTimes()[generation]=now;
     }
@@ -351,9 +559,13 @@ public class Statistics extends LoggableStatistics {
         fitnessEvalStageBegin[generation]=now;
     }
 
-    public void incrementFitnessEvaluationNumbers() {
+    public synchronized void incrementFitnessEvaluationNumbers() {
         fitnessEvaluationNumbers++;
     }
+
+    public synchronized void addFitnessEvaluationNumbers(int n) {
+        fitnessEvaluationNumbers += n;
+    }
     public void decrementFitnessEvaluationNumbers() {
         fitnessEvaluationNumbers--;
     }
@@ -369,4 +581,312 @@ public class Statistics extends LoggableStatistics {
     private long getGenerationEndTimes(int gen) {
         return generationEndTimes[gen];
     }
+
+    /**
+     * Returns the number of batches handed to {@link jenes.population.Fitness#evaluateBatch(java.util.List)}.
+     * <p>
+     *
+     * @return the number of evaluated batches
+     */
+    public int getBatchEvaluations() {
+        return batchEvaluations;
+    }
+
+    /**
+     * Returns the overall number of individuals evaluated in batches.
+     * <p>
+     *
+     * @return the number of individuals evaluated in batches
+     */
+    public int getBatchEvaluatedIndividuals() {
+        return batchEvaluatedIndividuals;
+    }
+
+    /**
+     * Returns the time spent evaluating batches. When batches are evaluated
+     * concurrently the time of each batch is summed up.
+     * <p>
+     *
+     * @return the batch evaluation time expressed in nanoseconds
+     */
+    public long getTimeSpentInBatchEval() {
+        return timeSpentInBatchEval;
+    }
+
+    /**
+     * Returns the time spent by the slowest batch.
+     * <p>
+     *
+     * @return the longest batch evaluation time expressed in nanoseconds
+     */
+    public long getMaxBatchEvalTime() {
+        return maxBatchEvalTime;
+    }
+
+    /**
+     * Returns the time spent by the last evaluated batch.
+     * <p>
+     *
+     * @return the last batch evaluation time expressed in nanoseconds
+     */
+    public long getLastBatchEvalTime() {
+        return lastBatchEvalTime;
+    }
+
+    /**
+     * Returns the average time spent per batch.
+     * <p>
+     *
+     * @return the mean batch evaluation time expressed in nanoseconds
+     */
+    public double getAverageBatchEvalTime() {
+        return batchEvaluations > 0 ? (double) timeSpentInBatchEval / batchEvaluations : 0;
+    }
+
+    /**
+     * Returns the number of evaluations saved because the genome was a
+     * duplicate of another one in the same batch.
+     * <p>
+     *
+     * @return the number of skipped evaluations
+     */
+    public int getDuplicateEvaluationsSkipped() {
+        return duplicateEvaluationsSkipped;
+    }
+
+    /**
+     * Records the evaluation of a batch. It can be invoked concurrently by runners.
+     *
+     * @param size the number of individuals in the batch
+     * @param nanos the batch evaluation time expressed in nanoseconds
+     */
+    public synchronized void addBatchEvaluation(int size, long nanos) {
+        batchEvaluations++;
+        batchEvaluatedIndividuals += size;
+        timeSpentInBatchEval += nanos;
+        lastBatchEvalTime = nanos;
+        if (nanos > maxBatchEvalTime) {
+            maxBatchEvalTime = nanos;
+        }
+    }
+
+    public synchronized void addDuplicateEvaluationsSkipped(int n) {
+        duplicateEvaluationsSkipped += n;
+    }
+
+    /**
+     * Returns the number of evaluations deferred in lazy evaluation mode.
+     * <p>
+     *
+     * @return the number of deferred evaluations
+     */
+    public int getDeferredEvaluations() {
+        return deferredEvaluations;
+    }
+
+    /**
+     * Returns the number of deferred evaluations actually performed because
+     * the individual scores have been accessed.
+     * <p>
+     *
+     * @return the number of lazy evaluations
+     */
+    public int getLazyEvaluations() {
+        return lazyEvaluations;
+    }
+
+    /**
+     * Returns the number of individuals whose evaluation was still pending at
+     * the end of the last generation.
+     * <p>
+     *
+     * @return the number of pending evaluations
+     */
+    public int getPendingEvaluations() {
+        return pendingEvaluations;
+    }
+
+    public void incrementDeferredEvaluations() {
+        deferredEvaluations++;
+    }
+
+    public void incrementLazyEvaluations() {
+        lazyEvaluations++;
+    }
+
+    public void setPendingEvaluations(int n) {
+        pendingEvaluations = n;
+    }
+
+    /**
+     * Returns the number of evaluations aborted because their partial score
+     * exceeded the racing cutoff.
+     * <p>
+     *
+     * @return the number of aborted evaluations
+     */
+    public int getAbortedEvaluations() {
+        return abortedEvaluations;
+    }
+
+    /**
+     * Returns the evaluation work saved by aborted evaluations.
+     * <p>
+     *
+     * @return the saved work expressed in number of full evaluations
+     */
+    public double getSavedEvaluationWork() {
+        return savedEvaluationWork;
+    }
+
+    public void addAbortedEvaluations(int n, double saved) {
+        abortedEvaluations += n;
+        savedEvaluationWork += saved;
+    }
+
+    /**
+     * Returns the number of evaluations terminated by timeout.
+     * <p>
+     *
+     * @return the number of timed out evaluations
+     */
+    public int getTimedOutEvaluations() {
+        return timedOutEvaluations;
+    }
+
+    /**
+     * Returns the number of speculative re-executions of straggling evaluations.
+     * <p>
+     *
+     * @return the number of speculative evaluations
+     */
+    public int getSpeculativeEvaluations() {
+        return speculativeEvaluations;
+    }
+
+    /**
+     * Returns the number of speculative re-executions completed before the
+     * original evaluation.
+     * <p>
+     *
+     * @return the number of speculative wins
+     */
+    public int getSpeculativeWins() {
+        return speculativeWins;
+    }
+
+    /**
+     * Returns the number of individuals left to the fitness by the surrogate screening.
+     * <p>
+     *
+     * @return the number of screened evaluations
+     */
+    public int getScreenedEvaluations() {
+        return screenedEvaluations;
+    }
+
+    /**
+     * Returns the number of individuals whose score has been predicted by the 
+     * surrogate screening instead of being evaluated.
+     * <p>
+     *
+     * @return the number of screened predictions
+     */
+    public int getScreenedPredictions() {
+        return screenedPredictions;
+    }
+
+    /**
+     * Returns the median latency of evaluation tasks in the last generation.
+     * <p>
+     *
+     * @return the median latency expressed in nanoseconds
+     */
+    public long getEvaluationLatencyMedian() {
+        int last = this.getGenerations() - 1;
+        return last >= 0 ? this.evaluationLatencyMedian[last] : -1;
+    }
+
+    /**
+     * Returns the median latency of evaluation tasks in the given generation.
+     * <p>
+     *
+     * @param the generation to query for starting from <tt>1</tt>
+     *
+     * @return the median latency expressed in nanoseconds
+     */
+    public long getEvaluationLatencyMedian(int gen) {
+        return this.evaluationLatencyMedian[gen - 1];
+    }
+
+    /**
+     * Returns the 99th percentile of evaluation task latencies in the last generation.
+     * <p>
+     *
+     * @return the 99th percentile latency expressed in nanoseconds
+     */
+    public long getEvaluationLatencyP99() {
+        int last = this.getGenerations() - 1;
+        return last >= 0 ? this.evaluationLatencyP99[last] : -1;
+    }
+
+    /**
+     * Returns the 99th percentile of evaluation task latencies in the given generation.
+     * <p>
+     *
+     * @param the generation to query for starting from <tt>1</tt>
+     *
+     * @return the 99th percentile latency expressed in nanoseconds
+     */
+    public long getEvaluationLatencyP99(int gen) {
+        return this.evaluationLatencyP99[gen - 1];
+    }
+
+    /**
+     * Returns the maximum latency of evaluation tasks in the last generation.
+     * <p>
+     *
+     * @return the maximum latency expressed in nanoseconds
+     */
+    public long getEvaluationLatencyMax() {
+        int last = this.getGenerations() - 1;
+        return last >= 0 ? this.evaluationLatencyMax[last] : -1;
+    }
+
+    /**
+     * Returns the maximum latency of evaluation tasks in the given generation.
+     * <p>
+     *
+     * @param the generation to query for starting from <tt>1</tt>
+     *
+     * @return the maximum latency expressed in nanoseconds
+     */
+    public long getEvaluationLatencyMax(int gen) {
+        return this.evaluationLatencyMax[gen - 1];
+    }
+
+    public void addTimedOutEvaluations(int n) {
+        timedOutEvaluations += n;
+    }
+
+    public void incrementSpeculativeEvaluations() {
+        speculativeEvaluations++;
+    }
+
+    public void incrementSpeculativeWins() {
+        speculativeWins++;
+    }
+
+    public void addScreening(int evaluations, int predictions) {
+        screenedEvaluations += evaluations;
+        screenedPredictions += predictions;
+    }
+
+    public void setEvaluationLatencies(int generation, long median, long p99, long max) {
+        if (generation < evaluationLatencyMedian.length) {
+            evaluationLatencyMedian[generation] = median;
+            evaluationLatencyP99[generation] = p99;
+            evaluationLatencyMax[generation] = max;
+        }
+    }
 }
\ No newline at end of file
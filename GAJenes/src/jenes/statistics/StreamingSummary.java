@@ -0,0 +1,374 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jenes.statistics;
+
+import java.util.Arrays;
+
+/**
+ * A summary of a stream of values computed in constant memory. Mean and variance
+ * are updated by the Welford method, while quantiles are estimated by the P&sup2;
+ * algorithm of Jain and Chlamtac, keeping five markers per tracked probability.
+ * Quantiles are exact up to five values. NaN values are ignored.
+ * <p>
+ * Confidence intervals of the mean are based on the Student t distribution, thus
+ * assuming the values are independent and roughly normal, as the results of
+ * independent runs of an algorithm usually are.
+ * <p>
+ * A summary is not thread safe: concurrent updates must be synchronized by the caller.
+ *
+ * @version 2.1
+ * @since 2.1
+ */
+public final class StreamingSummary {
+
+    /** The probabilities tracked by default */
+    public static final double[] DEFAULT_PROBABILITIES = {0.05, 0.25, 0.5, 0.75, 0.95};
+    private final double[] probabilities;
+    private final Quantile[] quantiles;
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * Builds a summary tracking the {@link #DEFAULT_PROBABILITIES}
+     */
+    public StreamingSummary() {
+        this(DEFAULT_PROBABILITIES);
+    }
+
+    /**
+     * Builds a summary tracking the quantiles of the given probabilities
+     *
+     * @param probabilities the probabilities, each between 0 and 1
+     */
+    public StreamingSummary(double... probabilities) {
+        this.probabilities = probabilities.clone();
+        this.quantiles = new Quantile[probabilities.length];
+        for (int i = 0; i < probabilities.length; ++i) {
+            if (!(probabilities[i] >= 0 && probabilities[i] <= 1)) {
+                throw new IllegalArgumentException("[Jenes]: quantile probabilities must be between 0 and 1");
+            }
+            this.quantiles[i] = new Quantile(probabilities[i]);
+        }
+    }
+
+    /**
+     * Adds a value to the summary
+     *
+     * @param value the value, ignored if NaN
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        this.count++;
+        final double delta = value - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (value - this.mean);
+        if (this.count == 1 || value < this.min) {
+            this.min = value;
+        }
+        if (this.count == 1 || value > this.max) {
+            this.max = value;
+        }
+        for (Quantile q : this.quantiles) {
+            q.add(value);
+        }
+    }
+
+    /**
+     * Returns the number of values added
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the mean of the values
+     *
+     * @return the mean, NaN if empty
+     */
+    public double getMean() {
+        return this.count > 0 ? this.mean : Double.NaN;
+    }
+
+    /**
+     * Returns the sample variance of the values
+     *
+     * @return the variance, NaN with less than two values
+     */
+    public double getVariance() {
+        return this.count > 1 ? this.m2 / (this.count - 1) : Double.NaN;
+    }
+
+    /**
+     * Returns the sample standard deviation of the values
+     *
+     * @return the standard deviation, NaN with less than two values
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(this.getVariance());
+    }
+
+    /**
+     * Returns the standard error of the mean
+     *
+     * @return the standard error, NaN with less than two values
+     */
+    public double getStandardError() {
+        return Math.sqrt(this.getVariance() / this.count);
+    }
+
+    /**
+     * Returns the minimum value
+     *
+     * @return the minimum, NaN if empty
+     */
+    public double getMin() {
+        return this.min;
+    }
+
+    /**
+     * Returns the maximum value
+     *
+     * @return the maximum, NaN if empty
+     */
+    public double getMax() {
+        return this.max;
+    }
+
+    /**
+     * Returns the half width of the confidence interval of the mean
+     *
+     * @param level the confidence level, such as 0.95
+     * @return the half width, NaN with less than two values
+     */
+    public double getConfidenceHalfWidth(double level) {
+        if (!(level > 0 && level < 1)) {
+            throw new IllegalArgumentException("[Jenes]: the confidence level must be between 0 and 1");
+        }
+        if (this.count < 2) {
+            return Double.NaN;
+        }
+        return studentQuantile((1 + level) / 2, this.count - 1) * this.getStandardError();
+    }
+
+    /**
+     * Returns the lower bound of the confidence interval of the mean
+     *
+     * @param level the confidence level, such as 0.95
+     * @return the lower bound, NaN with less than two values
+     */
+    public double getLowerBound(double level) {
+        return this.getMean() - this.getConfidenceHalfWidth(level);
+    }
+
+    /**
+     * Returns the upper bound of the confidence interval of the mean
+     *
+     * @param level the confidence level, such as 0.95
+     * @return the upper bound, NaN with less than two values
+     */
+    public double getUpperBound(double level) {
+        return this.getMean() + this.getConfidenceHalfWidth(level);
+    }
+
+    /**
+     * Returns the probabilities of the tracked quantiles
+     *
+     * @return a copy of the probabilities
+     */
+    public double[] getProbabilities() {
+        return this.probabilities.clone();
+    }
+
+    /**
+     * Returns the estimate of a tracked quantile
+     *
+     * @param probability one of the tracked probabilities
+     * @return the quantile, NaN if empty
+     */
+    public double getQuantile(double probability) {
+        for (Quantile q : this.quantiles) {
+            if (q.p == probability) {
+                return q.get();
+            }
+        }
+        throw new IllegalArgumentException("[Jenes]: the quantile " + probability + " is not tracked");
+    }
+
+    /**
+     * Returns the estimate of the median, if tracked
+     *
+     * @return the median, NaN if empty
+     */
+    public double getMedian() {
+        return this.getQuantile(0.5);
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + this.count + " mean=" + this.getMean() + " sd=" + this.getStandardDeviation()
+                + " min=" + this.min + " max=" + this.max;
+    }
+
+    /**
+     * Returns the quantile of the Student t distribution, by the Cornish-Fisher
+     * expansion of the normal quantile; exact for one and two degrees of freedom
+     *
+     * @param p the probability, between 0 and 1 excluded
+     * @param dof the degrees of freedom, positive
+     * @return the quantile
+     */
+    public static double studentQuantile(double p, long dof) {
+        if (dof == 1) {
+            return Math.tan(Math.PI * (p - 0.5));
+        }
+        if (dof == 2) {
+            return (2 * p - 1) * Math.sqrt(2 / (4 * p * (1 - p)));
+        }
+        final double z = normalQuantile(p);
+        final double z2 = z * z;
+        final double v = dof;
+        final double g1 = (z2 + 1) * z / 4;
+        final double g2 = ((5 * z2 + 16) * z2 + 3) * z / 96;
+        final double g3 = (((3 * z2 + 19) * z2 + 17) * z2 - 15) * z / 384;
+        final double g4 = ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) * z / 92160;
+        return z + g1 / v + g2 / (v * v) + g3 / (v * v * v) + g4 / (v * v * v * v);
+    }
+
+    /**
+     * Returns the quantile of the standard normal distribution, by the rational
+     * approximation of Acklam (relative error below 1.2e-9)
+     *
+     * @param p the probability, between 0 and 1 excluded
+     * @return the quantile
+     */
+    public static double normalQuantile(double p) {
+        final double plow = 0.02425;
+        if (p < plow) {
+            final double q = Math.sqrt(-2 * Math.log(p));
+            return (((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q
+                    - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00)
+                    / ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q
+                    + 3.754408661907416e+00) * q + 1);
+        }
+        if (p > 1 - plow) {
+            return -normalQuantile(1 - p);
+        }
+        final double q = p - 0.5;
+        final double r = q * q;
+        return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r
+                + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+                / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r
+                + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+    }
+
+    /**
+     * The P&sup2; estimator of a quantile
+     */
+    private static final class Quantile {
+
+        private final double p;
+        /** Marker heights */
+        private final double[] q = new double[5];
+        /** Marker positions, 1-based */
+        private final int[] n = {1, 2, 3, 4, 5};
+        /** Desired marker positions */
+        private final double[] desired;
+        private final double[] increments;
+        private int count;
+
+        private Quantile(double p) {
+            this.p = p;
+            this.desired = new double[]{1, 1 + 2 * p, 1 + 4 * p, 3 + 2 * p, 5};
+            this.increments = new double[]{0, p / 2, p, (1 + p) / 2, 1};
+        }
+
+        private void add(double x) {
+            if (this.count < 5) {
+                this.q[this.count++] = x;
+                if (this.count == 5) {
+                    Arrays.sort(this.q);
+                }
+                return;
+            }
+            this.count++;
+            int k;
+            if (x < this.q[0]) {
+                this.q[0] = x;
+                k = 0;
+            } else if (x >= this.q[4]) {
+                this.q[4] = x;
+                k = 3;
+            } else {
+                k = 0;
+                while (x >= this.q[k + 1]) {
+                    k++;
+                }
+            }
+            for (int i = k + 1; i < 5; ++i) {
+                this.n[i]++;
+            }
+            for (int i = 0; i < 5; ++i) {
+                this.desired[i] += this.increments[i];
+            }
+            for (int i = 1; i < 4; ++i) {
+                final double d = this.desired[i] - this.n[i];
+                if ((d >= 1 && this.n[i + 1] - this.n[i] > 1) || (d <= -1 && this.n[i - 1] - this.n[i] < -1)) {
+                    final int s = d > 0 ? 1 : -1;
+                    final double candidate = this.parabolic(i, s);
+                    if (this.q[i - 1] < candidate && candidate < this.q[i + 1]) {
+                        this.q[i] = candidate;
+                    } else {
+                        this.q[i] += s * (this.q[i + s] - this.q[i]) / (this.n[i + s] - this.n[i]);
+                    }
+                    this.n[i] += s;
+                }
+            }
+        }
+
+        private double parabolic(int i, int s) {
+            final double left = this.n[i] - this.n[i - 1];
+            final double right = this.n[i + 1] - this.n[i];
+            return this.q[i] + s / (double) (this.n[i + 1] - this.n[i - 1])
+                    * ((left + s) * (this.q[i + 1] - this.q[i]) / right
+                    + (right - s) * (this.q[i] - this.q[i - 1]) / left);
+        }
+
+        private double get() {
+            if (this.count == 0) {
+                return Double.NaN;
+            }
+            if (this.count > 5) {
+                return this.q[2];
+            }
+            final double[] sorted = Arrays.copyOf(this.q, this.count);
+            Arrays.sort(sorted);
+            final double h = this.p * (this.count - 1);
+            final int lo = (int) Math.floor(h);
+            final int hi = Math.min(lo + 1, this.count - 1);
+            return sorted[lo] + (h - lo) * (sorted[hi] - sorted[lo]);
+        }
+    }
+}
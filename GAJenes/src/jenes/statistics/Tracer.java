@@ -0,0 +1,167 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.statistics;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenes.GeneticAlgorithm;
+import jenes.population.Individual;
+import jenes.stage.AbstractStage;
+import jenes.stage.operator.Operator;
+
+/**
+ * A <code>Tracer</code> receives an event for each generation, stage processing, 
+ * fitness evaluation and island migration of a {@link GeneticAlgorithm}, so that the 
+ * activity of the algorithm can be correlated with profiles of the virtual machine
+ * (garbage collections, compilations, lock contention).
+ * <p>
+ * Events carry their duration in nanoseconds and the context they occurred in. 
+ * Implementations forward them to a profiler or an event log; they have to be 
+ * thread-safe, as evaluations may be reported by the threads of a 
+ * {@link jenes.utils.multitasking.Runner}. All methods do nothing by default.
+ * <p>
+ * A tracer is attached to an algorithm by {@link GeneticAlgorithm#setTracer(jenes.statistics.Tracer)}.
+ * Algorithms are created with the default tracer, which is set by the system property
+ * <code>jenes.tracer</code> with the name of a tracer class having an empty constructor,
+ * or with <code>log</code> for the {@link Tracer.Log} tracer: this way, a production 
+ * run can be traced without code changes. When no tracer is attached, no event is 
+ * created and no time is measured.
+ * 
+ * @version 2.1
+ * @since 2.1
+ */
+public abstract class Tracer {
+
+    /** The system property naming the default tracer */
+    public static final String PROPERTY = "jenes.tracer";
+    private static final Logger log = Logger.getLogger(Tracer.class.getName());
+    private static final Tracer DEFAULT = create(System.getProperty(PROPERTY));
+
+    /**
+     * Returns the default tracer, as set by the system property {@link #PROPERTY}.
+     * 
+     * @return the default tracer, or null if no tracer is set
+     */
+    public static Tracer getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates the tracer named by the system property
+     */
+    private static Tracer create(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        if ("log".equals(name.trim())) {
+            return new Log();
+        }
+        try {
+            return (Tracer) Class.forName(name.trim()).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            log.log(Level.WARNING, "[Jenes]: cannot create the tracer " + name, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Invoked at the end of each generation.
+     * 
+     * @param ga the algorithm
+     * @param generation the generation
+     * @param size the population size
+     * @param duration the generation duration in nanoseconds
+     */
+    public void onGeneration(GeneticAlgorithm<?> ga, int generation, int size, long duration) {
+    }
+
+    /**
+     * Invoked each time a stage within a {@link jenes.stage.Sequence} or a 
+     * {@link jenes.stage.Parallel} has processed a population.
+     * 
+     * @param ga the algorithm
+     * @param stage the stage
+     * @param size the size of the output population
+     * @param duration the processing duration in nanoseconds
+     * @param statistics the statistics of the stage if an {@link Operator}, null otherwise
+     */
+    public void onStage(GeneticAlgorithm<?> ga, AbstractStage<?> stage, int size, long duration, Operator<?>.Statistics statistics) {
+    }
+
+    /**
+     * Invoked each time an individual has been evaluated, either by the algorithm
+     * or by its runner.
+     * 
+     * @param ga the algorithm
+     * @param individual the individual
+     * @param duration the evaluation duration in nanoseconds
+     */
+    public void onEvaluation(GeneticAlgorithm<?> ga, Individual<?> individual, long duration) {
+    }
+
+    /**
+     * Invoked each time individuals migrate between two islands.
+     * 
+     * @param ga the algorithm
+     * @param source the source island
+     * @param target the target island
+     * @param count the number of migrants
+     */
+    public void onMigration(GeneticAlgorithm<?> ga, int source, int target, int count) {
+    }
+
+    /**
+     * A tracer writing events to the <code>jenes.trace</code> logger at level 
+     * <code>FINE</code> (evaluations at <code>FINEST</code>), one line per event with its wall-clock time in milliseconds,
+     * so that it can be aligned with garbage collector and profiler logs.
+     */
+    public static class Log extends Tracer {
+
+        private static final Logger trace = Logger.getLogger("jenes.trace");
+
+        @Override
+        public void onGeneration(GeneticAlgorithm<?> ga, int generation, int size, long duration) {
+            if (trace.isLoggable(Level.FINE)) {
+                trace.fine(System.currentTimeMillis() + " generation " + generation + " size=" + size + " ns=" + duration);
+            }
+        }
+
+        @Override
+        public void onStage(GeneticAlgorithm<?> ga, AbstractStage<?> stage, int size, long duration, Operator<?>.Statistics statistics) {
+            if (trace.isLoggable(Level.FINE)) {
+                trace.fine(System.currentTimeMillis() + " stage " + ga.getGeneration() + " " + stage.getClass().getSimpleName() 
+                        + " size=" + size + " ns=" + duration);
+            }
+        }
+
+        @Override
+        public void onEvaluation(GeneticAlgorithm<?> ga, Individual<?> individual, long duration) {
+            if (trace.isLoggable(Level.FINEST)) {
+                trace.finest(System.currentTimeMillis() + " evaluation " + ga.getGeneration() + " ns=" + duration);
+            }
+        }
+
+        @Override
+        public void onMigration(GeneticAlgorithm<?> ga, int source, int target, int count) {
+            if (trace.isLoggable(Level.FINE)) {
+                trace.fine(System.currentTimeMillis() + " migration " + ga.getGeneration() + " " + source + "->" + target + " n=" + count);
+            }
+        }
+    }
+}
@@ -175,8 +175,7 @@ public class ImageMatchingFitness extends Fitness<BitwiseChromosome> {
         graphics.drawImage(this.source, affine, null);
 
         //evaluate distance from image and target
-        double distance = this.calcDistance(image);
-        individual.setScore(distance);
+        this.calcDistance(individual, image);
 
         graphics.dispose();
     }
@@ -248,26 +247,29 @@ public class ImageMatchingFitness extends Fitness<BitwiseChromosome> {
 
     /**
      * This method calculates the distance between the signatures of an image and
-     * the reference one. The signatures for the image passed as the parameter are
-     * calculated inside the method.
+     * the reference one, and assigns it as score of the individual. The signatures 
+     * for the image passed as the parameter are calculated inside the method. When
+     * the partial distance exceeds the cutoff, the evaluation is aborted.
      */
-    private double calcDistance(BufferedImage other) {
-        // Calculate the signature for that image.
-        Color[][] sigOther = calcSignature(other, false);
+    private void calcDistance(Individual<BitwiseChromosome> individual, BufferedImage other) {
         // There are several ways to calculate distances between two vectors,
         // we will calculate the sum of the distances between the RGB values of
         // pixels in the same positions.
+        // The signature of the other image is computed sample by sample, so that
+        // the evaluation can stop as soon as the distance exceeds the cutoff.
+        float[] prop = new float[]{1f / 10f, 3f / 10f, 5f / 10f, 7f / 10f, 9f / 10f};
         double dist = 0;
         int n = this.nSamples;
         for (int x = 0; x < n; x++) {
             for (int y = 0; y < n; y++) {
+                Color other_xy = this.averageAround(other, prop[x], prop[y], false);
                 int r1 = signature[x][y].getRed();
                 int g1 = signature[x][y].getGreen();
                 int b1 = signature[x][y].getBlue();
 
-                int r2 = sigOther[x][y].getRed();
-                int g2 = sigOther[x][y].getGreen();
-                int b2 = sigOther[x][y].getBlue();
+                int r2 = other_xy.getRed();
+                int g2 = other_xy.getGreen();
+                int b2 = other_xy.getBlue();
 
                 double tempDist = Math.sqrt(
                         (r1 - r2) * (r1 - r2)
@@ -275,8 +277,12 @@ public class ImageMatchingFitness extends Fitness<BitwiseChromosome> {
                         + (b1 - b2) * (b1 - b2));
                 dist += tempDist;
             }
+            if (x < n - 1 && this.exceedsCutoff(dist)) {
+                this.abortEvaluation(individual, (double) (x + 1) / n);
+                return;
+            }
         }
-        return dist;
+        individual.setScore(dist);
     }
 
     @Override
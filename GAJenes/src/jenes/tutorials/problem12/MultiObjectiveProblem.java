@@ -135,7 +135,7 @@ public class MultiObjectiveProblem {
         final double[][] bounds = f.bounds;
 
         for (int i = 0; i < nvars; ++i) {
-            int tau = (Integer) chrom.getValueAt(i);
+            int tau = chrom.decodeInt(i);
             double sigma = (double) tau / res;
             x[i] = sigma * (bounds[i][1] - bounds[i][0]) + bounds[i][0];
         }
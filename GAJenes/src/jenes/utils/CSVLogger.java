@@ -114,11 +114,15 @@ public class CSVLogger extends AbstractLogger {
             if(this.header) this.writeHeader();
             this.started = true;
         }
+        // an empty record is a save following log(): there is nothing to store
+        if( record.isEmpty() ) return;
 
+        // values follow the schema order, as the header does
         String line = "";
         boolean first = true;
-        for( String key : record.keySet()  ) {
-            line += (first ? "\"" : "\""+separator+"\"") + record.get(key);
+        for( String key : schema ) {
+            Object value = record.get(key);
+            line += (first ? "\"" : "\""+separator+"\"") + (value != null ? value : "");
             first = false;
         }
 
@@ -1,4 +1,7 @@
 package jenes.utils;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -177,6 +180,37 @@ public class MersenneTwisterFast implements Serializable {
         return this.seed;
     }
     
+    /**
+     * Writes the full generator state, so that the sequence of values can be
+     * resumed exactly by {@link #readState(java.io.DataInput)}.
+     *
+     * @param stream the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeState(final DataOutput stream) throws IOException {
+        stream.writeLong(seed);
+        for (int x = 0; x < mt.length; x++) stream.writeInt(mt[x]);
+        for (int x = 0; x < mag01.length; x++) stream.writeInt(mag01[x]);
+        stream.writeInt(mti);
+        stream.writeDouble(nextNextGaussian);
+        stream.writeBoolean(haveNextNextGaussian);
+    }
+    
+    /**
+     * Reads the generator state written by {@link #writeState(java.io.DataOutput)}.
+     *
+     * @param stream the input to read from
+     * @throws IOException if an I/O error occurs
+     */
+    public void readState(final DataInput stream) throws IOException {
+        seed = stream.readLong();
+        for (int x = 0; x < mt.length; x++) mt[x] = stream.readInt();
+        for (int x = 0; x < mag01.length; x++) mag01[x] = stream.readInt();
+        mti = stream.readInt();
+        nextNextGaussian = stream.readDouble();
+        haveNextNextGaussian = stream.readBoolean();
+    }
+    
     public final int nextInt() {
         int y;
         
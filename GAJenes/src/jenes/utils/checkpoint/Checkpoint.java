@@ -0,0 +1,489 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.checkpoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import jenes.chromosome.AlleleSet;
+import jenes.chromosome.BitwiseChromosome;
+import jenes.chromosome.BooleanChromosome;
+import jenes.chromosome.Chromosome;
+import jenes.chromosome.DoubleChromosome;
+import jenes.chromosome.IntegerChromosome;
+import jenes.chromosome.ObjectChromosome;
+import jenes.chromosome.PermutationChromosome;
+import jenes.population.Individual;
+
+/**
+ * A <code>Checkpoint</code> is a frozen binary image of a running {@link jenes.GeneticAlgorithm}.
+ * It is captured by {@link jenes.GeneticAlgorithm#checkpoint(jenes.utils.checkpoint.Checkpoint)}
+ * between two generations, and it can be written to file by a different thread, as it
+ * does not refer to the algorithm state. A checkpoint read from file is memory-mapped and 
+ * decoded by {@link jenes.GeneticAlgorithm#resume(jenes.utils.checkpoint.Checkpoint)}.
+ * <p>
+ * Individuals are stored in a compact format, that is their flags, their scores and
+ * their chromosome encoded by the {@link ChromosomeCodec} registered for its type.
+ * The image is held by a direct buffer, which is reused by subsequent captures when 
+ * large enough.
+ * <p>
+ * Files are written to a temporary file first, and then moved to the target path, so 
+ * that a crash during writing does not corrupt the last valid checkpoint.
+ * 
+ * @version 2.1
+ * @since 2.1
+ */
+public final class Checkpoint {
+
+    /** The file signature */
+    public static final int MAGIC = 0x4A4E4350;
+    /** The format version */
+    public static final int VERSION = 1;
+    /** The size of header, that is signature, version and generation */
+    public static final int HEADER_SIZE = 12;
+
+    /** Individual record flag: evaluated */
+    public static final byte EVALUATED = 1;
+    /** Individual record flag: legal */
+    public static final byte LEGAL = 2;
+    /** Individual record flag: predicted */
+    public static final byte PREDICTED = 4;
+    /** The offset of scores within an individual record, following flags, speciem and number of objectives */
+    public static final int SCORES_OFFSET = 9;
+
+    /** The registered codecs */
+    private static final ConcurrentHashMap<Class<?>, ChromosomeCodec<?>> codecs = new ConcurrentHashMap<Class<?>, ChromosomeCodec<?>>();
+
+    static {
+        register(BooleanChromosome.class, new BooleanCodec());
+        register(DoubleChromosome.class, new DoubleCodec());
+        register(IntegerChromosome.class, new IntegerCodec());
+        register(PermutationChromosome.class, new PermutationCodec());
+        register(BitwiseChromosome.class, new BitwiseCodec());
+        register(ObjectChromosome.class, new ObjectCodec());
+    }
+
+    /** The binary image */
+    private ByteBuffer buffer = null;
+    /** The image size in bytes */
+    private int size = 0;
+    /** The generation the algorithm resumes from */
+    private int generation = 0;
+
+    /**
+     * Registers the codec of a chromosome type.
+     * 
+     * @param type the chromosome class
+     * @param codec the codec
+     */
+    public static <T extends Chromosome> void register(Class<T> type, ChromosomeCodec<T> codec) {
+        codecs.put(type, codec);
+    }
+
+    /**
+     * Returns the codec of a chromosome type.
+     * 
+     * @param type the chromosome class
+     * @return the codec
+     * @throws IllegalArgumentException if no codec is registered for the type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Chromosome> ChromosomeCodec<T> getCodec(Class<T> type) {
+        ChromosomeCodec<T> codec = (ChromosomeCodec<T>) codecs.get(type);
+        if (codec == null) {
+            throw new IllegalArgumentException("[Jenes]: no checkpoint codec registered for " + type.getName());
+        }
+        return codec;
+    }
+
+    /**
+     * Returns the generation the algorithm resumes from.
+     * 
+     * @return the generation
+     */
+    public int getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Returns the image size.
+     * 
+     * @return the size in bytes
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Prepares the image for a new capture, writing the header. The buffer is 
+     * reallocated only if smaller than required.
+     * 
+     * @param size the image size in bytes, header included
+     * @param generation the generation the algorithm resumes from
+     * @return the buffer to write the image to, positioned after the header
+     */
+    public ByteBuffer begin(int size, int generation) {
+        if (this.buffer == null || this.buffer.capacity() < size) {
+            this.buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.size = size;
+        this.generation = generation;
+
+        this.buffer.clear();
+        this.buffer.limit(size);
+        this.buffer.putInt(MAGIC);
+        this.buffer.putInt(VERSION);
+        this.buffer.putInt(generation);
+        return this.buffer;
+    }
+
+    /**
+     * Returns a view of the image, positioned after the header.
+     * 
+     * @return the buffer to read the image from
+     */
+    public ByteBuffer getBuffer() {
+        ByteBuffer b = this.buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        b.limit(this.size);
+        b.position(HEADER_SIZE);
+        return b;
+    }
+
+    /**
+     * Writes the image to file through a {@link FileChannel}. The file is forced 
+     * to the storage before replacing the previous one.
+     * 
+     * @param path the file path
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer b = this.buffer.duplicate();
+            b.position(0);
+            b.limit(this.size);
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a checkpoint by memory-mapping the file.
+     * 
+     * @param path the file path
+     * @return the checkpoint
+     * @throws IOException if an I/O error occurs or the file is not a checkpoint
+     */
+    public static Checkpoint read(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("[Jenes]: " + path + " is not a valid checkpoint");
+            }
+            Checkpoint cp = new Checkpoint();
+            cp.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+            cp.size = (int) length;
+            if (cp.buffer.getInt(0) != MAGIC) {
+                throw new IOException("[Jenes]: " + path + " is not a valid checkpoint");
+            }
+            if (cp.buffer.getInt(4) != VERSION) {
+                throw new IOException("[Jenes]: unsupported checkpoint version " + cp.buffer.getInt(4));
+            }
+            cp.generation = cp.buffer.getInt(8);
+            return cp;
+        } finally {
+            //the mapping remains valid after the channel is closed
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the number of bytes required to encode an individual.
+     * 
+     * @param individual the individual to encode
+     * @param codec the chromosome codec
+     * @return the encoding size in bytes
+     */
+    public static <T extends Chromosome> int sizeOf(Individual<T> individual, ChromosomeCodec<T> codec) {
+        return SCORES_OFFSET + 8 * individual.getNumOfObjectives() + codec.size(individual.getChromosome());
+    }
+
+    /**
+     * Encodes an individual at the current position of the buffer. Individuals
+     * waiting for a lazy evaluation are encoded as not evaluated.
+     * 
+     * @param individual the individual to encode
+     * @param codec the chromosome codec
+     * @param buffer the buffer to write to
+     */
+    public static <T extends Chromosome> void encode(Individual<T> individual, ChromosomeCodec<T> codec, ByteBuffer buffer) {
+        //pending lazy evaluations are not forced, they will be deferred again on resume
+        final boolean pending = individual.isEvaluationPending();
+        byte flags = 0;
+        if (individual.isEvaluated() && !pending) {
+            flags |= EVALUATED;
+        }
+        if (individual.isLegal()) {
+            flags |= LEGAL;
+        }
+        if (individual.isPredicted()) {
+            flags |= PREDICTED;
+        }
+        buffer.put(flags);
+        buffer.putInt(individual.getSpeciem());
+
+        final int m = individual.getNumOfObjectives();
+        buffer.putInt(m);
+        for (int i = 0; i < m; ++i) {
+            buffer.putDouble(pending ? Double.NaN : individual.getScore(i));
+        }
+        codec.encode(individual.getChromosome(), buffer);
+    }
+
+    /**
+     * Decodes an individual from the current position of the buffer. The cached
+     * phenotype and fingerprint of the individual are invalidated.
+     * 
+     * @param individual the individual to set, holding a chromosome of the proper type
+     * @param codec the chromosome codec
+     * @param buffer the buffer to read from
+     */
+    public static <T extends Chromosome> void decode(Individual<T> individual, ChromosomeCodec<T> codec, ByteBuffer buffer) {
+        final byte flags = buffer.get();
+        individual.setSpeciem(buffer.getInt());
+
+        final int m = buffer.getInt();
+        double[] scores = new double[m];
+        for (int i = 0; i < m; ++i) {
+            scores[i] = buffer.getDouble();
+        }
+        if ((flags & PREDICTED) != 0) {
+            individual.setPredictedScore(scores);
+        } else if ((flags & EVALUATED) != 0) {
+            individual.setScore(scores);
+        } else {
+            individual.resetScores(m);
+            individual.setNotEvaluated();
+        }
+        individual.setLegal((flags & LEGAL) != 0);
+
+        codec.decode(individual.getChromosome(), buffer);
+        //the chromosome has been overwritten in place, keeping the decoded scores
+        individual.invalidatePhenotype();
+    }
+
+    private static void checkLength(Chromosome chromosome, int length) {
+        if (chromosome.length() != length) {
+            throw new IllegalStateException("[Jenes]: checkpoint chromosome length " + length + " does not match " + chromosome.length());
+        }
+    }
+
+    private static final class BooleanCodec implements ChromosomeCodec<BooleanChromosome> {
+
+        public int size(BooleanChromosome chromosome) {
+            return 4 + (chromosome.length() + 7) / 8;
+        }
+
+        public void encode(BooleanChromosome chromosome, ByteBuffer buffer) {
+            final int n = chromosome.length();
+            buffer.putInt(n);
+            for (int i = 0; i < n; i += 8) {
+                int b = 0;
+                for (int j = 0; j < 8 && i + j < n; ++j) {
+                    if (chromosome.getValue(i + j)) {
+                        b |= 1 << j;
+                    }
+                }
+                buffer.put((byte) b);
+            }
+        }
+
+        public void decode(BooleanChromosome chromosome, ByteBuffer buffer) {
+            final int n = buffer.getInt();
+            checkLength(chromosome, n);
+            for (int i = 0; i < n; i += 8) {
+                int b = buffer.get();
+                for (int j = 0; j < 8 && i + j < n; ++j) {
+                    chromosome.setValue(i + j, (b & (1 << j)) != 0);
+                }
+            }
+        }
+    }
+
+    private static final class DoubleCodec implements ChromosomeCodec<DoubleChromosome> {
+
+        public int size(DoubleChromosome chromosome) {
+            return 4 + 8 * chromosome.length();
+        }
+
+        public void encode(DoubleChromosome chromosome, ByteBuffer buffer) {
+            final int n = chromosome.length();
+            buffer.putInt(n);
+            for (int i = 0; i < n; ++i) {
+                buffer.putDouble(chromosome.getValue(i));
+            }
+        }
+
+        public void decode(DoubleChromosome chromosome, ByteBuffer buffer) {
+            final int n = buffer.getInt();
+            checkLength(chromosome, n);
+            for (int i = 0; i < n; ++i) {
+                chromosome.setValue(i, buffer.getDouble());
+            }
+        }
+    }
+
+    private static final class IntegerCodec implements ChromosomeCodec<IntegerChromosome> {
+
+        public int size(IntegerChromosome chromosome) {
+            return 4 + 4 * chromosome.length();
+        }
+
+        public void encode(IntegerChromosome chromosome, ByteBuffer buffer) {
+            final int n = chromosome.length();
+            buffer.putInt(n);
+            for (int i = 0; i < n; ++i) {
+                buffer.putInt(chromosome.getValue(i));
+            }
+        }
+
+        public void decode(IntegerChromosome chromosome, ByteBuffer buffer) {
+            final int n = buffer.getInt();
+            checkLength(chromosome, n);
+            for (int i = 0; i < n; ++i) {
+                chromosome.setValue(i, buffer.getInt());
+            }
+        }
+    }
+
+    private static final class PermutationCodec implements ChromosomeCodec<PermutationChromosome> {
+
+        public int size(PermutationChromosome chromosome) {
+            return 4 + 4 * chromosome.length();
+        }
+
+        public void encode(PermutationChromosome chromosome, ByteBuffer buffer) {
+            final int n = chromosome.length();
+            buffer.putInt(n);
+            for (int i = 0; i < n; ++i) {
+                buffer.putInt(chromosome.getElementAt(i));
+            }
+        }
+
+        public void decode(PermutationChromosome chromosome, ByteBuffer buffer) {
+            final int n = buffer.getInt();
+            checkLength(chromosome, n);
+            //the permutation is reached by swaps, keeping positions consistent
+            for (int i = 0; i < n; ++i) {
+                int element = buffer.getInt();
+                if (chromosome.getElementAt(i) != element) {
+                    chromosome.swap(i, chromosome.getPositionOf(element));
+                }
+            }
+        }
+    }
+
+    private static final class BitwiseCodec implements ChromosomeCodec<BitwiseChromosome> {
+
+        public int size(BitwiseChromosome chromosome) {
+            return 4 + 4 * chromosome.getIntSize();
+        }
+
+        public void encode(BitwiseChromosome chromosome, ByteBuffer buffer) {
+            final int n = chromosome.getIntSize();
+            buffer.putInt(n);
+            for (int i = 0; i < n; ++i) {
+                buffer.putInt(chromosome.getIntValueAt(i));
+            }
+        }
+
+        public void decode(BitwiseChromosome chromosome, ByteBuffer buffer) {
+            final int n = buffer.getInt();
+            if (chromosome.getIntSize() != n) {
+                throw new IllegalStateException("[Jenes]: checkpoint chromosome size " + n + " does not match " + chromosome.getIntSize());
+            }
+            for (int i = 0; i < n; ++i) {
+                chromosome.setIntValueAt(i, buffer.getInt());
+            }
+        }
+    }
+
+    /**
+     * Encodes each gene by the index of its value within the gene allele set, 
+     * which is preserved by decoding into a clone of the sample.
+     */
+    private static final class ObjectCodec implements ChromosomeCodec<ObjectChromosome> {
+
+        public int size(ObjectChromosome chromosome) {
+            return 4 + 4 * chromosome.length();
+        }
+
+        public void encode(ObjectChromosome chromosome, ByteBuffer buffer) {
+            final int n = chromosome.length();
+            buffer.putInt(n);
+            for (int i = 0; i < n; ++i) {
+                buffer.putInt(indexOf(chromosome.getGene(i)));
+            }
+        }
+
+        public void decode(ObjectChromosome chromosome, ByteBuffer buffer) {
+            final int n = buffer.getInt();
+            checkLength(chromosome, n);
+            for (int i = 0; i < n; ++i) {
+                final int index = buffer.getInt();
+                final AlleleSet set = chromosome.getGene(i).getAlleleSet();
+                if (index < 0 || index >= set.size()) {
+                    throw new IllegalStateException("[Jenes]: checkpoint allele " + index + " out of the allele set of gene " + i);
+                }
+                chromosome.setGene(i, set.getElementAt(index));
+            }
+        }
+
+        private static int indexOf(ObjectChromosome.Gene gene) {
+            final AlleleSet set = gene.getAlleleSet();
+            final Object value = gene.getValue();
+            final int size = set.size();
+            for (int k = 0; k < size; ++k) {
+                final Object allele = set.getElementAt(k);
+                if (allele == value || allele != null && allele.equals(value)) {
+                    return k;
+                }
+            }
+            throw new IllegalStateException("[Jenes]: gene value " + value + " is not an allele of its set");
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.checkpoint;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenes.AlgorithmEventListener;
+import jenes.GenerationEventListener;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.Chromosome;
+
+/**
+ * This listener takes periodic checkpoints of a {@link GeneticAlgorithm}. It should
+ * be registered both as {@link GenerationEventListener} and {@link AlgorithmEventListener}:
+ * registered only as generation listener, it takes the periodic checkpoints but 
+ * not the last one when the algorithm stops.
+ * <p>
+ * Every <code>period</code> generations, a {@link Checkpoint} is captured on the 
+ * evolution thread, which is a fast copy into a reused buffer. In asynchronous mode,
+ * the checkpoint is then written to file by a background thread, while the algorithm
+ * goes on evolving. If the previous write is still in progress, the snapshot is skipped
+ * rather than stalling the evolution. A last checkpoint is written when the algorithm stops.
+ * <p>
+ * The evolution can be resumed by {@link GeneticAlgorithm#resume(java.nio.file.Path)}.
+ * 
+ * @param <T> The class of chromosomes to work with.
+ * 
+ * @version 2.1
+ * @since 2.1
+ */
+public class CheckpointListener<T extends Chromosome> implements GenerationEventListener<T>, AlgorithmEventListener<T> {
+
+    private static final Logger log = Logger.getLogger(CheckpointListener.class.getName());
+    /** The checkpoint file */
+    private final Path path;
+    /** The number of generations between checkpoints */
+    private final int period;
+    /** If true, checkpoints are written by a background thread */
+    private final boolean asynchronous;
+    /** The background writer */
+    private ExecutorService writer = null;
+    /** The write in progress */
+    private Future<?> pending = null;
+    /** The last captured checkpoint, whose buffer is reused */
+    private Checkpoint last = null;
+    /** The number of checkpoints written */
+    private int written = 0;
+    /** The number of checkpoints skipped because of a write in progress */
+    private int skipped = 0;
+    /** The time spent by the last capture, in nanoseconds */
+    private long lastCaptureTime = 0;
+    /** The time spent by the last write, in nanoseconds */
+    private volatile long lastWriteTime = 0;
+    /** The last error occurred while writing */
+    private volatile IOException lastError = null;
+
+    /**
+     * Creates an asynchronous checkpoint listener.
+     * 
+     * @param path the checkpoint file
+     * @param period the number of generations between checkpoints
+     */
+    public CheckpointListener(Path path, int period) {
+        this(path, period, true);
+    }
+
+    /**
+     * Creates a checkpoint listener.
+     * 
+     * @param path the checkpoint file
+     * @param period the number of generations between checkpoints
+     * @param asynchronous if true, checkpoints are written by a background thread
+     */
+    public CheckpointListener(Path path, int period, boolean asynchronous) {
+        if (period < 1) {
+            throw new IllegalArgumentException("[Jenes]: the checkpoint period must be positive");
+        }
+        this.path = path;
+        this.period = period;
+        this.asynchronous = asynchronous;
+    }
+
+    /**
+     * Returns the checkpoint file.
+     * 
+     * @return the checkpoint path
+     */
+    public Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Returns the number of checkpoints written.
+     * 
+     * @return the number of checkpoints
+     */
+    public synchronized int getWritten() {
+        return this.written;
+    }
+
+    /**
+     * Returns the number of checkpoints skipped because the previous write was
+     * still in progress.
+     * 
+     * @return the number of skipped checkpoints
+     */
+    public int getSkipped() {
+        return this.skipped;
+    }
+
+    /**
+     * Returns the time spent by the evolution thread for the last capture.
+     * 
+     * @return the capture time expressed in nanoseconds
+     */
+    public long getLastCaptureTime() {
+        return this.lastCaptureTime;
+    }
+
+    /**
+     * Returns the time spent writing the last checkpoint.
+     * 
+     * @return the write time expressed in nanoseconds
+     */
+    public long getLastWriteTime() {
+        return this.lastWriteTime;
+    }
+
+    /**
+     * Returns the last error occurred while writing a checkpoint.
+     * 
+     * @return the error, or null if none
+     */
+    public IOException getLastError() {
+        return this.lastError;
+    }
+
+    public void onAlgorithmStart(GeneticAlgorithm<T> ga, long time) {
+    }
+
+    public void onAlgorithmInit(GeneticAlgorithm<T> ga, long time) {
+    }
+
+    public void onGeneration(GeneticAlgorithm<T> ga, long time) {
+        if ((ga.getGeneration() + 1) % this.period == 0) {
+            this.snapshot(ga);
+        }
+    }
+
+    public void onAlgorithmStop(GeneticAlgorithm<T> ga, long time) {
+        this.await();
+        this.capture(ga);
+        this.write(this.last);
+        if (this.writer != null) {
+            this.writer.shutdown();
+            this.writer = null;
+        }
+    }
+
+    /**
+     * Captures a checkpoint, and writes it according to the mode
+     */
+    private void snapshot(GeneticAlgorithm<T> ga) {
+        if (!this.asynchronous) {
+            this.capture(ga);
+            this.write(this.last);
+            return;
+        }
+
+        if (this.pending != null && !this.pending.isDone()) {
+            this.skipped++;
+            return;
+        }
+
+        this.capture(ga);
+        final Checkpoint cp = this.last;
+        this.pending = this.getWriter().submit(new Runnable() {
+
+            public void run() {
+                CheckpointListener.this.write(cp);
+            }
+        });
+    }
+
+    /**
+     * Returns the background writer, creating it at the first asynchronous write.
+     * Its thread is a daemon, so it does not prevent the JVM from exiting when the
+     * listener is not registered as {@link AlgorithmEventListener}, which shuts it down.
+     */
+    private ExecutorService getWriter() {
+        if (this.writer == null) {
+            this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "jenes-checkpoint");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return this.writer;
+    }
+
+    private void capture(GeneticAlgorithm<T> ga) {
+        final long begin = System.nanoTime();
+        this.last = ga.checkpoint(this.last);
+        this.lastCaptureTime = System.nanoTime() - begin;
+    }
+
+    private void write(Checkpoint cp) {
+        final long begin = System.nanoTime();
+        try {
+            cp.write(this.path);
+            synchronized (this) {
+                this.written++;
+            }
+            this.lastWriteTime = System.nanoTime() - begin;
+        } catch (IOException ex) {
+            this.lastError = ex;
+            log.log(Level.WARNING, "[Jenes]: unable to write the checkpoint " + this.path, ex);
+        }
+    }
+
+    /**
+     * Waits for the write in progress
+     */
+    private void await() {
+        if (this.pending != null) {
+            try {
+                this.pending.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                log.log(Level.WARNING, "[Jenes]: checkpoint writer failed", ex);
+            }
+            this.pending = null;
+        }
+    }
+}
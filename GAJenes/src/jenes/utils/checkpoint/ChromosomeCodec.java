@@ -0,0 +1,64 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.checkpoint;
+
+import java.nio.ByteBuffer;
+import jenes.chromosome.Chromosome;
+
+/**
+ * A <code>ChromosomeCodec</code> provides the compact binary encoding of a chromosome
+ * type used by {@link Checkpoint}. Encoding must be self-delimiting, as chromosomes
+ * are stored one after the other. Decoding is performed into an existing chromosome,
+ * obtained by cloning a sample of the algorithm population, so that properties not
+ * encoded (e.g. bounds or coding) are preserved.
+ * <p>
+ * Codecs for the chromosome types provided by Jenes are built-in; codecs for other 
+ * types can be registered by {@link Checkpoint#register(java.lang.Class, jenes.utils.checkpoint.ChromosomeCodec)}.
+ * 
+ * @param <T> the chromosome type
+ * 
+ * @version 2.1
+ * @since 2.1
+ */
+public interface ChromosomeCodec<T extends Chromosome> {
+
+    /**
+     * Returns the number of bytes required to encode the chromosome.
+     * 
+     * @param chromosome the chromosome to encode
+     * @return the encoding size in bytes
+     */
+    public int size(T chromosome);
+
+    /**
+     * Encodes the chromosome at the current position of the buffer.
+     * 
+     * @param chromosome the chromosome to encode
+     * @param buffer the buffer to write to
+     */
+    public void encode(T chromosome, ByteBuffer buffer);
+
+    /**
+     * Decodes a chromosome from the current position of the buffer.
+     * 
+     * @param chromosome the chromosome to set
+     * @param buffer the buffer to read from
+     */
+    public void decode(T chromosome, ByteBuffer buffer);
+}
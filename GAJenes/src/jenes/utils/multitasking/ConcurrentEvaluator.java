@@ -0,0 +1,409 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.multitasking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+
+/**
+ * This class implements a runner for fitness functions spending most of their
+ * time blocked, e.g. waiting for a solver daemon or a database. Concurrency is
+ * sized to the downstream service rather than to the number of processors: up to
+ * {@link #getConcurrency()} evaluations run at once, each one on its own thread.
+ * Threads are cheap daemon threads, created on demand and reclaimed when idle.
+ * When the limit is reached, the algorithm waits for a running evaluation to complete
+ * before submitting a new one.
+ * <p>
+ * {@link Fitness} clones are pooled independently of threads. By default a clone
+ * is created on demand for each concurrent evaluation; the number of clones can be
+ * limited by {@link #setFitnessInstances(int)}, e.g. when each one holds a connection,
+ * in which case evaluations also wait for a free clone. If the fitness is thread-safe,
+ * the algorithm one can be shared by setting the number of clones to 0.
+ * <p>
+ * When the algorithm is cancelled, running evaluations are interrupted and not
+ * waited for. Blocking calls in {@link Fitness#evaluate(jenes.population.Individual)}
+ * should be interruptible, or the fitness should check {@link Fitness#isEvaluationInterrupted()}.
+ * <p>
+ * An exception thrown by the fitness is rethrown in the algorithm thread at the
+ * end of the evaluation, as if the evaluation had been performed inline.
+ * 
+ * @version 2.1
+ * @since 2.1
+ * 
+ * @see MultiThreadEvaluator
+ */
+public class ConcurrentEvaluator extends Runner {
+
+    /**
+     * The period in milliseconds between cancellation checks while waiting
+     */
+    private static final long CANCEL_PERIOD = 10;
+    /**
+     * The time in seconds an idle thread is kept alive
+     */
+    private static final long KEEP_ALIVE = 30;
+    /**
+     * The maximum number of concurrent evaluations
+     */
+    private final int concurrency;
+    /**
+     * The maximum number of fitness clones, 0 to share the algorithm fitness
+     */
+    private int fitnessInstances;
+    /**
+     * The permits of concurrent evaluations, renewed at each start
+     */
+    private Semaphore permits;
+    /**
+     * The permits of fitness clones, null if clones are not limited
+     */
+    private Semaphore instances;
+    /**
+     * The pool of idle fitness clones
+     */
+    private final List<Fitness> fitnessPool = new ArrayList<Fitness>();
+    /**
+     * The fitness the clones are made of
+     */
+    private Fitness prototype;
+    /**
+     * The thread pool
+     */
+    private ThreadPoolExecutor executor;
+    /**
+     * The evaluations submitted in the current generation and not yet completed
+     */
+    private final List<Future<?>> running = new ArrayList<Future<?>>();
+    /**
+     * The number of evaluations not yet completed
+     */
+    private int todo = 0;
+    /**
+     * The identifier of the current evaluation stage, so that evaluations cancelled
+     * and completing late are not accounted
+     */
+    private int epoch = 0;
+    /**
+     * The maximum number of concurrent evaluations observed
+     */
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int peak = 0;
+
+    /**
+     * Creates an evaluator with the given concurrency limit. A fitness clone is
+     * created for each concurrent evaluation.
+     * 
+     * @param concurrency the maximum number of concurrent evaluations
+     */
+    public ConcurrentEvaluator(int concurrency) {
+        this(concurrency, concurrency);
+    }
+
+    /**
+     * Creates an evaluator with the given concurrency limit and number of fitness clones.
+     * 
+     * @param concurrency the maximum number of concurrent evaluations
+     * @param fitnessInstances the maximum number of fitness clones, 0 to share the algorithm fitness
+     */
+    public ConcurrentEvaluator(int concurrency, int fitnessInstances) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("[Jenes]: concurrency must be positive");
+        }
+        this.concurrency = concurrency;
+        this.setFitnessInstances(fitnessInstances);
+    }
+
+    /**
+     * Returns the maximum number of concurrent evaluations
+     * 
+     * @return the concurrency limit
+     */
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+
+    /**
+     * Returns the maximum number of fitness clones
+     * 
+     * @return the number of clones, 0 if the algorithm fitness is shared
+     */
+    public int getFitnessInstances() {
+        return this.fitnessInstances;
+    }
+
+    /**
+     * Sets the maximum number of fitness clones. Values greater than the concurrency
+     * limit have no effect. It should not be changed while evaluating.
+     * 
+     * @param n the number of clones, 0 to share the algorithm fitness
+     */
+    public final void setFitnessInstances(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("[Jenes]: the number of fitness instances must be not negative");
+        }
+        this.fitnessInstances = n;
+        this.instances = n > 0 && n < this.concurrency ? new Semaphore(n) : null;
+    }
+
+    /**
+     * Returns the maximum number of concurrent evaluations observed since the
+     * algorithm started
+     * 
+     * @return the peak concurrency
+     */
+    public int getPeakConcurrency() {
+        return this.peak;
+    }
+
+    @Override
+    public void start(boolean reset) {
+        super.start(reset);
+        this.peak = 0;
+        //evaluations of a cancelled run may be still holding permits
+        this.permits = new Semaphore(this.concurrency);
+        this.executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "jenes-evaluator-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        this.executor.shutdown();
+        synchronized (this.fitnessPool) {
+            this.fitnessPool.clear();
+            this.prototype = null;
+        }
+    }
+
+    @Override
+    public void onEvaluationBegin(Population pop, boolean forced) {
+        if (super.algorithm.getFitness() == null) {
+            throw new IllegalStateException("[Jenes]: fitness must be not null to be used by ConcurrentEvaluator");
+        }
+        synchronized (this.fitnessPool) {
+            if (super.algorithm.isFitnessChanged() || this.prototype != super.algorithm.getFitness()) {
+                this.fitnessPool.clear();
+                this.prototype = super.algorithm.getFitness();
+            }
+        }
+        synchronized (this) {
+            this.todo = 0;
+            this.epoch++;
+            this.running.clear();
+        }
+    }
+
+    @Override
+    public void evaluateIndividual(Individual individual) {
+        this.submit(individual, null);
+    }
+
+    @Override
+    public void evaluateBatch(List<Individual> batch) {
+        //the caller is going to reuse the list
+        this.submit(null, new ArrayList<Individual>(batch));
+    }
+
+    private void submit(final Individual individual, final List<Individual> batch) {
+        final Semaphore semaphore = this.permits;
+        if (!this.acquire(semaphore)) {
+            return;
+        }
+        synchronized (this) {
+            final int stage = this.epoch;
+            this.todo++;
+            try {
+                this.running.add(this.executor.submit(new Runnable() {
+
+                    public void run() {
+                        evaluate(individual, batch, semaphore, stage);
+                    }
+                }));
+            } catch (RuntimeException ex) {
+                this.todo--;
+                semaphore.release();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Acquires a permit, checking for cancellation while waiting
+     * 
+     * @return false if the algorithm has been cancelled
+     */
+    private boolean acquire(Semaphore semaphore) {
+        try {
+            while (!semaphore.tryAcquire(CANCEL_PERIOD, TimeUnit.MILLISECONDS)) {
+                if (super.algorithm.isCancelled()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Evaluates individuals on a worker thread
+     */
+    private void evaluate(Individual individual, List<Individual> batch, Semaphore semaphore, int stage) {
+        final int n = this.inflight.incrementAndGet();
+        if (n > this.peak) {
+            this.peak = n;
+        }
+        Fitness fit = null;
+        try {
+            fit = this.borrowFitness();
+            if (individual != null) {
+                this.evaluate(fit, individual);
+            } else {
+                this.evaluate(fit, batch);
+            }
+        } catch (InterruptedException ex) {
+            //cancelled while waiting for a fitness clone
+        } finally {
+            if (fit != null) {
+                this.releaseFitness(fit);
+            }
+            this.inflight.decrementAndGet();
+            semaphore.release();
+            synchronized (this) {
+                if (stage == this.epoch && --this.todo <= 0) {
+                    this.notifyAll();
+                }
+            }
+        }
+    }
+
+    private Fitness borrowFitness() throws InterruptedException {
+        if (this.fitnessInstances == 0) {
+            return this.prototype;
+        }
+        final Semaphore semaphore = this.instances;
+        if (semaphore != null) {
+            semaphore.acquire();
+        }
+        Fitness fit = null;
+        try {
+            synchronized (this.fitnessPool) {
+                if (!this.fitnessPool.isEmpty()) {
+                    fit = this.fitnessPool.remove(this.fitnessPool.size() - 1);
+                } else {
+                    fit = this.prototype.clone();
+                }
+            }
+        } finally {
+            //a failed clone must not hold the permit
+            if (fit == null && semaphore != null) {
+                semaphore.release();
+            }
+        }
+        return fit;
+    }
+
+    private void releaseFitness(Fitness fit) {
+        if (this.fitnessInstances == 0) {
+            return;
+        }
+        synchronized (this.fitnessPool) {
+            if (this.prototype != null) {
+                this.fitnessPool.add(fit);
+            }
+        }
+        if (this.instances != null) {
+            this.instances.release();
+        }
+    }
+
+    @Override
+    public synchronized void onEvaluationEnd() {
+        try {
+            while (this.todo > 0) {
+                this.wait(CANCEL_PERIOD);
+                if (super.algorithm.isCancelled()) {
+                    for (Future<?> future : this.running) {
+                        future.cancel(true);
+                    }
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            for (Future<?> future : this.running) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+        }
+        final Throwable failure = this.getFailure();
+        this.running.clear();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException("[Jenes]: fitness evaluation failed", failure);
+        }
+    }
+
+    /**
+     * Returns the first exception thrown by a completed evaluation
+     * 
+     * @return the exception, or null if none
+     */
+    private Throwable getFailure() {
+        for (Future<?> future : this.running) {
+            if (future.isDone() && !future.isCancelled()) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    return ex.getCause();
+                } catch (CancellationException ex) {
+                    //cancelled meanwhile
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
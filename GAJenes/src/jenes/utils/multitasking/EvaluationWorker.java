@@ -0,0 +1,287 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.multitasking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import jenes.chromosome.Chromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.utils.checkpoint.Checkpoint;
+import jenes.utils.checkpoint.ChromosomeCodec;
+
+/**
+ * An <code>EvaluationWorker</code> evaluates individuals on behalf of a {@link ProcessEvaluator}
+ * running in another process, possibly on another machine. The worker connects to
+ * the evaluator and then serves its requests until the connection is closed. 
+ * It is started as
+ * <pre>
+ * java -cp &lt;classpath&gt; jenes.utils.multitasking.EvaluationWorker &lt;host&gt; &lt;port&gt; &lt;setup class&gt; [id]
+ * </pre>
+ * where the setup class implements {@link WorkerSetup}.
+ * <p>
+ * The protocol is made of frames, each one composed by a type, a request identifier,
+ * the payload length and the payload. Requests carry individuals encoded as 
+ * {@link Checkpoint} records, while results carry only flags and scores. 
+ * Requests are queued and evaluated in order, so the evaluator can send a new
+ * request while the previous one is evaluated. Health checks are answered 
+ * immediately, even during long evaluations.
+ * 
+ * @version 2.1
+ * @since 2.1
+ * 
+ * @see ProcessEvaluator
+ */
+public final class EvaluationWorker {
+
+    /** The protocol magic number, "JNWP" */
+    static final int MAGIC = 0x4A4E5750;
+    /** The protocol version */
+    static final int VERSION = 1;
+    /** Frame type of evaluation requests */
+    static final int EVALUATE = 1;
+    /** Frame type of evaluation results */
+    static final int RESULT = 2;
+    /** Frame type of health checks */
+    static final int PING = 3;
+    /** Frame type of health check replies */
+    static final int PONG = 4;
+    /** Frame type of evaluation failures */
+    static final int ERROR = 5;
+    /** Frame type of shutdown requests */
+    static final int SHUTDOWN = 6;
+    /** The maximum payload size */
+    static final int MAX_PAYLOAD = 1 << 28;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Individual sample;
+    private final Fitness fitness;
+    private final ChromosomeCodec codec;
+    private final BlockingQueue<Frame> requests = new LinkedBlockingQueue<Frame>();
+    /** The decoded individuals, reused across requests */
+    private final List<Individual> views = new ArrayList<Individual>();
+
+    /**
+     * Connects a worker to an evaluator.
+     * 
+     * @param host the evaluator host
+     * @param port the evaluator port
+     * @param setup the worker setup
+     * @param id the worker identifier, negative if not launched by the evaluator
+     * @throws IOException if the connection fails
+     */
+    @SuppressWarnings("unchecked")
+    public EvaluationWorker(String host, int port, WorkerSetup<?> setup, int id) throws IOException {
+        this.sample = setup.createSample();
+        this.fitness = setup.createFitness();
+        this.codec = Checkpoint.getCodec((Class<Chromosome>) this.sample.getChromosome().getClass());
+
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+        this.out.writeInt(id);
+        this.out.flush();
+    }
+
+    /**
+     * Serves the evaluator requests until the connection is closed.
+     * 
+     * @throws IOException if the connection fails
+     */
+    public void serve() throws IOException {
+        Thread evaluator = new Thread(new Runnable() {
+
+            public void run() {
+                evaluate();
+            }
+        }, "jenes-worker-evaluator");
+        evaluator.setDaemon(true);
+        evaluator.start();
+
+        try {
+            while (true) {
+                Frame frame;
+                try {
+                    frame = read(this.in);
+                } catch (EOFException ex) {
+                    break;
+                }
+                if (frame.type == PING) {
+                    this.send(PONG, frame.id, null);
+                } else if (frame.type == EVALUATE) {
+                    this.requests.add(frame);
+                } else if (frame.type == SHUTDOWN) {
+                    break;
+                }
+            }
+        } finally {
+            this.requests.add(new Frame(SHUTDOWN, 0, null));
+            this.socket.close();
+        }
+    }
+
+    /**
+     * Evaluates the queued requests
+     */
+    @SuppressWarnings("unchecked")
+    private void evaluate() {
+        ByteBuffer result = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        while (true) {
+            Frame frame;
+            try {
+                frame = this.requests.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            if (frame.type == SHUTDOWN) {
+                return;
+            }
+            try {
+                ByteBuffer request = frame.payload;
+                final int n = request.getInt();
+                while (this.views.size() < n) {
+                    this.views.add(this.sample.clone());
+                }
+                List<Individual> batch = this.views.subList(0, n);
+                for (Individual individual : batch) {
+                    Checkpoint.decode(individual, this.codec, request);
+                }
+                this.fitness.evaluateBatch((List) batch);
+
+                final int m = this.sample.getNumOfObjectives();
+                final int size = 4 + n * (1 + 8 * m);
+                if (result.capacity() < size) {
+                    result = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                result.clear();
+                result.putInt(n);
+                for (Individual individual : batch) {
+                    byte flags = 0;
+                    if (individual.isEvaluated()) {
+                        flags |= Checkpoint.EVALUATED;
+                    }
+                    if (individual.isLegal()) {
+                        flags |= Checkpoint.LEGAL;
+                    }
+                    result.put(flags);
+                    for (int i = 0; i < m; ++i) {
+                        result.putDouble(individual.getScore(i));
+                    }
+                }
+                result.flip();
+                this.send(RESULT, frame.id, result);
+            } catch (Exception ex) {
+                try {
+                    ByteBuffer error = ByteBuffer.wrap(String.valueOf(ex).getBytes("UTF-8"));
+                    this.send(ERROR, frame.id, error);
+                } catch (IOException ioe) {
+                    return;
+                }
+            } catch (Error err) {
+                //the JVM state is unreliable, the evaluator will restart the worker
+                err.printStackTrace();
+                Runtime.getRuntime().halt(1);
+            }
+        }
+    }
+
+    private synchronized void send(int type, long id, ByteBuffer payload) throws IOException {
+        write(this.out, type, id, payload);
+        this.out.flush();
+    }
+
+    /**
+     * Writes a frame. The payload is written from its position to its limit.
+     */
+    static void write(DataOutputStream out, int type, long id, ByteBuffer payload) throws IOException {
+        out.writeInt(type);
+        out.writeLong(id);
+        if (payload == null) {
+            out.writeInt(0);
+        } else {
+            out.writeInt(payload.remaining());
+            out.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        }
+    }
+
+    /**
+     * Reads a frame
+     */
+    static Frame read(DataInputStream in) throws IOException {
+        final int type = in.readInt();
+        final long id = in.readLong();
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD) {
+            throw new IOException("[Jenes]: invalid frame length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new Frame(type, id, ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * A protocol frame
+     */
+    static final class Frame {
+
+        final int type;
+        final long id;
+        final ByteBuffer payload;
+
+        Frame(int type, long id, ByteBuffer payload) {
+            this.type = type;
+            this.id = id;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Starts a worker.
+     * 
+     * @param args host, port, setup class name and optionally the worker identifier
+     * @throws Exception if the worker cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: EvaluationWorker <host> <port> <setup class> [id]");
+            System.exit(2);
+        }
+        WorkerSetup<?> setup = (WorkerSetup<?>) Class.forName(args[2]).newInstance();
+        int id = args.length > 3 ? Integer.parseInt(args[3]) : -1;
+        new EvaluationWorker(args[0], Integer.parseInt(args[1]), setup, id).serve();
+        System.exit(0);
+    }
+}
@@ -19,13 +19,37 @@
 package jenes.utils.multitasking;
 
 //import org.apache.commons.logging;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import jenes.population.Fitness;
 import jenes.population.Individual;
 import jenes.population.Population;
+import jenes.statistics.Statistics;
 
 /**
  * This class represent a simple implementation of a multi thread runner
+ * <p>
+ * Evaluations can be watched, in order to prevent a single pathological individual
+ * from stalling the whole generation. When a timeout is set by {@link #setTimeout(long)},
+ * evaluations lasting longer are interrupted, and the individual receives a penalty 
+ * score and can be made illegal. When speculation is enabled by {@link #setSpeculationFactor(double)},
+ * stragglers are re-executed on idle workers, and the first completed evaluation wins.
+ * Watched evaluations are performed on a copy of the individual, whose scores and
+ * legality are then copied back. Interrupted evaluations cannot be forcibly stopped:
+ * {@link Fitness#evaluate(jenes.population.Individual)} should check {@link Fitness#isEvaluationInterrupted()}
+ * and return as soon as possible. Meanwhile, the thread pool is enlarged so that the
+ * evaluation throughput is preserved.
+ * <p>
+ * Latencies of evaluation tasks are collected at each generation, deferred evaluations
+ * included, and their median, 99th percentile and maximum are reported to {@link Statistics}
+ * for that generation.
+ * <p>
+ * Evaluations are waited for in short periods, so that a cancellation of the algorithm
+ * is noticed: queued evaluations are then skipped, leaving their individuals not evaluated.
  * 
  * @since 2.0
  * 
@@ -33,6 +57,14 @@ import jenes.population.Population;
  */
 public class MultiThreadEvaluator extends MultiThreadRunner {
 
+    /**
+     * The period in milliseconds between checks of watched evaluations
+     */
+    private static final long WATCH_PERIOD = 10;
+    /**
+     * The number of completed evaluations required before speculating
+     */
+    private static final int SPECULATION_MIN_SAMPLES = 8;
     /**
      * shared counter... number of tasks currently in queue
      */
@@ -46,6 +78,39 @@ public class MultiThreadEvaluator extends MultiThreadRunner {
      * The evaluation Task cache pool
      */
     private Stack<EvaluationTask> tasksPool = new Stack<EvaluationTask>();
+    /**
+     * The evaluation timeout in milliseconds, 0 if evaluations are not timed out
+     */
+    private long timeout = 0;
+    /**
+     * The scores assigned to timed out individuals, null for the worst possible ones
+     */
+    private double[] timeoutPenalty = null;
+    /**
+     * If true, timed out individuals are made illegal
+     */
+    private boolean timeoutIllegal = true;
+    /**
+     * Stragglers running longer than this factor times the median latency are re-executed, 0 to disable
+     */
+    private double speculationFactor = 0;
+    /**
+     * The tasks submitted in watched mode and not yet completed
+     */
+    private final List<EvaluationTask> submitted = new ArrayList<EvaluationTask>();
+    /**
+     * The latencies of tasks completed in the current generation, in nanoseconds
+     */
+    private long[] latencies = new long[64];
+    private int nlatencies = 0;
+    /**
+     * The generation the collected latencies belong to
+     */
+    private int latencyGeneration = -1;
+    /**
+     * The counter used to tell apart subsequent uses of recycled tasks
+     */
+    private int tickets = 0;
 
     /**
      * Default constructor that define the thread number to use
@@ -65,9 +130,104 @@ public class MultiThreadEvaluator extends MultiThreadRunner {
         super();
     }
 
+    /**
+     * Returns the evaluation timeout
+     * 
+     * @return the timeout in milliseconds, 0 if evaluations are not timed out
+     */
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Sets the evaluation timeout. Batches are given the timeout multiplied by 
+     * their size. 
+     * 
+     * @param millis the timeout in milliseconds, 0 to disable timeouts
+     */
+    public void setTimeout(long millis) {
+        this.timeout = millis < 0 ? 0 : millis;
+    }
+
+    /**
+     * Returns the scores assigned to timed out individuals
+     * 
+     * @return the penalty scores, or null if the worst possible scores are used
+     */
+    public double[] getTimeoutPenalty() {
+        return this.timeoutPenalty;
+    }
+
+    /**
+     * Sets the scores assigned to timed out individuals. If null, each objective
+     * receives the worst possible score, i.e. an infinite value.
+     * 
+     * @param penalty the penalty scores
+     */
+    public void setTimeoutPenalty(double... penalty) {
+        this.timeoutPenalty = penalty != null && penalty.length > 0 ? penalty.clone() : null;
+    }
+
+    /**
+     * Says if timed out individuals are made illegal. By default it is true.
+     * 
+     * @return true if timed out individuals are made illegal
+     */
+    public boolean isTimeoutIllegal() {
+        return this.timeoutIllegal;
+    }
+
+    /**
+     * Sets if timed out individuals are made illegal.
+     * 
+     * @param flag true to make timed out individuals illegal
+     */
+    public void setTimeoutIllegal(boolean flag) {
+        this.timeoutIllegal = flag;
+    }
+
+    /**
+     * Returns the speculation factor
+     * 
+     * @return the speculation factor, 0 if speculation is disabled
+     */
+    public double getSpeculationFactor() {
+        return this.speculationFactor;
+    }
+
+    /**
+     * Sets the speculation factor. When a worker is idle, an evaluation running 
+     * longer than the factor times the median latency of the current generation 
+     * is re-executed on it. The first completed evaluation wins, and the other one
+     * is interrupted. Batches are never re-executed.
+     * 
+     * @param factor the speculation factor, 0 to disable speculation
+     */
+    public void setSpeculationFactor(double factor) {
+        this.speculationFactor = factor < 0 ? 0 : factor;
+    }
+
+    /**
+     * Says if evaluations are watched for timeouts or stragglers
+     */
+    private boolean isWatched() {
+        return this.timeout > 0 || this.speculationFactor > 0;
+    }
+
+    @Override
+    public void start(boolean reset) {
+        super.start(reset);
+        this.latencyGeneration = -1;
+    }
+
     @Override
     public void onEvaluationBegin(Population pop, boolean forced) {
         this.todo = 0;
+        //deferred evaluations add up to the latencies of the generation
+        if (super.algorithm.getGeneration() != this.latencyGeneration) {
+            this.latencyGeneration = super.algorithm.getGeneration();
+            this.nlatencies = 0;
+        }
 
         if (super.algorithm.getFitness() == null) {
             throw new IllegalStateException("Jenes: fitness must be not null to be used by MultiThreadEvaluator");
@@ -94,11 +254,33 @@ public class MultiThreadEvaluator extends MultiThreadRunner {
         EvaluationTask task = this.tasksPool.pop(); //recycle
         task.individual = individual;
 
-        this.todo++;
-        super.threadGroup.submit(task);
+        this.submit(task);
+
+    }
+
+    @Override
+    public synchronized void evaluateBatch(List<Individual> batch) {
+
+        EvaluationTask task = this.tasksPool.pop(); //recycle
+        task.batch.clear();
+        task.batch.addAll(batch); //the caller is going to reuse the list
+
+        this.submit(task);
 
     }
 
+    private void submit(EvaluationTask task) {
+        this.todo++;
+        if (this.isWatched()) {
+            task.watch(++this.tickets);
+            this.submitted.add(task);
+            task.future = super.threadGroup.submit(task);
+        } else {
+            task.watched = false;
+            super.threadGroup.submit(task);
+        }
+    }
+
     private void refreshFitnessPool() {
         int size = super.getNthreads();
 
@@ -115,24 +297,251 @@ public class MultiThreadEvaluator extends MultiThreadRunner {
         return this.fitnessPool.remove(this.fitnessPool.size() - 1);
     }
 
-    private synchronized void releaseFitness(Fitness fit) {
+    private synchronized void releaseFitness(Fitness fit, long latency) {
         this.fitnessPool.add(fit);
+        this.addLatency(latency);
         this.todo--;
         if (this.todo <= 0) {
             this.notifyAll(); //wait until all tasks have been completed
         }
     }
 
+    private void addLatency(long latency) {
+        if (this.nlatencies == this.latencies.length) {
+            this.latencies = Arrays.copyOf(this.latencies, 2 * this.nlatencies);
+        }
+        this.latencies[this.nlatencies++] = latency;
+    }
+
     @Override
     public synchronized void onEvaluationEnd() {
         try {
             
-            if (this.todo > 0) { //called only by producer thread (main thread)
-                this.wait(); //wait until all tasks are been completed
+            if (!this.isWatched()) {
+                while (this.todo > 0) { //called only by producer thread (main thread)
+                    this.wait(WATCH_PERIOD); //wait until all tasks are been completed
+                    if (super.algorithm.isCancelled()) {
+                        break; //running tasks complete on their own, queued ones are skipped
+                    }
+                }
+            } else {
+                while (this.todo > 0) {
+                    this.wait(WATCH_PERIOD);
+                    if (super.algorithm.isCancelled()) {
+                        this.cancelAll();
+                        break;
+                    }
+                    this.watch();
+                }
+                this.submitted.clear();
             }
         } catch (InterruptedException ex) {
 //            Logger.getLogger(this.getClass()).error(this, ex);
         }
+        this.reportLatencies();
+    }
+
+    /**
+     * Checks running tasks for timeouts and stragglers
+     */
+    private void watch() {
+        final long now = System.nanoTime();
+        final long limit = this.timeout * 1000000;
+        final long median = this.speculationFactor > 0 && this.nlatencies >= SPECULATION_MIN_SAMPLES ? this.median() : -1;
+
+        for (int i = 0; i < this.submitted.size(); ++i) {
+            EvaluationTask task = this.submitted.get(i);
+            if (task.done) {
+                continue;
+            }
+            if (task.start == 0) {
+                continue; //still queued
+            }
+            long elapsed = now - task.start;
+            if (limit > 0 && elapsed > limit * task.size()) {
+                this.expire(task, elapsed);
+            } else if (median >= 0 && task.copy == null && task.individual != null
+                    && elapsed > this.speculationFactor * median && this.isIdle()) {
+                this.speculate(task);
+            }
+        }
+    }
+
+    /**
+     * Says if a worker is idle and no task is waiting to be executed
+     */
+    private boolean isIdle() {
+        if (!(super.threadGroup instanceof ThreadPoolExecutor)) {
+            return false;
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) super.threadGroup;
+        return pool.getQueue().isEmpty() && pool.getActiveCount() < pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Re-executes a straggler on an idle worker
+     */
+    private void speculate(EvaluationTask task) {
+        EvaluationTask copy = new EvaluationTask();
+        copy.individual = task.individual;
+        copy.watch(task.ticket);
+        copy.original = task;
+        task.copy = copy;
+        copy.future = super.threadGroup.submit(copy);
+        super.algorithm.getStatistics().incrementSpeculativeEvaluations();
+    }
+
+    /**
+     * Terminates a task exceeding its deadline by assigning the penalty to its individuals
+     */
+    private void expire(EvaluationTask task, long elapsed) {
+        Fitness fit = super.algorithm.getFitness();
+        boolean[] bis = fit.getBiggerIsBetter();
+        double[] penalty = this.timeoutPenalty;
+        if (penalty == null) {
+            penalty = new double[bis.length];
+            for (int i = 0; i < bis.length; ++i) {
+                penalty[i] = bis[i] ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+        }
+
+        List<Individual> targets = task.individual != null ? Arrays.asList(task.individual) : task.batch;
+        for (Individual ind : targets) {
+            ind.setScore(penalty);
+            if (this.timeoutIllegal) {
+                ind.setLegal(false);
+            }
+        }
+        super.algorithm.getStatistics().addTimedOutEvaluations(targets.size());
+
+        this.complete(task, elapsed);
+    }
+
+    /**
+     * Marks a task as completed, interrupting running evaluations of its individuals
+     */
+    private void complete(EvaluationTask task, long latency) {
+        task.done = true;
+        this.abandon(task);
+        if (task.copy != null) {
+            this.abandon(task.copy);
+        }
+        this.addLatency(latency);
+        this.todo--;
+        if (this.todo <= 0) {
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Interrupts a task if still running. As the thread could be kept busy by an
+     * uncooperative fitness, the pool is enlarged by one thread.
+     */
+    private void abandon(EvaluationTask task) {
+        if (task.running) {
+            task.orphan = true;
+            if (super.threadGroup instanceof ThreadPoolExecutor) {
+                ThreadPoolExecutor pool = (ThreadPoolExecutor) super.threadGroup;
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + 1);
+                pool.setCorePoolSize(pool.getCorePoolSize() + 1);
+            }
+            this.fitnessPool.add(super.algorithm.getFitness().clone());
+        }
+        if (task.future != null) {
+            task.future.cancel(true);
+        }
+    }
+
+    /**
+     * Cancels all the pending tasks, as the algorithm has been cancelled. Their
+     * individuals are left not evaluated; the algorithm detects the cancellation
+     * at the end of the evaluation and interrupts the generation.
+     */
+    private void cancelAll() {
+        for (EvaluationTask task : this.submitted) {
+            if (!task.done) {
+                task.done = true;
+                this.abandon(task);
+                if (task.copy != null) {
+                    this.abandon(task.copy);
+                }
+            }
+        }
+        this.submitted.clear();
+        this.todo = 0;
+    }
+
+    /**
+     * Starts a watched task
+     * 
+     * @return false if the task has to be skipped
+     */
+    private synchronized boolean begin(EvaluationTask task) {
+        EvaluationTask target = task.original != null ? task.original : task;
+        if (target.done || target.ticket != task.ticket) {
+            return false;
+        }
+        if (target.start == 0) {
+            target.start = System.nanoTime();
+        }
+        task.running = true;
+        return true;
+    }
+
+    /**
+     * Ends a watched task, publishing its scores if it is the first one completing.
+     */
+    private synchronized void end(EvaluationTask task, Fitness fit) {
+        EvaluationTask target = task.original != null ? task.original : task;
+        task.running = false;
+
+        if (!target.done && target.ticket == task.ticket) {
+            for (int i = 0; i < task.scratch.size(); ++i) {
+                Individual ind = target.individual != null ? target.individual : target.batch.get(i);
+                Individual scratch = task.scratch.get(i);
+                ind.setScore(scratch.getAllScores());
+                ind.setLegal(scratch.isLegal());
+            }
+            if (task.original != null) {
+                super.algorithm.getStatistics().incrementSpeculativeWins();
+            }
+            this.complete(target, System.nanoTime() - target.start);
+        }
+
+        if (task.orphan) {
+            //the pool has been enlarged to replace this thread
+            if (super.threadGroup instanceof ThreadPoolExecutor) {
+                ThreadPoolExecutor pool = (ThreadPoolExecutor) super.threadGroup;
+                pool.setCorePoolSize(pool.getCorePoolSize() - 1);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() - 1);
+            }
+        } else {
+            this.fitnessPool.add(fit);
+        }
+    }
+
+    private long median() {
+        long[] sorted = Arrays.copyOf(this.latencies, this.nlatencies);
+        Arrays.sort(sorted);
+        return quantile(sorted, sorted.length, 0.5);
+    }
+
+    /**
+     * Returns a quantile of sorted latencies, by the nearest rank
+     */
+    private static long quantile(long[] sorted, int n, double p) {
+        return sorted[Math.max(0, (int) Math.ceil(p * n) - 1)];
+    }
+
+    private void reportLatencies() {
+        if (this.nlatencies == 0) {
+            return;
+        }
+        Arrays.sort(this.latencies, 0, this.nlatencies);
+        long p50 = quantile(this.latencies, this.nlatencies, 0.5);
+        long p99 = quantile(this.latencies, this.nlatencies, 0.99);
+        long max = quantile(this.latencies, this.nlatencies, 1);
+        super.algorithm.getStatistics().setEvaluationLatencies(super.algorithm.getGeneration(), p50, p99, max);
     }
     
     /**
@@ -141,16 +550,102 @@ public class MultiThreadEvaluator extends MultiThreadRunner {
     private class EvaluationTask implements Runnable {
 
         private Individual individual;
+        private List<Individual> batch = new ArrayList<Individual>();
+        /** Watched mode: copies of the individuals under evaluation */
+        private List<Individual> scratch = new ArrayList<Individual>();
+        /** Watched mode: the task this speculative copy is re-executing */
+        private EvaluationTask original;
+        /** Watched mode: the speculative copy of this task */
+        private EvaluationTask copy;
+        private Future<?> future;
+        /** Watched mode: the identifier of the current use of this task */
+        private int ticket;
+        private long start;
+        private boolean watched;
+        private boolean running;
+        private boolean done;
+        private boolean orphan;
+
+        private void watch(int ticket) {
+            this.ticket = ticket;
+            this.watched = true;
+            this.original = null;
+            this.copy = null;
+            this.future = null;
+            this.start = 0;
+            this.running = false;
+            this.done = false;
+            this.orphan = false;
+        }
+
+        private int size() {
+            return this.individual != null ? 1 : this.batch.size();
+        }
 
         public void run() {
+            if (this.watched) {
+                this.runWatched();
+                return;
+            }
+
             Fitness fit = MultiThreadEvaluator.this.getFitness();
-            fit.evaluate(this.individual);
+            long begin = System.nanoTime();
+            final boolean cancelled = MultiThreadEvaluator.this.algorithm.isCancelled();
+            if (this.individual != null) {
+                if (!cancelled) {
+                    MultiThreadEvaluator.this.evaluate(fit, this.individual);
+                }
+                this.individual = null;
+            } else {
+                if (!cancelled) {
+                    MultiThreadEvaluator.this.evaluate(fit, this.batch);
+                }
+                this.batch.clear();
+            }
 
             //relase fitness to enable others thread to start
-            MultiThreadEvaluator.this.releaseFitness(fit);
+            MultiThreadEvaluator.this.releaseFitness(fit, System.nanoTime() - begin);
 
             //release task for caching
             MultiThreadEvaluator.this.tasksPool.push(this);
         }
+
+        @SuppressWarnings("unchecked")
+        private void runWatched() {
+            if (!MultiThreadEvaluator.this.begin(this)) {
+                return;
+            }
+
+            Fitness fit = MultiThreadEvaluator.this.getFitness();
+            try {
+                List<Individual> targets = this.individual != null ? Arrays.asList(this.individual) : this.batch;
+                int n = targets.size();
+                while (this.scratch.size() > n) {
+                    this.scratch.remove(this.scratch.size() - 1);
+                }
+                for (int i = 0; i < n; ++i) {
+                    if (i < this.scratch.size()) {
+                        this.scratch.get(i).setAs(targets.get(i));
+                    } else {
+                        this.scratch.add(new Individual(targets.get(i)));
+                    }
+                }
+
+                if (this.individual != null) {
+                    MultiThreadEvaluator.this.evaluate(fit, this.scratch.get(0));
+                } else {
+                    MultiThreadEvaluator.this.evaluate(fit, this.scratch);
+                }
+            } finally {
+                MultiThreadEvaluator.this.end(this, fit);
+            }
+
+            if (this.original == null) {
+                this.individual = null;
+                this.batch.clear();
+                //release task for caching
+                MultiThreadEvaluator.this.tasksPool.push(this);
+            }
+        }
     }
 }
@@ -0,0 +1,1001 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.multitasking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenes.chromosome.Chromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.utils.checkpoint.Checkpoint;
+import jenes.utils.checkpoint.ChromosomeCodec;
+
+/**
+ * This class implements a multi process runner. Individuals are evaluated by a pool
+ * of {@link EvaluationWorker}s, each one running in its own Java Virtual Machine,
+ * so that memory-hungry or unstable fitness functions cannot take down the
+ * algorithm. Workers are launched on the local machine and connect back to the
+ * evaluator through the loopback interface; further workers can be started by hand,
+ * also on other machines, when the evaluator listens on a public address.
+ * <p>
+ * Individuals are shipped in jobs of {@link #getJobSize()} individuals, encoded 
+ * as {@link Checkpoint} records. Each worker is given up to {@link #getWindow()}
+ * jobs at once, so that it never idles waiting for the next one. Jobs are dispatched
+ * as soon as they are full, while the algorithm still iterates on the population.
+ * <p>
+ * Workers are checked periodically. When a worker crashes, does not answer health 
+ * checks or exceeds the evaluation timeout, it is killed and restarted, and its 
+ * jobs are resubmitted. A job that fails is split into single individuals, so 
+ * that the faulty one is isolated; an individual failing {@link #getMaxAttempts()} 
+ * times receives the failure penalty and is made illegal. Each worker can be restarted
+ * up to {@link #getMaxRestarts()} times within {@link #getRestartWindow()}; restarts
+ * caused by the last attempt of a penalised individual are not counted.
+ * <p>
+ * When no worker is connected or being launched, as when all the workers are started
+ * by hand, the evaluator waits up to {@link #getJoinTimeout()} for a worker to join.
+ * <p>
+ * Workers are created by a {@link WorkerSetup}, which must produce individuals
+ * of the same type and length of the evolved ones, and fitness functions equivalent
+ * to the algorithm one.
+ * 
+ * @version 2.1
+ * @since 2.1
+ * 
+ * @see EvaluationWorker
+ */
+public class ProcessEvaluator extends Runner {
+
+    private static final Logger log = Logger.getLogger(ProcessEvaluator.class.getName());
+    /**
+     * The maximum time in milliseconds allowed to a worker to complete the handshake
+     */
+    private static final int HANDSHAKE_TIMEOUT = 10000;
+    /**
+     * The number of workers to launch
+     */
+    private final int nworkers;
+    /**
+     * The name of the {@link WorkerSetup} class
+     */
+    private final String setup;
+    /**
+     * The address to listen on
+     */
+    private InetAddress address = InetAddress.getLoopbackAddress();
+    /**
+     * The port to listen on, 0 for any free port
+     */
+    private int port = 0;
+    /**
+     * The options of worker JVMs
+     */
+    private List<String> jvmOptions = new ArrayList<String>();
+    /**
+     * The number of individuals per job
+     */
+    private int jobSize = 8;
+    /**
+     * The number of jobs in flight per worker
+     */
+    private int window = 2;
+    /**
+     * The period between health checks in milliseconds
+     */
+    private long healthPeriod = 1000;
+    /**
+     * The time in milliseconds after which a silent worker is considered dead
+     */
+    private long healthTimeout = 10000;
+    /**
+     * The evaluation timeout per individual in milliseconds, 0 if not timed out
+     */
+    private long timeout = 0;
+    /**
+     * The number of failures after which an individual is given up
+     */
+    private int maxAttempts = 3;
+    /**
+     * The maximum number of restarts of a worker within the restart window
+     */
+    private int maxRestarts = 8;
+    /**
+     * The time window in milliseconds restarts are counted in
+     */
+    private long restartWindow = 60000;
+    /**
+     * The time in milliseconds to wait for a worker when none is available
+     */
+    private long joinTimeout = 60000;
+    /**
+     * The scores of given up individuals, null for the worst possible ones
+     */
+    private double[] failurePenalty = null;
+    private ServerSocket server;
+    private Process[] processes;
+    private boolean[] joined;
+    private final List<Worker> workers = new ArrayList<Worker>();
+    private final BlockingQueue<Event> events = new LinkedBlockingQueue<Event>();
+    private final Deque<Job> queue = new ArrayDeque<Job>();
+    private List<Individual> pending = new ArrayList<Individual>();
+    private ChromosomeCodec codec;
+    private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+    private long jobs = 0;
+    private int outstanding = 0;
+    private List<Deque<Long>> recentRestarts = new ArrayList<Deque<Long>>();
+    private long waitingSince = 0;
+    private int restarts = 0;
+    private int resubmissions = 0;
+    private int failures = 0;
+
+    /**
+     * Creates an evaluator launching the given number of workers.
+     * 
+     * @param nworkers the number of workers to launch, 0 if workers are started by hand
+     * @param setup the name of a {@link WorkerSetup} class
+     */
+    public ProcessEvaluator(int nworkers, String setup) {
+        if (nworkers < 0) {
+            throw new IllegalArgumentException("[Jenes]: the number of workers must be not negative");
+        }
+        this.nworkers = nworkers;
+        this.setup = setup;
+    }
+
+    /**
+     * Creates an evaluator launching the given number of workers.
+     * 
+     * @param nworkers the number of workers to launch, 0 if workers are started by hand
+     * @param setup the {@link WorkerSetup} class
+     */
+    public ProcessEvaluator(int nworkers, Class<? extends WorkerSetup> setup) {
+        this(nworkers, setup.getName());
+    }
+
+    /**
+     * Creates an evaluator launching a worker per available processor.
+     * 
+     * @param setup the {@link WorkerSetup} class
+     */
+    public ProcessEvaluator(Class<? extends WorkerSetup> setup) {
+        this(Runtime.getRuntime().availableProcessors(), setup);
+    }
+
+    /**
+     * Returns the number of workers launched by the evaluator
+     * 
+     * @return the number of workers
+     */
+    public int getNworkers() {
+        return this.nworkers;
+    }
+
+    /**
+     * Sets the address the evaluator listens on, by default the loopback one.
+     * 
+     * @param address the address
+     * @param port the port, 0 for any free port
+     */
+    public void setAddress(InetAddress address, int port) {
+        this.address = address;
+        this.port = port;
+    }
+
+    /**
+     * Returns the port the evaluator listens on
+     * 
+     * @return the port, or -1 if the evaluator is not started
+     */
+    public int getPort() {
+        return this.server != null ? this.server.getLocalPort() : -1;
+    }
+
+    /**
+     * Sets the options of the worker JVMs, e.g. the maximum heap size.
+     * 
+     * @param options the JVM options
+     */
+    public void setJvmOptions(String... options) {
+        this.jvmOptions = new ArrayList<String>(Arrays.asList(options));
+    }
+
+    /**
+     * Returns the number of individuals per job
+     * 
+     * @return the job size
+     */
+    public int getJobSize() {
+        return this.jobSize;
+    }
+
+    /**
+     * Sets the number of individuals per job. Larger jobs reduce the communication
+     * overhead, smaller ones improve the load balancing.
+     * 
+     * @param size the job size
+     */
+    public void setJobSize(int size) {
+        this.jobSize = Math.max(1, size);
+    }
+
+    /**
+     * Returns the number of jobs each worker can have in flight
+     * 
+     * @return the window size
+     */
+    public int getWindow() {
+        return this.window;
+    }
+
+    /**
+     * Sets the number of jobs each worker can have in flight.
+     * 
+     * @param window the window size
+     */
+    public void setWindow(int window) {
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * Sets the health checks.
+     * 
+     * @param period the period between health checks in milliseconds
+     * @param timeout the time in milliseconds after which a silent worker is considered dead
+     */
+    public void setHealthCheck(long period, long timeout) {
+        if (period <= 0 || timeout < period) {
+            throw new IllegalArgumentException("[Jenes]: health check timeout must be not lower than a positive period");
+        }
+        this.healthPeriod = period;
+        this.healthTimeout = timeout;
+    }
+
+    /**
+     * Returns the evaluation timeout
+     * 
+     * @return the timeout per individual in milliseconds, 0 if evaluations are not timed out
+     */
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Sets the evaluation timeout. Jobs are given the timeout multiplied by their
+     * size, and workers exceeding it are restarted.
+     * 
+     * @param millis the timeout per individual in milliseconds, 0 to disable timeouts
+     */
+    public void setTimeout(long millis) {
+        this.timeout = Math.max(0, millis);
+    }
+
+    /**
+     * Returns the number of failures after which an individual is given up
+     * 
+     * @return the maximum number of attempts
+     */
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    /**
+     * Sets the number of failures after which an individual is given up.
+     * 
+     * @param attempts the maximum number of attempts
+     */
+    public void setMaxAttempts(int attempts) {
+        this.maxAttempts = Math.max(1, attempts);
+    }
+
+    /**
+     * Returns the maximum number of restarts of a worker within the restart window
+     * 
+     * @return the maximum number of restarts
+     */
+    public int getMaxRestarts() {
+        return this.maxRestarts;
+    }
+
+    /**
+     * Sets the maximum number of restarts of a worker within the restart window. 
+     * A worker restarted more often is not launched again.
+     * 
+     * @param restarts the maximum number of restarts
+     */
+    public void setMaxRestarts(int restarts) {
+        this.maxRestarts = Math.max(0, restarts);
+    }
+
+    /**
+     * Returns the time window restarts are counted in
+     * 
+     * @return the window in milliseconds
+     */
+    public long getRestartWindow() {
+        return this.restartWindow;
+    }
+
+    /**
+     * Sets the time window restarts are counted in.
+     * 
+     * @param millis the window in milliseconds
+     */
+    public void setRestartWindow(long millis) {
+        this.restartWindow = Math.max(1, millis);
+    }
+
+    /**
+     * Returns the time to wait for a worker when none is available
+     * 
+     * @return the timeout in milliseconds
+     */
+    public long getJoinTimeout() {
+        return this.joinTimeout;
+    }
+
+    /**
+     * Sets the time to wait for a worker when none is connected or being launched.
+     * The evaluation fails if no worker joins in time.
+     * 
+     * @param millis the timeout in milliseconds
+     */
+    public void setJoinTimeout(long millis) {
+        this.joinTimeout = Math.max(0, millis);
+    }
+
+    /**
+     * Sets the scores given to individuals whose evaluation failed too many times.
+     * 
+     * @param penalty the penalty scores, or null for the worst possible ones
+     */
+    public void setFailurePenalty(double... penalty) {
+        this.failurePenalty = penalty != null ? penalty.clone() : null;
+    }
+
+    /**
+     * Returns the number of workers currently connected
+     * 
+     * @return the number of workers
+     */
+    public int getConnectedWorkers() {
+        return this.workers.size();
+    }
+
+    /**
+     * Returns the number of worker restarts in the current run
+     * 
+     * @return the number of restarts
+     */
+    public int getRestarts() {
+        return this.restarts;
+    }
+
+    /**
+     * Returns the number of jobs resubmitted in the current run
+     * 
+     * @return the number of resubmissions
+     */
+    public int getResubmissions() {
+        return this.resubmissions;
+    }
+
+    /**
+     * Returns the number of individuals given up in the current run
+     * 
+     * @return the number of failed evaluations
+     */
+    public int getFailedEvaluations() {
+        return this.failures;
+    }
+
+    @Override
+    public void start(boolean reset) {
+        super.start(reset);
+        this.restarts = 0;
+        this.resubmissions = 0;
+        this.failures = 0;
+        this.waitingSince = 0;
+        try {
+            this.server = new ServerSocket(this.port, 50, this.address);
+        } catch (IOException ex) {
+            throw new IllegalStateException("[Jenes]: unable to listen on " + this.address + ":" + this.port, ex);
+        }
+        Thread acceptor = new Thread(new Runnable() {
+
+            public void run() {
+                accept();
+            }
+        }, "jenes-evaluator-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        this.processes = new Process[this.nworkers];
+        this.joined = new boolean[this.nworkers];
+        this.recentRestarts.clear();
+        for (int i = 0; i < this.nworkers; ++i) {
+            this.recentRestarts.add(new ArrayDeque<Long>());
+        }
+        for (int i = 0; i < this.nworkers; ++i) {
+            this.launch(i);
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        for (Worker worker : this.workers) {
+            try {
+                worker.send(EvaluationWorker.SHUTDOWN, 0, null);
+            } catch (IOException ex) {
+                //the worker is already gone
+            }
+            worker.close();
+        }
+        this.workers.clear();
+        if (this.server != null) {
+            try {
+                this.server.close();
+            } catch (IOException ex) {
+                log.log(Level.FINE, "Unable to close the server socket", ex);
+            }
+            this.server = null;
+        }
+        if (this.processes != null) {
+            for (Process process : this.processes) {
+                if (process != null) {
+                    process.destroy();
+                }
+            }
+            this.processes = null;
+        }
+        this.queue.clear();
+        this.pending.clear();
+        this.events.clear();
+        this.outstanding = 0;
+    }
+
+    @Override
+    public void onEvaluationBegin(Population pop, boolean forced) {
+        super.onEvaluationBegin(pop, forced);
+        this.pending.clear();
+    }
+
+    @Override
+    public void evaluateIndividual(Individual individual) {
+        this.pending.add(individual);
+        if (this.pending.size() >= this.jobSize) {
+            this.enqueue();
+            this.pump(false);
+        }
+    }
+
+    @Override
+    public void evaluateBatch(List<Individual> batch) {
+        for (Individual individual : batch) {
+            this.pending.add(individual);
+            if (this.pending.size() >= this.jobSize) {
+                this.enqueue();
+            }
+        }
+        this.pump(false);
+    }
+
+    @Override
+    public void onEvaluationEnd() {
+        if (!this.pending.isEmpty()) {
+            this.enqueue();
+        }
+        while (this.outstanding > 0) {
+            if (this.algorithm != null && this.algorithm.isCancelled()) {
+                this.abandon();
+                break;
+            }
+            this.pump(true);
+        }
+        super.onEvaluationEnd();
+    }
+
+    /**
+     * Makes a job out of pending individuals
+     */
+    private void enqueue() {
+        this.queue.addLast(new Job(this.pending, 0));
+        this.pending = new ArrayList<Individual>();
+        this.outstanding++;
+    }
+
+    /**
+     * Dispatches jobs, handles events and checks workers. If block is true, waits
+     * for an event up to the health check period.
+     */
+    private void pump(boolean block) {
+        this.dispatch();
+        Event event;
+        try {
+            event = block ? this.events.poll(this.healthPeriod, TimeUnit.MILLISECONDS) : this.events.poll();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            event = null;
+        }
+        while (event != null) {
+            this.handle(event);
+            event = this.events.poll();
+        }
+        this.check();
+        this.dispatch();
+
+        if (!this.queue.isEmpty() && this.workers.isEmpty() && !this.isLaunching()) {
+            //hand-started workers may still join
+            final long now = System.currentTimeMillis();
+            if (this.waitingSince == 0) {
+                this.waitingSince = now;
+            } else if (now - this.waitingSince > this.joinTimeout) {
+                throw new IllegalStateException("[Jenes]: no evaluation worker joined within " + this.joinTimeout + " ms");
+            }
+        } else {
+            this.waitingSince = 0;
+        }
+    }
+
+    /**
+     * Sends queued jobs to workers with free window slots
+     */
+    private void dispatch() {
+        boolean sent = true;
+        while (!this.queue.isEmpty() && sent) {
+            sent = false;
+            for (Worker worker : new ArrayList<Worker>(this.workers)) {
+                if (this.queue.isEmpty()) {
+                    break;
+                }
+                if (worker.inflight.size() < this.window) {
+                    Job job = this.queue.pollFirst();
+                    try {
+                        worker.send(EvaluationWorker.EVALUATE, job.id, this.encode(job));
+                        job.started = System.currentTimeMillis();
+                        worker.inflight.addLast(job);
+                        sent = true;
+                    } catch (IOException ex) {
+                        this.queue.addFirst(job);
+                        this.lose(worker, "send failed: " + ex);
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ByteBuffer encode(Job job) {
+        if (this.codec == null) {
+            this.codec = Checkpoint.getCodec((Class<Chromosome>) job.individuals.get(0).getChromosome().getClass());
+        }
+        int size = 4;
+        for (Individual individual : job.individuals) {
+            size += Checkpoint.sizeOf(individual, this.codec);
+        }
+        if (this.buffer.capacity() < size) {
+            this.buffer = ByteBuffer.allocate(Math.max(size, 2 * this.buffer.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.buffer.clear();
+        this.buffer.putInt(job.individuals.size());
+        for (Individual individual : job.individuals) {
+            Checkpoint.encode(individual, this.codec, this.buffer);
+        }
+        this.buffer.flip();
+        return this.buffer;
+    }
+
+    private void handle(Event event) {
+        final Worker worker = event.worker;
+        if (event.frame == null) {
+            if (event.joined) {
+                if (worker.lost) {
+                    return;
+                }
+                this.workers.add(worker);
+                if (worker.slot >= 0 && worker.slot < this.joined.length) {
+                    this.joined[worker.slot] = true;
+                }
+                log.fine("Evaluation worker " + worker.slot + " joined");
+            } else {
+                this.lose(worker, event.cause);
+            }
+            return;
+        }
+        if (!this.workers.contains(worker)) {
+            return;
+        }
+        final EvaluationWorker.Frame frame = event.frame;
+        if (frame.type == EvaluationWorker.RESULT || frame.type == EvaluationWorker.ERROR) {
+            Job job = null;
+            for (Iterator<Job> it = worker.inflight.iterator(); it.hasNext();) {
+                Job j = it.next();
+                if (j.id == frame.id) {
+                    job = j;
+                    it.remove();
+                    break;
+                }
+            }
+            if (job == null) {
+                return;
+            }
+            //the next job starts being evaluated now
+            Job next = worker.inflight.peekFirst();
+            if (next != null) {
+                next.started = Math.max(next.started, System.currentTimeMillis());
+            }
+            if (frame.type == EvaluationWorker.RESULT) {
+                this.complete(job, frame.payload);
+            } else {
+                log.warning("Evaluation failed on worker " + worker.slot + ": " + new String(frame.payload.array(), StandardCharsets.UTF_8));
+                this.fail(job);
+            }
+        }
+    }
+
+    private void complete(Job job, ByteBuffer payload) {
+        final int n = payload.getInt();
+        for (int k = 0; k < n; ++k) {
+            Individual individual = job.individuals.get(k);
+            final byte flags = payload.get();
+            final int m = individual.getNumOfObjectives();
+            double[] scores = new double[m];
+            for (int i = 0; i < m; ++i) {
+                scores[i] = payload.getDouble();
+            }
+            if ((flags & Checkpoint.EVALUATED) != 0) {
+                individual.setScore(scores);
+            }
+            individual.setLegal((flags & Checkpoint.LEGAL) != 0);
+        }
+        this.outstanding--;
+    }
+
+    /**
+     * Handles a failed job, by splitting, resubmitting or giving it up
+     * 
+     * @return true if the job has been given up
+     */
+    private boolean fail(Job job) {
+        job.attempts++;
+        if (job.individuals.size() > 1) {
+            //failures are isolated by evaluating individuals one by one
+            this.outstanding--;
+            for (int i = job.individuals.size() - 1; i >= 0; --i) {
+                List<Individual> single = new ArrayList<Individual>(1);
+                single.add(job.individuals.get(i));
+                this.queue.addFirst(new Job(single, job.attempts));
+                this.outstanding++;
+            }
+            this.resubmissions++;
+        } else if (job.attempts < this.maxAttempts) {
+            this.queue.addFirst(job);
+            this.resubmissions++;
+        } else {
+            Individual individual = job.individuals.get(0);
+            individual.setScore(this.penalty(individual.getNumOfObjectives()));
+            individual.setLegal(false);
+            this.failures++;
+            this.outstanding--;
+            return true;
+        }
+        return false;
+    }
+
+    private double[] penalty(int m) {
+        if (this.failurePenalty != null) {
+            return this.failurePenalty;
+        }
+        double[] scores = new double[m];
+        Fitness fit = this.algorithm != null ? this.algorithm.getFitness() : null;
+        for (int i = 0; i < m; ++i) {
+            if (fit == null) {
+                scores[i] = Double.NaN;
+            } else {
+                scores[i] = fit.getBiggerIsBetter()[i] ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Checks workers health and timeouts, and launched processes
+     */
+    private void check() {
+        final long now = System.currentTimeMillis();
+        for (Worker worker : new ArrayList<Worker>(this.workers)) {
+            Job head = worker.inflight.peekFirst();
+            if (now - worker.lastSeen > this.healthTimeout) {
+                this.lose(worker, "not responding");
+            } else if (this.timeout > 0 && head != null && now - head.started > this.timeout * head.individuals.size()) {
+                this.lose(worker, "evaluation timed out");
+            } else if (now - worker.lastPing >= this.healthPeriod) {
+                worker.lastPing = now;
+                try {
+                    worker.send(EvaluationWorker.PING, 0, null);
+                } catch (IOException ex) {
+                    this.lose(worker, "ping failed: " + ex);
+                }
+            }
+        }
+        for (int i = 0; i < this.processes.length; ++i) {
+            if (this.processes[i] != null && !this.joined[i] && hasExited(this.processes[i])) {
+                log.warning("Evaluation worker " + i + " exited before joining");
+                this.processes[i] = null;
+                this.relaunch(i, true);
+            }
+        }
+    }
+
+    /**
+     * Removes a worker, resubmitting its jobs and restarting it if possible
+     */
+    private void lose(Worker worker, String cause) {
+        //a late join of a lost worker is rejected
+        worker.lost = true;
+        if (!this.workers.remove(worker)) {
+            worker.close();
+            return;
+        }
+        log.warning("Evaluation worker " + worker.slot + " lost: " + cause);
+        worker.close();
+
+        //the oldest job was under evaluation, the following ones were just queued
+        Job head = worker.inflight.pollFirst();
+        while (!worker.inflight.isEmpty()) {
+            this.queue.addFirst(worker.inflight.pollLast());
+            this.resubmissions++;
+        }
+        //the culprit of a penalised job does not consume the restart budget
+        final boolean penalised = head != null && this.fail(head);
+
+        final int slot = worker.slot;
+        if (slot >= 0 && slot < this.processes.length) {
+            if (this.processes[slot] != null) {
+                this.processes[slot].destroy();
+                this.processes[slot] = null;
+            }
+            this.joined[slot] = false;
+            this.relaunch(slot, !penalised);
+        }
+    }
+
+    /**
+     * Relaunches a worker, unless it has been restarted too often in the restart window
+     * 
+     * @param charged true if the restart counts against the budget of the worker
+     */
+    private void relaunch(int slot, boolean charged) {
+        if (charged) {
+            final long now = System.currentTimeMillis();
+            final Deque<Long> times = this.recentRestarts.get(slot);
+            while (!times.isEmpty() && now - times.peekFirst() > this.restartWindow) {
+                times.pollFirst();
+            }
+            if (times.size() >= this.maxRestarts) {
+                log.warning("Evaluation worker " + slot + " restarted too often, not relaunched");
+                return;
+            }
+            times.addLast(now);
+        }
+        this.restarts++;
+        this.launch(slot);
+    }
+
+    private void launch(int slot) {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(this.jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(EvaluationWorker.class.getName());
+        command.add(this.server.getInetAddress().getHostAddress());
+        command.add(String.valueOf(this.server.getLocalPort()));
+        command.add(this.setup);
+        command.add(String.valueOf(slot));
+        try {
+            this.processes[slot] = new ProcessBuilder(command).inheritIO().start();
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Unable to launch evaluation worker " + slot, ex);
+        }
+    }
+
+    private boolean isLaunching() {
+        for (int i = 0; i < this.processes.length; ++i) {
+            if (this.processes[i] != null && !this.joined[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasExited(Process process) {
+        try {
+            process.exitValue();
+            return true;
+        } catch (IllegalThreadStateException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Abandons outstanding jobs, leaving individuals not evaluated
+     */
+    private void abandon() {
+        this.queue.clear();
+        for (Worker worker : this.workers) {
+            worker.inflight.clear();
+        }
+        this.outstanding = 0;
+    }
+
+    /**
+     * Accepts worker connections, until the server socket is closed
+     */
+    private void accept() {
+        final ServerSocket socket = this.server;
+        while (!socket.isClosed()) {
+            try {
+                final Socket connection = socket.accept();
+                connection.setTcpNoDelay(true);
+                connection.setSoTimeout(HANDSHAKE_TIMEOUT);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                if (in.readInt() != EvaluationWorker.MAGIC || in.readInt() != EvaluationWorker.VERSION) {
+                    log.warning("Rejected connection from " + connection.getRemoteSocketAddress());
+                    connection.close();
+                    continue;
+                }
+                final Worker worker = new Worker(in.readInt(), connection, in);
+                connection.setSoTimeout(0);
+                //the join is queued before any event of the reader
+                this.events.add(new Event(worker, true));
+                Thread reader = new Thread(new Runnable() {
+
+                    public void run() {
+                        worker.read();
+                    }
+                }, "jenes-evaluator-reader-" + worker.slot);
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException ex) {
+                if (!socket.isClosed()) {
+                    log.log(Level.FINE, "Worker connection failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * A group of individuals evaluated together
+     */
+    private class Job {
+
+        private final long id = jobs++;
+        private final List<Individual> individuals;
+        private int attempts;
+        private long started;
+
+        private Job(List<Individual> individuals, int attempts) {
+            this.individuals = individuals;
+            this.attempts = attempts;
+        }
+    }
+
+    /**
+     * A connection to a worker
+     */
+    private class Worker {
+
+        private final int slot;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final Deque<Job> inflight = new ArrayDeque<Job>();
+        private volatile long lastSeen = System.currentTimeMillis();
+        private long lastPing = System.currentTimeMillis();
+        private boolean lost = false;
+
+        private Worker(int slot, Socket socket, DataInputStream in) throws IOException {
+            this.slot = slot;
+            this.socket = socket;
+            this.in = in;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void send(int type, long id, ByteBuffer payload) throws IOException {
+            EvaluationWorker.write(this.out, type, id, payload);
+            this.out.flush();
+        }
+
+        private void read() {
+            try {
+                while (true) {
+                    EvaluationWorker.Frame frame = EvaluationWorker.read(this.in);
+                    this.lastSeen = System.currentTimeMillis();
+                    if (frame.type != EvaluationWorker.PONG) {
+                        events.add(new Event(this, frame));
+                    }
+                }
+            } catch (IOException ex) {
+                events.add(new Event(this, "connection closed: " + ex));
+            }
+        }
+
+        private void close() {
+            try {
+                this.socket.close();
+            } catch (IOException ex) {
+                //nothing to do
+            }
+        }
+    }
+
+    /**
+     * A notification from the acceptor or a reader thread
+     */
+    private static class Event {
+
+        private final Worker worker;
+        private final EvaluationWorker.Frame frame;
+        private final boolean joined;
+        private final String cause;
+
+        private Event(Worker worker, boolean joined) {
+            this.worker = worker;
+            this.frame = null;
+            this.joined = joined;
+            this.cause = null;
+        }
+
+        private Event(Worker worker, EvaluationWorker.Frame frame) {
+            this.worker = worker;
+            this.frame = frame;
+            this.joined = false;
+            this.cause = null;
+        }
+
+        private Event(Worker worker, String cause) {
+            this.worker = worker;
+            this.frame = null;
+            this.joined = false;
+            this.cause = cause;
+        }
+    }
+}
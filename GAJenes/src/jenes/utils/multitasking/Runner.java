@@ -18,10 +18,12 @@
  */
 package jenes.utils.multitasking;
 
+import java.util.List;
 import jenes.population.Fitness;
 import jenes.GeneticAlgorithm;
 import jenes.population.Individual;
 import jenes.population.Population;
+import jenes.statistics.Tracer;
 
 /**
  * The Runner is the abstraction of an execution enviroinment per Jenes. By now
@@ -140,5 +142,70 @@ public abstract class Runner {
      * @param individual 
      */
     public abstract void evaluateIndividual(Individual individual);
+
+    /**
+     * Call-back invoked by {@link GeneticAlgorithm#evaluatePopulation(jenes.population.Population, boolean)}
+     * when the algorithm evaluates individuals in batches. By default each
+     * individual is handed to {@link #evaluateIndividual(jenes.population.Individual)}.
+     * <br/>
+     * The list is owned by the caller, which refills it for the next batch as soon
+     * as this method returns, possibly before {@link #onEvaluationEnd()} is invoked:
+     * implementations working asynchronously have to copy it.
+     * 
+     * @param batch the individuals to evaluate
+     * @see Fitness#evaluateBatch(java.util.List)
+     */
+    public void evaluateBatch(List<Individual> batch) {
+        for (Individual individual : batch) {
+            this.evaluateIndividual(individual);
+        }
+    }
+
+    /**
+     * Evaluates an individual by the given fitness, reporting the evaluation to 
+     * the {@link Tracer} of the algorithm, if any. Implementations should use it
+     * in place of {@link Fitness#evaluate(jenes.population.Individual)}.
+     * 
+     * @param fitness the fitness
+     * @param individual the individual to evaluate
+     * @since 2.1
+     */
+    protected final void evaluate(Fitness fitness, Individual individual) {
+        final Tracer tracer = this.algorithm != null ? this.algorithm.getTracer() : null;
+        if (tracer == null) {
+            fitness.evaluate(individual);
+        } else {
+            final long begin = System.nanoTime();
+            fitness.evaluate(individual);
+            tracer.onEvaluation(this.algorithm, individual, System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * Evaluates a batch by {@link Fitness#evaluateBatch(java.util.List)}, recording
+     * it in the algorithm statistics and reporting each individual to the {@link Tracer} 
+     * of the algorithm, if any, with the batch time amortized over the batch size.
+     * Implementations should use it in place of {@link Fitness#evaluateBatch(java.util.List)}.
+     * 
+     * @param fitness the fitness
+     * @param batch the individuals to evaluate
+     * @since 2.1
+     */
+    @SuppressWarnings("unchecked")
+    protected final void evaluate(Fitness fitness, List<Individual> batch) {
+        final long begin = System.nanoTime();
+        fitness.evaluateBatch(batch);
+        final long elapsed = System.nanoTime() - begin;
+        if (this.algorithm != null) {
+            this.algorithm.getStatistics().addBatchEvaluation(batch.size(), elapsed);
+            final Tracer tracer = this.algorithm.getTracer();
+            if (tracer != null && !batch.isEmpty()) {
+                final long share = elapsed / batch.size();
+                for (Individual individual : batch) {
+                    tracer.onEvaluation(this.algorithm, individual, share);
+                }
+            }
+        }
+    }
     
 }
@@ -0,0 +1,56 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.multitasking;
+
+import jenes.chromosome.Chromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+
+/**
+ * A <code>WorkerSetup</code> creates the objects required by an {@link EvaluationWorker}
+ * to evaluate individuals in a separate process. Implementations must be public
+ * classes with a public default constructor, available in the worker classpath.
+ * <p>
+ * The sample individual must have chromosomes of the same type and length of the 
+ * ones evolved by the algorithm, as individuals are shipped as in 
+ * {@link jenes.utils.checkpoint.Checkpoint} records.
+ * 
+ * @param <T> The class of chromosomes to work with.
+ * 
+ * @version 2.1
+ * @since 2.1
+ * 
+ * @see ProcessEvaluator
+ */
+public interface WorkerSetup<T extends Chromosome> {
+
+    /**
+     * Creates the sample individual, used to decode the individuals to evaluate.
+     * 
+     * @return the sample individual
+     */
+    public Individual<T> createSample();
+
+    /**
+     * Creates the fitness function used by the worker.
+     * 
+     * @return the fitness function
+     */
+    public Fitness<T> createFitness();
+}
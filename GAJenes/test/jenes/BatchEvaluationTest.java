@@ -0,0 +1,224 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes;
+
+import java.util.List;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import jenes.statistics.Statistics;
+import jenes.utils.multitasking.MultiThreadEvaluator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the batch evaluation contract of {@link GeneticAlgorithm} and {@link Fitness}.
+ */
+public class BatchEvaluationTest {
+
+    private static final int SIZE = 40;
+    private static final int GENERATIONS = 20;
+    private static final int BATCH = 8;
+    /** Short genomes, so that populations hold many copies of the same genome */
+    private static final int LENGTH = 6;
+    private boolean sameChromosomeSameFitness;
+
+    /**
+     * The batches received by a fitness and by its clones
+     */
+    private static class Tally {
+
+        private int calls = 0;
+        private int batches = 0;
+        private int individuals = 0;
+        private int largest = 0;
+        private int twins = 0;
+    }
+
+    /**
+     * Counts ones, recording the batches it receives. Clones share the tally.
+     */
+    private static class BatchCounter extends Fitness<BooleanChromosome> {
+
+        private final Tally tally = new Tally();
+
+        private BatchCounter() {
+            super(true);
+        }
+
+        @Override
+        public void evaluateBatch(List<Individual<BooleanChromosome>> batch) {
+            synchronized (this.tally) {
+                this.tally.batches++;
+                this.tally.individuals += batch.size();
+                this.tally.largest = Math.max(this.tally.largest, batch.size());
+                for (int i = 0; i < batch.size(); ++i) {
+                    for (int j = i + 1; j < batch.size(); ++j) {
+                        if (batch.get(i).getChromosome().equals(batch.get(j).getChromosome())) {
+                            this.tally.twins++;
+                        }
+                    }
+                }
+            }
+            super.evaluateBatch(batch);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            synchronized (this.tally) {
+                this.tally.calls++;
+            }
+            individual.setScore(ones(individual));
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    private static int ones(Individual<BooleanChromosome> individual) {
+        BooleanChromosome chrom = individual.getChromosome();
+        int count = 0;
+        for (int i = 0; i < chrom.length(); i++) {
+            if (chrom.getValue(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static GeneticAlgorithm<BooleanChromosome> create(BatchCounter fit, int batchSize) {
+        Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(LENGTH));
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>(sample, SIZE);
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(fit, pop, GENERATIONS);
+        ga.addStage(new TournamentSelector<BooleanChromosome>(2));
+        ga.addStage(new OnePointCrossover<BooleanChromosome>(0.6));
+        ga.addStage(new SimpleMutator<BooleanChromosome>(0.05));
+        ga.setElitism(2);
+        ga.setEvaluationBatchSize(batchSize);
+        ga.setRandomSeed(7);
+        return ga;
+    }
+
+    private static void assertScored(Population<BooleanChromosome> pop) {
+        for (Individual<BooleanChromosome> individual : pop) {
+            assertTrue(individual.isEvaluated());
+            assertEquals(ones(individual), individual.getScore(), 0);
+        }
+    }
+
+    @Before
+    public void saveSameChromosomeSameFitness() {
+        this.sameChromosomeSameFitness = Individual.isSameChromosomeSameFitness();
+        Individual.setSameChromosomeSameFitness(true);
+    }
+
+    @After
+    public void restoreSameChromosomeSameFitness() {
+        Individual.setSameChromosomeSameFitness(this.sameChromosomeSameFitness);
+    }
+
+    @Test
+    public void batchesAreBoundedAndHoldDistinctGenomes() {
+        BatchCounter fit = new BatchCounter();
+        GeneticAlgorithm<BooleanChromosome> ga = create(fit, BATCH);
+        ga.evolve();
+
+        assertTrue(fit.tally.batches > 0);
+        assertTrue(fit.tally.largest <= BATCH);
+        assertEquals(0, fit.tally.twins);
+        assertEquals(fit.tally.individuals, fit.tally.calls);
+
+        Statistics stats = ga.getStatistics();
+        assertEquals(fit.tally.batches, stats.getBatchEvaluations());
+        assertEquals(fit.tally.individuals, stats.getBatchEvaluatedIndividuals());
+        assertTrue(stats.getDuplicateEvaluationsSkipped() > 0);
+        // duplicates receive the score of their twin
+        assertScored(ga.getNextPopulation());
+    }
+
+    @Test
+    public void duplicatesAreEvaluatedWhenGenomesDoNotDetermineFitness() {
+        Individual.setSameChromosomeSameFitness(false);
+        BatchCounter fit = new BatchCounter();
+        GeneticAlgorithm<BooleanChromosome> ga = create(fit, BATCH);
+        ga.evolve();
+
+        assertTrue(fit.tally.twins > 0);
+        assertEquals(0, ga.getStatistics().getDuplicateEvaluationsSkipped());
+        assertScored(ga.getNextPopulation());
+    }
+
+    @Test
+    public void unitBatchesKeepTheOneByOneEvaluation() {
+        BatchCounter fit = new BatchCounter();
+        GeneticAlgorithm<BooleanChromosome> ga = create(fit, 1);
+        ga.evolve();
+
+        assertEquals(0, fit.tally.batches);
+        assertEquals(0, ga.getStatistics().getBatchEvaluations());
+        assertEquals(fit.tally.calls, ga.getStatistics().getFitnessEvaluationNumbers());
+        assertScored(ga.getNextPopulation());
+    }
+
+    @Test
+    public void batchingDoesNotChangeTheEvolution() {
+        GeneticAlgorithm<BooleanChromosome> single = create(new BatchCounter(), 1);
+        single.evolve();
+        GeneticAlgorithm<BooleanChromosome> batched = create(new BatchCounter(), BATCH);
+        batched.evolve();
+
+        Population<BooleanChromosome> expected = single.getNextPopulation();
+        Population<BooleanChromosome> actual = batched.getNextPopulation();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertTrue(expected.getIndividual(i).getChromosome().equals(actual.getIndividual(i).getChromosome()));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void runnersEvaluateWholeBatches() {
+        BatchCounter fit = new BatchCounter();
+        GeneticAlgorithm<BooleanChromosome> ga = create(fit, BATCH);
+        ga.setRunner(new MultiThreadEvaluator(3));
+        ga.evolve();
+
+        assertTrue(fit.tally.batches > 0);
+        assertTrue(fit.tally.largest <= BATCH);
+        assertEquals(0, fit.tally.twins);
+        assertEquals(fit.tally.batches, ga.getStatistics().getBatchEvaluations());
+        assertEquals(fit.tally.individuals, ga.getStatistics().getBatchEvaluatedIndividuals());
+        assertScored(ga.getNextPopulation());
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes;
+
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.LazyEvaluator;
+import jenes.population.Population;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import jenes.statistics.Statistics;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the lazy evaluation mode of {@link GeneticAlgorithm}.
+ */
+public class LazyEvaluationTest {
+
+    private static final int SIZE = 40;
+    private static final int GENERATIONS = 30;
+
+    /**
+     * Counts ones, recording the number of calls
+     */
+    private static class OneCounter extends Fitness<BooleanChromosome> {
+
+        private int calls = 0;
+
+        private OneCounter() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            this.calls++;
+            BooleanChromosome chrom = individual.getChromosome();
+            int count = 0;
+            for (int i = 0; i < chrom.length(); i++) {
+                if (chrom.getValue(i)) {
+                    count++;
+                }
+            }
+            individual.setScore(count);
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    private static GeneticAlgorithm<BooleanChromosome> create(OneCounter fit, boolean lazy) {
+        Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(32));
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>(sample, SIZE);
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(fit, pop, GENERATIONS);
+        ga.addStage(new TournamentSelector<BooleanChromosome>(2));
+        ga.addStage(new OnePointCrossover<BooleanChromosome>(0.6));
+        ga.addStage(new SimpleMutator<BooleanChromosome>(0.01));
+        ga.setElitism(2);
+        ga.setLazyEvaluation(lazy);
+        ga.setRandomSeed(42);
+        return ga;
+    }
+
+    @Test
+    public void lazyModeDoesNotCostMoreEvaluationsThanEagerMode() {
+        OneCounter eagerFit = new OneCounter();
+        GeneticAlgorithm<BooleanChromosome> eager = create(eagerFit, false);
+        eager.evolve();
+
+        OneCounter lazyFit = new OneCounter();
+        GeneticAlgorithm<BooleanChromosome> lazy = create(lazyFit, true);
+        lazy.evolve();
+
+        assertTrue("lazy " + lazyFit.calls + " > eager " + eagerFit.calls, lazyFit.calls <= eagerFit.calls);
+        Statistics stats = lazy.getStatistics();
+        assertEquals(lazyFit.calls, stats.getLazyEvaluations());
+        assertEquals(lazyFit.calls, stats.getFitnessEvaluationNumbers());
+        assertTrue(stats.getLazyEvaluations() <= stats.getDeferredEvaluations());
+    }
+
+    @Test
+    public void survivorsAreDeferredOnce() {
+        OneCounter eagerFit = new OneCounter();
+        GeneticAlgorithm<BooleanChromosome> eager = create(eagerFit, false);
+        eager.evolve();
+
+        OneCounter lazyFit = new OneCounter();
+        GeneticAlgorithm<BooleanChromosome> lazy = create(lazyFit, true);
+        lazy.evolve();
+
+        // the eager mode evaluates each new genome once, the lazy mode must not defer more
+        assertTrue(lazy.getStatistics().getDeferredEvaluations() <= eagerFit.calls);
+    }
+
+    @Test
+    public void copiesShareTheDeferredEvaluation() {
+        final int[] calls = {0};
+        LazyEvaluator<BooleanChromosome> evaluator = new LazyEvaluator<BooleanChromosome>() {
+
+            @Override
+            public void evaluate(Individual<BooleanChromosome> individual) {
+                calls[0]++;
+                individual.setScore(7);
+            }
+        };
+        Individual<BooleanChromosome> original = new Individual<BooleanChromosome>(new BooleanChromosome(8));
+        original.setLazyEvaluator(evaluator);
+        Individual<BooleanChromosome> copy = original.clone();
+        Individual<BooleanChromosome> other = new Individual<BooleanChromosome>(new BooleanChromosome(8));
+        other.setAs(original);
+
+        assertTrue(copy.isEvaluationPending());
+        assertEquals(7, copy.getScore(), 0);
+        assertEquals(7, original.getScore(), 0);
+        assertEquals(7, other.getScore(), 0);
+        assertEquals(1, calls[0]);
+        assertFalse(original.isEvaluationPending());
+    }
+
+    @Test
+    public void changedCopiesDoNotTakeTheSharedResult() {
+        final int[] calls = {0};
+        LazyEvaluator<BooleanChromosome> evaluator = new LazyEvaluator<BooleanChromosome>() {
+
+            @Override
+            public void evaluate(Individual<BooleanChromosome> individual) {
+                calls[0]++;
+                individual.setScore(calls[0]);
+            }
+        };
+        Individual<BooleanChromosome> original = new Individual<BooleanChromosome>(new BooleanChromosome(8));
+        original.setLazyEvaluator(evaluator);
+        Individual<BooleanChromosome> copy = original.clone();
+        copy.getChromosome().setValue(0, !copy.getChromosome().getValue(0));
+        copy.setNotEvaluated();
+
+        assertFalse(copy.isEvaluationPending());
+        assertEquals(1, original.getScore(), 0);
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void equalsDoesNotEvaluate() {
+        final int[] calls = {0};
+        LazyEvaluator<BooleanChromosome> evaluator = new LazyEvaluator<BooleanChromosome>() {
+
+            @Override
+            public void evaluate(Individual<BooleanChromosome> individual) {
+                calls[0]++;
+                individual.setScore(1);
+            }
+        };
+        Individual<BooleanChromosome> a = new Individual<BooleanChromosome>(new BooleanChromosome(8));
+        Individual<BooleanChromosome> b = a.clone();
+        a.setLazyEvaluator(evaluator);
+        b.setLazyEvaluator(evaluator);
+
+        assertEquals(Individual.isSameChromosomeSameFitness(), a.equals(b));
+        assertEquals(0, calls[0]);
+        assertTrue(a.isEvaluationPending());
+        assertTrue(b.isEvaluationPending());
+    }
+}
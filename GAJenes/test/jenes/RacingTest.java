@@ -0,0 +1,147 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes;
+
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the racing evaluations of {@link GeneticAlgorithm}.
+ */
+public class RacingTest {
+
+    private static final int SIZE = 40;
+    private static final int GENERATIONS = 30;
+
+    /**
+     * Minimizes the ones as a sum of per-gene costs, aborting beyond the cutoff
+     */
+    private static class OneCost extends Fitness<BooleanChromosome> {
+
+        private OneCost() {
+            super(false);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            BooleanChromosome chrom = individual.getChromosome();
+            final int n = chrom.length();
+            int cost = 0;
+            for (int i = 0; i < n; i++) {
+                if (chrom.getValue(i)) {
+                    cost++;
+                }
+                if (i < n - 1 && this.exceedsCutoff(cost)) {
+                    this.abortEvaluation(individual, (double) (i + 1) / n);
+                    return;
+                }
+            }
+            individual.setScore(cost);
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    /**
+     * Tests that an aborted individual ranks below one evaluated in full, even if
+     * its partial score was better
+     */
+    @Test
+    public void testAbortedRanksLast() {
+        OneCost fit = new OneCost();
+        fit.getScoreBound().set(1);
+        Individual<BooleanChromosome> full = new Individual<BooleanChromosome>(new BooleanChromosome(8));
+        for (int i = 0; i < 8; ++i) {
+            full.getChromosome().setValue(i, true);
+        }
+        full.setScore(8);
+        Individual<BooleanChromosome> aborted = new Individual<BooleanChromosome>(new BooleanChromosome(8));
+        aborted.getChromosome().setValue(0, true);
+        aborted.getChromosome().setValue(1, true);
+        fit.evaluate(aborted);
+        assertEquals(1, fit.getScoreBound().getAborted());
+        assertEquals(Double.POSITIVE_INFINITY, aborted.getScore(), 0);
+
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>();
+        pop.add(aborted);
+        pop.add(full);
+        pop.sort(false);
+        assertSame(full, pop.getIndividual(0));
+    }
+
+    /**
+     * Tests that, at every generation of a racing run, the aborted offspring rank
+     * below every individual evaluated in full
+     */
+    @Test
+    public void testAbortedNeverOutRank() {
+        Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(32));
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>(sample, SIZE);
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(new OneCost(), pop, GENERATIONS);
+        ga.addStage(new TournamentSelector<BooleanChromosome>(2));
+        ga.addStage(new OnePointCrossover<BooleanChromosome>(0.6));
+        ga.addStage(new SimpleMutator<BooleanChromosome>(0.02));
+        ga.setElitism(5);
+        ga.setRacing(true);
+        ga.setRandomSeed(42);
+        final int[] violations = new int[1];
+        ga.addGenerationEventListener(new GenerationEventListener<BooleanChromosome>() {
+            @Override
+            public void onGeneration(GeneticAlgorithm<BooleanChromosome> ga, long time) {
+                double worstFull = Double.NEGATIVE_INFINITY;
+                double bestAborted = Double.POSITIVE_INFINITY;
+                for (Individual<BooleanChromosome> individual : ga.getCurrentPopulation()) {
+                    final double score = individual.getScore();
+                    if (Double.isInfinite(score)) {
+                        bestAborted = Math.min(bestAborted, score);
+                    } else {
+                        worstFull = Math.max(worstFull, score);
+                    }
+                }
+                if (bestAborted < worstFull) {
+                    violations[0]++;
+                }
+            }
+        });
+        ga.evolve();
+
+        assertTrue(ga.getStatistics().getAbortedEvaluations() > 0);
+        assertEquals(0, violations[0]);
+        ga.getCurrentPopulation().sort(false);
+        assertFalse(Double.isInfinite(ga.getCurrentPopulation().getIndividual(0).getScore()));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes;
+
+import jenes.chromosome.BooleanChromosome;
+import jenes.chromosome.GenericAlleleSet;
+import jenes.chromosome.ObjectChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.Evaluator;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import jenes.statistics.Statistics;
+import jenes.statistics.Statistics.TerminationReason;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the {@link Termination} policies.
+ */
+public class TerminationTest {
+
+    private static final int SIZE = 20;
+
+    /**
+     * Counts the genes equal to the first allele, recording the number of calls
+     */
+    private static class Counter<T extends jenes.chromosome.Chromosome> extends Fitness<T> {
+
+        private int calls = 0;
+
+        private Counter() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<T> individual) {
+            this.calls++;
+            Object[] genes = individual.getChromosome().toArray();
+            int count = 0;
+            for (Object gene : genes) {
+                if (Boolean.TRUE.equals(gene) || "a".equals(gene)) {
+                    count++;
+                }
+            }
+            individual.setScore(count);
+        }
+
+        @Override
+        public Fitness<T> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    private static GeneticAlgorithm<BooleanChromosome> create(Counter<BooleanChromosome> fit) {
+        Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(32));
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>(sample, SIZE);
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(fit, pop, 50);
+        ga.addStage(new TournamentSelector<BooleanChromosome>(2));
+        ga.addStage(new OnePointCrossover<BooleanChromosome>(0.8));
+        ga.addStage(new SimpleMutator<BooleanChromosome>(0.05));
+        ga.setRandomSeed(3);
+        return ga;
+    }
+
+    @Test
+    public void exhaustedBudgetKeepsTheEvaluatedIndividuals() {
+        Counter<BooleanChromosome> fit = new Counter<BooleanChromosome>();
+        GeneticAlgorithm<BooleanChromosome> ga = create(fit);
+        ga.setTermination(Termination.<BooleanChromosome>evaluations(SIZE + 5));
+        ga.evolve();
+
+        Statistics stats = ga.getStatistics();
+        assertEquals(TerminationReason.EVALUATION_BUDGET, stats.getTerminationReason());
+        assertEquals(SIZE + 5, fit.calls);
+        assertEquals(1, stats.getGenerations());
+        Population<BooleanChromosome> last = ga.getNextPopulation();
+        assertEquals(SIZE, last.size());
+        for (Individual<BooleanChromosome> individual : last) {
+            assertTrue(individual.isEvaluated());
+        }
+    }
+
+    @Test
+    public void budgetAppliesToEvaluationsOfStages() {
+        Counter<BooleanChromosome> fit = new Counter<BooleanChromosome>();
+        GeneticAlgorithm<BooleanChromosome> ga = create(fit);
+        ga.addStage(new Evaluator<BooleanChromosome>(true));
+        ga.setTermination(Termination.<BooleanChromosome>evaluations(3 * SIZE + 7));
+        ga.evolve();
+
+        assertEquals(TerminationReason.EVALUATION_BUDGET, ga.getStatistics().getTerminationReason());
+        assertEquals(3 * SIZE + 7, fit.calls);
+    }
+
+    @Test
+    public void diversityCollapseSupportsChromosomesWithoutCodec() {
+        GenericAlleleSet<String> alleles = new GenericAlleleSet<String>("a", "b");
+        Individual<ObjectChromosome> sample = new Individual<ObjectChromosome>(new ObjectChromosome(alleles, 16));
+        Population<ObjectChromosome> pop = new Population<ObjectChromosome>(sample, SIZE);
+        GeneticAlgorithm<ObjectChromosome> ga = new GeneticAlgorithm<ObjectChromosome>(new Counter<ObjectChromosome>(), pop, 200);
+        ga.addStage(new TournamentSelector<ObjectChromosome>(3));
+        ga.addStage(new OnePointCrossover<ObjectChromosome>(0.8));
+        ga.setRandomSeed(5);
+        ga.setTermination(Termination.<ObjectChromosome>diversity(0.5));
+        ga.evolve();
+
+        assertEquals(TerminationReason.DIVERSITY_COLLAPSE, ga.getStatistics().getTerminationReason());
+    }
+}
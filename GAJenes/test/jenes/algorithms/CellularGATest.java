@@ -0,0 +1,349 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.algorithms;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import jenes.AlgorithmException;
+import jenes.GenerationEventListener;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.BitwiseChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.operator.Crossover;
+import jenes.stage.operator.Mutator;
+import jenes.stage.operator.Selector;
+import jenes.stage.operator.common.Cellular;
+import jenes.stage.operator.common.Cellular.Sweep;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the sweep policies and the tiles of {@link Cellular}, run by a {@link CellularGA}.
+ */
+public class CellularGATest {
+
+    private static final int ROWS = 8;
+    private static final int COLUMNS = 8;
+    private static final int WORDS = 1;
+    private static final int BITS = WORDS * Integer.SIZE;
+    /** The cell holding the best individual in the diffusion tests */
+    private static final int SEED_ROW = 3;
+    private static final int SEED_COLUMN = 3;
+
+    /**
+     * Counts the bits set, recording the threads evaluating
+     */
+    private static class OneMax extends Fitness<BitwiseChromosome> {
+
+        private final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+        private OneMax() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<BitwiseChromosome> individual) {
+            this.threads.add(Thread.currentThread().getName());
+            BitwiseChromosome chrom = individual.getChromosome();
+            int count = 0;
+            for (int i = 0; i < chrom.getIntSize(); ++i) {
+                count += Integer.bitCount(chrom.getIntValueAt(i));
+            }
+            individual.setScore(count);
+        }
+
+        @Override
+        public Fitness<BitwiseChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    /**
+     * Deterministically selects the first best individual
+     */
+    private static class BestSelector extends Selector<BitwiseChromosome> {
+
+        @Override
+        protected Individual<BitwiseChromosome> select(List<Individual<BitwiseChromosome>> list) {
+            Individual<BitwiseChromosome> best = list.get(0);
+            for (Individual<BitwiseChromosome> individual : list) {
+                if (individual.getScore() > best.getScore()) {
+                    best = individual;
+                }
+            }
+            return best;
+        }
+
+        @Override
+        public void processProperties(String props) {
+        }
+    }
+
+    /**
+     * Breeds copies of the best neighbour, so that it diffuses without variation
+     */
+    private static class Diffusion implements Cellular.Breeder<BitwiseChromosome> {
+
+        @Override
+        public Selector<BitwiseChromosome> createSelector() {
+            return new BestSelector();
+        }
+
+        @Override
+        public Crossover<BitwiseChromosome> createCrossover() {
+            return new OnePointCrossover<BitwiseChromosome>(0);
+        }
+
+        @Override
+        public Mutator<BitwiseChromosome> createMutator() {
+            return new SimpleMutator<BitwiseChromosome>(0);
+        }
+    }
+
+    /**
+     * Breeds by tournament, crossover and mutation
+     */
+    private static class Variation implements Cellular.Breeder<BitwiseChromosome> {
+
+        @Override
+        public Selector<BitwiseChromosome> createSelector() {
+            return new TournamentSelector<BitwiseChromosome>(2);
+        }
+
+        @Override
+        public Crossover<BitwiseChromosome> createCrossover() {
+            return new OnePointCrossover<BitwiseChromosome>(0.9);
+        }
+
+        @Override
+        public Mutator<BitwiseChromosome> createMutator() {
+            return new SimpleMutator<BitwiseChromosome>(0.05);
+        }
+    }
+
+    /**
+     * Runs a single generation from a grid of empty genomes but the seed cell, 
+     * and returns the cells reached by the seed genome.
+     */
+    private static boolean[] diffuse(Sweep sweep, int tileRows, int tileColumns) {
+        Individual<BitwiseChromosome> sample = new Individual<BitwiseChromosome>(new BitwiseChromosome(WORDS));
+        Population<BitwiseChromosome> pop = new Population<BitwiseChromosome>(sample, ROWS * COLUMNS);
+        BitwiseChromosome seed = pop.getIndividual(SEED_ROW * COLUMNS + SEED_COLUMN).getChromosome();
+        for (int i = 0; i < WORDS; ++i) {
+            seed.setIntValueAt(i, -1);
+        }
+        CellularGA<BitwiseChromosome> ga = new CellularGA<BitwiseChromosome>(new OneMax(), pop, 1, COLUMNS, new Diffusion());
+        ga.setRandomization(false);
+        ga.setRandomSeed(5);
+        ga.getCellular().setSweep(sweep);
+        ga.getCellular().setTiles(tileRows, tileColumns);
+        ga.evolve();
+
+        Population<BitwiseChromosome> grid = ga.getNextPopulation();
+        boolean[] reached = new boolean[grid.size()];
+        for (int k = 0; k < reached.length; ++k) {
+            reached[k] = grid.getIndividual(k).getScore() == BITS;
+        }
+        return reached;
+    }
+
+    private static boolean reached(boolean[] grid, int r0, int r1, int c0, int c1) {
+        for (int r = r0; r < r1; ++r) {
+            for (int c = c0; c < c1; ++c) {
+                if (grid[r * COLUMNS + c]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int count(boolean[] grid) {
+        int n = 0;
+        for (boolean b : grid) {
+            n += b ? 1 : 0;
+        }
+        return n;
+    }
+
+    private static boolean[] neighbourhood() {
+        boolean[] expected = new boolean[ROWS * COLUMNS];
+        expected[SEED_ROW * COLUMNS + SEED_COLUMN] = true;
+        expected[(SEED_ROW - 1) * COLUMNS + SEED_COLUMN] = true;
+        expected[(SEED_ROW + 1) * COLUMNS + SEED_COLUMN] = true;
+        expected[SEED_ROW * COLUMNS + SEED_COLUMN - 1] = true;
+        expected[SEED_ROW * COLUMNS + SEED_COLUMN + 1] = true;
+        return expected;
+    }
+
+    /**
+     * Tests that a synchronous sweep moves a genome by one step per generation, 
+     * while asynchronous sweeps let it travel further within the generation
+     */
+    @Test
+    public void testSweeps() {
+        boolean[] expected = neighbourhood();
+        assertEquals(Arrays.toString(expected), Arrays.toString(diffuse(Sweep.SYNCHRONOUS, 1, 1)));
+
+        // Row by row from the top left corner: the rows of the seed and below are
+        // reached from its column onwards, the row above from the seed column
+        boolean[] line = diffuse(Sweep.LINE, 1, 1);
+        assertEquals(5 + 5 * 6, count(line));
+        for (int r = SEED_ROW; r < ROWS; ++r) {
+            for (int c = SEED_COLUMN - 1; c < COLUMNS; ++c) {
+                assertTrue(r + "," + c, line[r * COLUMNS + c]);
+            }
+        }
+
+        boolean[] random = diffuse(Sweep.RANDOM, 1, 1);
+        for (int k = 0; k < expected.length; ++k) {
+            assertTrue(!expected[k] || random[k]);
+        }
+    }
+
+    /**
+     * Tests that synchronous tiles read the whole current grid, while asynchronous
+     * tiles see the cells of the other tiles as they were at the beginning of the generation
+     */
+    @Test
+    public void testTiles() {
+        assertEquals(Arrays.toString(neighbourhood()), Arrays.toString(diffuse(Sweep.SYNCHRONOUS, 2, 2)));
+
+        // The seed sits at the bottom right corner of the first tile: the tiles on 
+        // its right and below read it from their halo, the diagonal one cannot reach it
+        int half = ROWS / 2;
+        boolean[] line = diffuse(Sweep.LINE, 2, 2);
+        assertTrue(reached(line, 0, half, half, COLUMNS));
+        assertTrue(reached(line, half, ROWS, 0, half));
+        assertFalse(reached(line, half, ROWS, half, COLUMNS));
+        assertTrue(reached(diffuse(Sweep.LINE, 1, 1), half, ROWS, half, COLUMNS));
+    }
+
+    /**
+     * Checks that no cell gets worse and counts the evaluations of the stage
+     */
+    private static class Replacement implements GenerationEventListener<BitwiseChromosome> {
+
+        private double[] last = null;
+        private int worsened = 0;
+        private int evaluations = 0;
+        private int replacements = 0;
+
+        @Override
+        public void onGeneration(GeneticAlgorithm<BitwiseChromosome> ga, long time) {
+            Population<BitwiseChromosome> pop = ga.getNextPopulation();
+            double[] scores = new double[pop.size()];
+            for (int i = 0; i < scores.length; ++i) {
+                scores[i] = pop.getIndividual(i).getScore();
+                if (this.last != null && scores[i] < this.last[i]) {
+                    this.worsened++;
+                }
+            }
+            this.last = scores;
+            Cellular<BitwiseChromosome>.Statistics stats = 
+                    (Cellular<BitwiseChromosome>.Statistics) ((CellularGA<BitwiseChromosome>) ga).getCellular().getStatistics();
+            assertTrue(stats.getEvaluations() <= pop.size());
+            this.evaluations += stats.getEvaluations();
+            this.replacements += stats.getReplacements();
+        }
+    }
+
+    /**
+     * Tests that, for each sweep on one and on four tiles, the replacement is 
+     * elitist, evaluations are reported to the algorithm and fitness improves
+     */
+    @Test
+    public void testEvolution() {
+        int size = ROWS * COLUMNS;
+        int generations = 30;
+        for (Sweep sweep : Sweep.values()) {
+            for (int tiles = 1; tiles <= 2; ++tiles) {
+                String name = sweep + " " + tiles + "x" + tiles;
+                OneMax fit = new OneMax();
+                Individual<BitwiseChromosome> sample = new Individual<BitwiseChromosome>(new BitwiseChromosome(WORDS));
+                Population<BitwiseChromosome> pop = new Population<BitwiseChromosome>(sample, size);
+                CellularGA<BitwiseChromosome> ga = new CellularGA<BitwiseChromosome>(fit, pop, generations, COLUMNS, new Variation());
+                ga.setRandomSeed(17);
+                ga.getCellular().setSweep(sweep);
+                ga.getCellular().setTiles(tiles, tiles);
+                Replacement check = new Replacement();
+                ga.addGenerationEventListener(check);
+                ga.evolve();
+
+                assertEquals(name, 0, check.worsened);
+                assertTrue(name, check.replacements > 0);
+                assertEquals(name, size + check.evaluations, ga.getStatistics().getFitnessEvaluationNumbers());
+                double mean = 0;
+                for (Individual<BitwiseChromosome> individual : ga.getNextPopulation()) {
+                    mean += individual.getScore() / size;
+                }
+                assertTrue(name + " mean " + mean, mean > 0.75 * BITS);
+                assertEquals(name, tiles > 1, fit.threads.contains("jenes-cellular-tile"));
+            }
+        }
+    }
+
+    /**
+     * Tests that tiles are refused without a breeder or beyond the grid size
+     */
+    @Test
+    public void testTileErrors() {
+        Cellular<BitwiseChromosome> shared = new Cellular<BitwiseChromosome>(COLUMNS,
+                new BestSelector(), new OnePointCrossover<BitwiseChromosome>(), new SimpleMutator<BitwiseChromosome>());
+        shared.setTiles(1, 1);
+        try {
+            shared.setTiles(2, 1);
+            fail();
+        } catch (IllegalStateException ex) {
+        }
+
+        Cellular<BitwiseChromosome> cellular = new Cellular<BitwiseChromosome>(COLUMNS, new Diffusion());
+        try {
+            cellular.setTiles(1, COLUMNS + 1);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+
+        Individual<BitwiseChromosome> sample = new Individual<BitwiseChromosome>(new BitwiseChromosome(WORDS));
+        CellularGA<BitwiseChromosome> ga = new CellularGA<BitwiseChromosome>(new OneMax(),
+                new Population<BitwiseChromosome>(sample, 2 * COLUMNS), 1, cellular);
+        cellular.setTiles(3, 1);
+        try {
+            ga.evolve();
+            fail();
+        } catch (AlgorithmException ex) {
+        }
+    }
+}
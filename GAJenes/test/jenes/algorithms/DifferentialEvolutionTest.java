@@ -0,0 +1,165 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.algorithms;
+
+import jenes.GenerationEventListener;
+import jenes.GeneticAlgorithm;
+import jenes.algorithms.DifferentialEvolution.Strategy;
+import jenes.chromosome.DoubleChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the replacement and the parameter adaptation of {@link DifferentialEvolution}.
+ */
+public class DifferentialEvolutionTest {
+
+    private static final int SIZE = 20;
+    private static final int DIMENSION = 5;
+    private static final int GENERATIONS = 200;
+    private static final double BOUND = 5;
+
+    /**
+     * Minimizes the sum of squares
+     */
+    private static class Sphere extends Fitness<DoubleChromosome> {
+
+        private Sphere() {
+            super(false);
+        }
+
+        @Override
+        public void evaluate(Individual<DoubleChromosome> individual) {
+            DoubleChromosome chrom = individual.getChromosome();
+            double sum = 0;
+            for (int i = 0; i < chrom.length(); ++i) {
+                sum += chrom.getValue(i) * chrom.getValue(i);
+            }
+            individual.setScore(sum);
+        }
+
+        @Override
+        public Fitness<DoubleChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    private static DifferentialEvolution create(Strategy strategy) {
+        Individual<DoubleChromosome> sample = new Individual<DoubleChromosome>(new DoubleChromosome(DIMENSION, -BOUND, BOUND));
+        Population<DoubleChromosome> pop = new Population<DoubleChromosome>(sample, SIZE);
+        DifferentialEvolution de = new DifferentialEvolution(new Sphere(), pop, GENERATIONS, strategy);
+        de.setRandomSeed(13);
+        return de;
+    }
+
+    /**
+     * Checks at every generation that no individual is worse than its target and
+     * that genes are within bounds
+     */
+    private static class Replacement implements GenerationEventListener<DoubleChromosome> {
+
+        private double[] last = null;
+        private int worsened = 0;
+        private int outOfBounds = 0;
+
+        @Override
+        public void onGeneration(GeneticAlgorithm<DoubleChromosome> ga, long time) {
+            Population<DoubleChromosome> pop = ga.getCurrentPopulation();
+            double[] scores = new double[pop.size()];
+            for (int i = 0; i < scores.length; ++i) {
+                Individual<DoubleChromosome> individual = pop.getIndividual(i);
+                scores[i] = individual.getScore();
+                if (this.last != null && scores[i] > this.last[i]) {
+                    this.worsened++;
+                }
+                for (int j = 0; j < DIMENSION; ++j) {
+                    double v = individual.getChromosome().getValue(j);
+                    if (v < -BOUND || v > BOUND) {
+                        this.outOfBounds++;
+                    }
+                }
+            }
+            this.last = scores;
+        }
+    }
+
+    /**
+     * Tests that, for each strategy, targets are replaced only by better trials
+     * and the sphere is minimized
+     */
+    @Test
+    public void testReplacement() {
+        for (Strategy strategy : Strategy.values()) {
+            DifferentialEvolution de = create(strategy);
+            Replacement check = new Replacement();
+            de.addGenerationEventListener(check);
+            de.evolve();
+
+            assertEquals(strategy.name(), 0, check.worsened);
+            assertEquals(strategy.name(), 0, check.outOfBounds);
+            double best = Double.POSITIVE_INFINITY;
+            for (Individual<DoubleChromosome> individual : de.getCurrentPopulation()) {
+                best = Math.min(best, individual.getScore());
+            }
+            assertTrue(strategy.name() + " best " + best, best < 1e-3);
+        }
+    }
+
+    /**
+     * Tests that adaptation moves the parameter memories within their ranges,
+     * while fixed parameters keep them
+     */
+    @Test
+    public void testAdaptation() {
+        DifferentialEvolution adaptive = create(Strategy.CURRENT_TO_PBEST_1);
+        adaptive.setMemorySize(3);
+        adaptive.evolve();
+        double[] f = adaptive.getMemoryF();
+        double[] cr = adaptive.getMemoryCR();
+        assertEquals(3, f.length);
+        boolean moved = false;
+        for (int k = 0; k < f.length; ++k) {
+            assertTrue("F " + f[k], f[k] > 0 && f[k] <= 1);
+            assertTrue("CR " + cr[k], cr[k] >= 0 && cr[k] <= 1);
+            moved |= f[k] != DifferentialEvolution.DEFAULT_F || cr[k] != DifferentialEvolution.DEFAULT_CR;
+        }
+        assertTrue(moved);
+
+        DifferentialEvolution fixed = create(Strategy.CURRENT_TO_PBEST_1);
+        fixed.setAdaptive(false);
+        fixed.evolve();
+        for (double v : fixed.getMemoryF()) {
+            assertEquals(DifferentialEvolution.DEFAULT_F, v, 0);
+        }
+        for (double v : fixed.getMemoryCR()) {
+            assertEquals(DifferentialEvolution.DEFAULT_CR, v, 0);
+        }
+    }
+}
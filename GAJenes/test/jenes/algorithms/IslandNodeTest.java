@@ -0,0 +1,179 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.algorithms;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import jenes.algorithms.IslandGA.Graph;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Individual;
+import jenes.population.Population;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the migration between two {@link IslandNode} on the loopback interface.
+ */
+public class IslandNodeTest {
+
+    private static final int LENGTH = 16;
+    private static final int SIZE = 10;
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * Returns the addresses of two islands listening on free ports
+     */
+    private static InetSocketAddress[] addresses() throws IOException {
+        InetSocketAddress[] addresses = new InetSocketAddress[2];
+        for (int i = 0; i < addresses.length; ++i) {
+            ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            addresses[i] = new InetSocketAddress(InetAddress.getLoopbackAddress(), probe.getLocalPort());
+            probe.close();
+        }
+        return addresses;
+    }
+
+    /**
+     * Creates an evaluated population whose individuals have <code>ones</code> ones
+     */
+    private static Population<BooleanChromosome> population(int ones) {
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>();
+        for (int k = 0; k < SIZE; ++k) {
+            BooleanChromosome chrom = new BooleanChromosome(LENGTH);
+            for (int i = 0; i < ones; ++i) {
+                chrom.setValue(i, true);
+            }
+            pop.add(new Individual<BooleanChromosome>(chrom, ones));
+        }
+        pop.setSortingBy(true);
+        return pop;
+    }
+
+    private static Graph pair() {
+        Graph graph = new Graph(2);
+        graph.setLink(0, 1, true);
+        graph.setLink(1, 0, true);
+        return graph;
+    }
+
+    private static void await(IslandNode<?> node, int batches) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (node.getReceived() < batches && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("no migrants received", node.getReceived() >= batches);
+    }
+
+    /**
+     * Counts the live receiver threads of an island
+     */
+    private static int receivers(int id) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().equals("jenes-island-" + id + "-receiver")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tests that the best individuals of an island replace the worst ones of its
+     * neighbour, keeping their scores
+     */
+    @Test
+    public void testMigration() throws Exception {
+        InetSocketAddress[] addresses = addresses();
+        IslandNode<BooleanChromosome> node0 = new IslandNode<BooleanChromosome>(0, pair(), addresses);
+        IslandNode<BooleanChromosome> node1 = new IslandNode<BooleanChromosome>(1, pair(), addresses);
+        node0.setMigration(2);
+        node1.setMigration(2);
+        try {
+            node0.start();
+            node1.start();
+            Population<BooleanChromosome> pop0 = population(LENGTH);
+            Population<BooleanChromosome> pop1 = population(1);
+            node0.migrate(pop0, 0);
+            await(node1, 1);
+            node1.migrate(pop1, 0);
+
+            assertEquals(2, node1.getImmigrants());
+            int migrants = 0;
+            for (Individual<BooleanChromosome> individual : pop1) {
+                if (individual.getScore() == LENGTH) {
+                    assertTrue(individual.getChromosome().equals(pop0.getIndividual(0).getChromosome()));
+                    migrants++;
+                }
+            }
+            assertEquals(2, migrants);
+            assertEquals(SIZE, pop1.size());
+        } finally {
+            node0.close();
+            node1.close();
+        }
+    }
+
+    /**
+     * Tests that closing an island also closes the connections it accepted, even
+     * if the neighbour keeps running
+     */
+    @Test
+    public void testCloseConnections() throws Exception {
+        InetSocketAddress[] addresses = addresses();
+        IslandNode<BooleanChromosome> node0 = new IslandNode<BooleanChromosome>(0, pair(), addresses);
+        IslandNode<BooleanChromosome> node1 = new IslandNode<BooleanChromosome>(1, pair(), addresses);
+        try {
+            node0.start();
+            node1.start();
+            node0.migrate(population(LENGTH), 0);
+            await(node1, 1);
+            assertEquals(1, receivers(1));
+
+            node1.close();
+            final long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (receivers(1) > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, receivers(1));
+
+            //the address is released, once the neighbour has closed its side too
+            node0.close();
+            ServerSocket server = new ServerSocket();
+            server.setReuseAddress(true);
+            for (;;) {
+                try {
+                    server.bind(addresses[1]);
+                    break;
+                } catch (BindException ex) {
+                    if (System.currentTimeMillis() > deadline + TIMEOUT) {
+                        throw ex;
+                    }
+                    Thread.sleep(10);
+                }
+            }
+            server.close();
+        } finally {
+            node0.close();
+            node1.close();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.chromosome.codings;
+
+import java.util.Random;
+import jenes.chromosome.BitwiseChromosome;
+import jenes.chromosome.BitwiseChromosome.BitCoding;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the primitive and bulk decoding of the Gray, short and byte codings
+ * agree with the per-bit decoding.
+ */
+public class BitCodingTest {
+
+    private static final int SIZE = 37;
+
+    private static final ShortCoding MODULE_AND_SIGN = new ShortCoding(ShortCoding.Mode.MODULE_AND_SIGN);
+
+    private static final BitCoding[] CODINGS = {new GrayCoding(), new ShortCoding(), MODULE_AND_SIGN, new ByteCoding()};
+
+    /**
+     * The Gray decoding as a loop over the bits, from the most significant one
+     */
+    private static int grayPerBit(int bits) {
+        int val = bits;
+        for (int k = 30; k >= 0; --k) {
+            int gk = (bits >> k) & 1;
+            int bk1 = (val >> (k + 1)) & 1;
+            val &= ~(1 << k);
+            val |= (gk ^ bk1) << k;
+        }
+        return val;
+    }
+
+    /**
+     * The Gray encoding as a loop over the bits, from the most significant one
+     */
+    private static int grayEncodePerBit(int value) {
+        int gray = value;
+        for (int k = 30; k >= 0; --k) {
+            int bk = (value >> k) & 1;
+            int bk1 = (value >> (k + 1)) & 1;
+            gray &= ~(1 << k);
+            gray |= (bk ^ bk1) << k;
+        }
+        return gray;
+    }
+
+    /**
+     * Decodes the lowest bits of a field one bit at a time
+     */
+    private static int perBit(BitCoding coding, int bits) {
+        if (coding instanceof GrayCoding) {
+            return grayPerBit(bits);
+        }
+        final int width = coding.SIZE.BITS;
+        int module = 0;
+        for (int k = width - 2; k >= 0; --k) {
+            module += ((bits >> k) & 1) << k;
+        }
+        final int sign = (bits >> (width - 1)) & 1;
+        if (coding instanceof ByteCoding) {
+            return module + (sign << (width - 1));
+        }
+        if (coding == MODULE_AND_SIGN) {
+            return sign == 1 ? -module : module;
+        }
+        return module - (sign << (width - 1));
+    }
+
+    private static int[] samples() {
+        Random random = new Random(7);
+        int[] samples = new int[4096];
+        int[] edges = {0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0x7FFF, 0x8000, 0xFF, 0x80, 0x7F};
+        System.arraycopy(edges, 0, samples, 0, edges.length);
+        for (int i = edges.length; i < samples.length; ++i) {
+            samples[i] = random.nextInt();
+        }
+        return samples;
+    }
+
+    /**
+     * Tests the Gray decoding and encoding against the per-bit loops, and their round trip
+     */
+    @Test
+    public void testGray() {
+        GrayCoding coding = new GrayCoding();
+        for (int bits : samples()) {
+            assertEquals(grayPerBit(bits), coding.decodeInt(bits));
+            assertEquals(grayPerBit(bits), coding.decode(bits).intValue());
+            assertEquals(grayPerBit(bits), coding.decodeDouble(bits), 0);
+            assertEquals(grayEncodePerBit(bits), coding.encode(bits));
+            assertEquals(bits, coding.decodeInt(coding.encode(bits)));
+        }
+    }
+
+    /**
+     * Tests every short field in both modes, sign extended or not, and the round trip
+     * of every value
+     */
+    @Test
+    public void testShort() {
+        for (ShortCoding.Mode mode : ShortCoding.Mode.values()) {
+            ShortCoding coding = mode == ShortCoding.Mode.MODULE_AND_SIGN ? MODULE_AND_SIGN : new ShortCoding(mode);
+            for (int field = 0; field <= 0xFFFF; ++field) {
+                final int expected = perBit(coding, field);
+                assertEquals(expected, coding.decodeInt(field));
+                assertEquals(expected, coding.decodeInt((short) field));
+                assertEquals(expected, coding.decode((short) field).intValue());
+                assertEquals(expected, coding.decodeDouble((short) field), 0);
+            }
+            for (int value = coding.getMinValue(); value <= coding.getMaxValue(); ++value) {
+                assertEquals(value, coding.decodeInt(coding.encode(value)));
+            }
+        }
+        assertEquals(-5, perBit(MODULE_AND_SIGN, 0x8005));
+        assertEquals(-32763, perBit(new ShortCoding(), 0x8005));
+    }
+
+    /**
+     * Tests every byte field, sign extended or not
+     */
+    @Test
+    public void testByte() {
+        ByteCoding coding = new ByteCoding();
+        for (int field = 0; field <= 0xFF; ++field) {
+            assertEquals(field, perBit(coding, field));
+            assertEquals(field, coding.decodeInt(field));
+            assertEquals(field, coding.decodeInt((byte) field));
+            assertEquals(field, coding.decode((byte) field).intValue());
+            assertEquals(field, coding.decodeInt(coding.encode(field)));
+        }
+        assertEquals(0, coding.getMinValue());
+        assertEquals(255, coding.getMaxValue());
+    }
+
+    /**
+     * Tests that the chromosome decodes each value, one at a time and in bulk, as
+     * the bits it reads one by one
+     */
+    @Test
+    public void testChromosome() {
+        jenes.utils.Random.getInstance(11);
+        for (BitCoding coding : CODINGS) {
+            BitwiseChromosome chromosome = new BitwiseChromosome(SIZE, coding);
+            chromosome.randomize();
+            final int width = coding.SIZE.BITS;
+            final int[] all = chromosome.decodeAll(null);
+            final double[] scaled = chromosome.decodeAllScaled(null, -1, 1);
+            final double span = (double) coding.getMaxValue() - coding.getMinValue();
+            for (int i = 0; i < SIZE; ++i) {
+                int field = 0;
+                for (int k = 0; k < width; ++k) {
+                    field = (field << 1) | chromosome.getBitValueAt(i * width + k);
+                }
+                final int expected = perBit(coding, field);
+                assertEquals(expected, chromosome.decodeInt(i));
+                assertEquals(expected, chromosome.decodeDouble(i), 0);
+                assertEquals(expected, ((Number) chromosome.getValueAt(i)).intValue());
+                assertEquals(expected, all[i]);
+                assertEquals(-1 + 2 * ((double) expected - coding.getMinValue()) / span, scaled[i], 1e-12);
+            }
+        }
+    }
+
+    /**
+     * Tests that the overridden bulk decoding of a range agrees with the default one
+     */
+    @Test
+    public void testDecodeRange() {
+        final int[] words = samples();
+        for (final BitCoding<Integer> coding : CODINGS) {
+            BitCoding<Integer> plain = new BitCoding<Integer>(coding.SIZE) {
+
+                @Override
+                public Integer decode(int bits) {
+                    return coding.decode(bits);
+                }
+
+                @Override
+                public int encode(Integer value) {
+                    return coding.encode(value);
+                }
+            };
+            final int from = 3;
+            final int to = words.length * (Integer.SIZE / coding.SIZE.BITS) - 5;
+            int[] expected = new int[to - from + 2];
+            int[] actual = new int[to - from + 2];
+            plain.decodeAll(words, from, to, expected, 2);
+            coding.decodeAll(words, from, to, actual, 2);
+            assertArrayEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.performance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jenes.statistics.StreamingSummary;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the elimination decisions of the {@link RaceTuner} tests.
+ */
+public class RaceTunerTest {
+
+    private static final double ALPHA = 0.05;
+
+    /**
+     * Builds candidates from their costs, one row per candidate
+     */
+    private static List<RaceTuner.Candidate> candidates(double[]... costs) {
+        List<RaceTuner.Candidate> alive = new ArrayList<RaceTuner.Candidate>();
+        for (double[] row : costs) {
+            RaceTuner.Candidate c = new RaceTuner.Candidate(null);
+            for (int b = 0; b < row.length; ++b) {
+                c.setCost(b, row[b]);
+            }
+            alive.add(c);
+        }
+        return alive;
+    }
+
+    private static void assertDecisions(boolean[] expected, boolean[] worse) {
+        assertEquals(Arrays.toString(expected), Arrays.toString(worse));
+    }
+
+    /**
+     * Tests the quantiles the tests rely on against tabulated values
+     */
+    @Test
+    public void testQuantiles() {
+        assertEquals(1.645, StreamingSummary.normalQuantile(0.95), 1e-3);
+        assertEquals(1.960, StreamingSummary.normalQuantile(0.975), 1e-3);
+        assertEquals(2.101, StreamingSummary.studentQuantile(0.975, 18), 1e-2);
+        assertEquals(1.833, StreamingSummary.studentQuantile(0.95, 9), 1e-2);
+    }
+
+    /**
+     * Tests that the Friedman test discards the configuration always ranked last,
+     * keeping the two exchanging the first rank
+     */
+    @Test
+    public void testFriedmanDiscardsWorst() {
+        final int blocks = 10;
+        double[] a = new double[blocks];
+        double[] b = new double[blocks];
+        double[] c = new double[blocks];
+        for (int i = 0; i < blocks; ++i) {
+            a[i] = i % 2 == 0 ? 1 : 2;
+            b[i] = i % 2 == 0 ? 2 : 1;
+            c[i] = 3;
+        }
+        boolean[] worse = RaceTuner.friedman(candidates(a, b, c), blocks, ALPHA);
+        assertFalse(worse[0]);
+        assertFalse(worse[1]);
+        assertTrue(worse[2]);
+    }
+
+    /**
+     * Tests that the Friedman test keeps every configuration when the ranks rotate
+     * evenly, and when all costs are tied
+     */
+    @Test
+    public void testFriedmanKeepsEquivalent() {
+        final int blocks = 9;
+        double[][] costs = new double[3][blocks];
+        for (int i = 0; i < blocks; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                costs[j][i] = (i + j) % 3;
+            }
+        }
+        assertDecisions(new boolean[3], RaceTuner.friedman(candidates(costs), blocks, ALPHA));
+
+        double[] tied = {1, 1, 1, 1, 1};
+        assertDecisions(new boolean[3], RaceTuner.friedman(candidates(tied, tied, tied), tied.length, ALPHA));
+    }
+
+    /**
+     * Tests that the Friedman test only compares the first blocks
+     */
+    @Test
+    public void testFriedmanFirstBlocks() {
+        double[] a = {1, 2, 1, 2, 1, 2, 1, 2, 9, 9};
+        double[] b = {2, 1, 2, 1, 2, 1, 2, 1, 9, 9};
+        double[] c = {3, 3, 3, 3, 3, 3, 3, 3, 0, 0};
+        boolean[] worse = RaceTuner.friedman(candidates(a, b, c), 8, ALPHA);
+        assertDecisions(new boolean[]{false, false, true}, worse);
+    }
+
+    /**
+     * Tests that the paired t-test discards a configuration consistently worse
+     * than the best one, even by a constant difference
+     */
+    @Test
+    public void testTTestDiscardsWorse() {
+        double[] a = {10, 12, 9, 15, 11, 13, 10, 14};
+        double[] b = new double[a.length];
+        double[] c = new double[a.length];
+        for (int i = 0; i < a.length; ++i) {
+            b[i] = a[i] + 1 + (i % 2 == 0 ? 0.2 : -0.2);
+            c[i] = a[i] + 0.5;
+        }
+        boolean[] worse = RaceTuner.tTest(candidates(b, a, c), a.length, ALPHA);
+        assertDecisions(new boolean[]{true, false, true}, worse);
+    }
+
+    /**
+     * Tests that the paired t-test keeps a configuration whose differences from the
+     * best one are not significant
+     */
+    @Test
+    public void testTTestKeepsNoisy() {
+        double[] a = {10, 12, 9, 15, 11, 13, 10, 14};
+        double[] b = {11, 11, 10, 14, 12, 12, 11, 13};
+        boolean[] worse = RaceTuner.tTest(candidates(a, b), a.length, ALPHA);
+        assertDecisions(new boolean[2], worse);
+    }
+
+    /**
+     * Tests that the paired t-test discards a configuration with a failed run
+     */
+    @Test
+    public void testTTestDiscardsFailed() {
+        double[] a = {10, 12, 9, 15, 11};
+        double[] b = {9, 11, Double.POSITIVE_INFINITY, 14, 10};
+        boolean[] worse = RaceTuner.tTest(candidates(a, b), a.length, ALPHA);
+        assertDecisions(new boolean[]{false, true}, worse);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.performance;
+
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.statistics.StreamingSummary;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the curves of {@link ReplicateRunner}.
+ */
+public class ReplicateRunnerTest {
+
+    private static final int SIZE = 20;
+    private static final int GENERATIONS = 5;
+    private static final int REPLICATES = 4;
+
+    /**
+     * Maximizes the ones
+     */
+    private static class OneMax extends Fitness<BooleanChromosome> {
+
+        private OneMax() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            BooleanChromosome chrom = individual.getChromosome();
+            int count = 0;
+            for (int i = 0; i < chrom.length(); ++i) {
+                if (chrom.getValue(i)) {
+                    count++;
+                }
+            }
+            individual.setScore(count);
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    /**
+     * Builds replicates without stages, whose initial population is either random
+     * or made of copies of the same genome
+     */
+    private static ReplicateRunner.Factory<BooleanChromosome> factory(final boolean random) {
+        return new ReplicateRunner.Factory<BooleanChromosome>() {
+
+            @Override
+            public GeneticAlgorithm<BooleanChromosome> create(int replicate) {
+                Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(64));
+                Population<BooleanChromosome> pop = new Population<BooleanChromosome>(sample, SIZE);
+                GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(new OneMax(), pop, GENERATIONS);
+                ga.setRandomization(random);
+                return ga;
+            }
+        };
+    }
+
+    private static ReplicateRunner.Report run(boolean random) throws InterruptedException {
+        ReplicateRunner<BooleanChromosome> runner = new ReplicateRunner<BooleanChromosome>(factory(random), REPLICATES);
+        runner.setThreads(2);
+        runner.setSeed(5);
+        return runner.run();
+    }
+
+    /**
+     * Tests that the diversity is the ratio of distinct genotypes
+     */
+    @Test
+    public void testDiversity() throws InterruptedException {
+        ReplicateRunner.Report clones = run(false);
+        assertEquals(REPLICATES, clones.getReplicates());
+        assertEquals(GENERATIONS, clones.getCurves().size());
+        for (ReplicateRunner.Generation g : clones.getCurves()) {
+            StreamingSummary diversity = g.getDiversity();
+            assertEquals(REPLICATES, diversity.getCount());
+            assertEquals(1.0 / SIZE, diversity.getMin(), 1e-12);
+            assertEquals(1.0 / SIZE, diversity.getMax(), 1e-12);
+        }
+
+        ReplicateRunner.Report random = run(true);
+        for (ReplicateRunner.Generation g : random.getCurves()) {
+            assertEquals(1.0, g.getDiversity().getMin(), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.population;
+
+import jenes.chromosome.IntegerChromosome;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link GenomeSet}.
+ */
+public class GenomeSetTest {
+
+    private static Individual<IntegerChromosome> individual(int value) {
+        IntegerChromosome chrom = new IntegerChromosome(6, 0, 1000);
+        for (int i = 0; i < chrom.length(); i++) {
+            chrom.setValue(i, value + i);
+        }
+        return new Individual<IntegerChromosome>(chrom);
+    }
+
+    @Test
+    public void addReturnsTheTwinOfADuplicate() {
+        GenomeSet<IntegerChromosome> set = new GenomeSet<IntegerChromosome>();
+        Individual<IntegerChromosome> first = individual(1);
+        Individual<IntegerChromosome> copy = individual(1);
+        Individual<IntegerChromosome> other = individual(2);
+
+        assertNull(set.add(first));
+        assertSame(first, set.add(copy));
+        assertNull(set.add(other));
+        assertSame(first, set.add(first));
+        assertEquals(2, set.size());
+        assertSame(other, set.get(individual(2)));
+        assertNull(set.get(individual(3)));
+    }
+
+    @Test
+    public void growKeepsTheEntries() {
+        GenomeSet<IntegerChromosome> set = new GenomeSet<IntegerChromosome>(8);
+        final int n = 500;
+        for (int i = 0; i < n; i++) {
+            assertNull(set.add(individual(i)));
+        }
+        assertEquals(n, set.size());
+        for (int i = 0; i < n; i++) {
+            Individual<IntegerChromosome> twin = set.get(individual(i));
+            assertNotNull(twin);
+            assertEquals(i, twin.getChromosome().getValue(0));
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheSet() {
+        GenomeSet<IntegerChromosome> set = new GenomeSet<IntegerChromosome>();
+        Individual<IntegerChromosome> first = individual(1);
+        set.add(first);
+        set.clear();
+
+        assertEquals(0, set.size());
+        assertNull(set.get(first));
+        assertNull(set.add(individual(1)));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void changedChromosomesGetANewFingerprint() {
+        GenomeSet<IntegerChromosome> set = new GenomeSet<IntegerChromosome>();
+        Individual<IntegerChromosome> first = individual(1);
+        set.add(first);
+
+        Individual<IntegerChromosome> changed = individual(1);
+        changed.getFingerprint();
+        changed.getChromosome().setValue(0, 999);
+        changed.setNotEvaluated();
+
+        assertNull(set.get(changed));
+    }
+}
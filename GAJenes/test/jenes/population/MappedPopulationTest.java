@@ -0,0 +1,200 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.population;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import jenes.chromosome.IntegerChromosome;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the records of {@link MappedPopulation}.
+ */
+public class MappedPopulationTest {
+
+    private static final int LENGTH = 12;
+    private static final int SIZE = 1000;
+
+    /**
+     * Sums the genes, failing on demand
+     */
+    private static class Sum extends Fitness<IntegerChromosome> {
+
+        private final int failing;
+
+        private Sum(int failing) {
+            super(false);
+            this.failing = failing;
+        }
+
+        @Override
+        public void evaluate(Individual<IntegerChromosome> individual) {
+            final int sum = sum(individual.getChromosome());
+            if (sum == this.failing) {
+                throw new IllegalArgumentException("failing genome");
+            }
+            individual.setScore(sum);
+        }
+
+        @Override
+        public Fitness<IntegerChromosome> createInstance() {
+            return new Sum(this.failing);
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    private static int sum(IntegerChromosome chrom) {
+        int sum = 0;
+        for (int i = 0; i < chrom.length(); ++i) {
+            sum += chrom.getValue(i);
+        }
+        return sum;
+    }
+
+    private static MappedPopulation<IntegerChromosome> create() throws IOException {
+        Individual<IntegerChromosome> sample = new Individual<IntegerChromosome>(1, new IntegerChromosome(LENGTH, 0, 100));
+        return new MappedPopulation<IntegerChromosome>(sample, SIZE);
+    }
+
+    /**
+     * Tests that records are stored and decoded, scores are accessed without
+     * decoding and records are copied
+     */
+    @Test
+    public void testRecords() throws IOException {
+        MappedPopulation<IntegerChromosome> pop = create();
+        try {
+            Individual<IntegerChromosome> view = pop.newView();
+            assertFalse(pop.isEvaluated(SIZE - 1));
+            for (int i = 0; i < LENGTH; ++i) {
+                view.getChromosome().setValue(i, i + 1);
+            }
+            view.setScore(7);
+            pop.set(3, view);
+            assertTrue(pop.isEvaluated(3));
+            assertEquals(7, pop.getScore(3, 0), 0);
+
+            pop.copy(3, 500);
+            Individual<IntegerChromosome> other = pop.get(500, pop.newView());
+            assertTrue(other.getChromosome().equals(view.getChromosome()));
+            assertEquals(7, other.getScore(), 0);
+
+            pop.setScore(500, 9);
+            assertEquals(9, pop.getScore(500, 0), 0);
+            assertEquals(7, pop.getScore(3, 0), 0);
+        } finally {
+            pop.close();
+        }
+    }
+
+    /**
+     * Tests that windows are loaded into populations and stored back
+     */
+    @Test
+    public void testWindow() throws IOException {
+        MappedPopulation<IntegerChromosome> pop = create();
+        try {
+            pop.randomize(0, SIZE);
+            Individual<IntegerChromosome> sample = pop.newView();
+            Population<IntegerChromosome> window = new Population<IntegerChromosome>(sample, 10);
+            pop.load(100, window);
+            for (int i = 0; i < 10; ++i) {
+                assertTrue(window.getIndividual(i).getChromosome().equals(pop.get(100 + i, sample).getChromosome()));
+                window.getIndividual(i).setScore(i);
+            }
+            pop.store(200, window);
+            for (int i = 0; i < 10; ++i) {
+                assertEquals(i, pop.getScore(200 + i, 0), 0);
+                assertTrue(pop.get(200 + i, sample).getChromosome().equals(window.getIndividual(i).getChromosome()));
+            }
+        } finally {
+            pop.close();
+        }
+    }
+
+    /**
+     * Tests that the threaded evaluation scores every record once
+     */
+    @Test
+    public void testEvaluate() throws Exception {
+        MappedPopulation<IntegerChromosome> pop = create();
+        try {
+            pop.randomize(0, SIZE);
+            assertEquals(SIZE, pop.evaluate(new Sum(-1), 4));
+            Individual<IntegerChromosome> view = pop.newView();
+            for (int i = 0; i < SIZE; ++i) {
+                assertEquals(sum(pop.get(i, view).getChromosome()), pop.getScore(i, 0), 0);
+            }
+            assertEquals(0, pop.evaluate(new Sum(-1), 4));
+        } finally {
+            pop.close();
+        }
+    }
+
+    /**
+     * Tests that a failure of an evaluation thread is rethrown
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testEvaluateFailure() throws Exception {
+        MappedPopulation<IntegerChromosome> pop = create();
+        try {
+            Individual<IntegerChromosome> view = pop.newView();
+            for (int i = 0; i < LENGTH; ++i) {
+                view.getChromosome().setValue(i, 1);
+            }
+            pop.set(SIZE - 1, view);
+            pop.evaluate(new Sum(LENGTH), 4);
+        } finally {
+            pop.close();
+        }
+    }
+
+    /**
+     * Tests that a population file is reopened by a later run
+     */
+    @Test
+    public void testReopen() throws IOException {
+        Path path = Files.createTempFile("jenes-test", ".pop");
+        Individual<IntegerChromosome> sample = new Individual<IntegerChromosome>(1, new IntegerChromosome(LENGTH, 0, 100));
+        try {
+            MappedPopulation<IntegerChromosome> pop = new MappedPopulation<IntegerChromosome>(sample, SIZE, path, true);
+            pop.randomize(0, SIZE);
+            pop.setScore(42, 3.5);
+            Individual<IntegerChromosome> stored = pop.get(42, pop.newView());
+            pop.flush();
+            pop.close();
+
+            pop = new MappedPopulation<IntegerChromosome>(sample, SIZE, path, false);
+            assertEquals(3.5, pop.getScore(42, 0), 0);
+            assertTrue(pop.get(42, pop.newView()).getChromosome().equals(stored.getChromosome()));
+            pop.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.stage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import jenes.GenerationEventListener;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.PhenotypeDecoder;
+import jenes.population.Population;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the surrogate screening of {@link SurrogateScreener}.
+ */
+public class SurrogateScreenerTest {
+
+    private static final int SIZE = 40;
+    private static final int GENERATIONS = 20;
+    private static final int ELITISM = 3;
+
+    /**
+     * Maximizes the ones
+     */
+    private static class OneMax extends Fitness<BooleanChromosome> {
+
+        private OneMax() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            individual.setScore(ones(individual.getChromosome()));
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    /**
+     * Counts the decodings
+     */
+    private static class Counting implements PhenotypeDecoder<BooleanChromosome, Integer> {
+
+        private int decodings = 0;
+
+        @Override
+        public Integer decode(BooleanChromosome chromosome, Integer stale) {
+            decodings++;
+            return ones(chromosome);
+        }
+    }
+
+    private static int ones(BooleanChromosome chrom) {
+        int count = 0;
+        for (int i = 0; i < chrom.length(); ++i) {
+            if (chrom.getValue(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tests that an evaluation requested for a predicted individual keeps its phenotype
+     */
+    @Test
+    public void testRequestEvaluation() {
+        BooleanChromosome chrom = new BooleanChromosome(16);
+        chrom.setValue(3, true);
+        Individual<BooleanChromosome> individual = new Individual<BooleanChromosome>(chrom);
+        Counting decoder = new Counting();
+        final long fingerprint = individual.getFingerprint();
+        individual.setPredictedScore(5);
+        assertEquals(1, individual.getPhenotype(decoder).intValue());
+
+        individual.requestEvaluation();
+        assertFalse(individual.isEvaluated());
+        assertFalse(individual.isPredicted());
+        assertEquals(1, individual.getPhenotype(decoder).intValue());
+        assertEquals(1, decoder.decodings);
+        assertEquals(fingerprint, individual.getFingerprint());
+
+        individual.setNotEvaluated();
+        assertEquals(1, individual.getPhenotype(decoder).intValue());
+        assertEquals(2, decoder.decodings);
+    }
+
+    /**
+     * Tests that, at every generation of a screened run, neither the best individual
+     * nor the elite have a predicted score
+     */
+    @Test
+    public void testEliteVerified() {
+        Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(32));
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>(sample, SIZE);
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(new OneMax(), pop, GENERATIONS);
+        ga.addStage(new TournamentSelector<BooleanChromosome>(2));
+        ga.addStage(new OnePointCrossover<BooleanChromosome>(0.8));
+        ga.addStage(new SimpleMutator<BooleanChromosome>(0.05));
+        ga.addStage(new SurrogateScreener<BooleanChromosome>(3, 200, 0.1, 0));
+        ga.setElitism(ELITISM);
+        ga.setRandomSeed(7);
+        final int[] violations = new int[1];
+        ga.addGenerationEventListener(new GenerationEventListener<BooleanChromosome>() {
+            @Override
+            public void onGeneration(GeneticAlgorithm<BooleanChromosome> ga, long time) {
+                List<Individual<BooleanChromosome>> ranking = new ArrayList<Individual<BooleanChromosome>>();
+                for (Individual<BooleanChromosome> individual : ga.getCurrentPopulation()) {
+                    ranking.add(individual);
+                }
+                Collections.sort(ranking, new Comparator<Individual<BooleanChromosome>>() {
+                    @Override
+                    public int compare(Individual<BooleanChromosome> i1, Individual<BooleanChromosome> i2) {
+                        return Double.compare(i2.getScore(), i1.getScore());
+                    }
+                });
+                for (int i = 0; i < ELITISM; ++i) {
+                    Individual<BooleanChromosome> individual = ranking.get(i);
+                    if (individual.isPredicted() || individual.getScore() != ones(individual.getChromosome())) {
+                        violations[0]++;
+                    }
+                }
+            }
+        });
+        ga.evolve();
+
+        assertTrue(ga.getStatistics().getScreenedPredictions() > 0);
+        assertEquals(0, violations[0]);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.statistics;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the accuracy and the concurrent recording of {@link Histogram}.
+ */
+public class HistogramTest {
+
+    /**
+     * Tests that values lower than the bucket resolution are exact
+     */
+    @Test
+    public void testSmallValues() {
+        Histogram h = new Histogram();
+        for (int v = 0; v < 16; ++v) {
+            h.record(v);
+        }
+        h.record(-5);
+        assertEquals(17, h.getCount());
+        assertEquals(120, h.getTotal());
+        assertEquals(15, h.getMax());
+        assertEquals(0, h.getPercentile(0));
+        assertEquals(7, h.getPercentile(50));
+        assertEquals(15, h.getPercentile(100));
+    }
+
+    /**
+     * Tests that percentiles of large values have a relative error lower than 6.25%
+     */
+    @Test
+    public void testPercentiles() {
+        Histogram h = new Histogram();
+        final int n = 100000;
+        for (int v = 1; v <= n; ++v) {
+            h.record(v * 1000L);
+        }
+        assertEquals(n, h.getCount());
+        assertEquals(n * 1000L, h.getMax());
+        assertEquals((n + 1) * 500.0, h.getMean(), 1e-6);
+        for (double p : new double[]{1, 10, 50, 90, 99, 99.9}) {
+            double exact = Math.ceil(p / 100 * n) * 1000;
+            double error = Math.abs(h.getPercentile(p) - exact) / exact;
+            assertTrue(p + " error " + error, error < 0.0625);
+        }
+        assertEquals(n * 1000L, h.getPercentile(100));
+    }
+
+    /**
+     * Tests that values recorded by concurrent threads are not lost
+     */
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        final Histogram h = new Histogram();
+        final int threads = 4;
+        final int values = 50000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; ++t) {
+            final long offset = t;
+            workers[t] = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int v = 0; v < values; ++v) {
+                        h.record(v + offset);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        long total = 0;
+        for (int t = 0; t < threads; ++t) {
+            total += (long) values * (values - 1) / 2 + (long) values * t;
+        }
+        assertEquals(threads * values, h.getCount());
+        assertEquals(total, h.getTotal());
+        assertEquals(values - 1 + threads - 1, h.getMax());
+
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getPercentile(50));
+        assertEquals(0, h.getMean(), 0);
+    }
+}
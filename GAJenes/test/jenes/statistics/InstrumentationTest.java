@@ -0,0 +1,165 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jenes.GenerationEventListener;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the timings collected by {@link Instrumentation} and its publication over JMX.
+ */
+public class InstrumentationTest {
+
+    private static final int SIZE = 20;
+    private static final int GENERATIONS = 10;
+    private static final String NAME = "instrumentation-test";
+
+    /**
+     * Counts ones
+     */
+    private static class OneMax extends Fitness<BooleanChromosome> {
+
+        private OneMax() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            BooleanChromosome chrom = individual.getChromosome();
+            int count = 0;
+            for (int i = 0; i < chrom.length(); i++) {
+                if (chrom.getValue(i)) {
+                    count++;
+                }
+            }
+            individual.setScore(count);
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    /**
+     * Checks that the instrumentation is published while the algorithm runs
+     */
+    private static class Publication implements GenerationEventListener<BooleanChromosome> {
+
+        private int published = 0;
+
+        @Override
+        public void onGeneration(GeneticAlgorithm<BooleanChromosome> ga, long time) {
+            if (isPublished()) {
+                this.published++;
+            }
+        }
+    }
+
+    private static boolean isPublished() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            return server.isRegistered(new ObjectName("jenes:type=GeneticAlgorithm,name=" + ObjectName.quote(NAME)));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static GeneticAlgorithm<BooleanChromosome> create(Instrumentation instrumentation) {
+        Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(32));
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>(sample, SIZE);
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(new OneMax(), pop, GENERATIONS);
+        ga.addStage(new TournamentSelector<BooleanChromosome>(2));
+        ga.addStage(new OnePointCrossover<BooleanChromosome>(0.8));
+        ga.addStage(new SimpleMutator<BooleanChromosome>(0.02));
+        ga.setInstrumentation(instrumentation);
+        ga.setRandomSeed(3);
+        return ga;
+    }
+
+    /**
+     * Tests that generations, evaluations and stages are timed, and that the
+     * instrumentation is published only while the algorithm runs
+     */
+    @Test
+    public void testTimings() {
+        Instrumentation instrumentation = new Instrumentation(NAME);
+        GeneticAlgorithm<BooleanChromosome> ga = create(instrumentation);
+        Publication publication = new Publication();
+        ga.addGenerationEventListener(publication);
+        ga.evolve();
+
+        assertEquals(GENERATIONS, publication.published);
+        assertFalse(isPublished());
+
+        assertEquals(GENERATIONS, instrumentation.getGenerations());
+        assertEquals(ga.getStatistics().getFitnessEvaluationNumbers(), instrumentation.getEvaluations());
+        assertEquals(instrumentation.getEvaluations(), instrumentation.getEvaluationHistogram().getCount());
+        assertTrue(instrumentation.getGenerationMax() > 0);
+        assertTrue(instrumentation.getGenerationP50() <= instrumentation.getGenerationP99());
+        assertTrue(instrumentation.getGenerationP99() <= instrumentation.getGenerationMax());
+
+        Map<String, Long> counts = instrumentation.getCount();
+        assertEquals(GENERATIONS + 1, counts.get(Instrumentation.EVALUATION_STAGE).longValue());
+        int stages = 0;
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            if (e.getKey().contains(":")) {
+                assertEquals(e.getKey(), GENERATIONS, e.getValue().longValue());
+                stages++;
+            }
+        }
+        assertEquals(counts.toString(), 3, stages);
+        assertTrue(counts.containsKey("Sequence/0:TournamentSelector"));
+    }
+
+    /**
+     * Tests that a new run clears the histograms of the previous one
+     */
+    @Test
+    public void testRestart() {
+        Instrumentation instrumentation = new Instrumentation(NAME, false);
+        GeneticAlgorithm<BooleanChromosome> ga = create(instrumentation);
+        ga.evolve();
+        ga.evolve();
+        assertFalse(isPublished());
+        assertEquals(GENERATIONS, instrumentation.getGenerations());
+        assertEquals(ga.getStatistics().getFitnessEvaluationNumbers(), instrumentation.getEvaluationHistogram().getCount());
+    }
+}
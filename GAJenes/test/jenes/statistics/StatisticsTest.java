@@ -0,0 +1,69 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.statistics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the binary image of {@link Statistics}.
+ */
+public class StatisticsTest {
+
+    /** The time elapsed since the start of the captured run */
+    private static final long ELAPSED = 100000;
+
+    /**
+     * Tests that restored times are rebased on the current time, keeping the
+     * elapsed time and the intervals
+     */
+    @Test
+    public void testRebase() throws IOException {
+        final long before = System.currentTimeMillis();
+        final long start = before - ELAPSED;
+        Statistics captured = new Statistics(10);
+        captured.setStartTime(start);
+        captured.setInitTime(start + 10);
+        captured.setGenerations(1);
+        captured.setFitnessEvalStageBegin(0, start + 20);
+        captured.setFitnessEvalStageEnd(0, start + 40);
+        captured.setGenerationEndTimes(0, start + 50);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        captured.writeTo(new DataOutputStream(bytes));
+        //the run is resumed later by another process
+        Statistics restored = new Statistics(10);
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        final long after = System.currentTimeMillis();
+
+        final long elapsed = after - restored.getStartTime();
+        assertTrue("elapsed " + elapsed, elapsed >= ELAPSED && elapsed <= ELAPSED + (after - before));
+        assertEquals(10, restored.getInitTime() - restored.getStartTime());
+        assertEquals(20, restored.getFitnessEvalStageBegin(1) - restored.getStartTime());
+        assertEquals(40, restored.getFitnessEvalStageEnd(1) - restored.getStartTime());
+        assertEquals(50, restored.getGenerationEndTime(0) - restored.getStartTime());
+        assertEquals(0, restored.getStopTime());
+        assertEquals(1, restored.getGenerations());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.statistics;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the accuracy of {@link StreamingSummary}.
+ */
+public class StreamingSummaryTest {
+
+    private static StreamingSummary summary(double... values) {
+        StreamingSummary s = new StreamingSummary();
+        for (double v : values) {
+            s.add(v);
+        }
+        return s;
+    }
+
+    /**
+     * Tests that Welford moments stay exact on values with a large offset, where
+     * the sum of squares would cancel
+     */
+    @Test
+    public void testMoments() {
+        final double offset = 1e9;
+        StreamingSummary s = summary(offset + 4, offset + 7, offset + 13, offset + 16);
+        assertEquals(4, s.getCount());
+        assertEquals(offset + 10, s.getMean(), 1e-6);
+        assertEquals(30, s.getVariance(), 1e-6);
+        assertEquals(offset + 4, s.getMin(), 0);
+        assertEquals(offset + 16, s.getMax(), 0);
+    }
+
+    /**
+     * Tests that empty summaries and NaN values are handled
+     */
+    @Test
+    public void testEmpty() {
+        StreamingSummary s = summary(Double.NaN);
+        assertEquals(0, s.getCount());
+        assertTrue(Double.isNaN(s.getMean()));
+        assertTrue(Double.isNaN(s.getMin()));
+        assertTrue(Double.isNaN(s.getMedian()));
+        s.add(2);
+        assertEquals(2, s.getMean(), 0);
+        assertTrue(Double.isNaN(s.getVariance()));
+        assertTrue(Double.isNaN(s.getConfidenceHalfWidth(0.95)));
+    }
+
+    /**
+     * Tests that quantiles are exact up to five values
+     */
+    @Test
+    public void testExactQuantiles() {
+        StreamingSummary s = summary(5, 1, 4, 2, 3);
+        assertEquals(3, s.getMedian(), 0);
+        assertEquals(2, s.getQuantile(0.25), 0);
+        assertEquals(4, s.getQuantile(0.75), 0);
+        assertEquals(1.2, s.getQuantile(0.05), 1e-12);
+    }
+
+    /**
+     * Tests the P2 estimates against the exact quantiles of a large sample
+     */
+    @Test
+    public void testP2Accuracy() {
+        final int n = 100000;
+        final Random random = new Random(3);
+        double[] values = new double[n];
+        StreamingSummary s = new StreamingSummary();
+        for (int i = 0; i < n; ++i) {
+            values[i] = random.nextGaussian();
+            s.add(values[i]);
+        }
+        Arrays.sort(values);
+        for (double p : StreamingSummary.DEFAULT_PROBABILITIES) {
+            final double exact = values[(int) Math.ceil(p * n) - 1];
+            assertEquals("quantile " + p, exact, s.getQuantile(p), 0.02);
+        }
+        assertEquals(0, s.getMean(), 0.02);
+        assertEquals(1, s.getStandardDeviation(), 0.02);
+    }
+
+    /**
+     * Tests the confidence interval against the Student t interval
+     */
+    @Test
+    public void testConfidence() {
+        StreamingSummary s = summary(1, 2, 3, 4, 5);
+        //t(0.975, 4) = 2.776, standard error = sqrt(2.5 / 5)
+        assertEquals(2.776 * Math.sqrt(0.5), s.getConfidenceHalfWidth(0.95), 1e-2);
+        assertEquals(3 - s.getConfidenceHalfWidth(0.95), s.getLowerBound(0.95), 1e-12);
+        assertEquals(3 + s.getConfidenceHalfWidth(0.95), s.getUpperBound(0.95), 1e-12);
+    }
+}
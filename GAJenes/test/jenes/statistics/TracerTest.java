@@ -0,0 +1,202 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import jenes.GeneticAlgorithm;
+import jenes.algorithms.IslandGA;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.AbstractStage;
+import jenes.stage.operator.Operator;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import jenes.utils.multitasking.MultiThreadEvaluator;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the events received by a {@link Tracer}.
+ */
+public class TracerTest {
+
+    private static final int SIZE = 20;
+    private static final int GENERATIONS = 8;
+
+    /**
+     * Counts ones
+     */
+    private static class OneMax extends Fitness<BooleanChromosome> {
+
+        private OneMax() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            BooleanChromosome chrom = individual.getChromosome();
+            int count = 0;
+            for (int i = 0; i < chrom.length(); i++) {
+                if (chrom.getValue(i)) {
+                    count++;
+                }
+            }
+            individual.setScore(count);
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    /**
+     * Records the events
+     */
+    private static class Recorder extends Tracer {
+
+        private final List<Integer> generations = new ArrayList<Integer>();
+        private final List<AbstractStage<?>> stages = new ArrayList<AbstractStage<?>>();
+        private final List<int[]> migrations = new ArrayList<int[]>();
+        private int evaluations = 0;
+        private int withoutStatistics = 0;
+        private int negative = 0;
+
+        @Override
+        public synchronized void onGeneration(GeneticAlgorithm<?> ga, int generation, int size, long duration) {
+            this.generations.add(generation);
+            assertEquals(SIZE, size);
+            this.check(duration);
+        }
+
+        @Override
+        public synchronized void onStage(GeneticAlgorithm<?> ga, AbstractStage<?> stage, int size, long duration, Operator<?>.Statistics statistics) {
+            this.stages.add(stage);
+            if (stage instanceof Operator && statistics == null) {
+                this.withoutStatistics++;
+            }
+            this.check(duration);
+        }
+
+        @Override
+        public synchronized void onEvaluation(GeneticAlgorithm<?> ga, Individual<?> individual, long duration) {
+            this.evaluations++;
+            assertTrue(individual.isEvaluated());
+            this.check(duration);
+        }
+
+        @Override
+        public synchronized void onMigration(GeneticAlgorithm<?> ga, int source, int target, int count) {
+            this.migrations.add(new int[]{source, target, count});
+        }
+
+        private void check(long duration) {
+            if (duration < 0) {
+                this.negative++;
+            }
+        }
+    }
+
+    private static Population<BooleanChromosome> population() {
+        Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(32));
+        return new Population<BooleanChromosome>(sample, SIZE);
+    }
+
+    private static GeneticAlgorithm<BooleanChromosome> create(Recorder recorder) {
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(new OneMax(), population(), GENERATIONS);
+        ga.addStage(new TournamentSelector<BooleanChromosome>(2));
+        ga.addStage(new OnePointCrossover<BooleanChromosome>(0.8));
+        ga.addStage(new SimpleMutator<BooleanChromosome>(0.02));
+        ga.setTracer(recorder);
+        ga.setRandomSeed(11);
+        return ga;
+    }
+
+    /**
+     * Tests that each generation, stage and evaluation is reported once
+     */
+    @Test
+    public void testEvents() {
+        Recorder recorder = new Recorder();
+        GeneticAlgorithm<BooleanChromosome> ga = create(recorder);
+        ga.evolve();
+
+        assertEquals(GENERATIONS, recorder.generations.size());
+        for (int g = 0; g < GENERATIONS; ++g) {
+            assertEquals(g, recorder.generations.get(g).intValue());
+        }
+        assertEquals(3 * GENERATIONS, recorder.stages.size());
+        for (int i = 0; i < recorder.stages.size(); ++i) {
+            assertSame(ga.getBody().getStageAt(i % 3), recorder.stages.get(i));
+        }
+        assertEquals(0, recorder.withoutStatistics);
+        assertEquals(ga.getStatistics().getFitnessEvaluationNumbers(), recorder.evaluations);
+        assertEquals(0, recorder.negative);
+    }
+
+    /**
+     * Tests that evaluations performed by a runner, one by one or in batches, are reported
+     */
+    @Test
+    public void testRunnerEvaluations() {
+        for (int batch : new int[]{1, 5}) {
+            Recorder recorder = new Recorder();
+            GeneticAlgorithm<BooleanChromosome> ga = create(recorder);
+            ga.setRunner(new MultiThreadEvaluator(2));
+            ga.setEvaluationBatchSize(batch);
+            ga.evolve();
+
+            assertEquals(GENERATIONS, recorder.generations.size());
+            assertTrue(recorder.evaluations > 0);
+            assertEquals("batch " + batch, ga.getStatistics().getFitnessEvaluationNumbers(), recorder.evaluations);
+        }
+    }
+
+    /**
+     * Tests that migrations between islands are reported along the links of the geography
+     */
+    @Test
+    public void testMigrations() {
+        final int niches = 3;
+        final int migration = 2;
+        Recorder recorder = new Recorder();
+        IslandGA<BooleanChromosome> ga = new IslandGA<BooleanChromosome>(new OneMax(), population(), GENERATIONS,
+                niches, migration, IslandGA.Graph.buildRing(niches, false));
+        ga.setTracer(recorder);
+        ga.evolve();
+
+        assertEquals(niches * GENERATIONS, recorder.migrations.size());
+        for (int[] m : recorder.migrations) {
+            assertEquals((m[0] + 1) % niches, m[1]);
+            assertEquals(migration, m[2]);
+        }
+    }
+}
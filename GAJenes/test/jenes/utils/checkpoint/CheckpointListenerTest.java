@@ -0,0 +1,156 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.checkpoint;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link CheckpointListener} and the resume from its checkpoints.
+ */
+public class CheckpointListenerTest {
+
+    private static final int SIZE = 30;
+    private static final int GENERATIONS = 20;
+
+    private Path path;
+
+    /**
+     * Counts ones
+     */
+    private static class OneCounter extends Fitness<BooleanChromosome> {
+
+        private OneCounter() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            BooleanChromosome chrom = individual.getChromosome();
+            int count = 0;
+            for (int i = 0; i < chrom.length(); i++) {
+                if (chrom.getValue(i)) {
+                    count++;
+                }
+            }
+            individual.setScore(count);
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    private static GeneticAlgorithm<BooleanChromosome> create(int generations) {
+        Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(48));
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>(sample, SIZE);
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(new OneCounter(), pop, generations);
+        ga.addStage(new TournamentSelector<BooleanChromosome>(2));
+        ga.addStage(new OnePointCrossover<BooleanChromosome>(0.8));
+        ga.addStage(new SimpleMutator<BooleanChromosome>(0.02));
+        ga.setElitism(1);
+        ga.setRandomSeed(7);
+        return ga;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        this.path = Files.createTempFile("jenes", ".checkpoint");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(this.path);
+    }
+
+    @Test
+    public void resumedRunIsBitExact() {
+        GeneticAlgorithm<BooleanChromosome> reference = create(GENERATIONS);
+        reference.evolve();
+
+        GeneticAlgorithm<BooleanChromosome> first = create(GENERATIONS / 2);
+        CheckpointListener<BooleanChromosome> listener = new CheckpointListener<BooleanChromosome>(this.path, GENERATIONS, false);
+        first.addGenerationEventListener(listener);
+        first.addAlgorithmEventListener(listener);
+        first.evolve();
+        assertEquals(1, listener.getWritten());
+
+        GeneticAlgorithm<BooleanChromosome> resumed = create(GENERATIONS);
+        resumed.setRandomSeed(11);
+        resumed.resume(this.path);
+
+        assertEquals(reference.getStatistics().getGenerations(), resumed.getStatistics().getGenerations());
+        assertEquals(reference.getStatistics().getFitnessEvaluationNumbers(), resumed.getStatistics().getFitnessEvaluationNumbers());
+        Population<BooleanChromosome> expected = reference.getCurrentPopulation();
+        Population<BooleanChromosome> actual = resumed.getCurrentPopulation();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Individual<BooleanChromosome> e = expected.getIndividual(i);
+            Individual<BooleanChromosome> a = actual.getIndividual(i);
+            assertTrue(e.getChromosome().equals(a.getChromosome()));
+            assertEquals(Double.doubleToLongBits(e.getScore()), Double.doubleToLongBits(a.getScore()));
+            assertEquals(e.isLegal(), a.isLegal());
+        }
+    }
+
+    @Test
+    public void checkpointRoundTripPreservesTheImage() throws Exception {
+        GeneticAlgorithm<BooleanChromosome> ga = create(GENERATIONS);
+        ga.evolve();
+        Checkpoint cp = ga.checkpoint();
+        cp.write(this.path);
+
+        Checkpoint read = Checkpoint.read(this.path);
+        assertEquals(cp.getGeneration(), read.getGeneration());
+        assertEquals(cp.getSize(), read.getSize());
+        assertEquals(cp.getBuffer(), read.getBuffer());
+    }
+
+    @Test
+    public void asynchronousWriterIsCreatedOnDemand() throws Exception {
+        GeneticAlgorithm<BooleanChromosome> ga = create(GENERATIONS);
+        CheckpointListener<BooleanChromosome> listener = new CheckpointListener<BooleanChromosome>(this.path, 5);
+        ga.addGenerationEventListener(listener);
+        ga.evolve();
+
+        assertNull(listener.getLastError());
+        assertTrue(listener.getWritten() + listener.getSkipped() > 0);
+    }
+}
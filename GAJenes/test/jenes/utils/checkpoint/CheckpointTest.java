@@ -0,0 +1,129 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.checkpoint;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import jenes.chromosome.GenericAlleleSet;
+import jenes.chromosome.IntegerChromosome;
+import jenes.chromosome.ObjectChromosome;
+import jenes.population.Individual;
+import jenes.population.PhenotypeDecoder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the encoding of individuals by {@link Checkpoint}.
+ */
+public class CheckpointTest {
+
+    /**
+     * Sums the genes
+     */
+    private static final PhenotypeDecoder<IntegerChromosome, Integer> SUM = new PhenotypeDecoder<IntegerChromosome, Integer>() {
+
+        @Override
+        public Integer decode(IntegerChromosome chromosome, Integer stale) {
+            int sum = 0;
+            for (int i = 0; i < chromosome.length(); i++) {
+                sum += chromosome.getValue(i);
+            }
+            return sum;
+        }
+    };
+
+    private static Individual<IntegerChromosome> individual(int value) {
+        IntegerChromosome chrom = new IntegerChromosome(8, 0, 100);
+        for (int i = 0; i < chrom.length(); i++) {
+            chrom.setValue(i, value);
+        }
+        Individual<IntegerChromosome> ind = new Individual<IntegerChromosome>(chrom);
+        ind.setScore(value);
+        return ind;
+    }
+
+    private static ByteBuffer encode(Individual<IntegerChromosome> ind, ChromosomeCodec<IntegerChromosome> codec) {
+        ByteBuffer buffer = ByteBuffer.allocate(Checkpoint.sizeOf(ind, codec)).order(ByteOrder.LITTLE_ENDIAN);
+        Checkpoint.encode(ind, codec, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void decodeRestoresTheIndividual() {
+        ChromosomeCodec<IntegerChromosome> codec = Checkpoint.getCodec(IntegerChromosome.class);
+        Individual<IntegerChromosome> source = individual(3);
+        Individual<IntegerChromosome> target = individual(5);
+
+        Checkpoint.decode(target, codec, encode(source, codec));
+
+        assertTrue(source.getChromosome().equals(target.getChromosome()));
+        assertEquals(source.getScore(), target.getScore(), 0);
+        assertEquals(source.isLegal(), target.isLegal());
+    }
+
+    @Test
+    public void decodeInvalidatesThePhenotype() {
+        ChromosomeCodec<IntegerChromosome> codec = Checkpoint.getCodec(IntegerChromosome.class);
+        Individual<IntegerChromosome> source = individual(3);
+        Individual<IntegerChromosome> target = individual(5);
+        assertEquals(40, target.getPhenotype(SUM).intValue());
+
+        Checkpoint.decode(target, codec, encode(source, codec));
+
+        assertNull(target.getCachedPhenotype());
+        assertEquals(24, target.getPhenotype(SUM).intValue());
+    }
+
+    @Test
+    public void decodeInvalidatesTheFingerprint() {
+        ChromosomeCodec<IntegerChromosome> codec = Checkpoint.getCodec(IntegerChromosome.class);
+        Individual<IntegerChromosome> source = individual(3);
+        Individual<IntegerChromosome> target = individual(5);
+        long stale = target.getFingerprint();
+
+        Checkpoint.decode(target, codec, encode(source, codec));
+
+        assertEquals(source.getFingerprint(), target.getFingerprint());
+        assertTrue(stale != target.getFingerprint());
+    }
+
+    @Test
+    public void objectCodecRestoresTheAlleles() {
+        ChromosomeCodec<ObjectChromosome> codec = Checkpoint.getCodec(ObjectChromosome.class);
+        GenericAlleleSet<String> colors = new GenericAlleleSet<String>("red", "green", "blue");
+        GenericAlleleSet<Integer> sizes = new GenericAlleleSet<Integer>(1, 2, 4, 8);
+        ObjectChromosome chrom = new ObjectChromosome(colors, sizes, colors);
+        chrom.setGene(0, "blue");
+        chrom.setGene(1, 4);
+        chrom.setGene(2, "green");
+        Individual<ObjectChromosome> source = new Individual<ObjectChromosome>(chrom, 7);
+        Individual<ObjectChromosome> target = new Individual<ObjectChromosome>(new ObjectChromosome(colors, sizes, colors), 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(Checkpoint.sizeOf(source, codec)).order(ByteOrder.LITTLE_ENDIAN);
+        Checkpoint.encode(source, codec, buffer);
+        buffer.flip();
+        Checkpoint.decode(target, codec, buffer);
+
+        assertEquals("blue", target.getChromosome().getValue(0));
+        assertEquals(4, target.getChromosome().getValue(1));
+        assertEquals("green", target.getChromosome().getValue(2));
+        assertEquals(7, target.getScore(), 0);
+    }
+}
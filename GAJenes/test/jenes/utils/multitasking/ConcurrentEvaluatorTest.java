@@ -0,0 +1,129 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.multitasking;
+
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.operator.common.OnePointCrossover;
+import jenes.stage.operator.common.SimpleMutator;
+import jenes.stage.operator.common.TournamentSelector;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the failure handling of {@link ConcurrentEvaluator}.
+ */
+public class ConcurrentEvaluatorTest {
+
+    /**
+     * Counts ones, failing on demand
+     */
+    private static class FailingFitness extends Fitness<BooleanChromosome> {
+
+        private volatile boolean failEvaluation = false;
+        private volatile int failedClones = 0;
+
+        private FailingFitness() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            if (this.failEvaluation) {
+                throw new IllegalArgumentException("evaluation failure");
+            }
+            BooleanChromosome chrom = individual.getChromosome();
+            int count = 0;
+            for (int i = 0; i < chrom.length(); i++) {
+                if (chrom.getValue(i)) {
+                    count++;
+                }
+            }
+            individual.setScore(count);
+        }
+
+        @Override
+        protected Fitness<BooleanChromosome> duplicate() throws CloneNotSupportedException {
+            synchronized (this) {
+                if (this.failedClones > 0) {
+                    this.failedClones--;
+                    throw new CloneNotSupportedException("clone failure");
+                }
+            }
+            return super.duplicate();
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    private static GeneticAlgorithm<BooleanChromosome> create(FailingFitness fit, Runner runner) {
+        Individual<BooleanChromosome> sample = new Individual<BooleanChromosome>(new BooleanChromosome(16));
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>(sample, 20);
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(fit, pop, 5);
+        ga.addStage(new TournamentSelector<BooleanChromosome>(2));
+        ga.addStage(new OnePointCrossover<BooleanChromosome>(0.8));
+        ga.addStage(new SimpleMutator<BooleanChromosome>(0.05));
+        ga.setRunner(runner);
+        return ga;
+    }
+
+    @Test(timeout = 10000)
+    public void fitnessFailuresAreRethrown() {
+        FailingFitness fit = new FailingFitness();
+        fit.failEvaluation = true;
+        GeneticAlgorithm<BooleanChromosome> ga = create(fit, new ConcurrentEvaluator(4));
+        try {
+            ga.evolve();
+            fail("the fitness failure has been swallowed");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("evaluation failure", ex.getMessage());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void failedClonesReleaseTheirInstance() {
+        FailingFitness fit = new FailingFitness();
+        fit.failedClones = 1;
+        GeneticAlgorithm<BooleanChromosome> ga = create(fit, new ConcurrentEvaluator(4, 1));
+        try {
+            ga.evolve();
+            fail("the clone failure has been swallowed");
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getCause() instanceof CloneNotSupportedException);
+        }
+
+        //with a leaked instance the evaluations would wait forever
+        ga.evolve();
+        assertEquals(5, ga.getStatistics().getGenerations());
+    }
+}
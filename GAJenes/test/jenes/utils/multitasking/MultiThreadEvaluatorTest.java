@@ -0,0 +1,204 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.multitasking;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.statistics.Statistics;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the deadlines and the speculative re-execution of {@link MultiThreadEvaluator}.
+ */
+public class MultiThreadEvaluatorTest {
+
+    private static final int LENGTH = 8;
+    /** The time a slow evaluation takes, in milliseconds */
+    private static final long SLOW = 5000;
+
+    /**
+     * Counts ones. The genome of all ones is slow: always, or only at its first
+     * evaluation if <code>once</code> is set.
+     */
+    private static class SlowFitness extends Fitness<BooleanChromosome> {
+
+        private final boolean once;
+        private final AtomicInteger slowCalls;
+
+        private SlowFitness(boolean once, AtomicInteger slowCalls) {
+            super(true);
+            this.once = once;
+            this.slowCalls = slowCalls;
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            final int ones = ones(individual);
+            if (ones == LENGTH && (this.slowCalls.getAndIncrement() == 0 || !this.once)) {
+                try {
+                    Thread.sleep(SLOW);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+            individual.setScore(ones);
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return new SlowFitness(this.once, this.slowCalls);
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    private static int ones(Individual<BooleanChromosome> individual) {
+        int count = 0;
+        for (int i = 0; i < LENGTH; ++i) {
+            if (individual.getChromosome().getValue(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the slow individual, that is the genome of all ones
+     */
+    private static Individual<BooleanChromosome> slowest(Population<BooleanChromosome> pop) {
+        for (Individual<BooleanChromosome> individual : pop) {
+            if (ones(individual) == LENGTH) {
+                return individual;
+            }
+        }
+        throw new AssertionError("slow individual not found");
+    }
+
+    /**
+     * Creates fast individuals followed by the slow one
+     */
+    private static Population<BooleanChromosome> population(int fast) {
+        Population<BooleanChromosome> pop = new Population<BooleanChromosome>();
+        for (int k = 0; k < fast; ++k) {
+            BooleanChromosome chrom = new BooleanChromosome(LENGTH);
+            chrom.setValue(k % LENGTH, true);
+            pop.add(new Individual<BooleanChromosome>(1, chrom));
+        }
+        BooleanChromosome slow = new BooleanChromosome(LENGTH);
+        for (int i = 0; i < LENGTH; ++i) {
+            slow.setValue(i, true);
+        }
+        pop.add(new Individual<BooleanChromosome>(1, slow));
+        return pop;
+    }
+
+    /**
+     * Evaluates a population as the initial population of an algorithm with a
+     * single generation and no stages, and returns the algorithm
+     */
+    private static GeneticAlgorithm<BooleanChromosome> evaluate(MultiThreadEvaluator evaluator, SlowFitness fit, Population<BooleanChromosome> pop) {
+        GeneticAlgorithm<BooleanChromosome> ga = new GeneticAlgorithm<BooleanChromosome>(fit, pop, 1);
+        ga.setRandomization(false);
+        evaluator.execute(ga, pop);
+        return ga;
+    }
+
+    /**
+     * Tests that an evaluation exceeding the deadline gets the penalty without
+     * stalling the other ones
+     */
+    @Test
+    public void testDeadline() {
+        SlowFitness fit = new SlowFitness(false, new AtomicInteger());
+        MultiThreadEvaluator evaluator = new MultiThreadEvaluator(2);
+        evaluator.setTimeout(100);
+        evaluator.setTimeoutPenalty(-1);
+        final int fast = 6;
+        final long begin = System.currentTimeMillis();
+        GeneticAlgorithm<BooleanChromosome> ga = evaluate(evaluator, fit, population(fast));
+        final long elapsed = System.currentTimeMillis() - begin;
+        Population<BooleanChromosome> pop = ga.getCurrentPopulation();
+
+        assertTrue("evaluation took " + elapsed + " ms", elapsed < SLOW);
+        assertEquals(fast + 1, pop.size());
+        for (Individual<BooleanChromosome> individual : pop) {
+            if (ones(individual) == LENGTH) {
+                assertEquals(-1, individual.getScore(), 0);
+                assertFalse(individual.isLegal());
+            } else {
+                assertEquals(1, individual.getScore(), 0);
+                assertTrue(individual.isLegal());
+            }
+        }
+        Statistics stats = ga.getStatistics();
+        assertEquals(1, stats.getTimedOutEvaluations());
+    }
+
+    /**
+     * Tests that a straggler is re-executed on an idle worker and the speculative
+     * copy, completing first, provides the score
+     */
+    @Test
+    public void testSpeculation() {
+        AtomicInteger slowCalls = new AtomicInteger();
+        SlowFitness fit = new SlowFitness(true, slowCalls);
+        MultiThreadEvaluator evaluator = new MultiThreadEvaluator(2);
+        evaluator.setSpeculationFactor(3);
+        final int fast = 16;
+        final long begin = System.currentTimeMillis();
+        GeneticAlgorithm<BooleanChromosome> ga = evaluate(evaluator, fit, population(fast));
+        final long elapsed = System.currentTimeMillis() - begin;
+        Population<BooleanChromosome> pop = ga.getCurrentPopulation();
+
+        assertTrue("evaluation took " + elapsed + " ms", elapsed < SLOW);
+        Individual<BooleanChromosome> slow = slowest(pop);
+        assertEquals(LENGTH, slow.getScore(), 0);
+        assertTrue(slow.isLegal());
+        assertEquals(2, slowCalls.get());
+        Statistics stats = ga.getStatistics();
+        assertEquals(1, stats.getSpeculativeEvaluations());
+        assertEquals(1, stats.getSpeculativeWins());
+        assertEquals(0, stats.getTimedOutEvaluations());
+    }
+
+    /**
+     * Tests that an unwatched evaluation waits for every individual
+     */
+    @Test
+    public void testUnwatched() {
+        SlowFitness fit = new SlowFitness(true, new AtomicInteger(1));
+        MultiThreadEvaluator evaluator = new MultiThreadEvaluator(3);
+        Population<BooleanChromosome> pop = evaluate(evaluator, fit, population(20)).getCurrentPopulation();
+        assertEquals(21, pop.size());
+        for (Individual<BooleanChromosome> individual : pop) {
+            assertEquals(ones(individual), individual.getScore(), 0);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * JENES
+ * A time and memory efficient Java library for genetic algorithms and more 
+ * Copyright (C) 2011 Intelligentia srl
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package jenes.utils.multitasking;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import jenes.chromosome.BooleanChromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link ProcessEvaluator} with {@link EvaluationWorker}s on the loopback interface.
+ */
+public class ProcessEvaluatorTest {
+
+    private static final int LENGTH = 16;
+    /** The ones of a genome whose evaluation never ends */
+    private static final int HANG = 16;
+    /** The ones of a genome whose evaluation throws */
+    private static final int THROW = 15;
+    /** The ones of a genome whose evaluation crashes the worker once */
+    private static final int CRASH = 14;
+    /** The system property naming the file recording the crash */
+    private static final String CRASH_FILE = "jenes.test.crash";
+
+    /**
+     * Creates the workers of the tests
+     */
+    public static class Setup implements WorkerSetup<BooleanChromosome> {
+
+        @Override
+        public Individual<BooleanChromosome> createSample() {
+            return new Individual<BooleanChromosome>(1, new BooleanChromosome(LENGTH));
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createFitness() {
+            return new Behaving();
+        }
+    }
+
+    /**
+     * Counts ones, misbehaving on the special genomes
+     */
+    private static class Behaving extends Fitness<BooleanChromosome> {
+
+        private Behaving() {
+            super(true);
+        }
+
+        @Override
+        public void evaluate(Individual<BooleanChromosome> individual) {
+            final int ones = ones(individual);
+            if (ones == HANG) {
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            } else if (ones == THROW) {
+                throw new IllegalStateException("rejected genome");
+            } else if (ones == CRASH) {
+                File marker = new File(System.getProperty(CRASH_FILE));
+                try {
+                    if (marker.createNewFile()) {
+                        Runtime.getRuntime().halt(3);
+                    }
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            individual.setScore(ones);
+        }
+
+        @Override
+        public Fitness<BooleanChromosome> createInstance() {
+            return this;
+        }
+
+        @Override
+        protected void doStart() throws Exception {
+        }
+
+        @Override
+        protected void doStop() throws Exception {
+        }
+    }
+
+    private static int ones(Individual<BooleanChromosome> individual) {
+        int count = 0;
+        for (int i = 0; i < LENGTH; ++i) {
+            if (individual.getChromosome().getValue(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates individuals with the given numbers of ones
+     */
+    private static List<Individual<BooleanChromosome>> individuals(int... ones) {
+        List<Individual<BooleanChromosome>> list = new ArrayList<Individual<BooleanChromosome>>();
+        for (int n : ones) {
+            BooleanChromosome chrom = new BooleanChromosome(LENGTH);
+            for (int i = 0; i < n; ++i) {
+                chrom.setValue(i, true);
+            }
+            list.add(new Individual<BooleanChromosome>(1, chrom));
+        }
+        return list;
+    }
+
+    /**
+     * Evaluates the individuals in a single evaluation phase
+     */
+    private static void evaluate(ProcessEvaluator evaluator, List<Individual<BooleanChromosome>> individuals) {
+        evaluator.onEvaluationBegin(null, false);
+        for (Individual<BooleanChromosome> individual : individuals) {
+            evaluator.evaluateIndividual(individual);
+        }
+        evaluator.onEvaluationEnd();
+    }
+
+    private static ProcessEvaluator create(int nworkers) {
+        ProcessEvaluator evaluator = new ProcessEvaluator(nworkers, Setup.class);
+        evaluator.setJobSize(2);
+        evaluator.setHealthCheck(100, 10000);
+        evaluator.setFailurePenalty(-1);
+        return evaluator;
+    }
+
+    /**
+     * Tests that launched workers evaluate every individual
+     */
+    @Test
+    public void testEvaluation() {
+        ProcessEvaluator evaluator = create(2);
+        List<Individual<BooleanChromosome>> individuals = individuals(0, 1, 2, 3, 4, 5, 6, 7, 8);
+        evaluator.start(true);
+        try {
+            evaluate(evaluator, individuals);
+        } finally {
+            evaluator.stop();
+        }
+        for (Individual<BooleanChromosome> individual : individuals) {
+            assertTrue(individual.isEvaluated());
+            assertTrue(individual.isLegal());
+            assertEquals(ones(individual), individual.getScore(), 0);
+        }
+        assertEquals(0, evaluator.getRestarts());
+        assertEquals(0, evaluator.getFailedEvaluations());
+    }
+
+    /**
+     * Tests that an evaluation exceeding the timeout gets the penalty, while the
+     * other individuals are evaluated by the restarted worker
+     */
+    @Test
+    public void testTimeout() {
+        ProcessEvaluator evaluator = create(1);
+        evaluator.setTimeout(500);
+        evaluator.setMaxAttempts(2);
+        evaluator.setMaxRestarts(1);
+        List<Individual<BooleanChromosome>> individuals = individuals(1, HANG, 2, 3);
+        evaluator.start(true);
+        try {
+            evaluate(evaluator, individuals);
+        } finally {
+            evaluator.stop();
+        }
+        Individual<BooleanChromosome> hung = individuals.get(1);
+        assertEquals(-1, hung.getScore(), 0);
+        assertFalse(hung.isLegal());
+        for (int i : new int[]{0, 2, 3}) {
+            assertTrue(individuals.get(i).isLegal());
+            assertEquals(ones(individuals.get(i)), individuals.get(i).getScore(), 0);
+        }
+        assertEquals(1, evaluator.getFailedEvaluations());
+        //the restart after the last attempt is not charged to the single allowed one
+        assertEquals(2, evaluator.getRestarts());
+    }
+
+    /**
+     * Tests that a crashed worker is restarted and its jobs are evaluated again
+     */
+    @Test
+    public void testCrash() throws IOException {
+        File marker = File.createTempFile("jenes-crash", ".marker");
+        assertTrue(marker.delete());
+        ProcessEvaluator evaluator = create(1);
+        evaluator.setJvmOptions("-D" + CRASH_FILE + "=" + marker.getAbsolutePath());
+        List<Individual<BooleanChromosome>> individuals = individuals(1, CRASH, 2, 3);
+        evaluator.start(true);
+        try {
+            evaluate(evaluator, individuals);
+        } finally {
+            evaluator.stop();
+            marker.delete();
+        }
+        assertEquals(1, evaluator.getRestarts());
+        assertEquals(0, evaluator.getFailedEvaluations());
+        for (Individual<BooleanChromosome> individual : individuals) {
+            assertTrue(individual.isLegal());
+            assertEquals(ones(individual), individual.getScore(), 0);
+        }
+    }
+
+    /**
+     * Tests that an evaluation error reported by the worker isolates the faulty
+     * individual, which gets the penalty without restarting the worker
+     */
+    @Test
+    public void testError() {
+        ProcessEvaluator evaluator = create(1);
+        List<Individual<BooleanChromosome>> individuals = individuals(1, 2, THROW, 3);
+        evaluator.start(true);
+        try {
+            evaluate(evaluator, individuals);
+        } finally {
+            evaluator.stop();
+        }
+        Individual<BooleanChromosome> faulty = individuals.get(2);
+        assertEquals(-1, faulty.getScore(), 0);
+        assertFalse(faulty.isLegal());
+        assertEquals(1, evaluator.getFailedEvaluations());
+        //the job is split at the first attempt, then the faulty individual is retried
+        assertEquals(evaluator.getMaxAttempts() - 1, evaluator.getResubmissions());
+        assertEquals(0, evaluator.getRestarts());
+        for (int i : new int[]{0, 1, 3}) {
+            assertEquals(ones(individuals.get(i)), individuals.get(i).getScore(), 0);
+        }
+    }
+
+    /**
+     * Tests that, with workers started by hand, the evaluator waits for one to join
+     */
+    @Test
+    public void testHandStartedWorker() throws Exception {
+        final ProcessEvaluator evaluator = create(0);
+        evaluator.setJoinTimeout(10000);
+        List<Individual<BooleanChromosome>> individuals = individuals(0, 1, 2, 3, 4);
+        evaluator.start(true);
+        Thread worker = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(300);
+                    new EvaluationWorker("127.0.0.1", evaluator.getPort(), new Setup(), -1).serve();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        });
+        worker.setDaemon(true);
+        worker.start();
+        try {
+            evaluate(evaluator, individuals);
+        } finally {
+            evaluator.stop();
+        }
+        for (Individual<BooleanChromosome> individual : individuals) {
+            assertEquals(ones(individual), individual.getScore(), 0);
+        }
+    }
+
+    /**
+     * Tests that the evaluation fails when no worker joins in time
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testNoWorker() {
+        ProcessEvaluator evaluator = create(0);
+        evaluator.setJoinTimeout(300);
+        evaluator.start(true);
+        try {
+            evaluate(evaluator, individuals(0, 1, 2));
+        } finally {
+            evaluator.stop();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenes.GenerationEventListener;
+import jenes.GeneticAlgorithm;
+import jenes.population.Population;
+import jenes.utils.CSVLogger;
+import org.java.plugin.JpfException;
+
+/**
+ * Runs a batch of GATE experiments from the command line, without the user interface:
+ * <pre>
+ * java -cp ... gate.BatchRunner experiment.properties
+ * </pre>
+ * The runs of the sweep described by the {@link ExperimentSpec} are built by an
+ * {@link ExperimentFactory} and evolved concurrently, one per core. Each run is
+ * built and evolved on the same worker thread, so it uses the random generator of
+ * that thread, seeded from the spec when a seed is given. The statistics of every
+ * generation of every run are streamed, as they are produced, to one CSV file with
+ * a row per generation and a column per value.
+ * <p>
+ * The algorithms are evolved directly, and neither their task nor the JavaFX toolkit
+ * is ever started: the JavaFX classes are only needed on the class path because
+ * {@link GeneticAlgorithm} extends <code>javafx.concurrent.Task</code>.
+ */
+public final class BatchRunner {
+
+    static final Logger log = Logger.getLogger(BatchRunner.class.getName());
+
+    /** The columns of the results file */
+    static final String[] RESULTS_SCHEMA = {"run", "populationSize", "mutationRate", "generationLimit", "replicate",
+        "randomSeed", "generation", "maxValue", "meanValue", "minValue", "fitnessEvaluations", "elapsedMillis"};
+
+    private final ExperimentSpec spec;
+    private final ExperimentFactory factory;
+    private final CSVLogger results;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Builds a runner
+     *
+     * @param spec the batch specification
+     * @param factory the factory building the algorithms
+     * @param results the logger of the results, with the {@link #RESULTS_SCHEMA} schema
+     */
+    public BatchRunner(ExperimentSpec spec, ExperimentFactory factory, CSVLogger results) {
+        this.spec = spec;
+        this.factory = factory;
+        this.results = results;
+    }
+
+    /**
+     * Evolves all the runs of the batch and waits for them to complete
+     *
+     * @return the number of failed runs
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public int run() throws InterruptedException {
+        final int total = spec.getPoints().size();
+        log.log(Level.INFO, "Running {0} experiments on {1} cores", new Object[]{total, spec.getCores()});
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(spec.getCores(), total));
+        for (final ExperimentSpec.Point point : spec.getPoints()) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long begin = System.currentTimeMillis();
+                    try {
+                        runPoint(point, begin);
+                        log.log(Level.INFO, "Completed {0} of {1}: {2} in {3} ms",
+                                new Object[]{completed.incrementAndGet(), total, point, System.currentTimeMillis() - begin});
+                    } catch (Exception | LinkageError ex) {
+                        failed.incrementAndGet();
+                        log.log(Level.SEVERE, "Failed " + point, ex);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.log(Level.FINE, "{0} of {1} experiments completed", new Object[]{completed.get(), total});
+        }
+        return failed.get();
+    }
+
+    private void runPoint(final ExperimentSpec.Point point, final long begin) throws ReflectiveOperationException {
+        GeneticAlgorithm ga = factory.createExperiment(spec, point);
+        Long seed = spec.getSeed(point);
+        if (seed != null) {
+            ga.setRandomSeed(seed);
+        }
+        ga.addGenerationEventListener(new GenerationEventListener() {
+            @Override
+            public void onGeneration(GeneticAlgorithm ga, long time) {
+                write(point, ga, begin);
+            }
+        });
+        ga.evolve();
+    }
+
+    private void write(ExperimentSpec.Point point, GeneticAlgorithm ga, long begin) {
+        Population.Statistics stats = ga.getCurrentPopulation().getStatistics();
+        long evaluations = ga.getStatistics().getFitnessEvaluationNumbers();
+        long seed = ga.getStatistics().getRandomSeed();
+        synchronized (results) {
+            results.put("run", point.getIndex());
+            results.put("populationSize", point.getPopulationSize());
+            results.put("mutationRate", point.getMutationRate());
+            results.put("generationLimit", point.getGenerations());
+            results.put("replicate", point.getReplicate());
+            results.put("randomSeed", seed);
+            results.put("generation", ga.getGeneration());
+            results.put("maxValue", stats.getLegalHighestScore());
+            results.put("meanValue", stats.getLegalScoreAvg());
+            results.put("minValue", stats.getLegalLowestScore());
+            results.put("fitnessEvaluations", evaluations);
+            results.put("elapsedMillis", System.currentTimeMillis() - begin);
+            results.log();
+            results.save();
+        }
+    }
+
+    /**
+     * Runs the batch described by the spec file given as argument
+     *
+     * @param args the spec file
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: java -cp ... " + BatchRunner.class.getName() + " <experiment.properties>");
+            System.exit(2);
+        }
+        try {
+            ExperimentSpec spec = ExperimentSpec.read(new File(args[0]));
+            ExperimentFactory factory = new ExperimentFactory(spec.getPlugins());
+            CSVLogger results = new CSVLogger(RESULTS_SCHEMA, spec.getOutput().getPath());
+            int failures;
+            try {
+                failures = new BatchRunner(spec, factory, results).run();
+            } finally {
+                results.close();
+            }
+            log.log(Level.INFO, "Results written to {0}", spec.getOutput().getAbsolutePath());
+            System.exit(failures == 0 ? 0 : 1);
+        } catch (IOException | JpfException | IllegalArgumentException | InterruptedException ex) {
+            log.log(Level.SEVERE, "Batch failed", ex);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import jenes.GeneticAlgorithm;
+import jenes.chromosome.Chromosome;
+import jenes.population.Fitness;
+import jenes.population.Individual;
+import jenes.population.Population;
+import jenes.stage.AbstractStage;
+import jenes.stage.operator.Mutator;
+import org.java.plugin.JpfException;
+import org.java.plugin.ObjectFactory;
+import org.java.plugin.PluginManager;
+import org.java.plugin.registry.Extension;
+import org.java.plugin.registry.ExtensionPoint;
+import org.java.plugin.registry.PluginDescriptor;
+import org.java.plugin.registry.PluginRegistry;
+import org.java.plugin.standard.StandardPluginLocation;
+
+/**
+ * Assembles GATE experiments from the JPF plug-ins, for the GATE window as well as
+ * for the {@link BatchRunner}. The algorithm is built from a population of the
+ * chromosome plug-in, the fitness function plug-in, and the stage plug-ins in
+ * order, each configured by the additional properties and, for mutators, by the
+ * mutation rate.
+ * <p>
+ * Publishing the plug-ins through the JPF {@link PluginManager} parses every plug-in
+ * manifest, so it is done as late and as rarely as possible:
+ * <ul>
+ * <li>the names, plug-ins and classes of the extensions are kept in an index file in
+ * the plug-ins directory, valid as long as the CRC32 checksum of every plug-in file
+ * is unchanged; when the index is valid, the plug-ins are not published at startup;</li>
+ * <li>the plug-ins are published, and a plug-in class is loaded, only when the first
+ * instance of that plug-in is created;</li>
+ * <li>the no-arg constructor of each plug-in class is cached, so building the same
+ * experiment again, as in a sweep, costs only the constructor invocations.</li>
+ * </ul>
+ * The instances are created for each experiment, so experiments built by the same
+ * factory share no state. The factory is thread safe.
+ */
+public class ExperimentFactory {
+
+    static final Logger log = Logger.getLogger(ExperimentFactory.class.getName());
+
+    /** The extension points of the stage plug-ins */
+    static final String[] STAGE_EXTENSION_POINTS = {
+        "jenes.stage.AbstractStage",
+        "jenes.stage.operator.Crossover",
+        "jenes.stage.operator.Mutator",
+        "jenes.stage.operator.Scaling",
+        "jenes.stage.operator.Selector",
+        "jenes.stage.operator.Crowder"
+    };
+    static final String CHROMOSOME_EXTENSION_POINT = "jenes.chromosome.Chromosome";
+    static final String FITNESS_EXTENSION_POINT = "jenes.population.Fitness";
+    static final String MUTATOR_EXTENSION_POINT = "jenes.stage.operator.Mutator";
+
+    /** The name of the index file, in the plug-ins directory */
+    static final String INDEX_FILE = ".gate-plugins.idx";
+    /** The version of the index format */
+    static final String INDEX_VERSION = "1";
+
+    /**
+     * An indexed extension: the plug-in declaring it and the class to instantiate
+     */
+    private static final class Entry {
+        final String name;
+        final String pluginId;
+        final String className;
+        final boolean mutator;
+
+        Entry(String name, String pluginId, String className, boolean mutator) {
+            this.name = name;
+            this.pluginId = pluginId;
+            this.className = className;
+            this.mutator = mutator;
+        }
+    }
+
+    private final File[] files;
+    private final Map<String, Entry> stages = new LinkedHashMap<>();
+    private final Map<String, Entry> chromosomes = new LinkedHashMap<>();
+    private final Map<String, Entry> fitnessFunctions = new LinkedHashMap<>();
+    private final ConcurrentHashMap<Entry, Constructor<?>> constructors = new ConcurrentHashMap<>();
+    private PluginManager pluginManager;
+
+    /**
+     * Indexes the plug-ins found in a directory. The index file is used if the
+     * plug-in files have not changed, otherwise the plug-ins are published and
+     * the index file is written again.
+     *
+     * @param pluginsDir the directory of the plug-in jar and zip files
+     * @throws JpfException if the plug-ins cannot be published
+     */
+    public ExperimentFactory(File pluginsDir) throws JpfException {
+        File[] listed = pluginsDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.toLowerCase().endsWith("jar") || name.toLowerCase().endsWith("zip");
+            }
+        });
+        this.files = listed != null ? listed : new File[0];
+        Arrays.sort(this.files);
+        if (files.length == 0) {
+            log.log(Level.INFO, "No plugins found in {0}", pluginsDir.getAbsolutePath());
+            return;
+        }
+        File indexFile = new File(pluginsDir, INDEX_FILE);
+        Map<String, String> checksums = checksums();
+        if (!readIndex(indexFile, checksums)) {
+            buildIndex();
+            writeIndex(indexFile, checksums);
+        }
+        log.log(Level.INFO, "Indexed {0} stages, {1} chromosomes and {2} fitness functions from {3} plugin files",
+                new Object[]{stages.size(), chromosomes.size(), fitnessFunctions.size(), files.length});
+    }
+
+    /**
+     * Returns the checksum of each plug-in file, by file name
+     */
+    private Map<String, String> checksums() {
+        TreeMap<String, String> checksums = new TreeMap<>();
+        byte[] buffer = new byte[64 * 1024];
+        for (File file : files) {
+            CRC32 crc = new CRC32();
+            try (InputStream in = new FileInputStream(file)) {
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    crc.update(buffer, 0, n);
+                }
+                checksums.put(file.getName(), Long.toHexString(crc.getValue()));
+            } catch (IOException ex) {
+                log.log(Level.WARNING, "Unable to read plugin file " + file.getName(), ex);
+            }
+        }
+        return checksums;
+    }
+
+    private boolean readIndex(File indexFile, Map<String, String> checksums) {
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        Properties index = new Properties();
+        try (InputStream in = new FileInputStream(indexFile)) {
+            index.load(in);
+        } catch (IOException ex) {
+            log.log(Level.FINE, "Unable to read the plugin index", ex);
+            return false;
+        }
+        if (!INDEX_VERSION.equals(index.getProperty("version"))) {
+            return false;
+        }
+        int jars = 0;
+        for (String key : index.stringPropertyNames()) {
+            if (key.startsWith("jar.")) {
+                if (!index.getProperty(key).equals(checksums.get(key.substring(4)))) {
+                    return false;
+                }
+                jars++;
+            }
+        }
+        if (jars != checksums.size()) {
+            return false;
+        }
+        try {
+            readEntries(index, "stage", stages);
+            readEntries(index, "chromosome", chromosomes);
+            readEntries(index, "fitness", fitnessFunctions);
+        } catch (RuntimeException ex) {
+            log.log(Level.FINE, "Malformed plugin index", ex);
+            stages.clear();
+            chromosomes.clear();
+            fitnessFunctions.clear();
+            return false;
+        }
+        log.log(Level.FINE, "Plugin index {0} is up to date", indexFile);
+        return true;
+    }
+
+    private static void readEntries(Properties index, String kind, Map<String, Entry> map) {
+        for (int i = 0; index.containsKey(kind + "." + i); i++) {
+            String[] fields = index.getProperty(kind + "." + i).split("\t", -1);
+            Entry entry = new Entry(fields[0], fields[1], fields[2], Boolean.parseBoolean(fields[3]));
+            map.put(entry.name, entry);
+        }
+    }
+
+    private void writeIndex(File indexFile, Map<String, String> checksums) {
+        Properties index = new Properties();
+        index.setProperty("version", INDEX_VERSION);
+        for (Map.Entry<String, String> checksum : checksums.entrySet()) {
+            index.setProperty("jar." + checksum.getKey(), checksum.getValue());
+        }
+        writeEntries(index, "stage", stages);
+        writeEntries(index, "chromosome", chromosomes);
+        writeEntries(index, "fitness", fitnessFunctions);
+        try (OutputStream out = new FileOutputStream(indexFile)) {
+            index.store(out, "GATE plugin index, rebuilt when a plugin file changes");
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Unable to write the plugin index " + indexFile, ex);
+        }
+    }
+
+    private static void writeEntries(Properties index, String kind, Map<String, Entry> map) {
+        int i = 0;
+        for (Entry entry : map.values()) {
+            index.setProperty(kind + "." + i++, entry.name + "\t" + entry.pluginId + "\t" + entry.className + "\t" + entry.mutator);
+        }
+    }
+
+    /**
+     * Publishes the plug-ins and indexes their extensions by name
+     */
+    private void buildIndex() throws JpfException {
+        PluginRegistry registry = manager().getRegistry();
+        for (String etp : STAGE_EXTENSION_POINTS) {
+            for (Extension ext : extensions(registry, etp)) {
+                PluginDescriptor descriptor = ext.getDeclaringPluginDescriptor();
+                boolean mutator = false;
+                for (Object o : descriptor.getExtensions()) {
+                    mutator |= MUTATOR_EXTENSION_POINT.equals(((Extension) o).getExtendedPluginId());
+                }
+                put(stages, new Entry(nameOf(ext), descriptor.getId(), descriptor.getPluginClassName(), mutator));
+            }
+        }
+        for (Extension ext : extensions(registry, CHROMOSOME_EXTENSION_POINT)) {
+            PluginDescriptor descriptor = ext.getDeclaringPluginDescriptor();
+            put(chromosomes, new Entry(nameOf(ext), descriptor.getId(), descriptor.getPluginClassName(), false));
+        }
+        for (Extension ext : extensions(registry, FITNESS_EXTENSION_POINT)) {
+            PluginDescriptor descriptor = ext.getDeclaringPluginDescriptor();
+            put(fitnessFunctions, new Entry(nameOf(ext), descriptor.getId(), ext.getParameter("class").valueAsString(), false));
+        }
+    }
+
+    private static void put(Map<String, Entry> map, Entry entry) {
+        log.log(Level.FINE, "Indexing the plugin called {0}", entry.name);
+        map.put(entry.name, entry);
+    }
+
+    private static Iterable<Extension> extensions(PluginRegistry registry, String etp) {
+        if (!registry.isPluginDescriptorAvailable(etp)) {
+            log.log(Level.FINE, "No plugin declares the extension point {0}", etp);
+            return Collections.emptyList();
+        }
+        PluginDescriptor descriptor = registry.getPluginDescriptor(etp);
+        ExtensionPoint point = registry.getExtensionPoint(descriptor.getId(), etp);
+        return point.getConnectedExtensions();
+    }
+
+    private static String nameOf(Extension ext) {
+        return ext.getParameter("name").valueAsString();
+    }
+
+    /**
+     * Returns the plug-in manager, publishing the plug-ins at the first invocation
+     */
+    private synchronized PluginManager manager() throws JpfException {
+        if (pluginManager == null) {
+            long begin = System.currentTimeMillis();
+            PluginManager manager = ObjectFactory.newInstance().createManager();
+            ArrayList<PluginManager.PluginLocation> locations = new ArrayList<>();
+            for (File file : files) {
+                try {
+                    PluginManager.PluginLocation location = StandardPluginLocation.create(file);
+                    if (location != null) {
+                        locations.add(location);
+                    }
+                } catch (Exception e) {
+                    log.log(Level.WARNING, "Failed to load plugin from file " + file.getName(), e);
+                }
+            }
+            manager.publishPlugins(locations.toArray(new PluginManager.PluginLocation[locations.size()]));
+            pluginManager = manager;
+            log.log(Level.INFO, "Published {0} plugins in {1} ms", new Object[]{locations.size(), System.currentTimeMillis() - begin});
+        }
+        return pluginManager;
+    }
+
+    /**
+     * Returns the cached no-arg constructor of an extension class, loading the class
+     * at the first invocation
+     */
+    private Constructor<?> constructor(Entry entry) throws ReflectiveOperationException {
+        Constructor<?> c = constructors.get(entry);
+        if (c == null) {
+            synchronized (this) {
+                c = constructors.get(entry);
+                if (c == null) {
+                    PluginManager manager;
+                    try {
+                        manager = manager();
+                    } catch (JpfException ex) {
+                        throw new IllegalStateException("Unable to publish the plugins", ex);
+                    }
+                    PluginDescriptor descriptor = manager.getRegistry().getPluginDescriptor(entry.pluginId);
+                    Class<?> cls = manager.getPluginClassLoader(descriptor).loadClass(entry.className);
+                    c = cls.getConstructor();
+                    constructors.put(entry, c);
+                    log.log(Level.FINE, "Loaded {0} for the plugin {1}", new Object[]{cls.getName(), entry.name});
+                }
+            }
+        }
+        return c;
+    }
+
+    private Object newInstance(Entry entry) throws ReflectiveOperationException {
+        try {
+            return constructor(entry).newInstance();
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Builds the algorithm of a run of a batch
+     *
+     * @param spec the batch specification
+     * @param point the run
+     * @return a new algorithm, not yet evolved
+     * @throws ReflectiveOperationException if a plug-in cannot be instantiated
+     */
+    public GeneticAlgorithm createExperiment(ExperimentSpec spec, ExperimentSpec.Point point) throws ReflectiveOperationException {
+        Chromosome chrom = createChromosome(spec.getChromosome());
+        Individual indie = new Individual(chrom, spec.getJeneSize());
+        Population pop = new Population(indie, point.getPopulationSize());
+
+        Fitness ff = createFitness(spec.getFitness());
+        ff.setBiggerIsBetter((int) Math.floor(spec.getJeneSize()), true);
+
+        GeneticAlgorithm ga = new GeneticAlgorithm(ff, pop, point.getGenerations());
+        for (String stageName : spec.getStages()) {
+            ga.addStage(createStage(stageName, spec.getProperties(), point.getMutationRate()));
+        }
+        return ga;
+    }
+
+    /**
+     * Creates an instance of a chromosome plug-in
+     *
+     * @param name the plug-in name
+     * @return a new chromosome
+     * @throws ReflectiveOperationException if the plug-in cannot be instantiated
+     */
+    public Chromosome createChromosome(String name) throws ReflectiveOperationException {
+        return (Chromosome) newInstance(lookup(chromosomes, name, "chromosome"));
+    }
+
+    /**
+     * Creates an instance of a fitness function plug-in
+     *
+     * @param name the plug-in name
+     * @return a new fitness function
+     * @throws ReflectiveOperationException if the plug-in cannot be instantiated
+     */
+    public Fitness createFitness(String name) throws ReflectiveOperationException {
+        return (Fitness) newInstance(lookup(fitnessFunctions, name, "fitness function"));
+    }
+
+    /**
+     * Creates an instance of a stage plug-in, configured by the properties and,
+     * if it is a mutator, by the mutation rate
+     *
+     * @param name the plug-in name
+     * @param properties the text passed to {@link AbstractStage#processProperties(java.lang.String)}
+     * @param mutationRate the mutator probability
+     * @return a new stage
+     * @throws ReflectiveOperationException if the plug-in cannot be instantiated
+     */
+    public AbstractStage createStage(String name, String properties, double mutationRate) throws ReflectiveOperationException {
+        Entry entry = lookup(stages, name, "stage");
+        AbstractStage stage = (AbstractStage) newInstance(entry);
+        stage.processProperties(properties == null ? "" : properties);
+        if (entry.mutator) {
+            ((Mutator) stage).setProbability(mutationRate);
+        }
+        return stage;
+    }
+
+    /**
+     * Returns whether a stage plug-in extends the mutator extension point
+     *
+     * @param name the plug-in name
+     * @return <tt>true</tt> if the stage is a mutator
+     */
+    public boolean isMutator(String name) {
+        return lookup(stages, name, "stage").mutator;
+    }
+
+    /**
+     * Returns the names of the stage plug-ins
+     *
+     * @return the stage names
+     */
+    public Collection<String> getStageNames() {
+        return Collections.unmodifiableSet(stages.keySet());
+    }
+
+    /**
+     * Returns the names of the chromosome plug-ins
+     *
+     * @return the chromosome names
+     */
+    public Collection<String> getChromosomeNames() {
+        return Collections.unmodifiableSet(chromosomes.keySet());
+    }
+
+    /**
+     * Returns the names of the fitness function plug-ins
+     *
+     * @return the fitness function names
+     */
+    public Collection<String> getFitnessNames() {
+        return Collections.unmodifiableSet(fitnessFunctions.keySet());
+    }
+
+    private static Entry lookup(Map<String, Entry> map, String name, String kind) {
+        Entry entry = map.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("No " + kind + " plugin named " + name + ", available: " + map.keySet());
+        }
+        return entry;
+    }
+}
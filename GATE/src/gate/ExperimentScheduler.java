@@ -0,0 +1,227 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenes.GeneticAlgorithm;
+import jenes.utils.multitasking.MultiThreadRunner;
+import jenes.utils.multitasking.Runner;
+
+/**
+ * Runs the queued experiments concurrently within a budget of cores.
+ * <p>
+ * Each experiment is weighted by the cores it keeps busy: one for an algorithm
+ * evaluating on its own thread, the number of threads for an algorithm using a
+ * {@link MultiThreadRunner} such as the <code>MultiThreadEvaluator</code>.
+ * Experiments are started in submission order as long as the running ones leave
+ * enough cores; an experiment heavier than the whole budget is started alone.
+ * When an experiment ends, by completion, failure or cancellation, its cores are
+ * released and the next experiments are started.
+ * <p>
+ * All the methods are thread safe.
+ */
+public final class ExperimentScheduler {
+
+    static final Logger log = Logger.getLogger(ExperimentScheduler.class.getName());
+
+    private final int cores;
+    private final ArrayDeque<GeneticAlgorithm> pending = new ArrayDeque<>();
+    private final LinkedHashSet<GeneticAlgorithm> running = new LinkedHashSet<>();
+    private final ExecutorService executor;
+    private int usedCores;
+    private boolean shutdown;
+
+    /**
+     * Builds a scheduler using all the available processors
+     */
+    public ExperimentScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Builds a scheduler with the given core budget
+     *
+     * @param cores the number of cores the running experiments can keep busy
+     */
+    public ExperimentScheduler(int cores) {
+        if (cores < 1) {
+            throw new IllegalArgumentException("The core budget must be positive: " + cores);
+        }
+        this.cores = cores;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "GATE-experiment");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the number of cores an experiment keeps busy while running
+     *
+     * @param ga the experiment
+     * @return the weight of the experiment, at least 1
+     */
+    public static int coresOf(GeneticAlgorithm ga) {
+        Runner runner = ga.getRunner();
+        if (runner instanceof MultiThreadRunner) {
+            return Math.max(1, ((MultiThreadRunner) runner).getNthreads());
+        }
+        return 1;
+    }
+
+    /**
+     * Queues an experiment, starting it as soon as enough cores are free
+     *
+     * @param ga the experiment
+     * @return <tt>true</tt> if queued, <tt>false</tt> if already pending or running
+     */
+    public synchronized boolean submit(GeneticAlgorithm ga) {
+        if (shutdown) {
+            throw new IllegalStateException("The scheduler is shut down");
+        }
+        if (pending.contains(ga) || running.contains(ga)) {
+            return false;
+        }
+        pending.add(ga);
+        dispatch();
+        return true;
+    }
+
+    /**
+     * Cancels an experiment. A pending experiment is dropped, a running one is
+     * cancelled and stops at the end of its current generation.
+     *
+     * @param ga the experiment
+     * @return <tt>true</tt> if the experiment was pending or running
+     */
+    public synchronized boolean cancel(GeneticAlgorithm ga) {
+        if (pending.remove(ga)) {
+            return true;
+        }
+        if (running.contains(ga)) {
+            ga.cancel(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancels all the pending and running experiments and stops accepting new ones
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        pending.clear();
+        for (GeneticAlgorithm ga : running) {
+            ga.cancel(true);
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Returns whether an experiment is waiting for cores
+     *
+     * @param ga the experiment
+     * @return <tt>true</tt> if pending
+     */
+    public synchronized boolean isPending(GeneticAlgorithm ga) {
+        return pending.contains(ga);
+    }
+
+    /**
+     * Returns whether an experiment is running
+     *
+     * @param ga the experiment
+     * @return <tt>true</tt> if running
+     */
+    public synchronized boolean isRunning(GeneticAlgorithm ga) {
+        return running.contains(ga);
+    }
+
+    /**
+     * Returns the number of experiments waiting for cores
+     *
+     * @return the number of pending experiments
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Returns the number of running experiments
+     *
+     * @return the number of running experiments
+     */
+    public synchronized int getRunningCount() {
+        return running.size();
+    }
+
+    /**
+     * Returns the core budget
+     *
+     * @return the number of cores
+     */
+    public int getCores() {
+        return cores;
+    }
+
+    /**
+     * Returns the cores kept busy by the running experiments
+     *
+     * @return the number of used cores
+     */
+    public synchronized int getUsedCores() {
+        return usedCores;
+    }
+
+    /**
+     * Starts the pending experiments, in order, while they fit in the free cores
+     */
+    private void dispatch() {
+        Iterator<GeneticAlgorithm> it = pending.iterator();
+        while (it.hasNext()) {
+            final GeneticAlgorithm ga = it.next();
+            final int weight = Math.min(coresOf(ga), cores);
+            if (usedCores + weight > cores && !running.isEmpty()) {
+                return;
+            }
+            it.remove();
+            running.add(ga);
+            usedCores += weight;
+            log.log(Level.FINE, "Starting {0} on {1} of {2} cores", new Object[]{ga.getTitle(), weight, cores});
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Thread.currentThread().setName("GATE-" + ga.getTitle());
+                    try {
+                        ga.run();
+                    } catch (RuntimeException ex) {
+                        log.log(Level.SEVERE, "Experiment " + ga.getTitle() + " failed", ex);
+                    } finally {
+                        Thread.currentThread().setName("GATE-experiment");
+                        finished(ga, weight);
+                    }
+                }
+            });
+        }
+    }
+
+    private synchronized void finished(GeneticAlgorithm ga, int weight) {
+        running.remove(ga);
+        usedCores -= weight;
+        if (!shutdown) {
+            dispatch();
+        }
+    }
+}
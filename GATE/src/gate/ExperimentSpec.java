@@ -0,0 +1,231 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The specification of a batch of experiments, read from a properties file.
+ * It names the plug-ins used to assemble the algorithm, as the GATE window does,
+ * and a sweep grid over population size, mutation rate and generation limit.
+ * <pre>
+ * chromosome   = name of the chromosome plug-in (required)
+ * fitness      = name of the fitness function plug-in (required)
+ * stages       = comma separated names of the stage plug-ins, in order (required)
+ * properties   = text passed to each stage by processProperties (optional)
+ * jeneSize     = the value of the Jene Size slider (default 1)
+ * population   = comma separated population sizes (required)
+ * mutationRate = comma separated mutation rates (default 0.1)
+ * generations  = comma separated generation limits (default 100)
+ * replicates   = runs of each point of the grid (default 1)
+ * seed         = base random seed, run i uses seed + i (default: time based)
+ * plugins      = plug-ins directory (default plugins)
+ * output       = the results file (default: the spec file name with the csv extension)
+ * cores        = the number of runs executed concurrently (default: all processors)
+ * </pre>
+ * The grid is the cartesian product of the listed values, each point repeated
+ * <code>replicates</code> times.
+ */
+public final class ExperimentSpec {
+
+    /**
+     * A run of the sweep: a point of the grid and its replicate number
+     */
+    public static final class Point {
+        final int index;
+        final int populationSize;
+        final double mutationRate;
+        final int generations;
+        final int replicate;
+
+        Point(int index, int populationSize, double mutationRate, int generations, int replicate) {
+            this.index = index;
+            this.populationSize = populationSize;
+            this.mutationRate = mutationRate;
+            this.generations = generations;
+            this.replicate = replicate;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getPopulationSize() {
+            return populationSize;
+        }
+
+        public double getMutationRate() {
+            return mutationRate;
+        }
+
+        public int getGenerations() {
+            return generations;
+        }
+
+        public int getReplicate() {
+            return replicate;
+        }
+
+        @Override
+        public String toString() {
+            return "run " + index + " [population=" + populationSize + ", mutationRate=" + mutationRate
+                    + ", generations=" + generations + ", replicate=" + replicate + "]";
+        }
+    }
+
+    private final String chromosome;
+    private final String fitness;
+    private final List<String> stages;
+    private final String properties;
+    private final double jeneSize;
+    private final List<Point> points;
+    private final Long seed;
+    private final File plugins;
+    private final File output;
+    private final int cores;
+
+    /**
+     * Reads a specification from a properties file
+     *
+     * @param file the specification file
+     * @return the specification
+     * @throws IOException if the file cannot be read
+     */
+    public static ExperimentSpec read(File file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        }
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        File defaultOutput = new File(file.getAbsoluteFile().getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + ".csv");
+        return new ExperimentSpec(props, defaultOutput);
+    }
+
+    /**
+     * Builds a specification from properties
+     *
+     * @param props the specification properties
+     * @param defaultOutput the results file used if the properties do not name one
+     */
+    public ExperimentSpec(Properties props, File defaultOutput) {
+        this.chromosome = required(props, "chromosome");
+        this.fitness = required(props, "fitness");
+        this.stages = Collections.unmodifiableList(split(required(props, "stages")));
+        this.properties = props.getProperty("properties", "");
+        this.jeneSize = Double.parseDouble(props.getProperty("jeneSize", "1").trim());
+        String rawSeed = props.getProperty("seed");
+        this.seed = rawSeed == null || rawSeed.trim().isEmpty() ? null : Long.valueOf(rawSeed.trim());
+        this.plugins = new File(props.getProperty("plugins", "plugins").trim());
+        String rawOutput = props.getProperty("output");
+        this.output = rawOutput == null || rawOutput.trim().isEmpty() ? defaultOutput : new File(rawOutput.trim());
+        this.cores = Integer.parseInt(props.getProperty("cores", Integer.toString(Runtime.getRuntime().availableProcessors())).trim());
+        if (this.cores < 1) {
+            throw new IllegalArgumentException("cores must be positive: " + this.cores);
+        }
+
+        List<String> populations = split(required(props, "population"));
+        List<String> mutationRates = split(props.getProperty("mutationRate", "0.1"));
+        List<String> generationLimits = split(props.getProperty("generations", "100"));
+        int replicates = Integer.parseInt(props.getProperty("replicates", "1").trim());
+        if (replicates < 1) {
+            throw new IllegalArgumentException("replicates must be positive: " + replicates);
+        }
+        ArrayList<Point> grid = new ArrayList<>();
+        for (String p : populations) {
+            int populationSize = Integer.parseInt(p);
+            if (populationSize < 1) {
+                throw new IllegalArgumentException("Maximum Population must be 1 or more: " + populationSize);
+            }
+            for (String m : mutationRates) {
+                double mutationRate = Double.parseDouble(m);
+                if (mutationRate < 0 || mutationRate >= 1) {
+                    throw new IllegalArgumentException("Mutation Rate must be less than 1 and not negative: " + mutationRate);
+                }
+                for (String g : generationLimits) {
+                    int generations = Integer.parseInt(g);
+                    for (int r = 0; r < replicates; r++) {
+                        grid.add(new Point(grid.size(), populationSize, mutationRate, generations, r));
+                    }
+                }
+            }
+        }
+        this.points = Collections.unmodifiableList(grid);
+    }
+
+    private static String required(Properties props, String key) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("The experiment spec must define " + key);
+        }
+        return value.trim();
+    }
+
+    private static List<String> split(String list) {
+        ArrayList<String> values = new ArrayList<>();
+        for (String v : list.split(",")) {
+            if (!v.trim().isEmpty()) {
+                values.add(v.trim());
+            }
+        }
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Empty list in the experiment spec: " + list);
+        }
+        return values;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public String getFitness() {
+        return fitness;
+    }
+
+    public List<String> getStages() {
+        return stages;
+    }
+
+    public String getProperties() {
+        return properties;
+    }
+
+    public double getJeneSize() {
+        return jeneSize;
+    }
+
+    public List<Point> getPoints() {
+        return points;
+    }
+
+    /**
+     * Returns the random seed of a run
+     *
+     * @param point the run
+     * @return the seed, or null if the runs are seeded by time
+     */
+    public Long getSeed(Point point) {
+        return seed == null ? null : seed + point.index;
+    }
+
+    public File getPlugins() {
+        return plugins;
+    }
+
+    public File getOutput() {
+        return output;
+    }
+
+    public int getCores() {
+        return cores;
+    }
+}
@@ -10,26 +10,28 @@ package gate;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
+import javafx.animation.AnimationTimer;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -47,27 +49,17 @@ import jenes.population.Individual;
 import jenes.population.Population;
 import jenes.population.Population.Statistics;
 import jenes.stage.AbstractStage;
-import jenes.stage.operator.Mutator;
 import jenes.utils.CSVLogger;
 //import jenes.utils.XLSLogger;
 import org.java.plugin.JpfException;
-import org.java.plugin.ObjectFactory;
 import org.java.plugin.PluginLifecycleException;
-import org.java.plugin.PluginManager;
-import org.java.plugin.registry.Extension;
-import org.java.plugin.registry.ExtensionPoint;
-import org.java.plugin.registry.Identity;
-import org.java.plugin.registry.PluginDescriptor;
-import org.java.plugin.registry.PluginRegistry;
-import org.java.plugin.standard.StandardPluginLocation;
 
 public class GateController implements Initializable, GenerationEventListener,AlgorithmEventListener{
 
-    private PluginManager pluginManager= ObjectFactory.newInstance().createManager();
+    /** The plugins, indexed at startup and instantiated on demand */
+    private ExperimentFactory plugins;
     private SimpleDateFormat runningLogDateFormat = new SimpleDateFormat("ddMMMyyy-HHmmss.SSS");
     static final Logger log = java.util.logging.Logger.getLogger(GATE.class.getName()) ;
-    private Map<String, Identity> publishedPlugins;
-    private PluginRegistry plugReg = pluginManager.getRegistry();
     private ObservableList stageList;
     private ArrayList<String> selectedStageList = new ArrayList();
     private ArrayList<String> experimentQueueList = new ArrayList();
@@ -77,17 +69,32 @@ public class GateController implements Initializable, GenerationEventListener,Al
     private ObservableList chromList;
     private ObservableList fitnessFunctionList;
     private Population.Statistics stats;
-    private HashMap fitnessFunctions = new HashMap<>();
-    private HashMap genericStages = new HashMap<>();
-    private HashMap chromosomeTypes = new HashMap<>();
     private HashMap experiments = new HashMap<>();
 //    private XLSLogger resultsXSLLogger= null;
-    private CSVLogger resultsCSVLogger= null;
     String resultsLoggerSchema[] = {"startTime","generation","randomSeed","maxValue","minValue","averageValue"};
     long maxPopSize;
     double mutationRate;
     long maxGenerations;
-    GeneticAlgorithm runningAlgorithm=null;
+    /** Runs the submitted experiments concurrently within the core budget, by default all the available processors */
+    private final ExperimentScheduler scheduler = new ExperimentScheduler(Integer.getInteger("gate.cores", Runtime.getRuntime().availableProcessors()));
+    /** The submitted experiments by title, until they stop */
+    private final ConcurrentHashMap<String, ExperimentRun> runs = new ConcurrentHashMap<>();
+    /** The experiment drawn in the progress chart */
+    private ExperimentRun shownRun;
+    /** The experiment submitted last, drawn when none is selected */
+    private ExperimentRun lastSubmittedRun;
+    private boolean runningLinesChanged;
+    /** Generations completed by the running algorithm, not yet shown. Filled by the algorithm thread, drained by the UI pulse. */
+    private final ConcurrentLinkedQueue<GenerationSnapshot> pendingGenerations = new ConcurrentLinkedQueue<>();
+    /** Drains the pending generations into the chart and the running log, at most once per frame */
+    private AnimationTimer uiPulse;
+    /** Generations kept for the progress chart, whatever the length of the run */
+    static final int PROGRESS_CAPACITY = 4096;
+    /** Lines kept in the running log */
+    static final int RUNNING_LOG_LINES = 500;
+    /** Chart width assumed before the first layout */
+    static final int DEFAULT_CHART_WIDTH = 1000;
+    private final RingLog runningLines = new RingLog(RUNNING_LOG_LINES);
     
     
     
@@ -155,6 +162,8 @@ public class GateController implements Initializable, GenerationEventListener,Al
         log.info("configureButtons complete");
         configureGraph();
         log.info("configureGraph complete");
+        configureUpdates();
+        log.info("configureUpdates complete");
         configureStats();
         log.info("configureStats complete");
         configureOrdering();
@@ -174,63 +183,26 @@ public class GateController implements Initializable, GenerationEventListener,Al
      * 
      */
     private void configureStages() {
-        ArrayList gaStages = new ArrayList();
-        gaStages.addAll(configureExtensionPoint("jenes.stage.AbstractStage",genericStages));
-        gaStages.addAll(configureExtensionPoint("jenes.stage.operator.Crossover",genericStages));
-        gaStages.addAll(configureExtensionPoint("jenes.stage.operator.Mutator",genericStages));
-        gaStages.addAll(configureExtensionPoint("jenes.stage.operator.Scaling",genericStages));
-        gaStages.addAll(configureExtensionPoint("jenes.stage.operator.Selector",genericStages));
-        gaStages.addAll(configureExtensionPoint("jenes.stage.operator.Crowder",genericStages));
+        log.info(this.getClass().getSimpleName()+" configureStages");
+        AvailStages.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        ArrayList gaStages = new ArrayList(plugins.getStageNames());
         stageList = FXCollections.observableArrayList(gaStages);
         AvailStages.setItems(stageList); 
         log.finer("tied the available stage plugins to the list view");
-        log.exiting("configureStages", this.getClass().toString());
 
-        ArrayList gaChromosomes = new ArrayList();
-        gaChromosomes.addAll(configureExtensionPoint("jenes.chromosome.Chromosome",chromosomeTypes));
+        ArrayList gaChromosomes = new ArrayList(plugins.getChromosomeNames());
         chromList = FXCollections.observableArrayList(gaChromosomes);
         ChromSelect.setItems(chromList); 
         log.finer("tied the available chromosome plugins to the list view");
-        log.exiting("configureStages", this.getClass().toString());
 
         //fitnessFunctionList
-        //gaStages.addAll(configureExtensionPoint("jenes.population.Fitness"));
-        ArrayList gaFitnessFunctions = new ArrayList();
-        gaFitnessFunctions.addAll(configureExtensionPoint("jenes.population.Fitness",fitnessFunctions));
+        ArrayList gaFitnessFunctions = new ArrayList(plugins.getFitnessNames());
         fitnessFunctionList = FXCollections.observableArrayList(gaFitnessFunctions);
         SelectedFitnessFunction.setItems(fitnessFunctionList); 
         log.finer("tied the available Fitness Function plugins to the list view");
 
         log.exiting("configureStages", this.getClass().toString());
     }
-    /**
-     * 
-     */
-    private ArrayList configureExtensionPoint(String etpName,HashMap<String,PluginDescriptor> map) {
-        log.info(this.getClass().getSimpleName()+" configureStages");
-        AvailStages.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
-        PluginDescriptor abstractStageDescriptor = plugReg.getPluginDescriptor(etpName);
-        log.fine("found the abstractStage descriptor for "+etpName);
-        ExtensionPoint extPointAbstractStages = plugReg.getExtensionPoint(abstractStageDescriptor.getId(), etpName);
-        log.fine("loaded the extension point");
-        ArrayList<String> stageGatherer = new ArrayList();
-        for (Iterator it = extPointAbstractStages.getConnectedExtensions().iterator(); it.hasNext();){
-            log.fine("Loading a stage plugin ");
-            Extension ext = (Extension) it.next();
-            PluginDescriptor descr = ext.getDeclaringPluginDescriptor();
-            log.log(Level.INFO, "Loading the stage plugin called {0}", ext.getParameter("name").valueAsString());
-            stageGatherer.add(ext.getParameter("name").valueAsString());
-            map.put(ext.getParameter("name").valueAsString(),descr);
-            // These lines will likely have to move into the GA configuring method triggered by the Initialize Button
-            ClassLoader classLoader = pluginManager.getPluginClassLoader(descr);
-            try {
-                Class pluginCls = classLoader.loadClass(ext.getParameter("class").valueAsString());
-            } catch (ClassNotFoundException ex) {
-                Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        }
-        return stageGatherer;
-    }
 
     /**
      * 
@@ -276,6 +248,80 @@ public class GateController implements Initializable, GenerationEventListener,Al
     /**
      *
      */
+    /**
+     * Starts the pulse showing the generations published by the running algorithm.
+     * The algorithm never waits for the UI: it only queues a snapshot per generation,
+     * and the pulse adds all the snapshots queued since the last frame at once.
+     */
+    private void configureUpdates() {
+        log.info(this.getClass().getSimpleName()+"configureUpdates");
+        uiPulse = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drainGenerations();
+            }
+        };
+        uiPulse.start();
+    }
+
+    /**
+     * Moves the pending generations to the progress of their experiment and to the 
+     * running log, then redraws them. It must be invoked on the JavaFX Application Thread.
+     */
+    private void drainGenerations() {
+        for (GenerationSnapshot snapshot = pendingGenerations.poll(); snapshot != null; snapshot = pendingGenerations.poll()) {
+            ExperimentRun run = runs.get(snapshot.title);
+            if (run != null) {
+                run.progress.add(snapshot.generation, snapshot.max, snapshot.mean, snapshot.min);
+                run.progressChanged = true;
+            }
+            runningLines.add(snapshot.title + ": Started at " + runningLogDateFormat.format(snapshot.evalStageBegin)
+                    + ": generation: " + snapshot.generation
+                    + " [max=" + snapshot.max + ", min=" + snapshot.min + ", avg=" + snapshot.mean + "]");
+            runningLinesChanged = true;
+        }
+        showProgress();
+    }
+
+    /**
+     * Redraws the chart with the progress of the selected experiment, or of the last 
+     * submitted one, downsampled to the width of the chart, and the running log with 
+     * its last lines. The number of chart points and of log lines is bounded, and only 
+     * one experiment is drawn, so a frame costs the same at any generation and with 
+     * any number of concurrent experiments.
+     */
+    private void showProgress() {
+        ExperimentRun run = runs.get(String.valueOf(ExperimentQueue.getSelectionModel().getSelectedItem()));
+        if (run == null) {
+            run = lastSubmittedRun;
+        }
+        if (run != null && (run != shownRun || run.progressChanged)) {
+            int width = (int) CurProg.getWidth();
+            if (width <= 0) {
+                width = DEFAULT_CHART_WIDTH;
+            }
+            chartDataMax.getData().setAll(chartPoints(run.progress, ProgressBuffer.Measure.MAX, width));
+            chartDataMean.getData().setAll(chartPoints(run.progress, ProgressBuffer.Measure.MEAN, width));
+            chartDataMin.getData().setAll(chartPoints(run.progress, ProgressBuffer.Measure.MIN, width));
+            run.progressChanged = false;
+            shownRun = run;
+        }
+        if (runningLinesChanged) {
+            RunningLog.setText(runningLines.toString());
+            RunningLog.setScrollTop(Double.MAX_VALUE);
+            runningLinesChanged = false;
+        }
+    }
+
+    private ArrayList<XYChart.Data> chartPoints(ProgressBuffer progress, ProgressBuffer.Measure measure, int width) {
+        int[] selected = progress.downsample(measure, width);
+        ArrayList<XYChart.Data> points = new ArrayList<>(selected.length);
+        for (int i : selected) {
+            points.add(new XYChart.Data(progress.getGeneration(i), progress.getValue(measure, i)));
+        }
+        return points;
+    }
+
     private void configureStats() {
         log.info(this.getClass().getSimpleName()+"configureStats");
         
@@ -295,87 +341,37 @@ public class GateController implements Initializable, GenerationEventListener,Al
         } catch (SecurityException ex) {
             Logger.getLogger(GATE.class.getName()).log(Level.SEVERE, null, ex);
         }
-        try {
-            //Setup the XLS data logger
-//            resultsXSLLogger = new XLSLogger(resultsLoggerSchema,"AllExperimentsData.xls");
-            resultsCSVLogger= new CSVLogger(resultsLoggerSchema,"AllExperimentsData.csv");
-        } catch (IOException ex) {
-            Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        
    }
     
         /**
-     * This method adds the plug-ins to the running environment so they may be 
-     * used later.
+     * This method logs the plug-ins available to the running environment.
+     * Their classes are loaded when the first experiment using them is initialized.
      */
     private void addPlugins() {
-        try{
-            plugReg = pluginManager.getRegistry();
-            ArrayList plugDescList = new ArrayList(plugReg.getPluginDescriptors());
-            Iterator iter = plugDescList.iterator();
-            
-            while(iter.hasNext()){
-                PluginDescriptor plugDesc = (PluginDescriptor) iter.next();
-                log.info("Added a Plugin "+plugDesc.getPluginClassName()+" "+plugDesc.getUniqueId()); 
-                /*@TODO apply logic on which plugins to load.
-                * mostlikely will have to load chromosomes first, 
-                * Then Fitness Functions.
-                * Then additional stages
-                */
-            }
-        }catch(NullPointerException npe){
-            log.log(Level.INFO,"NullPointer Exception ", npe);
+        for (String name : plugins.getChromosomeNames()) {
+            log.info("Added a Chromosome Plugin "+name); 
+        }
+        for (String name : plugins.getFitnessNames()) {
+            log.info("Added a Fitness Function Plugin "+name); 
+        }
+        for (String name : plugins.getStageNames()) {
+            log.info("Added a Stage Plugin "+name); 
         }
-        
     }
 
     /**
-     * This method finds plug-ins located in the ".\plugins" directory and stores
-     * them into the plug-in Manager
+     * This method indexes the plug-ins located in the ".\plugins" directory. 
+     * The index is cached in the directory, so the plug-ins are published only 
+     * when a plug-in file changes or when the first experiment is initialized.
      */
     private void loadPlugins() {
-        PluginManager.PluginLocation[] locations = null;
-        File pluginsDir = new File ("plugins");
-        FilenameFilter pluginFilter = new FilenameFilter(){
-            public boolean accept(File dir, String name){
-                return (name.toLowerCase().endsWith("jar")||name.toLowerCase().endsWith("zip"));
-            }
-        };
-        File[] plugins = pluginsDir.listFiles(pluginFilter);
-        if (null == plugins){
-            log.info("No Plugins to Load");
-            return;
-        }
-        log.info("Number of plugins is"+Integer.toString(plugins.length)+" "+plugins[0].getAbsolutePath());
-        locations = new PluginManager.PluginLocation[plugins.length];
-        for (int i=0;i<plugins.length;i++)
-        {
-            try {
-                locations[i]=StandardPluginLocation.create(plugins[i]);
-                log.fine("Loaded plugin from file "+plugins[i].getName());
-                log.finer("Location array is "+locations[i].getContextLocation());
-            } catch (NullPointerException npe){
-                log.log(Level.FINE,"File invalid "+plugins[i].getName(),npe);
-            }catch (Exception e) {
-                log.log(Level.WARNING,"Failed to loaded plugin from file "+plugins[i].getName(),e);
-            }
-        }
         try{
-            for (PluginManager.PluginLocation loc : locations){
-                log.finer(loc.hashCode()+" "+loc.getContextLocation());
-            }
-            Map<String, Identity> publishPlugins = pluginManager.publishPlugins(locations);
-            log.finer("Finished Loading plugins from "+pluginsDir.getName());
+            plugins = new ExperimentFactory(new File("plugins"));
+            log.finer("Finished Loading plugins");
         } catch (JpfException jpfe){
             log.log(Level.WARNING,"Failed to publish plugins, Plugin Framework exception ",jpfe);
             System.exit(-1);
-        } catch (NullPointerException npe){
-            log.log(Level.WARNING,"Failed to publish plugins, null pointer: ",npe);
-            System.exit(-1);
-           
         }
-               
     }
 
     /**
@@ -517,30 +513,16 @@ public class GateController implements Initializable, GenerationEventListener,Al
     }
 
                 /**
-     * This is the even handler for selecting a stage.
-     * Currently this doesn't work.
+     * Submits experiments to the scheduler: all the queued ones when AutoRun is 
+     * selected, otherwise the selected one (or the first). The experiments run 
+     * concurrently as long as there are free cores, the others wait for a 
+     * running experiment to stop.
      * @param event 
      */
         public void StartExperiment(ActionEvent event) {
-            if (runningAlgorithm != null){
-                MessageBar.setText("Cannot Start: There is currently an experiment running");
-                return;
-            }
             if (event.getSource()==null){
                 log.fine("This was started from the OnApplicaitonStop listner");
             }
-            MessageBar.setText("Starting Experiment: ");
-            //clear output before starting
-            RunningLog.setText("");
-            CurProg.getData().removeAll(chartDataMax);
-            CurProg.getData().removeAll(chartDataMean);
-            CurProg.getData().removeAll(chartDataMin);
-            chartDataMax.getData().clear();
-            chartDataMean.getData().clear();
-            chartDataMin.getData().clear();
-            
-            GeneticAlgorithm ga=null;
-            String experimentTitle="";
         //Check to see if there are experiments
             if (experimentQueueList.size()==0){
                 MessageBar.setText("There are no experiments to start");
@@ -551,152 +533,149 @@ public class GateController implements Initializable, GenerationEventListener,Al
             //This is a neat trick I clear the not selected item and the set the selected item to the first item 
                 ExperimentQueue.getSelectionModel().select(0);
             }
+            ArrayList<String> titles = new ArrayList<>();
+            if (AutoRun.isSelected()) {
+                titles.addAll(experimentQueueList);
+            } else {
+                titles.add((String) ExperimentQueue.getSelectionModel().getSelectedItem());
+            }
+            int submitted = 0;
+            for (String experimentTitle : titles) {
+                if (submitExperiment(experimentTitle)) {
+                    submitted++;
+                }
+            }
+            if (submitted == 0) {
+                MessageBar.setText("Cannot Start: the experiments are already running");
+                return;
+            }
+            MessageBar.setText("Conducting " + submitted + " experiments: " + scheduler.getRunningCount() + " running, "
+                    + scheduler.getPendingCount() + " waiting for cores");
+        }
 
-        //Start the selected experiment
-            experimentTitle= (String) ExperimentQueue.getSelectionModel().getSelectedItem();
+    /**
+     * Prepares the results file of an experiment and submits it to the scheduler.
+     * @param experimentTitle the title of a queued experiment
+     * @return false if the experiment was already submitted
+     */
+        private boolean submitExperiment(final String experimentTitle) {
+            if (runs.containsKey(experimentTitle)) {
+                return false;
+            }
             log.fine("Event: a experiment was started " + experimentTitle);
-            ga = (GeneticAlgorithm) experiments.get(experimentTitle);
+            final GeneticAlgorithm ga = (GeneticAlgorithm) experiments.get(experimentTitle);
             assert ga != null : "The genetic Algorithm was mull cannot start.";
             log.fine("The experiment found was "+ga.getTitle());
             ga.addGenerationEventListener(this);
             ga.addAlgorithmEventListener(this);
-            setupChart();
-            MessageBar.setText("Conductin Experiment: " +ga.getTitle());
-            runningAlgorithm = ga;
         //Create an XLS Logfile
 //            Path resultsXSLLoggerLocation = Paths.get(System.getProperty("user.home"),ga.getTitle()+".xls");
             Path resultsCSVLoggerLocation = Paths.get(System.getProperty("user.home"),ga.getTitle()+".csv");
+            CSVLogger resultsCSVLogger = null;
             try {
 //                resultsXSLLogger = new XLSLogger(resultsLoggerSchema,resultsXSLLoggerLocation.toString());
                 resultsCSVLogger = new CSVLogger(resultsLoggerSchema,resultsCSVLoggerLocation.toString());
             } catch (IOException ex) {
                 Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
             }
+            ExperimentRun run = new ExperimentRun(ga, resultsCSVLogger);
+            runs.put(experimentTitle, run);
+            lastSubmittedRun = run;
             
-        //Now Start The Experiment
-/*            Thread thisExperiment = new Thread(ga);
-            log.fine("setup the thread.  the Call method was called");
-            thisExperiment.setDaemon(true);
-            log.fine("set the threadinto Daemon mode. about to call start");
-            thisExperiment.start();
-            log.fine("finished the call to start()");*/
-            ga.evolve();
+        //Now Start The Experiment, off the JavaFX Application Thread
+            ga.setOnFailed(new EventHandler<WorkerStateEvent>() {
+                @Override
+                public void handle(WorkerStateEvent t) {
+                    log.log(Level.SEVERE, "Experiment " + experimentTitle + " failed", ga.getException());
+                    MessageBar.setText(experimentTitle + " failed: " + ga.getException());
+                    ExperimentRun failed = runs.get(experimentTitle);
+                    if (failed != null && failed.resultsLogger != null) {
+                        failed.resultsLogger.close();
+                    }
+                    removeExperiment(experimentTitle);
+                }
+            });
+            scheduler.submit(ga);
+            log.fine("submitted the experiment to the scheduler");
+            return true;
         }
+
     /**
-     * This is the even handler for selecting a stage.
-     * Currently this doesn't work.
+     * Removes a stopped, failed or dropped experiment from the queue. 
+     * It must be invoked on the JavaFX Application Thread.
+     * @param experimentTitle the experiment title
+     */
+        private void removeExperiment(String experimentTitle) {
+            //show the generations published before the experiment stopped
+            drainGenerations();
+            runs.remove(experimentTitle);
+            experimentQueueList.remove(experimentTitle); 
+            experiments.remove(experimentTitle);
+            ExperimentQueue.setItems(FXCollections.observableArrayList(experimentQueueList));
+        }
+
+    /**
+     * Aborts the selected experiment: a running one stops at the end of the current 
+     * generation, a waiting or not submitted one is removed from the queue.
      * @param event 
      */
         public void AbortExperiment(ActionEvent event) {
-            if(runningAlgorithm == null){
-                //If there is no running algorithm, then we need to remove the selecte experiment
-                String selectedInQueue =  (String) ExperimentQueue.getSelectionModel().getSelectedItem();
-                if ((selectedInQueue != null) && (!selectedInQueue.isEmpty())){
-                    MessageBar.setText("Removing experiment "+selectedInQueue);
-                    experimentQueueList.remove(selectedInQueue); 
-                    experiments.remove(selectedInQueue);
-                    ExperimentQueue.setItems(FXCollections.observableArrayList(experimentQueueList));
-                }else {
-                    //There was no algorithm select so do nothing and don't assume.
-                    MessageBar.setText("There was no experiment selected. To remove an experiment select it and press Abort");
-                }
+            String selectedInQueue =  (String) ExperimentQueue.getSelectionModel().getSelectedItem();
+            if ((selectedInQueue == null) || (selectedInQueue.isEmpty())){
+                //There was no algorithm select so do nothing and don't assume.
+                MessageBar.setText("There was no experiment selected. To remove an experiment select it and press Abort");
                 return;
             }
-            // Then there is a running algorithm, so abort it.  The current generation will complete.
-            log.fine("Aborting Experiment "+runningAlgorithm.getTitle());
-            runningAlgorithm.cancel(true);
-            MessageBar.setText(runningAlgorithm.getTitle()+ "was aborted");
-            experimentQueueList.remove(runningAlgorithm.getTitle()); 
-            experiments.remove(runningAlgorithm.getTitle());
-            ExperimentQueue.setItems(FXCollections.observableArrayList(experimentQueueList));
-            log.fine(runningAlgorithm.getTitle()+ " was Aborted");
-
-            runningAlgorithm=null;
+            ExperimentRun run = runs.get(selectedInQueue);
+            if (run != null && scheduler.isRunning(run.ga)) {
+                // The experiment is running, so abort it.  The current generation will complete and its stop removes it.
+                log.fine("Aborting Experiment "+selectedInQueue);
+                scheduler.cancel(run.ga);
+                MessageBar.setText(selectedInQueue+ " was aborted");
+                return;
+            }
+            if (run != null) {
+                // The experiment was waiting for cores, it will never start
+                scheduler.cancel(run.ga);
+                if (run.resultsLogger != null) {
+                    run.resultsLogger.close();
+                }
+            }
+            MessageBar.setText("Removing experiment "+selectedInQueue);
+            removeExperiment(selectedInQueue);
         }
 
     private Fitness CreateFitnessFuction(String selectedFF) {
-        Class pluginClass = null;
-        //get the descriptor for the Fitness Extension Point
-        PluginDescriptor fitnessExtensionType = plugReg.getPluginDescriptor("jenes.population.Fitness");
-        log.fine("Fitness function extension point is " + fitnessExtensionType.getPluginClassName());
-        //get the plugins that contain this extension point.
-        ExtensionPoint extPointAbstractStages = plugReg.getExtensionPoint(fitnessExtensionType.getId(), "jenes.population.Fitness");
-        log.fine("Fitness function extension point is " + extPointAbstractStages.toString());
-        //find the extension point that has the name selectedFF
-        Collection<Extension> theListOfFitnessFunctions = extPointAbstractStages.getConnectedExtensions();
-        log.fine("The list of FitenssFunctions is " + Integer.toString(theListOfFitnessFunctions.size()));
-        for (Iterator it = theListOfFitnessFunctions.iterator(); it.hasNext();){
-            Extension ext = (Extension) it.next();
-            log.fine("Looking for this FitnessFunction: " + selectedFF + " Found this fitness funciton: "+ext.getParameter("name").toString());
-            if(selectedFF.equals(ext.getParameter("name").rawValue() )){
-                //Ensure the plugin is active
-//                    pluginManager.activatePlugin(ext.getDeclaringPluginDescriptor().getId());
-                // Get the specific class loader for this set or plugins.
-                ClassLoader classLoader = pluginManager.getPluginClassLoader(ext.getDeclaringPluginDescriptor());
-                try {
-                    pluginClass = classLoader.loadClass(ext.getParameter("class").valueAsString());
-                } catch (ClassNotFoundException ex) {
-                    Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
-                }
-                try {
-                    return (Fitness) pluginClass.newInstance();
-                } catch (InstantiationException ex) {
-                    Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
-                } catch (IllegalAccessException ex) {
-                    Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            }
+        try {
+            return plugins.createFitness(selectedFF);
+        } catch (ReflectiveOperationException | IllegalArgumentException ex) {
+            Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
         }
         return null;
     }
 
     private boolean addStages(GeneticAlgorithm ga) {
         AbstractStage thisStage=null;
-        PluginDescriptor stagePluginDesc;
         log.log(Level.FINE, "The ordered list of stages is {0}", selectedStageList.toString());
-    //look up the plugin descriptor in the hashmaps?
+        String params = AddedParams.getText();
+        if (params == null){params="";}
         for (Iterator it = selectedStageList.iterator(); it.hasNext();){
             String stageName = (String) it.next();
             log.log(Level.FINE, "Creating the stage {0}", stageName);
-            stagePluginDesc = (PluginDescriptor) genericStages.get(stageName);
-            log.log(Level.FINE, "Found {0} Plugin Descriptor {1}", new Object[]{stageName, stagePluginDesc.getPluginClassName()});
-        //create an instance of the stage.
-            ClassLoader classLoader = pluginManager.getPluginClassLoader(stagePluginDesc);
-            Class pluginClass = null;
-            try {
-                pluginClass = classLoader.loadClass(stagePluginDesc.getPluginClassName());
-                log.log(Level.FINE, "Created an instance of {0}", pluginClass.getCanonicalName());
-            } catch (ClassNotFoundException ex) {
-                Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
-                return false;
+        //If this is a mutator check the mutation rate
+            if (plugins.isMutator(stageName)) {
+                log.fine("This stage is a mutator, so set the mutation rate");
+                checkMutRate();
             }
-        //Pass the Additional Properties to the stage for self configuration
+        //create an instance of the stage, passing the Additional Properties to the stage for self configuration
             try {
-                thisStage =(AbstractStage) pluginClass.newInstance();
-            } catch (InstantiationException | IllegalAccessException ex) {
+                thisStage = plugins.createStage(stageName, params, mutationRate);
+                log.log(Level.FINE, "Created an instance of {0}", thisStage.getClass().getCanonicalName());
+            } catch (ReflectiveOperationException ex) {
                 Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
                 MessageBar.setText(stageName +" needs a no arg constructor.");
                 return false;
             }
-                String params = AddedParams.getText();
-                if (params == null){params="";}
-                thisStage.processProperties(params);
-                
-        //If this is a mutator add the mutation rate
-                log.fine("Checking for Mutators!!");
-                Extension ep;
-                Collection thisStageEP = stagePluginDesc.getExtensions();
-                Iterator epIter=thisStageEP.iterator();
-                while (epIter.hasNext()){
-                    ep=(Extension) epIter.next();
-                    String expTypeName = ep.getExtendedPluginId();
-                     if ("jenes.stage.operator.Mutator".equals(expTypeName)){
-                         log.fine("This stage is a mutator, so set the mutation rate");
-                         Mutator thisMutatorStage= (Mutator) thisStage;
-                         checkMutRate();
-                         thisMutatorStage.setProbability(mutationRate);
-                     }
-                }
         //Add the stage to the GA
                 ga.addStage(thisStage);
                 log.fine("Added Stage to Algorithm");
@@ -748,27 +727,13 @@ public class GateController implements Initializable, GenerationEventListener,Al
         Chromosome chrom = null;
     //        MaxGen;
         log.fine("The chromosome type is " + ChromSelect.getSelectionModel().getSelectedItem().toString());
-    //look up the plugin descriptor in the hashmaps?
             String chromosomeName = ChromSelect.getSelectionModel().getSelectedItem().toString();
-            log.fine("Creating the stage " + chromosomeName);
-            PluginDescriptor chromosomePluginDesc = (PluginDescriptor) chromosomeTypes.get(chromosomeName);
-            log.fine("Found " + chromosomeName +" Plugin Descriptor " + chromosomePluginDesc.getPluginClassName());
-        //load the plugin for the chromosome.
-            ClassLoader classLoader = pluginManager.getPluginClassLoader(chromosomePluginDesc);
-            Class chromosomeClass = null;
-            try {
-                chromosomeClass = classLoader.loadClass(chromosomePluginDesc.getPluginClassName());
-                log.fine("Created an instance of " + chromosomeClass.getCanonicalName());
-            } catch (ClassNotFoundException ex) {
-                Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
-                MessageBar.setText("Could not load plugin for the " + chromosomeName + " chromosome");
-                return false;
-            }
+            log.fine("Creating the chromosome " + chromosomeName);
         //Create an instance of the chromosome
             try {
-                chrom = (Chromosome) chromosomeClass.newInstance();
+                chrom = plugins.createChromosome(chromosomeName);
                 log.fine("We have a chromosome of type "+chrom.getClass().getCanonicalName());
-            } catch (InstantiationException | IllegalAccessException ex) {
+            } catch (ReflectiveOperationException ex) {
                 Logger.getLogger(GateController.class.getName()).log(Level.SEVERE, null, ex);
                 MessageBar.setText(chromosomeName +" needs a no arg constructor.");
                 return false;
@@ -783,6 +748,10 @@ public class GateController implements Initializable, GenerationEventListener,Al
             log.fine("We have a population of individuals with "+sliderValue+" chromosomes of type "+chrom.getClass().getCanonicalName()+"");
         return true;
     }
+    /**
+     * Invoked on the algorithm thread: statistics are written to the results file and 
+     * published to the UI pulse, without touching the scene graph.
+     */
         public void onGeneration(GeneticAlgorithm ga, long time){
             log.fine("Statistics were generated for generation: "+ga.getGeneration());
             AllPopulationFilter popfilter = new AllPopulationFilter();
@@ -802,52 +771,52 @@ public class GateController implements Initializable, GenerationEventListener,Al
 //            double min4gen =thisGenStats.getMin()[ga.getGeneration()];
             log.fine("The max value is :"+max4gen);
             
-            chartDataMax.getData().add(new XYChart.Data(ga.getGeneration(),max4gen));
-            chartDataMean.getData().add(new XYChart.Data(ga.getGeneration(),mean4gen));
-            chartDataMin.getData().add(new XYChart.Data(ga.getGeneration(),min4gen));
-
-            //Addjust the range on the chart
-//            CurProg.getYAxis().invalidateRange();
-            
-            log.fine("graph is updated for generation: "+ga.getGeneration()+"with max="+max4gen+" min="+min4gen+" avg="+mean4gen);
-//            RunningLog.setPrefRowCount(RunningLog.getPrefRowCount()+1);
-            RunningLog.appendText(ga.getTitle()+": Started at "+runningLogDateFormat.format(ga.statistics.getFitnessEvalStageBegin())+": generation: "+ga.getGeneration()+" [max="+max4gen+", min="+min4gen+", avg="+mean4gen+"]\n");
+            pendingGenerations.add(new GenerationSnapshot(ga.getTitle(), ga.getGeneration(), max4gen, mean4gen, min4gen,
+                    ga.statistics.getFitnessEvalStageBegin()));
         /* logging schema is "startTime","generation","randomSeed","maxValue","minValue","averageValue"
          */
             writeStatistics(ga, thisGenStats);
         }
 
     @Override
-    public void onAlgorithmStart(GeneticAlgorithm ga, long time) {
-        MessageBar.setText(ga.getTitle() + " has started");
-        runningAlgorithm=ga;
+    public void onAlgorithmStart(final GeneticAlgorithm ga, long time) {
+        final String title = ga.getTitle();
+        Platform.runLater(new Runnable() {
+            @Override
+            public void run() {
+                MessageBar.setText(title + " has started");
+            }
+        });
     }
 
     @Override
-    public void onAlgorithmStop(GeneticAlgorithm ga, long time) {
-        MessageBar.setText(ga.getTitle() + " has stopped");
-        //Remove the experiment from the queue
-        
-        //Check for AutoStart  If yes start the next experiment
-        //if not autoStaart then do not start the next experiment. 
-        experimentQueueList.remove(ga.getTitle()); 
-        experiments.remove(ga.getTitle());
-        ExperimentQueue.setItems(FXCollections.observableArrayList(experimentQueueList));
-        ExperimentQueue.getSelectionModel().select(0);
+    public void onAlgorithmStop(final GeneticAlgorithm ga, long time) {
 //        resultsXSLLogger.close();
-        resultsCSVLogger.close();
-        runningAlgorithm=null;
-
-        if(AutoRun.isSelected()){
-            MessageBar.setText(MessageBar.getText()+" Starting Next Experiment");
-            this.StartExperiment(new ActionEvent());
+        final String title = ga.getTitle();
+        ExperimentRun run = runs.get(title);
+        if (run != null && run.resultsLogger != null) {
+            run.resultsLogger.close();
         }
-        
+        Platform.runLater(new Runnable() {
+            @Override
+            public void run() {
+                MessageBar.setText(title + " has stopped");
+                //Remove the experiment from the queue, the scheduler has already started the next waiting ones
+                removeExperiment(title);
+                ExperimentQueue.getSelectionModel().select(0);
+            }
+        });
     }
 
     @Override
     public void onAlgorithmInit(GeneticAlgorithm ga, long time) {
-        MessageBar.setText(ga.getTitle() + " is initialized");;
+        final String title = ga.getTitle();
+        Platform.runLater(new Runnable() {
+            @Override
+            public void run() {
+                MessageBar.setText(title + " is initialized");
+            }
+        });
     }
 
     private void setupChart() {
@@ -861,6 +830,11 @@ public class GateController implements Initializable, GenerationEventListener,Al
     }
 
     private void writeStatistics(GeneticAlgorithm ga, Statistics thisGenStats) {
+                    ExperimentRun run = runs.get(ga.getTitle());
+                    if (run == null || run.resultsLogger == null) {
+                        return;
+                    }
+                    CSVLogger resultsCSVLogger = run.resultsLogger;
         /*          The Excel Logger doesn't seem to write lines properly
          *          log.fine("Output line to results Excel file");
                     resultsXSLLogger.setLine(ga.getGeneration());
@@ -900,6 +874,43 @@ public class GateController implements Initializable, GenerationEventListener,Al
     }
 
 
+    /**
+     * A submitted experiment: its results file is written by the algorithm thread,
+     * its progress is kept by the JavaFX Application Thread.
+     */
+    private static final class ExperimentRun {
+        final GeneticAlgorithm ga;
+        final CSVLogger resultsLogger;
+        final ProgressBuffer progress = new ProgressBuffer(PROGRESS_CAPACITY);
+        boolean progressChanged;
+
+        ExperimentRun(GeneticAlgorithm ga, CSVLogger resultsLogger) {
+            this.ga = ga;
+            this.resultsLogger = resultsLogger;
+        }
+    }
+
+    /**
+     * The statistics of a generation, published by the algorithm thread to the UI pulse.
+     */
+    private static final class GenerationSnapshot {
+        final String title;
+        final int generation;
+        final double max;
+        final double mean;
+        final double min;
+        final long evalStageBegin;
+
+        GenerationSnapshot(String title, int generation, double max, double mean, double min, long evalStageBegin) {
+            this.title = title;
+            this.generation = generation;
+            this.max = max;
+            this.mean = mean;
+            this.min = min;
+            this.evalStageBegin = evalStageBegin;
+        }
+    }
+
     private static class AllPopulationFilter implements Population.Filter{
 
         public AllPopulationFilter() {
@@ -0,0 +1,216 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+/**
+ * A fixed-size time series of the maximum, mean and minimum score of the
+ * generations of a run.
+ * <p>
+ * The buffer never grows: when all the slots are used, adjacent slots are merged
+ * pairwise (keeping the highest maximum, the lowest minimum and the weighted mean)
+ * and each slot starts covering twice as many generations. A run of any length is
+ * thus kept with at least half of the capacity as resolution.
+ * <p>
+ * {@link #downsample(Measure, int)} reduces a measure to the number of points that
+ * can actually be drawn, using the Largest-Triangle-Three-Buckets algorithm, so the
+ * cost of rendering the progress does not depend on the number of generations.
+ * <p>
+ * The buffer is not thread safe: it is meant to be used by the JavaFX Application Thread only.
+ */
+public final class ProgressBuffer {
+
+    /** The measures recorded for each generation */
+    public static enum Measure { MAX, MEAN, MIN }
+
+    private final int[] generation;
+    private final double[] max;
+    private final double[] mean;
+    private final double[] min;
+    private final int[] count;
+    private int size;
+    private int stride = 1;
+
+    /**
+     * Builds an empty buffer
+     *
+     * @param capacity the number of slots, at least 4
+     */
+    public ProgressBuffer(int capacity) {
+        if (capacity < 4) {
+            throw new IllegalArgumentException("The capacity must be at least 4: " + capacity);
+        }
+        this.generation = new int[capacity];
+        this.max = new double[capacity];
+        this.mean = new double[capacity];
+        this.min = new double[capacity];
+        this.count = new int[capacity];
+    }
+
+    /**
+     * Records a generation. Generations are expected in increasing order.
+     *
+     * @param gen the generation number
+     * @param maxValue the highest score of the generation
+     * @param meanValue the mean score of the generation
+     * @param minValue the lowest score of the generation
+     */
+    public void add(int gen, double maxValue, double meanValue, double minValue) {
+        if (size > 0 && count[size - 1] < stride) {
+            int last = size - 1;
+            int c = count[last];
+            generation[last] = gen;
+            max[last] = Math.max(max[last], maxValue);
+            mean[last] = (mean[last] * c + meanValue) / (c + 1);
+            min[last] = Math.min(min[last], minValue);
+            count[last] = c + 1;
+            return;
+        }
+        if (size == generation.length) {
+            compact();
+        }
+        generation[size] = gen;
+        max[size] = maxValue;
+        mean[size] = meanValue;
+        min[size] = minValue;
+        count[size] = 1;
+        size++;
+    }
+
+    /**
+     * Merges adjacent slots pairwise and doubles the generations covered by a slot
+     */
+    private void compact() {
+        int n = 0;
+        for (int i = 0; i < size; i += 2, n++) {
+            if (i + 1 < size) {
+                int c = count[i] + count[i + 1];
+                generation[n] = generation[i + 1];
+                max[n] = Math.max(max[i], max[i + 1]);
+                mean[n] = (mean[i] * count[i] + mean[i + 1] * count[i + 1]) / c;
+                min[n] = Math.min(min[i], min[i + 1]);
+                count[n] = c;
+            } else {
+                generation[n] = generation[i];
+                max[n] = max[i];
+                mean[n] = mean[i];
+                min[n] = min[i];
+                count[n] = count[i];
+            }
+        }
+        size = n;
+        stride *= 2;
+    }
+
+    /**
+     * Removes all the recorded generations
+     */
+    public void clear() {
+        size = 0;
+        stride = 1;
+    }
+
+    /**
+     * Returns the number of slots in use
+     *
+     * @return the number of recorded points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the last generation merged into a slot
+     *
+     * @param i the slot index
+     * @return the generation number
+     */
+    public int getGeneration(int i) {
+        return generation[i];
+    }
+
+    /**
+     * Returns the value of a measure in a slot
+     *
+     * @param measure the measure
+     * @param i the slot index
+     * @return the recorded value
+     */
+    public double getValue(Measure measure, int i) {
+        return values(measure)[i];
+    }
+
+    private double[] values(Measure measure) {
+        switch (measure) {
+            case MAX:
+                return max;
+            case MIN:
+                return min;
+            default:
+                return mean;
+        }
+    }
+
+    /**
+     * Selects the slots that best preserve the visual shape of a measure, using the
+     * Largest-Triangle-Three-Buckets algorithm. The first and the last slot are always
+     * selected.
+     *
+     * @param measure the measure to downsample
+     * @param threshold the maximum number of points wanted, usually the width in pixels of the chart
+     * @return the selected slot indexes, in increasing order
+     */
+    public int[] downsample(Measure measure, int threshold) {
+        final double[] y = values(measure);
+        final int n = size;
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int[] sampled = new int[threshold];
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        sampled[0] = 0;
+        for (int b = 0; b < threshold - 2; b++) {
+            // average of the next bucket, the third vertex of the triangle
+            int avgStart = (int) ((b + 1) * every) + 1;
+            int avgEnd = Math.min((int) ((b + 2) * every) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = avgStart; i < avgEnd; i++) {
+                avgX += generation[i];
+                avgY += y[i];
+            }
+            int avgLength = avgEnd - avgStart;
+            if (avgLength > 0) {
+                avgX /= avgLength;
+                avgY /= avgLength;
+            } else {
+                avgX = generation[n - 1];
+                avgY = y[n - 1];
+            }
+            // point of the current bucket forming the largest triangle
+            int rangeStart = (int) (b * every) + 1;
+            int rangeEnd = (int) ((b + 1) * every) + 1;
+            double ax = generation[a];
+            double ay = y[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int i = rangeStart; i < rangeEnd; i++) {
+                double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - generation[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+            sampled[b + 1] = next;
+            a = next;
+        }
+        sampled[threshold - 1] = n - 1;
+        return sampled;
+    }
+}
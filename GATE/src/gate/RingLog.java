@@ -0,0 +1,95 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import java.util.Arrays;
+
+/**
+ * A bounded log of text lines. Once the capacity is reached each new line
+ * replaces the oldest one, so the text shown by a view never exceeds the
+ * capacity whatever the length of the run.
+ * <p>
+ * The log is not thread safe: it is meant to be used by the JavaFX Application Thread only.
+ */
+public final class RingLog {
+
+    private final String[] lines;
+    private int head;
+    private int size;
+    private long dropped;
+
+    /**
+     * Builds an empty log
+     *
+     * @param capacity the maximum number of lines kept
+     */
+    public RingLog(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        this.lines = new String[capacity];
+    }
+
+    /**
+     * Appends a line, discarding the oldest one if the log is full
+     *
+     * @param line the line, without the line terminator
+     */
+    public void add(String line) {
+        int tail = (head + size) % lines.length;
+        lines[tail] = line;
+        if (size < lines.length) {
+            size++;
+        } else {
+            head = (head + 1) % lines.length;
+            dropped++;
+        }
+    }
+
+    /**
+     * Removes all the lines
+     */
+    public void clear() {
+        Arrays.fill(lines, null);
+        head = 0;
+        size = 0;
+        dropped = 0;
+    }
+
+    /**
+     * Returns the number of lines kept
+     *
+     * @return the number of lines
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of lines discarded since the last clear
+     *
+     * @return the number of discarded lines
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns the kept lines, oldest first, each terminated by a new line
+     *
+     * @return the text of the log
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(size * 96);
+        if (dropped > 0) {
+            text.append("... ").append(dropped).append(" earlier lines omitted\n");
+        }
+        for (int i = 0; i < size; i++) {
+            text.append(lines[(head + i) % lines.length]).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the plug-in index of {@link ExperimentFactory}.
+ */
+public class ExperimentFactoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(File file, byte[] data) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+    }
+
+    private static Properties read(File file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        }
+        return props;
+    }
+
+    private static String checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Writes a plug-in file, which is not a valid plug-in, and an index matching it
+     */
+    private File plugins(byte[] jar) throws IOException {
+        File dir = folder.newFolder("plugins");
+        write(new File(dir, "operators.jar"), jar);
+        Properties index = new Properties();
+        index.setProperty("version", ExperimentFactory.INDEX_VERSION);
+        index.setProperty("jar.operators.jar", checksum(jar));
+        index.setProperty("stage.0", "Flip\tedu.flip\tedu.flip.FlipMutator\ttrue");
+        index.setProperty("stage.1", "Pick\tedu.pick\tedu.pick.PickSelector\tfalse");
+        index.setProperty("chromosome.0", "Bits\tedu.bits\tedu.bits.Bits\tfalse");
+        index.setProperty("fitness.0", "OneMax\tedu.onemax\tedu.onemax.OneMax\tfalse");
+        try (OutputStream out = new FileOutputStream(new File(dir, ExperimentFactory.INDEX_FILE))) {
+            index.store(out, null);
+        }
+        return dir;
+    }
+
+    /**
+     * Tests that an up to date index is used without publishing the plug-ins
+     */
+    @Test
+    public void testIndexUsed() throws Exception {
+        byte[] jar = "operators".getBytes("UTF-8");
+        File dir = plugins(jar);
+        File indexFile = new File(dir, ExperimentFactory.INDEX_FILE);
+        Properties before = read(indexFile);
+
+        ExperimentFactory factory = new ExperimentFactory(dir);
+        assertEquals(Arrays.asList("Flip", "Pick"), Arrays.asList(factory.getStageNames().toArray()));
+        assertEquals(Arrays.asList("Bits"), Arrays.asList(factory.getChromosomeNames().toArray()));
+        assertEquals(Arrays.asList("OneMax"), Arrays.asList(factory.getFitnessNames().toArray()));
+        assertTrue(factory.isMutator("Flip"));
+        assertFalse(factory.isMutator("Pick"));
+        assertEquals(before, read(indexFile));
+    }
+
+    /**
+     * Tests that the index is rebuilt when a plug-in file changes
+     */
+    @Test
+    public void testStaleIndex() throws Exception {
+        File dir = plugins("operators".getBytes("UTF-8"));
+        byte[] changed = "operators, changed".getBytes("UTF-8");
+        write(new File(dir, "operators.jar"), changed);
+
+        ExperimentFactory factory = new ExperimentFactory(dir);
+        // the changed file is not a valid plug-in, so nothing is indexed
+        assertTrue(factory.getStageNames().isEmpty());
+        Properties index = read(new File(dir, ExperimentFactory.INDEX_FILE));
+        assertEquals(checksum(changed), index.getProperty("jar.operators.jar"));
+        assertNull(index.getProperty("stage.0"));
+    }
+
+    /**
+     * Tests that unknown plug-ins are reported with the available names
+     */
+    @Test
+    public void testUnknownPlugin() throws Exception {
+        ExperimentFactory factory = new ExperimentFactory(plugins("operators".getBytes("UTF-8")));
+        try {
+            factory.createStage("Missing", "", 0.1);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("Flip"));
+        }
+    }
+}
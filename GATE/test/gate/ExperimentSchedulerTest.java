@@ -0,0 +1,139 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import jenes.GeneticAlgorithm;
+import jenes.utils.multitasking.MultiThreadEvaluator;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the core budget of {@link ExperimentScheduler}.
+ */
+public class ExperimentSchedulerTest {
+
+    private static final long TIMEOUT = 5000;
+    private final ExperimentScheduler scheduler = new ExperimentScheduler(4);
+
+    /**
+     * An experiment running until released
+     */
+    private static class Experiment extends GeneticAlgorithm {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private Experiment(int threads) {
+            if (threads > 0) {
+                this.setRunner(new MultiThreadEvaluator(threads));
+            }
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void awaitStart() throws InterruptedException {
+            assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void awaitEnd(GeneticAlgorithm ga) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (scheduler.isRunning(ga) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(scheduler.isRunning(ga));
+    }
+
+    @After
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Tests that experiments are weighted by their runner threads
+     */
+    @Test
+    public void testCoresOf() {
+        assertEquals(1, ExperimentScheduler.coresOf(new Experiment(0)));
+        assertEquals(3, ExperimentScheduler.coresOf(new Experiment(3)));
+    }
+
+    /**
+     * Tests that experiments start in order while they fit in the budget, and
+     * that the cores of an ended experiment are given to the next ones
+     */
+    @Test
+    public void testBudget() throws InterruptedException {
+        Experiment a = new Experiment(2);
+        Experiment b = new Experiment(2);
+        Experiment c = new Experiment(0);
+        Experiment d = new Experiment(0);
+        assertTrue(scheduler.submit(a));
+        assertTrue(scheduler.submit(b));
+        assertTrue(scheduler.submit(c));
+        assertTrue(scheduler.submit(d));
+        assertFalse(scheduler.submit(c));
+        a.awaitStart();
+        b.awaitStart();
+        assertEquals(4, scheduler.getUsedCores());
+        assertEquals(2, scheduler.getRunningCount());
+        assertTrue(scheduler.isPending(c));
+        assertTrue(scheduler.isPending(d));
+
+        a.release.countDown();
+        awaitEnd(a);
+        c.awaitStart();
+        d.awaitStart();
+        assertEquals(4, scheduler.getUsedCores());
+        assertEquals(0, scheduler.getPendingCount());
+
+        b.release.countDown();
+        c.release.countDown();
+        d.release.countDown();
+        awaitEnd(b);
+        awaitEnd(c);
+        awaitEnd(d);
+        assertEquals(0, scheduler.getUsedCores());
+    }
+
+    /**
+     * Tests that an experiment heavier than the budget waits for all the others
+     * and then runs alone, and that pending experiments can be dropped
+     */
+    @Test
+    public void testHeavyExperiment() throws InterruptedException {
+        Experiment light = new Experiment(0);
+        Experiment heavy = new Experiment(8);
+        Experiment dropped = new Experiment(0);
+        scheduler.submit(light);
+        scheduler.submit(heavy);
+        scheduler.submit(dropped);
+        light.awaitStart();
+        assertTrue(scheduler.isPending(heavy));
+        // submission order is kept: lighter experiments do not overtake the heavy one
+        assertTrue(scheduler.isPending(dropped));
+        assertTrue(scheduler.cancel(dropped));
+        assertFalse(scheduler.isPending(dropped));
+
+        light.release.countDown();
+        heavy.awaitStart();
+        assertEquals(1, scheduler.getRunningCount());
+        assertEquals(scheduler.getCores(), scheduler.getUsedCores());
+        heavy.release.countDown();
+        awaitEnd(heavy);
+        assertEquals(1, dropped.started.getCount());
+    }
+}
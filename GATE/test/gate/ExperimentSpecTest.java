@@ -0,0 +1,107 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the sweep grid and the defaults of {@link ExperimentSpec}.
+ */
+public class ExperimentSpecTest {
+
+    private static final File OUTPUT = new File("sweep.csv");
+
+    private static Properties required() {
+        Properties props = new Properties();
+        props.setProperty("chromosome", "Bitwise");
+        props.setProperty("fitness", "OneMax");
+        props.setProperty("stages", " Tournament , OnePoint,Simple ");
+        props.setProperty("population", "10");
+        return props;
+    }
+
+    /**
+     * Tests that the grid is the cartesian product of the values, each point repeated
+     */
+    @Test
+    public void testGrid() {
+        Properties props = required();
+        props.setProperty("population", "10, 20");
+        props.setProperty("mutationRate", "0.01,0.1");
+        props.setProperty("generations", "50");
+        props.setProperty("replicates", "3");
+        props.setProperty("seed", "100");
+        ExperimentSpec spec = new ExperimentSpec(props, OUTPUT);
+
+        List<ExperimentSpec.Point> points = spec.getPoints();
+        assertEquals(2 * 2 * 1 * 3, points.size());
+        for (int i = 0; i < points.size(); i++) {
+            ExperimentSpec.Point p = points.get(i);
+            assertEquals(i, p.getIndex());
+            assertEquals(i < 6 ? 10 : 20, p.getPopulationSize());
+            assertEquals(i % 6 < 3 ? 0.01 : 0.1, p.getMutationRate(), 0);
+            assertEquals(50, p.getGenerations());
+            assertEquals(i % 3, p.getReplicate());
+            assertEquals(100L + i, spec.getSeed(p).longValue());
+        }
+        assertEquals(3, spec.getStages().size());
+        assertEquals("OnePoint", spec.getStages().get(1));
+    }
+
+    /**
+     * Tests the default values of the optional properties
+     */
+    @Test
+    public void testDefaults() {
+        ExperimentSpec spec = new ExperimentSpec(required(), OUTPUT);
+        assertEquals(1, spec.getPoints().size());
+        ExperimentSpec.Point p = spec.getPoints().get(0);
+        assertEquals(0.1, p.getMutationRate(), 0);
+        assertEquals(100, p.getGenerations());
+        assertNull(spec.getSeed(p));
+        assertEquals(1, spec.getJeneSize(), 0);
+        assertEquals("", spec.getProperties());
+        assertEquals(new File("plugins"), spec.getPlugins());
+        assertEquals(OUTPUT, spec.getOutput());
+        assertEquals(Runtime.getRuntime().availableProcessors(), spec.getCores());
+    }
+
+    /**
+     * Tests that missing and invalid values are rejected
+     */
+    @Test
+    public void testInvalid() {
+        for (String key : new String[]{"chromosome", "fitness", "stages", "population"}) {
+            Properties props = required();
+            props.remove(key);
+            assertInvalid(props);
+        }
+        String[][] invalid = {
+            {"mutationRate", "1"},
+            {"mutationRate", "-0.1"},
+            {"population", "0"},
+            {"replicates", "0"},
+            {"cores", "0"},
+            {"stages", " , "}
+        };
+        for (String[] entry : invalid) {
+            Properties props = required();
+            props.setProperty(entry[0], entry[1]);
+            assertInvalid(props);
+        }
+    }
+
+    private static void assertInvalid(Properties props) {
+        try {
+            new ExperimentSpec(props, OUTPUT);
+            fail(props.toString());
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}
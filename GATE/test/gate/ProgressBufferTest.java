@@ -0,0 +1,90 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the compaction and the downsampling of {@link ProgressBuffer}.
+ */
+public class ProgressBufferTest {
+
+    private static final int CAPACITY = 16;
+
+    /**
+     * Tests that a long run is kept within the capacity, with at least half of
+     * it as resolution and without losing extremes and mean
+     */
+    @Test
+    public void testCompaction() {
+        ProgressBuffer buffer = new ProgressBuffer(CAPACITY);
+        final int generations = 1000;
+        double sum = 0;
+        for (int g = 0; g < generations; g++) {
+            double mean = g % 7;
+            sum += mean;
+            buffer.add(g, mean + g, mean, mean - g);
+            assertTrue(buffer.size() <= CAPACITY);
+        }
+        int n = buffer.size();
+        assertTrue(n >= CAPACITY / 2);
+        assertEquals(generations - 1, buffer.getGeneration(n - 1));
+
+        double max = Double.NEGATIVE_INFINITY;
+        double min = Double.POSITIVE_INFINITY;
+        double weighted = 0;
+        int previous = -1;
+        for (int i = 0; i < n; i++) {
+            int g = buffer.getGeneration(i);
+            assertTrue(g > previous);
+            // a slot covers the generations after the previous slot, up to its own
+            weighted += buffer.getValue(ProgressBuffer.Measure.MEAN, i) * (g - previous);
+            previous = g;
+            max = Math.max(max, buffer.getValue(ProgressBuffer.Measure.MAX, i));
+            min = Math.min(min, buffer.getValue(ProgressBuffer.Measure.MIN, i));
+        }
+        assertEquals(generations - 1 + (generations - 1) % 7, max, 0);
+        assertEquals(-(generations - 1) + (generations - 1) % 7, min, 0);
+        assertEquals(sum / generations, weighted / generations, 1e-9);
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        buffer.add(0, 1, 1, 1);
+        buffer.add(1, 2, 2, 2);
+        assertEquals(2, buffer.size());
+    }
+
+    /**
+     * Tests that downsampling keeps the ends and the spikes of a measure
+     */
+    @Test
+    public void testDownsample() {
+        ProgressBuffer buffer = new ProgressBuffer(CAPACITY);
+        final int spike = 9;
+        for (int g = 0; g < CAPACITY; g++) {
+            double v = g == spike ? 100 : 1;
+            buffer.add(g, v, v, v);
+        }
+        int[] sampled = buffer.downsample(ProgressBuffer.Measure.MAX, 5);
+        assertEquals(5, sampled.length);
+        assertEquals(0, sampled[0]);
+        assertEquals(CAPACITY - 1, sampled[sampled.length - 1]);
+        boolean kept = false;
+        for (int i = 0; i < sampled.length; i++) {
+            if (i > 0) {
+                assertTrue(sampled[i] > sampled[i - 1]);
+            }
+            kept |= sampled[i] == spike;
+        }
+        assertTrue(kept);
+
+        int[] all = buffer.downsample(ProgressBuffer.Measure.MAX, CAPACITY);
+        assertEquals(CAPACITY, all.length);
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(i, all[i]);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package gate;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the bounded text of {@link RingLog}.
+ */
+public class RingLogTest {
+
+    /**
+     * Tests that the oldest lines are dropped once the capacity is reached
+     */
+    @Test
+    public void testCapacity() {
+        RingLog log = new RingLog(3);
+        log.add("a");
+        log.add("b");
+        assertEquals(2, log.size());
+        assertEquals(0, log.getDropped());
+        assertEquals("a\nb\n", log.toString());
+
+        log.add("c");
+        log.add("d");
+        log.add("e");
+        assertEquals(3, log.size());
+        assertEquals(2, log.getDropped());
+        assertEquals("... 2 earlier lines omitted\nc\nd\ne\n", log.toString());
+    }
+
+    /**
+     * Tests that a cleared log starts again from empty
+     */
+    @Test
+    public void testClear() {
+        RingLog log = new RingLog(2);
+        for (int i = 0; i < 5; i++) {
+            log.add("line " + i);
+        }
+        log.clear();
+        assertEquals(0, log.size());
+        assertEquals(0, log.getDropped());
+        assertEquals("", log.toString());
+        log.add("x");
+        assertEquals("x\n", log.toString());
+    }
+
+    /**
+     * Tests that a log needs room for one line at least
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new RingLog(0);
+    }
+}